@@ -2,6 +2,7 @@ package com.dji.sdk.sample.demo.missionoperator;
 
 import android.app.Activity;
 import android.app.AlertDialog;
+import android.app.Dialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
@@ -14,8 +15,11 @@ import android.net.Uri;
 import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.provider.OpenableColumns;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.Surface;
 import android.view.View;
@@ -29,26 +33,55 @@ import android.widget.TextView;
 import android.widget.ToggleButton;
 import android.widget.ViewFlipper;
 
+import com.davemorrissey.labs.subscaleview.ImageSource;
+import com.davemorrissey.labs.subscaleview.SubsamplingScaleImageView;
 import com.dji.sdk.sample.R;
 import com.dji.sdk.sample.demo.missionmanager.MissionBaseView;
 import com.dji.sdk.sample.demo.missionoperator.adapter.PhotoGalleryAdapter;
 import com.dji.sdk.sample.demo.missionoperator.adapter.StructureFolderAdapter;
+import com.dji.sdk.sample.demo.missionoperator.util.CachingRegionDecoder;
+import com.dji.sdk.sample.demo.missionoperator.util.CompiledMissionFile;
+import com.dji.sdk.sample.demo.missionoperator.util.InspectionCsvLoader;
+import com.dji.sdk.sample.demo.missionoperator.util.InspectionMissionPlanner;
+import com.dji.sdk.sample.demo.missionoperator.util.InspectionPlan;
+import com.dji.sdk.sample.demo.missionoperator.util.LocalEnuFrame;
+import com.dji.sdk.sample.demo.missionoperator.util.MediaChangeTracker;
+import com.dji.sdk.sample.demo.missionoperator.util.MediaFetchScheduler;
+import com.dji.sdk.sample.demo.missionoperator.util.MissionPlanCache;
+import com.dji.sdk.sample.demo.missionoperator.util.MissionSegmenter;
+import com.dji.sdk.sample.demo.missionoperator.util.ObstacleSectorProcessor;
+import com.dji.sdk.sample.demo.missionoperator.util.OriginalPhotoDownloader;
+import com.dji.sdk.sample.demo.missionoperator.util.PhotoArchiver;
+import com.dji.sdk.sample.demo.missionoperator.util.PhotoExporter;
+import com.dji.sdk.sample.demo.missionoperator.util.PhotoOrbitOrderer;
+import com.dji.sdk.sample.demo.missionoperator.util.PhotoQualityCheck;
+import com.dji.sdk.sample.demo.missionoperator.util.PhotoReviewPipeline;
 import com.dji.sdk.sample.demo.missionoperator.util.PhotoStorageManager;
+import com.dji.sdk.sample.demo.missionoperator.util.PhotoThroughputMeter;
+import com.dji.sdk.sample.demo.missionoperator.util.PlannedMission;
+import com.dji.sdk.sample.demo.missionoperator.util.ReshootList;
+import com.dji.sdk.sample.demo.missionoperator.util.RouteOptimizer;
+import com.dji.sdk.sample.demo.missionoperator.util.TelemetryUiBridge;
+import com.dji.sdk.sample.demo.missionoperator.util.WaypointMissionAdapter;
+import com.dji.sdk.sample.demo.missionoperator.util.WaypointRoleTable;
 import com.dji.sdk.sample.internal.controller.DJISampleApplication;
 import com.dji.sdk.sample.internal.utils.ToastUtils;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -60,20 +93,17 @@ import dji.common.error.DJIError;
 import dji.common.flightcontroller.FlightControllerState;
 import dji.common.flightcontroller.FlightMode;
 import dji.common.flightcontroller.ObstacleDetectionSector;
+import dji.common.flightcontroller.ObstacleDetectionSectorWarning;
 import dji.common.flightcontroller.VisionDetectionState;
+import dji.common.flightcontroller.VisionSystemWarning;
 import dji.common.gimbal.CapabilityKey;
 import dji.common.gimbal.GimbalMode;
 import dji.common.gimbal.Rotation;
 import dji.common.gimbal.RotationMode;
-import dji.common.mission.waypoint.Waypoint;
-import dji.common.mission.waypoint.WaypointAction;
-import dji.common.mission.waypoint.WaypointActionType;
 import dji.common.mission.waypoint.WaypointMission;
 import dji.common.mission.waypoint.WaypointMissionDownloadEvent;
 import dji.common.mission.waypoint.WaypointMissionExecutionEvent;
 import dji.common.mission.waypoint.WaypointMissionFinishedAction;
-import dji.common.mission.waypoint.WaypointMissionFlightPathMode;
-import dji.common.mission.waypoint.WaypointMissionHeadingMode;
 import dji.common.mission.waypoint.WaypointMissionState;
 import dji.common.mission.waypoint.WaypointMissionUploadEvent;
 import dji.common.util.CommonCallbacks;
@@ -102,16 +132,35 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     private static final int REQUEST_PHOTO_POSITIONS_CSV = 1002;
 
     // Mission parameters
-    private static final double ONE_METER_OFFSET = 0.00000899322; // Approximately 1 meter in GPS coordinates
     private static final float DEFAULT_ALTITUDE = 0.0f; // Minimum base altitude in meters
     private static final float DEFAULT_SPEED = 5.0f; // Default speed in m/s
     private static final float SAFE_DISTANCE = 2.5f; // Safe distance from structures in meters
     private static final float SAFETY_ALTITUDE = 25.0f; // Safety altitude for traveling between structures
+    private static final long ROUTE_OPTIMIZATION_BUDGET_MS = 3000; // Time limit for reordering structures
+    // Every structure is entered from above its center, so reversing the orbit gains nothing by default
+    private static final boolean ALTERNATE_PHOTO_ORBIT = false;
+    private static final String MISSION_PLAN_CACHE_DIRECTORY = "mission_plans";
+    private static final int MISSION_PLAN_CACHE_MEMORY_ENTRIES = 4;
+    private static final int MISSION_PLAN_CACHE_DISK_ENTRIES = 16;
+    private static final int TELEMETRY_UI_MAX_HZ = 10; // Telemetry text redraws per second at most
+
+    // Telemetry fields redrawn by the UI bridge
+    private static final int DIRTY_LOCATION = 1;
+    private static final int DIRTY_PROGRESS = 1 << 1;
+    private static final int DIRTY_MISSION_INFO = 1 << 2;
+    private static final int DIRTY_STATUS = 1 << 3; // Waypoint status line
+    private static final boolean LOG_WAYPOINT_EVENTS = false; // Per-event waypoint debug logging
+
+    private static final int MAX_OBSTACLE_SECTORS = 16;
+    // Resolved once so rendering obstacle text needs no enum lookups
+    private static final Object[] OBSTACLE_WARNING_NAMES = ObstacleDetectionSectorWarning.values();
+    private static final Object[] VISION_SYSTEM_WARNING_NAMES = VisionSystemWarning.values();
 
     // UI components - Main view
     private Button btnLoadStructures;
     private Button btnReviewPhoto;
     private Button btnLoadPhotoPositions;
+    private Button btnExportMission;
     private Button btnTakePhoto;
     private Button btnStartMission;
     private ToggleButton btnPause;
@@ -133,6 +182,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     private ViewFlipper viewFlipper;
     private Button btnToggleGallery;
     private Button btnBackToMission;
+    private Button btnExportPhotos;
     private RecyclerView recyclerPhotos;
     private TextView noPhotosText;
     private Button btnLiveStream;
@@ -167,12 +217,38 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     // Photo storage and gallery components
     private PhotoStorageManager photoStorageManager;
 
+    // Background CSV loading
+    private InspectionCsvLoader csvLoader;
+
+    // Planned missions from previous runs, keyed by the planning inputs
+    private MissionPlanCache missionPlanCache;
+
     // Mission data
-    private List<InspectionPoint> inspectionPoints;
-    private List<RelativePhotoPoint> photoPoints;
-    private List<Integer> photoWaypointIndices; // Track photo waypoint indices
+    private InspectionPlan inspectionPlan;
+    private PlannedMission plannedMission;
+    private List<MissionSegmenter.Segment> missionSegments;
+    // First waypoint of each segment for SDK callbacks; replaced with each mission, never modified
+    private volatile int[] segmentStarts;
+    // Segment state is written on the main thread only; SDK callbacks read the index
+    private volatile int currentSegmentIndex = 0;
+    private Future<WaypointMission> nextSegmentMission;
+    private volatile boolean segmentHandoffEnabled = false;
+    // Incremented by Stop and by loading a new mission, so a hand-off in progress gives up
+    private volatile int segmentHandoffGeneration = 0;
+    private ExecutorService missionBuildExecutor = Executors.newSingleThreadExecutor();
+    // Background threads are stopped on detach and recreated if the view is attached again
+    private boolean backgroundWorkersReleased = false;
+    // CSV index of each structure of inspectionPlan once it is in flight order; null while in CSV order
+    private int[] inspectionPlanOrder;
+    private int inspectionPlanRevision = 0; // Incremented whenever a CSV replaces plan data
+    // Last planning result and its input, used by the mission build executor to re-plan incrementally.
+    // The input is in CSV order, the order lastPlanned.structureOrder indexes into.
+    private CompiledMissionFile.Contents lastPlanned;
+    private InspectionPlan lastPlannedSource;
+    private volatile WaypointRoleTable waypointRoles; // Role of every waypoint, for execution events
     private int currentInspectionIndex = 0;
     private int currentPhotoIndex = 0;
+    private int currentPhotoOrdinal = 0; // Photos flown so far, in flight order
     private boolean isWaitingForReview = false;
     private Bitmap lastPhotoTaken = null;
     private SettingsDefinitions.StorageLocation storageLocation = SettingsDefinitions.StorageLocation.INTERNAL_STORAGE;
@@ -196,11 +272,32 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     private double homeLatitude;
     private double homeLongitude;
     private FlightMode flightState; // FIXED: Use correct FlightMode import
+    private LocalEnuFrame currentStructureFrame; // Cached for telemetry rendering on the main thread, rebuilt when the structure changes
+    private InspectionPlan currentStructureFramePlan;
+    private int currentStructureFrameIndex = -1;
+
+    // Latest telemetry, written by SDK callbacks and drawn by telemetryBridge
+    private final TelemetryUiBridge telemetryBridge = new TelemetryUiBridge(new TelemetryUiBridge.Renderer() {
+        @Override
+        public void render(int dirtyMask) {
+            renderTelemetry(dirtyMask);
+        }
+    }, TELEMETRY_UI_MAX_HZ);
+    private volatile double aircraftLatitude;
+    private volatile double aircraftLongitude;
+    private volatile float aircraftAltitude;
+    // Latest waypoint execution event, drawn as the status line
+    private volatile int statusWaypointIndex;
+    private volatile int statusStructureIndex;
+    private volatile int statusPhotoIndex;
+    private volatile boolean statusPhotoWaypoint;
+    private volatile boolean statusWaypointReached;
+    private volatile int statusWaypointSequence; // Incremented per execution event
+    private int shownWaypointSequence; // Main thread only; a status message supersedes earlier events
 
     // Obstacle avoidance data
     private boolean obstacleAvoidanceEnabled = false;
-    private float closestObstacleDistance = 0.0f;
-    private StringBuilder obstacleInfoBuilder = new StringBuilder();
+    private final ObstacleSectorProcessor obstacleSectors = new ObstacleSectorProcessor(MAX_OBSTACLE_SECTORS);
 
     // Live stream state
     private boolean isLiveStreamActive = false;
@@ -211,40 +308,64 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     private boolean orientationLocked = false;
 
     // ENHANCED PHOTO FETCHING VARIABLES
-    private int photoFetchRetryCount = 0;
     private static final int MAX_PHOTO_FETCH_RETRIES = 5;
-    private static final long PHOTO_FETCH_RETRY_DELAY = 2000; // 2 seconds
-    private boolean isPhotoFetchInProgress = false;
+    private static final long PHOTO_FETCH_BASE_RETRY_DELAY = 500; // Doubled for every further retry
+    private static final long PHOTO_FETCH_MAX_RETRY_DELAY = 4000;
+    private static final long PHOTO_FETCH_ATTEMPT_TIMEOUT = 10000;
+    private static final long PHOTO_READY_INITIAL_ESTIMATE = 1500; // Until the camera write time is learned
+    private static final long PHOTO_READY_MIN_DELAY = 200;
+    private final MediaFetchScheduler photoFetchScheduler = new MediaFetchScheduler(MAX_PHOTO_FETCH_RETRIES,
+            PHOTO_FETCH_BASE_RETRY_DELAY, PHOTO_FETCH_MAX_RETRY_DELAY, PHOTO_FETCH_ATTEMPT_TIMEOUT,
+            PHOTO_READY_INITIAL_ESTIMATE, PHOTO_READY_MIN_DELAY);
+    private MediaFetchScheduler.CancellationToken photoFetchToken; // Fetch of the paused photo review
+    private volatile MediaFile reviewMediaFile; // Media file of the photo in the paused review
     private long lastPhotoTakenTime = 0;
 
-    // Data classes for storing mission information
-    private class InspectionPoint {
-        double latitude;
-        double longitude;
-        float groundAltitude; // Elevation difference from base level (in meters)
-        float structureHeight; // Height of the structure (in meters)
-
-        InspectionPoint(double lat, double lon, float elevationDiff, float height) {
-            latitude = lat;
-            longitude = lon;
-            groundAltitude = elevationDiff;
-            structureHeight = height;
-        }
-    }
-
-    private class RelativePhotoPoint {
-        float offsetX; // meters east
-        float offsetY; // meters north
-        float offsetZ; // meters up
-        float gimbalPitch; // degrees
-
-        RelativePhotoPoint(float x, float y, float z, float pitch) {
-            offsetX = x;
-            offsetY = y;
-            offsetZ = z;
-            gimbalPitch = pitch;
-        }
-    }
+    // Pipelined photo review: keep flying while photos are fetched and checked in the background,
+    // and stop only for photos that fail the checks. False restores the pause-per-photo review.
+    private static final boolean PIPELINED_PHOTO_REVIEW = true;
+    private static final float PHOTO_MIN_SHARPNESS = 100.0f; // Laplacian variance of the downscaled preview
+    private static final float PHOTO_MIN_LUMINANCE = 40.0f;
+    private static final float PHOTO_MAX_LUMINANCE = 220.0f;
+    private static final float PHOTO_MAX_CLIPPED_FRACTION = 0.25f;
+    private static final int PHOTO_PIPELINE_MAX_QUEUED = 8;
+
+    // Full-resolution originals replace the saved preview copies in the background. The media
+    // manager serves one file download at a time, so more would only queue inside the SDK.
+    private static final int ORIGINAL_DOWNLOAD_CONCURRENCY = 1;
+    private static final int ORIGINAL_DOWNLOAD_MAX_QUEUED = 64;
+    private static final int ORIGINAL_DOWNLOAD_MAX_ATTEMPTS = 3;
+    private OriginalPhotoDownloader originalPhotoDownloader;
+
+    // The fullscreen viewer decodes only the visible tiles of a photo at the sampling the zoom
+    // needs, so memory stays bounded however large the original is. Tiles are cached across
+    // viewers so panning back or reopening a photo does not decode the same regions again.
+    private static final int FULLSCREEN_TILE_CACHE_MAX_BYTES = 24 * 1024 * 1024;
+    private static final float FULLSCREEN_MAX_SCALE = 4.0f; // Screen pixels per photo pixel
+    private CachingRegionDecoder.TileCache fullscreenTileCache;
+
+    // Exports copy photos into Downloads, keeping the structure folders, or package them into
+    // ZIP volumes with a manifest for the engineering office
+    private static final String EXPORT_FOLDER = "structure_inspection_export";
+    private static final String PACKAGE_FOLDER = "structure_inspection_packages";
+    private static final String MISSION_EXPORT_FOLDER = "structure_inspection_missions";
+    private static final long PACKAGE_VOLUME_MAX_BYTES = 2L * 1024 * 1024 * 1024; // Also fits FAT32 drives
+    private PhotoExporter photoExporter;
+    private PhotoExporter.Export currentExport;
+    private PhotoArchiver photoArchiver;
+    private PhotoArchiver.Packaging currentPackaging;
+    private PhotoReviewPipeline photoReviewPipeline;
+    private static final int MEDIA_TRACKER_RECENT_FILES = 32;
+    private static final int MEDIA_TRACKER_MAX_SCANNED_FILES = 64;
+    // Photos reported by the camera since the last one matched to a shot
+    private final MediaChangeTracker mediaChangeTracker =
+            new MediaChangeTracker(MEDIA_TRACKER_RECENT_FILES, MEDIA_TRACKER_MAX_SCANNED_FILES);
+    private static final String RESHOOT_PREFERENCE_KEY = "structure_inspection_reshoot";
+    private static final int RESHOOT_DESCRIBED_STRUCTURES = 8;
+    // Positions the operator sent back for re-shooting; kept until a photo of the position is saved
+    private ReshootList reshootList;
+    private final PhotoThroughputMeter pipelinedPhotoThroughput = new PhotoThroughputMeter();
+    private final PhotoThroughputMeter sequentialPhotoThroughput = new PhotoThroughputMeter();
 
     public StructureInspectionMissionView(Context context) {
         this(context, false); // Default to real drone mode for testing
@@ -367,16 +488,30 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             inflate(context, R.layout.view_structure_inspection_mission, this);
         }
 
-        // Initialize the PhotoStorageManager before using it
-        photoStorageManager = new PhotoStorageManager(context);
+        // Initialize the PhotoStorageManager before using it; saved photos are listed in the background
+        photoStorageManager = new PhotoStorageManager(context, new PhotoStorageManager.LoadListener() {
+            @Override
+            public void onPhotosLoaded(int photoCount) {
+                Log.d(TAG, "Photo library loaded: " + photoCount + " photos");
+                refreshGallery();
+            }
+        });
+        originalPhotoDownloader = createOriginalPhotoDownloader();
+        photoExporter = new PhotoExporter(photoStorageManager.getStorageDirectory());
+        photoArchiver = new PhotoArchiver(photoStorageManager.getStorageDirectory());
+        csvLoader = new InspectionCsvLoader();
+        missionPlanCache = new MissionPlanCache(new File(context.getCacheDir(), MISSION_PLAN_CACHE_DIRECTORY),
+                MISSION_PLAN_CACHE_MEMORY_ENTRIES, MISSION_PLAN_CACHE_DISK_ENTRIES);
+        photoReviewPipeline = createPhotoReviewPipeline();
+        reshootList = ReshootList.fromStrings(context.getSharedPreferences(context.getPackageName(), Context.MODE_PRIVATE)
+                .getStringSet(RESHOOT_PREFERENCE_KEY, Collections.<String>emptySet()));
 
         // Find views and set up listeners
         findViews();
         setupListeners();
 
         // Initialize mission data
-        inspectionPoints = new ArrayList<>();
-        photoPoints = new ArrayList<>();
+        inspectionPlan = new InspectionPlan();
 
         // Initialize connection status
         updateConnectionStatus();
@@ -389,6 +524,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         // Main mission controls
         btnLoadStructures = findViewById(R.id.btn_load_structures);
         btnLoadPhotoPositions = findViewById(R.id.btn_load_photo_positions);
+        btnExportMission = findViewById(R.id.btn_export_mission);
         btnStartMission = findViewById(R.id.btn_start_mission);
         btnPause = findViewById(R.id.btn_pause);
         btnStopMission = findViewById(R.id.btn_stop_mission);
@@ -404,6 +540,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         viewFlipper = findViewById(R.id.view_flipper);
         btnToggleGallery = findViewById(R.id.btn_toggle_gallery);
         btnBackToMission = findViewById(R.id.btn_back_to_mission);
+        btnExportPhotos = findViewById(R.id.btn_export_photos);
         recyclerPhotos = findViewById(R.id.recycler_photos);
         noPhotosText = findViewById(R.id.text_no_photos);
 
@@ -435,6 +572,9 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         // Set click listeners for mission controls
         btnLoadStructures.setOnClickListener(this);
         btnLoadPhotoPositions.setOnClickListener(this);
+        if (btnExportMission != null) {
+            btnExportMission.setOnClickListener(this);
+        }
         if (btnReviewPhoto != null) {
             btnReviewPhoto.setOnClickListener(new OnClickListener() {
                 @Override
@@ -445,6 +585,16 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             });
         }
         btnStartMission.setOnClickListener(this);
+        btnStartMission.setOnLongClickListener(new OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                if (reshootList.isEmpty()) {
+                    return false;
+                }
+                offerReshootMission();
+                return true;
+            }
+        });
         btnStopMission.setOnClickListener(this);
 
         // Set toggle listener for pause button
@@ -480,6 +630,26 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             });
         }
 
+        if (btnExportPhotos != null) {
+            btnExportPhotos.setOnClickListener(new OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (currentExport != null || currentPackaging != null) {
+                        if (currentExport != null) {
+                            currentExport.cancel();
+                        }
+                        if (currentPackaging != null) {
+                            currentPackaging.cancel();
+                        }
+                        updateStatus("Cancelando exportação...");
+                    } else {
+                        showExportOptions();
+                    }
+                }
+            });
+            updateExportButton();
+        }
+
         if (btnBackToStructures != null) {
             btnBackToStructures.setOnClickListener(new OnClickListener() {
                 @Override
@@ -651,6 +821,9 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         if (viewFlipper != null) {
             viewFlipper.setDisplayedChild(0);
         }
+        if (photoGalleryAdapter != null) {
+            photoGalleryAdapter.releaseThumbnailMemory();
+        }
     }
 
     private void showStructuresList() {
@@ -725,7 +898,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         updateAdvancedMissionInfo();
 
         if (btnStartMission != null) {
-            btnStartMission.setEnabled((!inspectionPoints.isEmpty() && !photoPoints.isEmpty()) ||
+            btnStartMission.setEnabled((inspectionPlan.hasStructures() && inspectionPlan.hasPhotoPositions()) ||
                     isMissionPaused || missionPausedForPhotoReview);
         }
 
@@ -741,23 +914,23 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                             waypointMissionOperator.getCurrentState() == WaypointMissionState.EXECUTION_PAUSED));
         }
 
-        if (csvInfoText != null && (!inspectionPoints.isEmpty() || !photoPoints.isEmpty())) {
+        if (csvInfoText != null && (inspectionPlan.hasStructures() || inspectionPlan.hasPhotoPositions())) {
             StringBuilder info = new StringBuilder();
-            if (!inspectionPoints.isEmpty()) {
-                info.append(inspectionPoints.size()).append(" estruturas carregadas");
+            if (inspectionPlan.hasStructures()) {
+                info.append(inspectionPlan.getStructureCount()).append(" estruturas carregadas");
             }
-            if (!photoPoints.isEmpty()) {
+            if (inspectionPlan.hasPhotoPositions()) {
                 if (info.length() > 0) {
                     info.append(", ");
                 }
-                info.append(photoPoints.size()).append(" posições de foto");
+                info.append(inspectionPlan.getPhotoCount()).append(" posições de foto");
             }
             csvInfoText.setText(info.toString());
         }
     }
 
     private void updateMissionProgress() {
-        if (inspectionPoints.isEmpty() || photoPoints.isEmpty()) {
+        if (!inspectionPlan.hasStructures() || !inspectionPlan.hasPhotoPositions()) {
             if (progressMission != null) {
                 progressMission.setProgress(0);
             }
@@ -772,18 +945,18 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
 
         if (currentStructureText != null) {
             currentStructureText.setText(String.format("Estrutura: %d/%d",
-                    Math.min(currentInspectionIndex + 1, inspectionPoints.size()),
-                    inspectionPoints.size()));
+                    Math.min(currentInspectionIndex + 1, inspectionPlan.getStructureCount()),
+                    inspectionPlan.getStructureCount()));
         }
 
         if (currentPhotoText != null) {
             currentPhotoText.setText(String.format("Foto: %d/%d",
-                    Math.min(currentPhotoIndex + 1, photoPoints.size()),
-                    photoPoints.size()));
+                    Math.min(currentPhotoIndex + 1, inspectionPlan.getPhotoCount()),
+                    inspectionPlan.getPhotoCount()));
         }
 
-        int totalPhotos = inspectionPoints.size() * photoPoints.size();
-        int completedPhotos = currentInspectionIndex * photoPoints.size() + currentPhotoIndex;
+        int totalPhotos = inspectionPlan.getTotalPhotoCount();
+        int completedPhotos = currentPhotoOrdinal;
         int progressPercent = (totalPhotos > 0) ? (completedPhotos * 100 / totalPhotos) : 0;
 
         if (progressMission != null) {
@@ -803,26 +976,26 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         info.append("Distância segura: ").append(SAFE_DISTANCE).append(" m\n\n");
 
         info.append("ESTATÍSTICAS:\n");
-        info.append("Estruturas: ").append(inspectionPoints.size()).append("\n");
-        info.append("Posições de foto por estrutura: ").append(photoPoints.size()).append("\n");
+        info.append("Estruturas: ").append(inspectionPlan.getStructureCount()).append("\n");
+        info.append("Posições de foto por estrutura: ").append(inspectionPlan.getPhotoCount()).append("\n");
         info.append("Total de waypoints: ").append(totalWaypointCount).append("\n");
 
-        int safetyWaypoints = Math.max(0, (inspectionPoints.size() - 1) * 2);
+        int safetyWaypoints = Math.max(0, (inspectionPlan.getStructureCount() - 1) * 2);
         info.append("Waypoints de segurança: ").append(safetyWaypoints).append("\n\n");
 
-        if (!inspectionPoints.isEmpty()) {
+        if (inspectionPlan.hasStructures()) {
             info.append("ALTITUDES DE VOO:\n");
             float minElevation = Float.MAX_VALUE;
             float maxElevation = Float.MIN_VALUE;
             float minSafetyAlt = Float.MAX_VALUE;
             float maxSafetyAlt = Float.MIN_VALUE;
 
-            for (InspectionPoint point : inspectionPoints) {
-                float totalElevation = point.groundAltitude + point.structureHeight;
+            for (int i = 0; i < inspectionPlan.getStructureCount(); i++) {
+                float totalElevation = inspectionPlan.getTopElevation(i);
                 minElevation = Math.min(minElevation, totalElevation);
                 maxElevation = Math.max(maxElevation, totalElevation);
 
-                float safetyAlt = SAFETY_ALTITUDE + point.groundAltitude;
+                float safetyAlt = SAFETY_ALTITUDE + inspectionPlan.getElevation(i);
                 minSafetyAlt = Math.min(minSafetyAlt, safetyAlt);
                 maxSafetyAlt = Math.max(maxSafetyAlt, safetyAlt);
             }
@@ -855,32 +1028,63 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         info.append("DETECÇÃO DE OBSTÁCULOS:\n");
         info.append("Evitamento de obstáculos: ").append(obstacleAvoidanceEnabled ? "Ativado" : "Desativado").append("\n");
         if (obstacleAvoidanceEnabled) {
-            info.append("Distância mais próxima: ").append(String.format("%.2f", closestObstacleDistance)).append("m\n");
-            if (obstacleInfoBuilder.length() > 0) {
-                info.append(obstacleInfoBuilder.toString()).append("\n");
+            float closestObstacleDistance = obstacleSectors.getClosestDistance();
+            info.append("Distância mais próxima: ");
+            if (Float.isInfinite(closestObstacleDistance)) {
+                info.append("nenhum obstáculo\n");
+            } else {
+                ObstacleSectorProcessor.appendFixed2(info, closestObstacleDistance);
+                info.append("m\n");
             }
+            obstacleSectors.appendDescription(info, OBSTACLE_WARNING_NAMES, VISION_SYSTEM_WARNING_NAMES);
+            info.append("\n");
+        }
+        info.append("\n");
+
+        info.append("REVISÃO DE FOTOS:\n");
+        if (PIPELINED_PHOTO_REVIEW) {
+            info.append("Modo: contínuo (pausa só para fotos reprovadas)\n");
+            info.append("Aprovadas automaticamente: ").append(photoReviewPipeline.getAcceptedCount()).append("\n");
+            info.append("Enviadas ao operador: ").append(photoReviewPipeline.getFlaggedCount()).append("\n");
+            info.append("Na fila: ").append(photoReviewPipeline.getPendingCount()).append("\n");
+            info.append("A refazer: ").append(reshootList.size()).append("\n");
+            if (!reshootList.isEmpty()) {
+                info.append(reshootList.describe(RESHOOT_DESCRIBED_STRUCTURES)).append("\n");
+                info.append("(segure Iniciar Missão para voar só essas posições)\n");
+            }
+            info.append("Fotos/min: ").append(String.format("%.1f", pipelinedPhotoThroughput.getPhotosPerMinute())).append("\n");
+        } else {
+            info.append("Modo: sequencial (pausa a cada foto)\n");
+            info.append("Fotos/min: ").append(String.format("%.1f", sequentialPhotoThroughput.getPhotosPerMinute())).append("\n");
+        }
+        if (originalPhotoDownloader != null) {
+            info.append("Originais: ").append(originalPhotoDownloader.getStoredCount()).append(" baixadas, ")
+                    .append(originalPhotoDownloader.getQueuedCount() + originalPhotoDownloader.getActiveCount())
+                    .append(" na fila\n");
         }
         info.append("\n");
 
-        if (currentInspectionIndex >= 0 && currentPhotoIndex >= 0 && !inspectionPoints.isEmpty() && !photoPoints.isEmpty()) {
+        if (currentInspectionIndex >= 0 && currentPhotoIndex >= 0 && inspectionPlan.hasStructures() && inspectionPlan.hasPhotoPositions()) {
             info.append("POSIÇÃO ATUAL:\n");
             info.append("Estrutura: ").append(currentInspectionIndex + 1)
-                    .append("/").append(inspectionPoints.size()).append("\n");
+                    .append("/").append(inspectionPlan.getStructureCount()).append("\n");
             info.append("Foto: ").append(currentPhotoIndex + 1)
-                    .append("/").append(photoPoints.size()).append("\n");
-
-            if (currentInspectionIndex < inspectionPoints.size()) {
-                InspectionPoint currentPoint = inspectionPoints.get(currentInspectionIndex);
-                float currentAltitude = DEFAULT_ALTITUDE + currentPoint.groundAltitude + currentPoint.structureHeight + SAFE_DISTANCE;
-                float currentSafetyAlt = SAFETY_ALTITUDE + currentPoint.groundAltitude;
+                    .append("/").append(inspectionPlan.getPhotoCount()).append("\n");
+
+            if (currentInspectionIndex < inspectionPlan.getStructureCount()) {
+                info.append("ID no CSV: S").append(inspectionPlan.getStructureId(currentInspectionIndex)).append("\n");
+                float groundAltitude = inspectionPlan.getElevation(currentInspectionIndex);
+                float structureHeight = inspectionPlan.getHeight(currentInspectionIndex);
+                float currentAltitude = DEFAULT_ALTITUDE + groundAltitude + structureHeight + SAFE_DISTANCE;
+                float currentSafetyAlt = SAFETY_ALTITUDE + groundAltitude;
                 info.append("Altitude de inspeção: ").append(String.format("%.1f", currentAltitude)).append("m\n");
                 info.append("Altitude de segurança: ").append(String.format("%.1f", currentSafetyAlt)).append("m\n");
-                info.append("Elevação terreno: ").append(String.format("%.1f", currentPoint.groundAltitude)).append("m\n");
-                info.append("Altura estrutura: ").append(String.format("%.1f", currentPoint.structureHeight)).append("m\n");
+                info.append("Elevação terreno: ").append(String.format("%.1f", groundAltitude)).append("m\n");
+                info.append("Altura estrutura: ").append(String.format("%.1f", structureHeight)).append("m\n");
             }
 
-            int totalPhotos = inspectionPoints.size() * photoPoints.size();
-            int completedPhotos = currentInspectionIndex * photoPoints.size() + currentPhotoIndex;
+            int totalPhotos = inspectionPlan.getTotalPhotoCount();
+            int completedPhotos = currentPhotoOrdinal;
             int progressPercent = (totalPhotos > 0) ? (completedPhotos * 100 / totalPhotos) : 0;
             info.append("Progresso total: ").append(progressPercent).append("%");
         }
@@ -896,12 +1100,19 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             openFilePicker(REQUEST_STRUCTURES_CSV);
         } else if (id == R.id.btn_load_photo_positions) {
             openFilePicker(REQUEST_PHOTO_POSITIONS_CSV);
+        } else if (id == R.id.btn_export_mission) {
+            exportCompiledMission();
         } else if (id == R.id.btn_start_mission) {
             // Check if we're in a paused state that needs resume
             if (isMissionPaused || missionPausedForPhotoReview) {
                 Log.d(TAG, "🔄 Manual resume triggered (fallback)");
                 resumeMissionAutomatically();
-            } else if (mission != null) {
+            } else if (mission != null && currentSegmentIndex == 0) {
+                if (startsAwayFromHome(plannedMission)) {
+                    // Planned or loaded before the current home point was known
+                    createCompleteMission(InspectionMissionPlanner.rehome(plannedMission, initialHomeLat, initialHomeLon));
+                }
+                segmentHandoffEnabled = true;
                 uploadAndStartMission();
             } else {
                 createInspectionMission();
@@ -915,6 +1126,10 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
 
+        if (backgroundWorkersReleased) {
+            recreateBackgroundWorkers();
+        }
+        telemetryBridge.start();
         updateConnectionStatus();
         initializeProductAndSDK();
     }
@@ -934,6 +1149,14 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         if (camera != null) {
             Log.i(TAG, "Camera initialized successfully - real camera mode available");
 
+            // Learn about each new photo directly instead of listing the whole card
+            camera.setMediaFileCallback(new MediaFile.Callback() {
+                @Override
+                public void onNewFile(@NonNull MediaFile mediaFile) {
+                    mediaChangeTracker.onNewFile(mediaFile);
+                }
+            });
+
             // ENHANCED: Set up media manager immediately
             setupMediaManagerForPhotoFetching();
         } else {
@@ -982,20 +1205,14 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                         initialHomeAlt = flightControllerState.getAircraftLocation().getAltitude();
                     }
 
-                    final double latitude = flightControllerState.getAircraftLocation().getLatitude();
-                    final double longitude = flightControllerState.getAircraftLocation().getLongitude();
-                    final float altitude = flightControllerState.getAircraftLocation().getAltitude();
-
-                    post(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (droneLocationText != null) {
-                                droneLocationText.setText("Localização: Lat: " + latitude + ", Lon: " + longitude + ", Alt: " + altitude + "m");
-                            }
+                    double latitude = flightControllerState.getAircraftLocation().getLatitude();
+                    double longitude = flightControllerState.getAircraftLocation().getLongitude();
+                    aircraftLatitude = latitude;
+                    aircraftLongitude = longitude;
+                    aircraftAltitude = flightControllerState.getAircraftLocation().getAltitude();
 
-                            updateAdvancedMissionInfo();
-                        }
-                    });
+                    // Arrives at up to 10 Hz; the bridge folds it into the next frame
+                    telemetryBridge.markDirty(DIRTY_LOCATION | DIRTY_MISSION_INFO);
                 }
             });
         }
@@ -1004,6 +1221,25 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         setUpListener();
     }
 
+    // Horizontal distance from the aircraft to the structure being inspected, or NaN if none.
+    // Main thread only: it reads the plan and caches the structure's frame.
+    private double distanceToCurrentStructure(double latitude, double longitude) {
+        final InspectionPlan plan = inspectionPlan;
+        final int structureIndex = currentInspectionIndex;
+        if (plan == null || structureIndex < 0 || structureIndex >= plan.getStructureCount()) {
+            return Double.NaN;
+        }
+
+        LocalEnuFrame frame = currentStructureFrame;
+        if (frame == null || currentStructureFramePlan != plan || currentStructureFrameIndex != structureIndex) {
+            frame = new LocalEnuFrame(plan.getLatitude(structureIndex), plan.getLongitude(structureIndex));
+            currentStructureFrame = frame;
+            currentStructureFramePlan = plan;
+            currentStructureFrameIndex = structureIndex;
+        }
+        return frame.horizontalDistance(latitude, longitude);
+    }
+
     // ENHANCED: Setup media manager properly for photo fetching
     private void setupMediaManagerForPhotoFetching() {
         if (camera == null) {
@@ -1205,35 +1441,21 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             @Override
             public void onUpdate(@NonNull VisionDetectionState visionDetectionState) {
                 ObstacleDetectionSector[] sectors = visionDetectionState.getDetectionSectors();
+                int count = sectors != null ? Math.min(sectors.length, obstacleSectors.getMaxSectors()) : 0;
 
-                obstacleInfoBuilder = new StringBuilder();
-                closestObstacleDistance = Float.MAX_VALUE;
-
-                for (int i = 0; i < sectors.length; i++) {
+                // Runs at vision system rate; copy primitives only and leave formatting to the renderer
+                float[] distances = obstacleSectors.getInputDistances();
+                int[] warningLevels = obstacleSectors.getInputWarningLevels();
+                for (int i = 0; i < count; i++) {
                     ObstacleDetectionSector sector = sectors[i];
-                    float distance = sector.getObstacleDistanceInMeters();
-
-                    if (distance < closestObstacleDistance && distance > 0) {
-                        closestObstacleDistance = distance;
-                    }
-
-                    if (distance < 10 && distance > 0) {
-                        obstacleInfoBuilder.append("Setor ").append(i + 1)
-                                .append(": ").append(String.format("%.2f", distance))
-                                .append("m (Perigo: ").append(sector.getWarningLevel().toString()) // Use toString() for DJI SDK enums
-                                .append(")\n");
-                    }
+                    distances[i] = sector.getObstacleDistanceInMeters();
+                    ObstacleDetectionSectorWarning warningLevel = sector.getWarningLevel();
+                    warningLevels[i] = warningLevel != null ? warningLevel.ordinal() : -1;
                 }
+                VisionSystemWarning systemWarning = visionDetectionState.getSystemWarning();
+                obstacleSectors.publish(count, systemWarning != null ? systemWarning.ordinal() : -1, System.nanoTime());
 
-                obstacleInfoBuilder.append("Alerta do sistema: ")
-                        .append(visionDetectionState.getSystemWarning().toString()); // Use toString() for DJI SDK enums
-
-                post(new Runnable() {
-                    @Override
-                    public void run() {
-                        updateAdvancedMissionInfo();
-                    }
-                });
+                telemetryBridge.markDirty(DIRTY_MISSION_INFO);
             }
         });
     }
@@ -1296,8 +1518,42 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         });
     }
 
+    /**
+     * Redraw the telemetry fields flagged since the last frame; runs on the main thread
+     */
+    private void renderTelemetry(int dirtyMask) {
+        if ((dirtyMask & DIRTY_LOCATION) != 0 && droneLocationText != null) {
+            String text = "Localização: Lat: " + aircraftLatitude + ", Lon: " + aircraftLongitude + ", Alt: " + aircraftAltitude + "m";
+            double structureDistance = distanceToCurrentStructure(aircraftLatitude, aircraftLongitude);
+            if (!Double.isNaN(structureDistance)) {
+                text += String.format(", Dist. estrutura: %.1fm", structureDistance);
+            }
+            droneLocationText.setText(text);
+        }
+        if ((dirtyMask & DIRTY_PROGRESS) != 0) {
+            updateMissionProgress();
+        }
+        if ((dirtyMask & DIRTY_MISSION_INFO) != 0) {
+            updateAdvancedMissionInfo();
+        }
+        if ((dirtyMask & DIRTY_STATUS) != 0 && statusText != null && statusWaypointSequence != shownWaypointSequence) {
+            shownWaypointSequence = statusWaypointSequence;
+            statusText.setText("Status: Waypoint: " + statusWaypointIndex + "/" + totalWaypointCount +
+                    " | Estrutura: " + (statusStructureIndex + 1) + "/" + inspectionPlan.getStructureCount() +
+                    " | Foto: " + (statusPhotoIndex + 1) + "/" + inspectionPlan.getPhotoCount() +
+                    " | Foto?: " + (statusPhotoWaypoint ? "SIM" : "NÃO") +
+                    " | Reached: " + statusWaypointReached);
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow() {
+        telemetryBridge.stop();
+        Log.d(TAG, "Telemetry UI: " + telemetryBridge.getUpdateCount() + " updates, " +
+                telemetryBridge.getMergedUpdateCount() + " merged, " +
+                telemetryBridge.getDroppedUpdateCount() + " dropped, " +
+                telemetryBridge.getRenderedFrameCount() + " frames");
+
         // Cancel photo timeout
         if (photoTimeoutRunnable != null) {
             photoTimeoutHandler.removeCallbacks(photoTimeoutRunnable);
@@ -1307,6 +1563,14 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         // Reset state
         lastPhotoWaypointProcessed = -1;
         forceNextPhotoReview = false;
+        cancelPhotoFetch();
+        originalPhotoDownloader.cancelAll();
+        if (fullscreenTileCache != null) {
+            fullscreenTileCache.evictAll();
+        }
+        if (photoGalleryAdapter != null) {
+            photoGalleryAdapter.releaseThumbnailMemory();
+        }
 
         isLiveStreamActive = false;
 
@@ -1337,9 +1601,42 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             flightController.setStateCallback(null);
         }
 
+        if (camera != null) {
+            camera.setMediaFileCallback(null);
+        }
+
+        releaseBackgroundWorkers();
+
         super.onDetachedFromWindow();
     }
 
+    /**
+     * Stop the threads owned by this view so a closed view does not keep them alive
+     */
+    private void releaseBackgroundWorkers() {
+        csvLoader.shutdown();
+        missionBuildExecutor.shutdownNow();
+        photoReviewPipeline.shutdown(); // Also drops queued shots and reviews
+        if (currentExport != null) {
+            currentExport.cancel();
+        }
+        photoExporter.shutdown();
+        if (currentPackaging != null) {
+            currentPackaging.cancel();
+        }
+        photoArchiver.shutdown();
+        backgroundWorkersReleased = true;
+    }
+
+    private void recreateBackgroundWorkers() {
+        csvLoader = new InspectionCsvLoader();
+        missionBuildExecutor = Executors.newSingleThreadExecutor();
+        photoReviewPipeline = createPhotoReviewPipeline();
+        photoExporter = new PhotoExporter(photoStorageManager.getStorageDirectory());
+        photoArchiver = new PhotoArchiver(photoStorageManager.getStorageDirectory());
+        backgroundWorkersReleased = false;
+    }
+
     private void openFilePicker(int requestCode) {
         try {
             if (getContext() instanceof FilePickerCallback) {
@@ -1365,6 +1662,11 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
 
         try {
             String fileName = getFileNameFromUri(fileUri);
+            if (requestCode == REQUEST_STRUCTURES_CSV &&
+                    fileName.toLowerCase().endsWith(CompiledMissionFile.FILE_EXTENSION)) {
+                loadCompiledMission(fileUri);
+                return;
+            }
             if (!fileName.toLowerCase().endsWith(".csv")) {
                 updateStatus("Por favor, selecione apenas arquivos CSV");
                 return;
@@ -1408,242 +1710,439 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         return result;
     }
 
-    private void loadStructuresFromCSV(Uri fileUri) {
-        inspectionPoints.clear();
-
-        try {
-            InputStream inputStream = getContext().getContentResolver().openInputStream(fileUri);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-
-            String line;
-            boolean isHeader = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (isHeader) {
-                    isHeader = false;
-                    continue;
+    private long getFileSizeFromUri(Uri uri) {
+        long size = -1;
+        if ("content".equals(uri.getScheme())) {
+            Cursor cursor = getContext().getContentResolver().query(uri, null, null, null, null);
+            try {
+                if (cursor != null && cursor.moveToFirst()) {
+                    int columnIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                    if (columnIndex >= 0 && !cursor.isNull(columnIndex)) {
+                        size = cursor.getLong(columnIndex);
+                    }
                 }
-
-                String[] values = line.split(",");
-                if (values.length >= 4) {
-                    double lat = Double.parseDouble(values[0]);
-                    double lon = Double.parseDouble(values[1]);
-                    float elevationDiff = Float.parseFloat(values[2]);
-                    float height = Float.parseFloat(values[3]);
-
-                    inspectionPoints.add(new InspectionPoint(lat, lon, elevationDiff, height));
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
                 }
             }
+        }
+        return size;
+    }
 
-            reader.close();
+    // Open a pre-planned mission: structures, photo positions and waypoints in one file
+    private void loadCompiledMission(final Uri fileUri) {
+        updateStatus("Carregando missão compilada...");
+        final double homeLat = initialHomeLat;
+        final double homeLon = initialHomeLon;
+        final InspectionMissionPlanner.Parameters parameters = new InspectionMissionPlanner.Parameters(
+                DEFAULT_ALTITUDE, SAFE_DISTANCE, SAFETY_ALTITUDE, DEFAULT_SPEED);
 
-            post(new Runnable() {
-                @Override
-                public void run() {
-                    if (csvInfoText != null) {
-                        csvInfoText.setText(inspectionPoints.size() + " estruturas carregadas");
+        missionBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final CompiledMissionFile.Contents loaded;
+                final long start = SystemClock.elapsedRealtime();
+                ParcelFileDescriptor descriptor = null;
+                try {
+                    descriptor = getContext().getContentResolver().openFileDescriptor(fileUri, "r");
+                    if (descriptor == null) {
+                        throw new IOException("Arquivo indisponível");
+                    }
+                    FileInputStream in = new FileInputStream(descriptor.getFileDescriptor());
+                    loaded = CompiledMissionFile.read(in.getChannel());
+                } catch (IOException e) {
+                    updateStatus("Erro ao carregar missão compilada: " + e.getMessage());
+                    Log.e(TAG, "Error reading compiled mission", e);
+                    return;
+                } finally {
+                    if (descriptor != null) {
+                        try {
+                            descriptor.close();
+                        } catch (IOException e) {
+                            Log.w(TAG, "Error closing compiled mission", e);
+                        }
                     }
+                }
+                final long elapsed = SystemClock.elapsedRealtime() - start;
+
+                // Altitudes and distances are baked into the waypoints; only the home point can be
+                // moved without planning again
+                if (!loaded.parameters.equals(parameters) || loaded.alternateDirection != ALTERNATE_PHOTO_ORBIT) {
+                    updateStatus(String.format(Locale.US,
+                            "Missão compilada com outros parâmetros (altitude de segurança %.1f m, " +
+                                    "distância segura %.1f m, velocidade %.1f m/s); importe os CSVs novamente",
+                            loaded.parameters.safetyAltitude, loaded.parameters.safeDistance, loaded.parameters.speed));
+                    return;
+                }
+                final boolean homeKnown = homeLat != 0 || homeLon != 0;
+                final PlannedMission rehomed = homeKnown
+                        ? InspectionMissionPlanner.rehome(loaded.mission, homeLat, homeLon) : loaded.mission;
+                final boolean homeMoved = rehomed != loaded.mission;
+                final CompiledMissionFile.Contents contents = homeMoved
+                        ? new CompiledMissionFile.Contents(loaded.plan, loaded.structureOrder, rehomed,
+                                homeLat, homeLon, loaded.parameters, loaded.alternateDirection)
+                        : loaded;
+                // Reloading the CSVs this mission came from then re-plans incrementally
+                lastPlanned = contents;
+                lastPlannedSource = contents.plan.reorder(invertOrder(contents.structureOrder));
 
-                    if (!inspectionPoints.isEmpty() && !photoPoints.isEmpty() && btnStartMission != null) {
-                        btnStartMission.setEnabled(true);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        inspectionPlan = contents.plan;
+                        inspectionPlanOrder = contents.structureOrder;
+                        inspectionPlanRevision++;
+                        currentInspectionIndex = 0;
+                        currentPhotoIndex = 0;
+                        currentPhotoOrdinal = 0;
+
+                        if (csvInfoText != null) {
+                            csvInfoText.setText(inspectionPlan.getStructureCount() + " estruturas, " +
+                                    inspectionPlan.getPhotoCount() + " posições de foto (missão compilada)");
+                        }
+                        updateStatus("Missão compilada carregada em " + elapsed + " ms" +
+                                (homeMoved ? " (início ajustado ao ponto home atual)" : ""));
+                        enableObstacleAvoidance(true);
+                        createCompleteMission(contents.mission);
                     }
+                });
+            }
+        });
+    }
 
-                    updateStatus("Carregado " + inspectionPoints.size() + " estruturas (formato: lat,lon,elevation_diff,height)");
-                    updateAdvancedMissionInfo();
+    // Save the last planned mission as a compiled mission file that "Importar Estruturas" can open
+    private void exportCompiledMission() {
+        final File destination = exportDirectory(MISSION_EXPORT_FOLDER);
+        updateStatus("Exportando missão compilada...");
+
+        // Queued behind any planning still running, so the latest plan is exported
+        missionBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final CompiledMissionFile.Contents contents = lastPlanned;
+                if (contents == null) {
+                    updateStatus("Nenhuma missão planejada para exportar");
+                    return;
                 }
-            });
 
+                String name = "missao_" + contents.plan.getStructureCount() + "_estruturas_" +
+                        new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) +
+                        CompiledMissionFile.FILE_EXTENSION;
+                File file = new File(destination, name);
+                // Written under a hidden name so a half-written file is never offered for loading
+                File partial = new File(destination, "." + name);
+                try {
+                    CompiledMissionFile.write(partial, contents);
+                    if (!partial.renameTo(file)) {
+                        throw new IOException("Não foi possível renomear " + partial.getName());
+                    }
+                } catch (IOException e) {
+                    partial.delete();
+                    updateStatus("Erro ao exportar missão compilada: " + e.getMessage());
+                    Log.e(TAG, "Error writing compiled mission", e);
+                    return;
+                }
+                updateStatus("Missão compilada exportada (" + contents.mission.size() + " waypoints): " +
+                        file.getAbsolutePath());
+            }
+        });
+    }
+
+    private void loadStructuresFromCSV(Uri fileUri) {
+        final InputStream inputStream;
+        try {
+            inputStream = getContext().getContentResolver().openInputStream(fileUri);
         } catch (IOException e) {
-            final String errorMsg = e.getMessage();
-            updateStatus("Erro ao carregar arquivo de estruturas: " + errorMsg);
-            Log.e(TAG, "Error reading structures CSV file", e);
-        } catch (NumberFormatException e) {
-            updateStatus("Erro no formato CSV: verifique se os dados são numéricos (lat,lon,elevation_diff,height)");
-            Log.e(TAG, "Error parsing CSV numbers", e);
+            updateStatus("Erro ao carregar arquivo de estruturas: " + e.getMessage());
+            Log.e(TAG, "Error opening structures CSV file", e);
+            return;
         }
-    }
 
-    private void loadPhotoPositionsFromCSV(Uri fileUri) {
-        photoPoints.clear();
+        updateStatus("Carregando estruturas...");
 
-        try {
-            InputStream inputStream = getContext().getContentResolver().openInputStream(fileUri);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+        csvLoader.loadStructures(inputStream, getFileSizeFromUri(fileUri),
+                new CsvLoadListener<InspectionCsvLoader.StructureColumns>("estruturas") {
+                    @Override
+                    public void onLoaded(final InspectionCsvLoader.StructureColumns columns) {
+                        post(new Runnable() {
+                            @Override
+                            public void run() {
+                                inspectionPlan.clearStructures();
+                                inspectionPlan.appendStructures(columns);
+                                inspectionPlanRevision++;
+                                mission = null;
+                                inspectionPlanOrder = null;
+
+                                if (csvInfoText != null) {
+                                    csvInfoText.setText(inspectionPlan.getStructureCount() + " estruturas carregadas");
+                                }
 
-            String line;
-            boolean isHeader = true;
+                                if (inspectionPlan.hasStructures() && inspectionPlan.hasPhotoPositions() && btnStartMission != null) {
+                                    btnStartMission.setEnabled(true);
+                                }
 
-            while ((line = reader.readLine()) != null) {
-                if (isHeader) {
-                    isHeader = false;
-                    continue;
-                }
+                                updateStatus("Carregado " + inspectionPlan.getStructureCount() + " estruturas (formato: lat,lon,elevation_diff,height)" +
+                                        describeRowErrors(columns.rowErrors));
+                                updateAdvancedMissionInfo();
+                            }
+                        });
+                    }
 
-                String[] values = line.split(",");
-                if (values.length >= 4) {
-                    float x = Float.parseFloat(values[0]);
-                    float y = Float.parseFloat(values[1]);
-                    float z = Float.parseFloat(values[2]);
-                    float pitch = Float.parseFloat(values[3]);
+                    @Override
+                    public void onFailed(IOException e) {
+                        updateStatus("Erro ao carregar arquivo de estruturas: " + e.getMessage());
+                        Log.e(TAG, "Error reading structures CSV file", e);
+                    }
+                });
+    }
 
-                    photoPoints.add(new RelativePhotoPoint(x, y, z, pitch));
-                }
-            }
+    private void loadPhotoPositionsFromCSV(Uri fileUri) {
+        final InputStream inputStream;
+        try {
+            inputStream = getContext().getContentResolver().openInputStream(fileUri);
+        } catch (IOException e) {
+            updateStatus("Erro ao carregar arquivo de posições de foto: " + e.getMessage());
+            Log.e(TAG, "Error opening photo positions CSV file", e);
+            return;
+        }
 
-            reader.close();
+        updateStatus("Carregando posições de foto...");
 
-            post(new Runnable() {
-                @Override
-                public void run() {
-                    if (csvInfoText != null) {
-                        String currentText = csvInfoText.getText().toString();
-                        if (currentText.contains("estruturas carregadas")) {
-                            csvInfoText.setText(currentText + ", " + photoPoints.size() + " posições de foto");
-                        } else {
-                            csvInfoText.setText(photoPoints.size() + " posições de foto carregadas");
-                        }
+        csvLoader.loadPhotoPositions(inputStream, getFileSizeFromUri(fileUri),
+                new CsvLoadListener<InspectionCsvLoader.PhotoColumns>("posições de foto") {
+                    @Override
+                    public void onLoaded(final InspectionCsvLoader.PhotoColumns columns) {
+                        post(new Runnable() {
+                            @Override
+                            public void run() {
+                                inspectionPlan.setPhotoPositions(columns);
+                                inspectionPlanRevision++;
+                                mission = null;
+
+                                if (csvInfoText != null) {
+                                    String currentText = csvInfoText.getText().toString();
+                                    if (currentText.contains("estruturas carregadas")) {
+                                        csvInfoText.setText(currentText + ", " + inspectionPlan.getPhotoCount() + " posições de foto");
+                                    } else {
+                                        csvInfoText.setText(inspectionPlan.getPhotoCount() + " posições de foto carregadas");
+                                    }
+                                }
+
+                                if (inspectionPlan.hasStructures() && inspectionPlan.hasPhotoPositions() && btnStartMission != null) {
+                                    btnStartMission.setEnabled(true);
+                                }
+
+                                updateStatus("Carregado " + inspectionPlan.getPhotoCount() + " posições de foto" +
+                                        describeRowErrors(columns.rowErrors));
+                                updateAdvancedMissionInfo();
+                            }
+                        });
                     }
 
-                    if (!inspectionPoints.isEmpty() && !photoPoints.isEmpty() && btnStartMission != null) {
-                        btnStartMission.setEnabled(true);
+                    @Override
+                    public void onFailed(IOException e) {
+                        updateStatus("Erro ao carregar arquivo de posições de foto: " + e.getMessage());
+                        Log.e(TAG, "Error reading photo positions CSV file", e);
                     }
+                });
+    }
 
-                    updateStatus("Carregado " + photoPoints.size() + " posições de foto");
-                    updateAdvancedMissionInfo();
-                }
-            });
+    private String describeRowErrors(int rowErrors) {
+        return rowErrors > 0 ? " (" + rowErrors + " linhas ignoradas por erro de formato)" : "";
+    }
 
-        } catch (IOException e) {
-            final String errorMsg = e.getMessage();
-            updateStatus("Erro ao carregar arquivo de posições de foto: " + errorMsg);
-            Log.e(TAG, "Error reading photo positions CSV file", e);
+    // Shared progress and row error reporting for CSV loads
+    private abstract class CsvLoadListener<T> implements InspectionCsvLoader.Listener<T> {
+        private static final int MAX_LOGGED_ROW_ERRORS = 20;
+        private final String label;
+        private int loggedRowErrors = 0;
+
+        CsvLoadListener(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public void onProgress(int rowsLoaded, long bytesRead, long totalBytes) {
+            if (totalBytes > 0) {
+                updateStatus("Carregando " + label + ": " + rowsLoaded + " linhas (" +
+                        (int) (bytesRead * 100 / totalBytes) + "%)");
+            } else {
+                updateStatus("Carregando " + label + ": " + rowsLoaded + " linhas");
+            }
+        }
+
+        @Override
+        public void onRowError(int lineNumber, String reason) {
+            if (loggedRowErrors < MAX_LOGGED_ROW_ERRORS) {
+                Log.w(TAG, "CSV " + label + " line " + lineNumber + ": " + reason);
+                loggedRowErrors++;
+            }
         }
     }
 
     private void createInspectionMission() {
-        if (inspectionPoints.isEmpty() || photoPoints.isEmpty()) {
+        if (!inspectionPlan.hasStructures() || !inspectionPlan.hasPhotoPositions()) {
             updateStatus("Nenhum ponto de inspeção ou foto carregado");
             return;
         }
 
         currentInspectionIndex = 0;
         currentPhotoIndex = 0;
+        currentPhotoOrdinal = 0;
         isMissionPaused = false;
         missionPausedForPhotoReview = false;
 
         enableObstacleAvoidance(true);
-        createCompleteMission();
+
+        prepareMissionPlan();
     }
 
-    // COMPLETE MISSION CREATION WITH SAFETY WAYPOINTS AND CAMERA CONTROL
-    private void createCompleteMission() {
-        WaypointMission.Builder builder = new WaypointMission.Builder();
-
-        builder.autoFlightSpeed(DEFAULT_SPEED);
-        builder.maxFlightSpeed(DEFAULT_SPEED * 2);
-        builder.setExitMissionOnRCSignalLostEnabled(false);
-        builder.finishedAction(WaypointMissionFinishedAction.GO_HOME);
-        builder.flightPathMode(WaypointMissionFlightPathMode.NORMAL);
-        builder.headingMode(WaypointMissionHeadingMode.USING_WAYPOINT_HEADING);
-        builder.setGimbalPitchRotationEnabled(true);
-
-        totalWaypointCount = 0;
-        photoWaypointIndices = new ArrayList<>();
-
-        InspectionPoint point1 = inspectionPoints.get(0);
-
-        Waypoint firstsafewaypoint = new Waypoint(
-                initialHomeLat,
-                initialHomeLon,
-                SAFETY_ALTITUDE
-        );
-        firstsafewaypoint.heading = 0; // North (forward)
-        builder.addWaypoint(firstsafewaypoint);
-        totalWaypointCount++;
-
-        Waypoint firstwaypoint = new Waypoint(
-                point1.latitude,
-                point1.longitude,
-                SAFETY_ALTITUDE
-        );
-        firstwaypoint.heading = 0; // North (forward)
-        builder.addWaypoint(firstwaypoint);
-        totalWaypointCount++;
-
-        for (int i = 0; i < inspectionPoints.size(); i++) {
-            InspectionPoint point = inspectionPoints.get(i);
-
-            float safeAltitude = DEFAULT_ALTITUDE + point.groundAltitude + point.structureHeight + SAFE_DISTANCE;
-
-            // First waypoint for this structure: Go to the inspection point at safe altitude
-            Waypoint initialWaypoint = new Waypoint(
-                    point.latitude,
-                    point.longitude,
-                    safeAltitude
-            );
-            initialWaypoint.heading = 0; // North (forward)
-            builder.addWaypoint(initialWaypoint);
-            totalWaypointCount++;
-
-            double lastPhotoLat = point.latitude;
-            double lastPhotoLon = point.longitude;
-
-            // Add all photo waypoints for this inspection point
-            for (int j = 0; j < photoPoints.size(); j++) {
-                RelativePhotoPoint photoPoint = photoPoints.get(j);
-
-                double photoLatitude = point.latitude + (photoPoint.offsetY * ONE_METER_OFFSET);
-                double photoLongitude = point.longitude + (photoPoint.offsetX * ONE_METER_OFFSET);
-                float photoAltitude = DEFAULT_ALTITUDE + point.groundAltitude + point.structureHeight + photoPoint.offsetZ;
-
-                Waypoint photoWaypoint = new Waypoint(photoLatitude, photoLongitude, photoAltitude);
-
-                // CAMERA CONTROL: Point drone toward structure center
-                float headingToStructure = calculateHeadingToStructure(photoPoint.offsetX, photoPoint.offsetY);
-                photoWaypoint.heading = (int) headingToStructure;
-
-                // FIXED: Cast float to int for gimbal pitch
-                int gimbalPitchValue = Math.round(photoPoint.gimbalPitch);
-                photoWaypoint.addAction(new WaypointAction(WaypointActionType.GIMBAL_PITCH, gimbalPitchValue));
-                photoWaypoint.addAction(new WaypointAction(WaypointActionType.START_TAKE_PHOTO, 0));
-
-                // TRACK THIS AS A PHOTO WAYPOINT
-                photoWaypointIndices.add(totalWaypointCount);
-
-                builder.addWaypoint(photoWaypoint);
-                totalWaypointCount++;
-
-                lastPhotoLat = photoLatitude;
-                lastPhotoLon = photoLongitude;
-            }
-
-            // Add safety waypoints ONLY if this is not the last structure
-            if (i < inspectionPoints.size() - 1) {
-                // Safety Waypoint 1: Fly up to safety altitude at last photo position
-                Waypoint safetyWaypoint1 = new Waypoint(
-                        lastPhotoLat,
-                        lastPhotoLon,
-                        SAFETY_ALTITUDE + point.groundAltitude
-                );
-                safetyWaypoint1.heading = 0;
-                builder.addWaypoint(safetyWaypoint1);
-                totalWaypointCount++;
+    // Optimize and plan off the UI thread, or take the result from the plan cache
+    private void prepareMissionPlan() {
+        final InspectionPlan livePlan = inspectionPlan;
+        final int[] liveOrder = inspectionPlanOrder;
+        final int revision = inspectionPlanRevision;
+        // Read-only snapshot; reloading a CSV does not change it
+        final InspectionPlan snapshot = livePlan.slice(0, livePlan.getStructureCount());
+        final double homeLat = initialHomeLat;
+        final double homeLon = initialHomeLon;
+        final boolean optimizeRoute = snapshot.getStructureCount() > 2;
+        final InspectionMissionPlanner.Parameters parameters = new InspectionMissionPlanner.Parameters(
+                DEFAULT_ALTITUDE, SAFE_DISTANCE, SAFETY_ALTITUDE, DEFAULT_SPEED);
+        updateStatus("Planejando missão para " + snapshot.getStructureCount() + " estruturas...");
+
+        missionBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Always plan from the CSV order, so the cache key and the route do not depend on
+                // an order chosen by an earlier run
+                final InspectionPlan sourcePlan = liveOrder != null
+                        ? snapshot.reorder(invertOrder(liveOrder)) : snapshot;
+                final String key = MissionPlanCache.computeKey(sourcePlan, parameters, homeLat, homeLon,
+                        "route=" + optimizeRoute + ";alternate=" + ALTERNATE_PHOTO_ORBIT);
+                CompiledMissionFile.Contents entry = missionPlanCache.get(key);
+                final boolean cacheHit = entry != null;
+
+                RouteOptimizer.Result routeResult = null;
+                boolean incremental = false;
+                if (entry == null) {
+                    int[] order = null;
+                    final CompiledMissionFile.Contents previous = lastPlanned;
+                    if (previous != null) {
+                        // Keep the previous route, splicing in added or moved structures, and
+                        // regenerate only the affected waypoints
+                        order = RouteOptimizer.updateOrder(lastPlannedSource, previous.structureOrder, sourcePlan,
+                                homeLat, homeLon);
+                        incremental = order != null;
+                    }
+                    if (order == null && optimizeRoute) {
+                        updateStatus("Otimizando ordem de " + sourcePlan.getStructureCount() + " estruturas...");
+                        routeResult = new RouteOptimizer(ROUTE_OPTIMIZATION_BUDGET_MS).optimize(sourcePlan, homeLat, homeLon);
+                        if (routeResult.timedOut) {
+                            Log.w(TAG, "Route optimization stopped at the time limit");
+                        }
+                        if (routeResult.getDistanceSaved() > 0) {
+                            order = routeResult.order;
+                        }
+                    }
+                    if (order == null) {
+                        order = new int[sourcePlan.getStructureCount()];
+                        for (int i = 0; i < order.length; i++) {
+                            order[i] = i;
+                        }
+                    }
 
-                InspectionPoint nextPoint = inspectionPoints.get(i + 1);
+                    InspectionPlan orderedPlan = sourcePlan.reorder(order);
+                    int[] photoOrder = new PhotoOrbitOrderer(DEFAULT_SPEED).order(orderedPlan, SAFE_DISTANCE);
+                    InspectionMissionPlanner planner = new InspectionMissionPlanner(parameters);
+                    PlannedMission planned = incremental
+                            ? planner.replan(previous.mission, previous.plan, orderedPlan, homeLat, homeLon,
+                                    photoOrder, ALTERNATE_PHOTO_ORBIT)
+                            : planner.plan(orderedPlan, homeLat, homeLon, photoOrder, ALTERNATE_PHOTO_ORBIT);
+                    entry = new CompiledMissionFile.Contents(orderedPlan, order, planned, homeLat, homeLon,
+                            parameters, ALTERNATE_PHOTO_ORBIT);
+                    try {
+                        missionPlanCache.put(key, entry);
+                    } catch (IOException e) {
+                        Log.w(TAG, "Could not write mission plan cache", e);
+                    }
+                }
 
-                // Safety Waypoint 2: Fly to next structure coordinates at safety altitude
-                Waypoint safetyWaypoint2 = new Waypoint(
-                        nextPoint.latitude,
-                        nextPoint.longitude,
-                        SAFETY_ALTITUDE + nextPoint.groundAltitude
-                );
-                safetyWaypoint2.heading = 0;
-                builder.addWaypoint(safetyWaypoint2);
-                totalWaypointCount++;
+                final CompiledMissionFile.Contents result = entry;
+                lastPlanned = result;
+                lastPlannedSource = sourcePlan;
+                // Work on a copy; the cached plan must not change when structures are reloaded
+                final InspectionPlan orderedPlan = sourcePlan.reorder(result.structureOrder);
+                final RouteOptimizer.Result route = routeResult;
+                final boolean replanned = incremental;
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (inspectionPlan != livePlan || inspectionPlanRevision != revision) {
+                            // Structures or photo positions were reloaded while planning
+                            return;
+                        }
+
+                        inspectionPlan = orderedPlan;
+                        inspectionPlanOrder = result.structureOrder;
+                        if (cacheHit) {
+                            updateStatus("Plano de missão reaproveitado do cache");
+                        } else if (replanned) {
+                            updateStatus("Missão replanejada apenas nas estruturas alteradas");
+                        } else if (route != null && route.getDistanceSaved() > 0) {
+                            updateStatus(String.format("Rota otimizada: %.1f km a menos (%.1f km → %.1f km)",
+                                    route.getDistanceSaved() / 1000, route.originalDistance / 1000,
+                                    route.optimizedDistance / 1000));
+                        }
+                        createCompleteMission(result.mission);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @param order New index to old index, as taken by {@link InspectionPlan#reorder}
+     * @return Old index to new index
+     */
+    private static int[] invertOrder(int[] order) {
+        int[] inverse = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            inverse[order[i]] = i;
+        }
+        return inverse;
+    }
+
+    // True once the home point is known and the mission climbs somewhere else
+    private boolean startsAwayFromHome(PlannedMission planned) {
+        return (initialHomeLat != 0 || initialHomeLon != 0) && planned.size() > 0
+                && (planned.getLatitude(0) != initialHomeLat || planned.getLongitude(0) != initialHomeLon);
+    }
+
+    // COMPLETE MISSION CREATION WITH SAFETY WAYPOINTS AND CAMERA CONTROL
+    private void createCompleteMission(PlannedMission planned) {
+        plannedMission = planned;
+        totalWaypointCount = plannedMission.size();
+
+        missionSegments = MissionSegmenter.segment(plannedMission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+        int[] starts = new int[missionSegments.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = missionSegments.get(i).from;
+        }
+        segmentStarts = starts;
+        waypointRoles = new WaypointRoleTable(plannedMission, missionSegments);
+        currentSegmentIndex = 0;
+        segmentHandoffEnabled = true;
+        segmentHandoffGeneration++;
+        for (MissionSegmenter.Segment segment : missionSegments) {
+            if (!segment.safeBoundary) {
+                Log.w(TAG, "Segment " + (segment.index + 1) + " does not end at a transit waypoint");
             }
         }
 
-        mission = builder.build();
+        mission = buildSegmentMission(0);
+        prebuildNextSegment();
 
         if (waypointMissionOperator == null) {
             updateStatus("WaypointMissionOperator não está inicializado.");
@@ -1657,7 +2156,8 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             @Override
             public void run() {
                 if (errorMsg == null) {
-                    updateStatus("Missão completa carregada com " + totalWaypointCount + " waypoints (" + photoWaypointIndices.size() + " fotos)");
+                    updateStatus("Missão completa carregada com " + totalWaypointCount + " waypoints (" + waypointRoles.getPhotoWaypointCount() +
+                            " fotos) em " + missionSegments.size() + " segmento(s)");
                     if (btnStartMission != null) {
                         btnStartMission.setEnabled(true);
                     }
@@ -1670,29 +2170,121 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         });
     }
 
-    private float calculateHeadingToStructure(float offsetX, float offsetY) {
-        double angleRadians = Math.atan2(-offsetX, -offsetY);
-        float angleDegrees = (float) Math.toDegrees(angleRadians);
-        float headingDegrees = 90 - angleDegrees;
+    private WaypointMission buildSegmentMission(int segmentIndex) {
+        return buildSegmentMission(plannedMission, missionSegments, segmentIndex);
+    }
+
+    // Takes the mission and segments as arguments so it can run off the main thread
+    private static WaypointMission buildSegmentMission(PlannedMission planned, List<MissionSegmenter.Segment> segments,
+                                                       int segmentIndex) {
+        MissionSegmenter.Segment segment = segments.get(segmentIndex);
+        boolean lastSegment = segmentIndex == segments.size() - 1;
+        return WaypointMissionAdapter.toWaypointMission(planned, segment.from, segment.to, DEFAULT_SPEED,
+                lastSegment ? WaypointMissionFinishedAction.GO_HOME : WaypointMissionFinishedAction.NO_ACTION);
+    }
 
-        while (headingDegrees < 0) headingDegrees += 360;
-        while (headingDegrees >= 360) headingDegrees -= 360;
+    // Build the next segment in the background while the current one flies
+    private void prebuildNextSegment() {
+        final int nextIndex = currentSegmentIndex + 1;
+        final PlannedMission planned = plannedMission;
+        final List<MissionSegmenter.Segment> segments = missionSegments;
+        if (segments == null || nextIndex >= segments.size()) {
+            nextSegmentMission = null;
+            return;
+        }
 
-        return headingDegrees;
+        nextSegmentMission = missionBuildExecutor.submit(new Callable<WaypointMission>() {
+            @Override
+            public WaypointMission call() {
+                return buildSegmentMission(planned, segments, nextIndex);
+            }
+        });
     }
 
-    private void uploadAndStartMission() {
-        if (waypointMissionOperator != null &&
-                (WaypointMissionState.READY_TO_UPLOAD.equals(waypointMissionOperator.getCurrentState()) ||
-                        WaypointMissionState.READY_TO_RETRY_UPLOAD.equals(waypointMissionOperator.getCurrentState()))) {
+    private boolean hasNextSegment() {
+        return segmentHandoffEnabled && missionSegments != null && currentSegmentIndex + 1 < missionSegments.size();
+    }
 
-            enableObstacleAvoidance(true);
+    // Called on the SDK callback thread, so it only reads the published segment starts
+    private int toGlobalWaypointIndex(int segmentWaypointIndex) {
+        final int[] starts = segmentStarts;
+        final int segment = currentSegmentIndex;
+        if (starts == null || segment >= starts.length) {
+            return segmentWaypointIndex;
+        }
+        return starts[segment] + segmentWaypointIndex;
+    }
 
-            waypointMissionOperator.uploadMission(new CommonCallbacks.CompletionCallback() {
-                @Override
-                public void onResult(final DJIError djiError) {
-                    post(new Runnable() {
-                        @Override
+    // Load, upload and start the next segment as soon as the current one finishes; main thread only
+    private void startNextSegment() {
+        final int segmentIndex = currentSegmentIndex + 1;
+        final int generation = segmentHandoffGeneration;
+        final Future<WaypointMission> prebuilt = nextSegmentMission;
+        final PlannedMission planned = plannedMission;
+        final List<MissionSegmenter.Segment> segments = missionSegments;
+        currentSegmentIndex = segmentIndex;
+        nextSegmentMission = null;
+        updateStatus("Iniciando segmento " + (segmentIndex + 1) + "/" + segments.size() + "...");
+
+        // Only the SDK mission build and load run here; all view state stays on the main thread
+        missionBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                WaypointMission nextMission;
+                try {
+                    nextMission = prebuilt != null ? prebuilt.get() : buildSegmentMission(planned, segments, segmentIndex);
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to build segment " + (segmentIndex + 1), e);
+                    nextMission = buildSegmentMission(planned, segments, segmentIndex);
+                }
+
+                if (!isSegmentHandoffCurrent(generation)) {
+                    Log.i(TAG, "Segment " + (segmentIndex + 1) + " hand-off cancelled before loading");
+                    return;
+                }
+                final DJIError error = waypointMissionOperator.loadMission(nextMission);
+                final WaypointMission loaded = nextMission;
+
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isSegmentHandoffCurrent(generation)) {
+                            // Stopped while loading; the loaded segment is never uploaded
+                            Log.i(TAG, "Segment " + (segmentIndex + 1) + " hand-off cancelled before upload");
+                            return;
+                        }
+                        if (error != null) {
+                            updateStatus("Erro ao carregar segmento " + (segmentIndex + 1) + ": " + error.getDescription());
+                            return;
+                        }
+                        mission = loaded;
+                        prebuildNextSegment();
+                        uploadAndStartMission();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return False once Stop or a newly loaded mission has cancelled the hand-off started with this generation
+     */
+    private boolean isSegmentHandoffCurrent(int generation) {
+        return segmentHandoffEnabled && segmentHandoffGeneration == generation;
+    }
+
+    private void uploadAndStartMission() {
+        if (waypointMissionOperator != null &&
+                (WaypointMissionState.READY_TO_UPLOAD.equals(waypointMissionOperator.getCurrentState()) ||
+                        WaypointMissionState.READY_TO_RETRY_UPLOAD.equals(waypointMissionOperator.getCurrentState()))) {
+
+            enableObstacleAvoidance(true);
+
+            waypointMissionOperator.uploadMission(new CommonCallbacks.CompletionCallback() {
+                @Override
+                public void onResult(final DJIError djiError) {
+                    post(new Runnable() {
+                        @Override
                         public void run() {
                             if (djiError == null) {
                                 updateStatus("Missão enviada com sucesso");
@@ -1838,6 +2430,9 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     }
 
     private void stopMissionAndReturnHome() {
+        segmentHandoffEnabled = false;
+        segmentHandoffGeneration++; // Cancels a segment hand-off in progress
+
         if (waypointMissionOperator != null) {
             waypointMissionOperator.stopMission(new CommonCallbacks.CompletionCallback() {
                 @Override
@@ -2037,43 +2632,39 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             @Override
             public void onExecutionUpdate(@NonNull WaypointMissionExecutionEvent event) {
                 if (event.getProgress() != null) {
-                    final int currentWaypointIndex = event.getProgress().targetWaypointIndex;
-
-                    boolean isPhotoWaypoint = photoWaypointIndices != null && photoWaypointIndices.contains(currentWaypointIndex);
+                    final int currentWaypointIndex = toGlobalWaypointIndex(event.getProgress().targetWaypointIndex);
 
-                    if (isPhotoWaypoint && photoPoints.size() > 0) {
-                        int photoWaypointPosition = photoWaypointIndices.indexOf(currentWaypointIndex);
-                        int photosPerInspection = photoPoints.size();
+                    final long waypointRole = waypointRoles != null ? waypointRoles.get(currentWaypointIndex) : WaypointRoleTable.NONE;
+                    boolean isPhotoWaypoint = WaypointRoleTable.isPhoto(waypointRole);
 
-                        currentInspectionIndex = photoWaypointPosition / photosPerInspection;
-                        currentPhotoIndex = photoWaypointPosition % photosPerInspection;
+                    if (isPhotoWaypoint && inspectionPlan.hasPhotoPositions()) {
+                        // Photo positions may be flown out of file order; keep the file index for naming
+                        currentInspectionIndex = WaypointRoleTable.structureIndex(waypointRole);
+                        currentPhotoIndex = WaypointRoleTable.photoIndex(waypointRole);
+                        currentPhotoOrdinal = waypointRoles.getPhotoOrdinal(currentWaypointIndex);
                     }
 
-                    post(new Runnable() {
-                        @Override
-                        public void run() {
-                            updateMissionProgress();
-                            updateAdvancedMissionInfo();
-                        }
-                    });
-
                     WaypointMissionState currentState = event.getCurrentState();
                     boolean waypointReached = event.getProgress().isWaypointReached;
 
-                    Log.d(TAG, "=== WAYPOINT UPDATE DEBUG ===");
-                    Log.d(TAG, "Waypoint: " + currentWaypointIndex + "/" + totalWaypointCount);
-                    Log.d(TAG, "Is photo waypoint: " + isPhotoWaypoint);
-                    Log.d(TAG, "Waypoint reached: " + waypointReached);
-                    Log.d(TAG, "Mission state: " + (currentState != null ? currentState.toString() : "null")); // Use toString() for DJI SDK enums
-                    Log.d(TAG, "Mission paused for review: " + missionPausedForPhotoReview);
-                    Log.d(TAG, "Waiting for review: " + isWaitingForReview);
-                    Log.d(TAG, "Last processed: " + lastPhotoWaypointProcessed);
-
-                    updateStatus("Waypoint: " + currentWaypointIndex + "/" + totalWaypointCount +
-                            " | Estrutura: " + (currentInspectionIndex + 1) + "/" + inspectionPoints.size() +
-                            " | Foto: " + (currentPhotoIndex + 1) + "/" + photoPoints.size() +
-                            " | Foto?: " + (isPhotoWaypoint ? "SIM" : "NÃO") +
-                            " | Reached: " + waypointReached);
+                    statusWaypointIndex = currentWaypointIndex;
+                    statusStructureIndex = currentInspectionIndex;
+                    statusPhotoIndex = currentPhotoIndex;
+                    statusPhotoWaypoint = isPhotoWaypoint;
+                    statusWaypointReached = waypointReached;
+                    statusWaypointSequence++; // Events arrive on one SDK thread
+                    telemetryBridge.markDirty(DIRTY_PROGRESS | DIRTY_MISSION_INFO | DIRTY_STATUS);
+
+                    if (LOG_WAYPOINT_EVENTS) {
+                        Log.d(TAG, "=== WAYPOINT UPDATE DEBUG ===");
+                        Log.d(TAG, "Waypoint: " + currentWaypointIndex + "/" + totalWaypointCount);
+                        Log.d(TAG, "Is photo waypoint: " + isPhotoWaypoint);
+                        Log.d(TAG, "Waypoint reached: " + waypointReached);
+                        Log.d(TAG, "Mission state: " + (currentState != null ? currentState.toString() : "null")); // Use toString() for DJI SDK enums
+                        Log.d(TAG, "Mission paused for review: " + missionPausedForPhotoReview);
+                        Log.d(TAG, "Waiting for review: " + isWaitingForReview);
+                        Log.d(TAG, "Last processed: " + lastPhotoWaypointProcessed);
+                    }
 
                     // PHOTO REVIEW LOGIC - ROBUST CONDITIONS
                     if (isPhotoWaypoint && currentWaypointIndex != lastPhotoWaypointProcessed) {
@@ -2090,15 +2681,21 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
 
                         boolean forceCondition = forceNextPhotoReview;
 
-                        Log.d(TAG, "Primary conditions: " + primaryConditions);
-                        Log.d(TAG, "Secondary conditions: " + secondaryConditions);
-                        Log.d(TAG, "Force condition: " + forceCondition);
+                        if (LOG_WAYPOINT_EVENTS) {
+                            Log.d(TAG, "Primary conditions: " + primaryConditions);
+                            Log.d(TAG, "Secondary conditions: " + secondaryConditions);
+                            Log.d(TAG, "Force condition: " + forceCondition);
+                        }
 
                         if (primaryConditions || forceCondition) {
                             Log.d(TAG, "✅ TRIGGERING photo review (primary/force) for waypoint: " + currentWaypointIndex);
                             lastPhotoWaypointProcessed = currentWaypointIndex;
                             forceNextPhotoReview = false;
-                            triggerPhotoReview();
+                            if (PIPELINED_PHOTO_REVIEW && !forceCondition) {
+                                submitPipelinedShot(currentWaypointIndex);
+                            } else {
+                                triggerPhotoReview();
+                            }
 
                         } else if (secondaryConditions) {
                             Log.d(TAG, "⏰ Setting up TIMEOUT for photo review at waypoint: " + currentWaypointIndex);
@@ -2112,6 +2709,15 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             public void onExecutionStart() {
                 updateStatus("Execução da missão iniciada");
                 enableObstacleAvoidance(true);
+
+                if (currentSegmentIndex == 0) {
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            startPhotoReviewSession();
+                        }
+                    });
+                }
             }
 
             @Override
@@ -2119,6 +2725,16 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                 post(new Runnable() {
                     @Override
                     public void run() {
+                        // Segment state is only touched on the main thread
+                        if (error == null && hasNextSegment()) {
+                            startNextSegment();
+                            return;
+                        }
+
+                        segmentHandoffEnabled = false;
+
+                        logPhotoThroughput();
+
                         if (error == null) {
                             updateStatus("Missão concluída com sucesso");
 
@@ -2138,6 +2754,9 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                             isWaitingForReview = false;
 
                             updateAdvancedMissionInfo();
+                            if (!reshootList.isEmpty()) {
+                                offerReshootMission();
+                            }
                         } else {
                             updateStatus("Falha na execução da missão: " + error.getDescription());
                         }
@@ -2171,7 +2790,11 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
 
                     Log.d(TAG, "🚨 FORCING photo review due to timeout");
                     lastPhotoWaypointProcessed = waypointIndex;
-                    triggerPhotoReview();
+                    if (PIPELINED_PHOTO_REVIEW) {
+                        submitPipelinedShot(waypointIndex);
+                    } else {
+                        triggerPhotoReview();
+                    }
                 }
             }
         };
@@ -2209,19 +2832,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                         post(new Runnable() {
                             @Override
                             public void run() {
-                                if (btnPause != null) {
-                                    btnPause.setEnabled(false);
-                                    btnPause.setChecked(true);
-                                }
-                                if (btnStartMission != null) {
-                                    btnStartMission.setEnabled(false);
-                                    btnStartMission.setText("Aguardando confirmação...");
-                                }
-                                if (btnStopMission != null) {
-                                    btnStopMission.setEnabled(true);
-                                }
-
-                                updateAdvancedMissionInfo();
+                                showPausedForReviewControls();
                             }
                         });
 
@@ -2242,44 +2853,82 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         }
     }
 
+    private void showPausedForReviewControls() {
+        if (btnPause != null) {
+            btnPause.setEnabled(false);
+            btnPause.setChecked(true);
+        }
+        if (btnStartMission != null) {
+            btnStartMission.setEnabled(false);
+            btnStartMission.setText("Aguardando confirmação...");
+        }
+        if (btnStopMission != null) {
+            btnStopMission.setEnabled(true);
+        }
+
+        updateAdvancedMissionInfo();
+    }
+
     // ENHANCED: Robust photo fetching with retry mechanism
     private void fetchLatestDronePhotoWithRetry() {
-        Log.d(TAG, "🔄 Starting enhanced photo fetch with retry mechanism");
+        Log.d(TAG, "🔄 Starting photo fetch, first attempt in ~" + photoFetchScheduler.getReadyDelayMillis() + " ms");
 
-        // Reset retry counter and set fetch in progress
-        photoFetchRetryCount = 0;
-        isPhotoFetchInProgress = true;
+        cancelPhotoFetch();
+        reviewMediaFile = null;
         lastPhotoTakenTime = System.currentTimeMillis();
 
         updateStatus("Aguardando processamento da foto...");
 
-        // Wait a bit for the DJI camera to process and save the photo
-        handler.postDelayed(new Runnable() {
+        // First attempt when the camera has usually written the photo, then back off
+        photoFetchToken = photoFetchScheduler.schedule(lastPhotoTakenTime, new MediaFetchScheduler.Attempt<Bitmap>() {
             @Override
-            public void run() {
-                attemptPhotoFetch();
+            public void run(int attempt, MediaFetchScheduler.CancellationToken token,
+                            MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+                attemptPhotoFetch(attempt, token, callback);
+            }
+        }, new MediaFetchScheduler.Listener<Bitmap>() {
+            @Override
+            public void onSucceeded(Bitmap photo, int attempts) {
+                photoFetchToken = null;
+                handlePhotoFetchSuccess(photo);
             }
-        }, 3000); // Initial wait of 3 seconds
+
+            @Override
+            public void onGaveUp(String reason, int attempts) {
+                photoFetchToken = null;
+                handlePhotoFetchFailure("Máximo de tentativas atingido: " + reason);
+            }
+        });
     }
 
-    // ENHANCED: Single photo fetch attempt with comprehensive error handling
-    private void attemptPhotoFetch() {
-        if (!isPhotoFetchInProgress) {
-            Log.d(TAG, "Photo fetch cancelled - no longer in progress");
-            return;
+    private void cancelPhotoFetch() {
+        if (photoFetchToken != null) {
+            photoFetchToken.cancel();
+            photoFetchToken = null;
         }
+    }
 
-        Log.d(TAG, "📸 Attempt " + (photoFetchRetryCount + 1) + "/" + MAX_PHOTO_FETCH_RETRIES + " to fetch photo");
-        updateStatus("Tentativa " + (photoFetchRetryCount + 1) + " de buscar foto...");
+    // ENHANCED: Single photo fetch attempt with comprehensive error handling
+    private void attemptPhotoFetch(int attempt, MediaFetchScheduler.CancellationToken token,
+                                   MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+        Log.d(TAG, "📸 Attempt " + attempt + "/" + MAX_PHOTO_FETCH_RETRIES + " to fetch photo");
+        updateStatus("Tentativa " + attempt + " de buscar foto...");
 
         // Check if we have proper setup
         if (!validatePhotoFetchSetup()) {
-            handlePhotoFetchFailure("Setup de busca de foto inválido");
+            callback.onFailure("Setup de busca de foto inválido");
             return;
         }
 
-        // Start the fetch process
-        refreshFileListForPhotoFetch();
+        // The camera usually reported the photo already; list the card only if it did not
+        MediaFile reported = mediaChangeTracker.peekLatest(lastPhotoTakenTime - 1000);
+        if (reported != null) {
+            Log.d(TAG, "📸 Photo reported by camera: " + reported.getFileName());
+            fetchPhotoContent(reported, token, callback);
+            return;
+        }
+
+        refreshFileListForPhotoFetch(token, callback);
     }
 
     // ENHANCED: Validate that we have everything needed for photo fetching
@@ -2304,7 +2953,8 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     }
 
     // ENHANCED: Refresh file list with comprehensive error handling
-    private void refreshFileListForPhotoFetch() {
+    private void refreshFileListForPhotoFetch(final MediaFetchScheduler.CancellationToken token,
+                                              final MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
         Log.d(TAG, "🔄 Refreshing file list for storage: " + storageLocation);
 
         mediaManager.refreshFileListOfStorageLocation(storageLocation, new CommonCallbacks.CompletionCallback() {
@@ -2312,34 +2962,34 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             public void onResult(DJIError djiError) {
                 if (djiError == null) {
                     Log.d(TAG, "✅ File list refresh successful");
-                    // Small delay to ensure file list is fully updated
-                    handler.postDelayed(new Runnable() {
+                    post(new Runnable() {
                         @Override
                         public void run() {
-                            getLatestPhotoFromFileList();
+                            getLatestPhotoFromFileList(token, callback);
                         }
-                    }, 1000);
+                    });
                 } else {
                     Log.e(TAG, "❌ File list refresh failed: " + djiError.getDescription());
 
-                    // Try alternative storage location
+                    // Try the alternative storage location on the next attempt, so the flip is bounded by the retries
                     if (storageLocation == SettingsDefinitions.StorageLocation.INTERNAL_STORAGE) {
                         Log.d(TAG, "🔄 Trying SD card as alternative storage");
                         storageLocation = SettingsDefinitions.StorageLocation.SDCARD;
-                        refreshFileListForPhotoFetch();
                     } else {
                         Log.d(TAG, "🔄 Trying internal storage as alternative");
                         storageLocation = SettingsDefinitions.StorageLocation.INTERNAL_STORAGE;
-                        refreshFileListForPhotoFetch();
                     }
+                    mediaChangeTracker.reset();
+                    callback.onRetry("Falha ao atualizar lista de arquivos: " + djiError.getDescription());
                 }
             }
         });
     }
 
     // ENHANCED: Get latest photo from file list with better filtering
-    private void getLatestPhotoFromFileList() {
-        if (!isPhotoFetchInProgress) {
+    private void getLatestPhotoFromFileList(MediaFetchScheduler.CancellationToken token,
+                                            MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+        if (token.isCancelled()) {
             Log.d(TAG, "Photo fetch cancelled during file list processing");
             return;
         }
@@ -2353,61 +3003,26 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             mediaFiles = mediaManager.getInternalStorageFileListSnapshot();
         }
 
-        if (mediaFiles != null && !mediaFiles.isEmpty()) {
-            Log.d(TAG, "📋 Found " + mediaFiles.size() + " media files");
-
-            // Find the most recent photo that was taken after we started the photo process
-            MediaFile latestPhoto = findMostRecentPhoto(mediaFiles);
+        // Only the files added since the last one seen are examined, however full the card is
+        int newPhotos = mediaChangeTracker.ingestSnapshot(mediaFiles);
+        Log.d(TAG, "📋 " + newPhotos + " new photos, last index " + mediaChangeTracker.getLastSeenIndex());
 
-            if (latestPhoto != null) {
-                Log.d(TAG, "📸 Latest photo found: " + latestPhoto.getFileName() +
-                        ", Size: " + latestPhoto.getFileSize() + " bytes");
+        MediaFile latestPhoto = mediaChangeTracker.peekLatest(lastPhotoTakenTime - 1000); // Allow 1 second before our photo process started
+        if (latestPhoto != null) {
+            Log.d(TAG, "📸 Latest photo found: " + latestPhoto.getFileName() +
+                    ", Size: " + latestPhoto.getFileSize() + " bytes");
 
-                fetchPhotoContent(latestPhoto);
-            } else {
-                Log.w(TAG, "⚠️ No suitable recent photo found");
-                handlePhotoFetchRetry("Nenhuma foto recente encontrada");
-            }
+            fetchPhotoContent(latestPhoto, token, callback);
         } else {
-            Log.w(TAG, "⚠️ Media file list is empty");
-            handlePhotoFetchRetry("Lista de arquivos vazia");
-        }
-    }
-
-    // ENHANCED: Find most recent photo with better filtering
-    private MediaFile findMostRecentPhoto(List<MediaFile> mediaFiles) {
-        MediaFile mostRecent = null;
-        long mostRecentTime = lastPhotoTakenTime - 1000; // Allow 1 seconds before our photo process started
-
-        for (MediaFile mediaFile : mediaFiles) {
-            // Only consider photo files
-            if (mediaFile.getMediaType() == MediaFile.MediaType.JPEG ||
-                    mediaFile.getMediaType() == MediaFile.MediaType.RAW_DNG) {
-
-                long fileTime = mediaFile.getTimeCreated();
-
-                Log.d(TAG, "🔍 Checking photo: " + mediaFile.getFileName() +
-                        ", Created: " + new java.util.Date(fileTime) +
-                        ", Size: " + mediaFile.getFileSize());
-
-                if (fileTime > mostRecentTime) {
-                    mostRecent = mediaFile;
-                    mostRecentTime = fileTime;
-                }
-            }
+            Log.w(TAG, "⚠️ No suitable recent photo found");
+            callback.onRetry("Nenhuma foto recente encontrada");
         }
-
-        if (mostRecent != null) {
-            Log.d(TAG, "✅ Selected most recent photo: " + mostRecent.getFileName() +
-                    ", Created: " + new java.util.Date(mostRecentTime));
-        }
-
-        return mostRecent;
     }
 
     // ENHANCED: Fetch photo content with multiple fallback strategies
-    private void fetchPhotoContent(MediaFile mediaFile) {
-        if (!isPhotoFetchInProgress) {
+    private void fetchPhotoContent(final MediaFile mediaFile, final MediaFetchScheduler.CancellationToken token,
+                                   final MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+        if (token.isCancelled()) {
             Log.d(TAG, "Photo fetch cancelled during content fetch");
             return;
         }
@@ -2420,7 +3035,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                 new FetchMediaTask.Callback() {
                     @Override
                     public void onUpdate(MediaFile file, FetchMediaTaskContent content, DJIError error) {
-                        if (!isPhotoFetchInProgress) {
+                        if (token.isCancelled()) {
                             Log.d(TAG, "Photo fetch cancelled during thumbnail fetch");
                             return;
                         }
@@ -2429,14 +3044,15 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                             Bitmap thumbnail = file.getThumbnail();
                             if (thumbnail != null) {
                                 Log.d(TAG, "✅ Thumbnail fetched successfully");
-                                handlePhotoFetchSuccess(thumbnail);
+                                reviewMediaFile = mediaFile;
+                                callback.onSuccess(thumbnail);
                             } else {
                                 Log.w(TAG, "⚠️ Thumbnail is null, trying preview");
-                                fetchPhotoPreview(mediaFile);
+                                fetchPhotoPreview(mediaFile, token, callback);
                             }
                         } else {
                             Log.e(TAG, "❌ Thumbnail fetch failed: " + (error != null ? error.getDescription() : "Unknown"));
-                            fetchPhotoPreview(mediaFile);
+                            fetchPhotoPreview(mediaFile, token, callback);
                         }
                     }
                 });
@@ -2445,8 +3061,9 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
     }
 
     // ENHANCED: Fetch preview as fallback
-    private void fetchPhotoPreview(MediaFile mediaFile) {
-        if (!isPhotoFetchInProgress) {
+    private void fetchPhotoPreview(final MediaFile mediaFile, final MediaFetchScheduler.CancellationToken token,
+                                   final MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+        if (token.isCancelled()) {
             Log.d(TAG, "Photo fetch cancelled during preview fetch");
             return;
         }
@@ -2458,7 +3075,7 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                 new FetchMediaTask.Callback() {
                     @Override
                     public void onUpdate(MediaFile file, FetchMediaTaskContent content, DJIError error) {
-                        if (!isPhotoFetchInProgress) {
+                        if (token.isCancelled()) {
                             Log.d(TAG, "Photo fetch cancelled during preview fetch");
                             return;
                         }
@@ -2467,14 +3084,15 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                             Bitmap preview = file.getPreview();
                             if (preview != null) {
                                 Log.d(TAG, "✅ Preview fetched successfully");
-                                handlePhotoFetchSuccess(preview);
+                                reviewMediaFile = mediaFile;
+                                callback.onSuccess(preview);
                             } else {
                                 Log.w(TAG, "⚠️ Preview is also null");
-                                handlePhotoFetchRetry("Preview da foto não disponível");
+                                callback.onRetry("Preview da foto não disponível");
                             }
                         } else {
                             Log.e(TAG, "❌ Preview fetch failed: " + (error != null ? error.getDescription() : "Unknown"));
-                            handlePhotoFetchRetry("Erro ao carregar preview: " + (error != null ? error.getDescription() : "Desconhecido"));
+                            callback.onRetry("Erro ao carregar preview: " + (error != null ? error.getDescription() : "Desconhecido"));
                         }
                     }
                 });
@@ -2484,56 +3102,19 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
 
     // ENHANCED: Handle successful photo fetch
     private void handlePhotoFetchSuccess(Bitmap photo) {
-        isPhotoFetchInProgress = false;
-        photoFetchRetryCount = 0;
-
         Log.d(TAG, "🎉 Photo fetch SUCCESS! Showing confirmation dialog");
 
-        post(new Runnable() {
-            @Override
-            public void run() {
-                lastPhotoTaken = photo;
-                updateStatus("Foto carregada com sucesso!");
-                showPhotoConfirmationDialog(photo);
-            }
-        });
-    }
-
-    // ENHANCED: Handle photo fetch retry logic
-    private void handlePhotoFetchRetry(String reason) {
-        photoFetchRetryCount++;
-
-        Log.w(TAG, "⚠️ Photo fetch attempt " + photoFetchRetryCount + " failed: " + reason);
-
-        if (photoFetchRetryCount < MAX_PHOTO_FETCH_RETRIES) {
-            Log.d(TAG, "🔄 Retrying photo fetch in " + (PHOTO_FETCH_RETRY_DELAY / 1000) + " seconds...");
-            updateStatus("Tentativa " + photoFetchRetryCount + " falhou. Tentando novamente...");
-
-            handler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    attemptPhotoFetch();
-                }
-            }, PHOTO_FETCH_RETRY_DELAY);
-        } else {
-            handlePhotoFetchFailure("Máximo de tentativas atingido: " + reason);
-        }
+        lastPhotoTaken = photo;
+        updateStatus("Foto carregada com sucesso!");
+        showPhotoConfirmationDialog(photo);
     }
 
     // ENHANCED: Handle complete photo fetch failure
     private void handlePhotoFetchFailure(String reason) {
-        isPhotoFetchInProgress = false;
-        photoFetchRetryCount = 0;
-
         Log.e(TAG, "❌ Photo fetch FAILED completely: " + reason);
 
-        post(new Runnable() {
-            @Override
-            public void run() {
-                updateStatus("Falha ao carregar foto: " + reason);
-                showPhotoErrorDialog();
-            }
-        });
+        updateStatus("Falha ao carregar foto: " + reason);
+        showPhotoErrorDialog();
     }
 
     // MODIFIED: Show error dialog when real photo cannot be loaded
@@ -2585,11 +3166,15 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         Button acceptButton = dialogView.findViewById(R.id.btn_popup_accept);
 
         photoImageView.setImageBitmap(photo);
-        photoDetailsText.setText("Estrutura: S" + (currentInspectionIndex + 1) + " | Posição: P" + (currentPhotoIndex + 1));
+        photoDetailsText.setText("Estrutura: S" + inspectionPlan.getStructureId(currentInspectionIndex) + " | Posição: P" + (currentPhotoIndex + 1));
 
         final AlertDialog dialog = builder.create();
         dialog.setCancelable(false);
 
+        // The thumbnail is shown right away; the preview replaces it when it arrives
+        final MediaFile mediaFile = reviewMediaFile;
+        final Bitmap[] shownPhoto = {photo};
+
         retakeButton.setOnClickListener(new OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -2605,7 +3190,8 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             public void onClick(View v) {
                 dialog.dismiss();
 
-                savePhotoToStorage(photo);
+                savePhotoToStorage(shownPhoto[0], mediaFile);
+                sequentialPhotoThroughput.record(System.currentTimeMillis());
 
                 isWaitingForReview = false;
                 updateStatus("Foto aceita. Retomando missão automaticamente...");
@@ -2621,6 +3207,447 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         });
 
         dialog.show();
+
+        if (mediaFile != null && photo == mediaFile.getThumbnail()) {
+            upgradeReviewPhoto(mediaFile, dialog, photoImageView, shownPhoto);
+        }
+    }
+
+    // Swap the thumbnail in an open review dialog for the preview
+    private void upgradeReviewPhoto(MediaFile mediaFile, final AlertDialog dialog, final ImageView photoImageView,
+                                    final Bitmap[] shownPhoto) {
+        FetchMediaTask previewTask = new FetchMediaTask(mediaFile, FetchMediaTaskContent.PREVIEW,
+                new FetchMediaTask.Callback() {
+                    @Override
+                    public void onUpdate(final MediaFile file, FetchMediaTaskContent content, final DJIError error) {
+                        post(new Runnable() {
+                            @Override
+                            public void run() {
+                                Bitmap preview = error == null ? file.getPreview() : null;
+                                if (preview == null) {
+                                    Log.w(TAG, "⚠️ Preview not available, keeping thumbnail: " +
+                                            (error != null ? error.getDescription() : "null"));
+                                    return;
+                                }
+                                if (dialog.isShowing()) {
+                                    shownPhoto[0] = preview;
+                                    lastPhotoTaken = preview;
+                                    photoImageView.setImageBitmap(preview);
+                                }
+                            }
+                        });
+                    }
+                });
+
+        scheduler.moveTaskToNext(previewTask);
+    }
+
+    // PIPELINED PHOTO REVIEW
+    private PhotoReviewPipeline createPhotoReviewPipeline() {
+        PhotoQualityCheck qualityCheck = new PhotoQualityCheck(PHOTO_MIN_SHARPNESS,
+                PHOTO_MIN_LUMINANCE, PHOTO_MAX_LUMINANCE, PHOTO_MAX_CLIPPED_FRACTION);
+
+        return new PhotoReviewPipeline(new PhotoReviewPipeline.PhotoSource() {
+            @Override
+            public void fetch(PhotoReviewPipeline.Shot shot, MediaFetchScheduler.CancellationToken token,
+                              MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+                fetchPhotoForShot(shot, token, callback);
+            }
+        }, qualityCheck, new PhotoReviewPipeline.Listener() {
+            @Override
+            public void onAccepted(PhotoReviewPipeline.Shot shot, Bitmap photo, PhotoQualityCheck.Result result) {
+                Log.d(TAG, "✅ Photo for waypoint " + shot.waypointIndex + " accepted automatically, sharpness " + result.sharpness);
+                lastPhotoTaken = photo;
+                savePhotoToStorage(photo, (MediaFile) shot.getMedia(), shot.structureId, shot.photoNumber);
+                pipelinedPhotoThroughput.record(System.currentTimeMillis());
+                updateAdvancedMissionInfo();
+            }
+
+            @Override
+            public void onReviewRequired(PhotoReviewPipeline.Shot shot, Bitmap photo, String reason) {
+                requestOperatorReview(shot, photo, reason);
+            }
+        }, photoFetchScheduler, PHOTO_PIPELINE_MAX_QUEUED);
+    }
+
+    private OriginalPhotoDownloader createOriginalPhotoDownloader() {
+        return new OriginalPhotoDownloader(photoStorageManager, ORIGINAL_DOWNLOAD_CONCURRENCY,
+                ORIGINAL_DOWNLOAD_MAX_QUEUED, ORIGINAL_DOWNLOAD_MAX_ATTEMPTS, new OriginalPhotoDownloader.Listener() {
+            @Override
+            public void onOriginalStored(PhotoStorageManager.PhotoInfo photo, long bytes, long millis) {
+                Log.d(TAG, "📥 Original stored for " + photo.getFilename() + ": " + bytes + " bytes in " + millis + " ms");
+                updateAdvancedMissionInfo();
+
+                if (viewFlipper != null && viewFlipper.getDisplayedChild() == 1) {
+                    refreshGallery();
+                }
+            }
+
+            @Override
+            public void onOriginalFailed(PhotoStorageManager.PhotoInfo photo, String reason) {
+                Log.w(TAG, "⚠️ Keeping preview of " + photo.getFilename() + ", original failed: " + reason);
+                updateAdvancedMissionInfo();
+            }
+        });
+    }
+
+    private void markForReshoot(PhotoReviewPipeline.Shot shot) {
+        if (reshootList.add(shot.structureId, shot.photoNumber)) {
+            saveReshootList();
+        }
+    }
+
+    private void saveReshootList() {
+        getContext().getSharedPreferences(getContext().getPackageName(), Context.MODE_PRIVATE)
+                .edit().putStringSet(RESHOOT_PREFERENCE_KEY, reshootList.toStrings()).apply();
+    }
+
+    private void offerReshootMission() {
+        new AlertDialog.Builder(getContext())
+                .setTitle("Fotos a Refazer")
+                .setMessage(reshootList.size() + " posições em " + reshootList.getStructureCount() + " estruturas:\n" +
+                        reshootList.describe(RESHOOT_DESCRIBED_STRUCTURES) +
+                        "\n\nCarregar um voo só com essas posições?")
+                .setPositiveButton("Carregar Voo", (dialog, which) -> loadReshootMission())
+                .setNeutralButton("Limpar Lista", (dialog, which) -> {
+                    reshootList.clear();
+                    saveReshootList();
+                    updateStatus("Lista de fotos a refazer limpa");
+                    updateAdvancedMissionInfo();
+                })
+                .setNegativeButton("Depois", null)
+                .show();
+    }
+
+    // Plan a flight over the positions to re-shoot; the operator starts it with "Iniciar Missão"
+    private void loadReshootMission() {
+        if (waypointMissionOperator != null &&
+                (waypointMissionOperator.getCurrentState() == WaypointMissionState.EXECUTING ||
+                        waypointMissionOperator.getCurrentState() == WaypointMissionState.EXECUTION_PAUSED)) {
+            updateStatus("Aguarde o fim da missão atual para refazer fotos");
+            return;
+        }
+        if (!inspectionPlan.hasStructures() || !inspectionPlan.hasPhotoPositions()) {
+            updateStatus("Carregue as estruturas e posições de foto para refazer fotos");
+            return;
+        }
+
+        // Positions are listed by CSV ID; waypoints need the structure's index in the current plan
+        final int[][] photos = new int[inspectionPlan.getStructureCount()][];
+        int photoCount = 0;
+        int structureCount = 0;
+        for (int i = 0; i < photos.length; i++) {
+            int[] numbers = reshootList.getPhotoNumbers(inspectionPlan.getStructureId(i));
+            int[] indices = new int[numbers.length];
+            int kept = 0;
+            for (int number : numbers) {
+                if (number >= 1 && number <= inspectionPlan.getPhotoCount()) {
+                    indices[kept++] = number - 1;
+                }
+            }
+            if (kept > 0) {
+                photos[i] = kept == indices.length ? indices : Arrays.copyOf(indices, kept);
+                photoCount += kept;
+                structureCount++;
+            }
+        }
+        if (photoCount == 0) {
+            updateStatus("Nenhuma posição a refazer pertence à missão carregada");
+            return;
+        }
+
+        currentInspectionIndex = 0;
+        currentPhotoIndex = 0;
+        currentPhotoOrdinal = 0;
+        isMissionPaused = false;
+        missionPausedForPhotoReview = false;
+        enableObstacleAvoidance(true);
+
+        final InspectionPlan livePlan = inspectionPlan;
+        final int revision = inspectionPlanRevision;
+        final InspectionPlan snapshot = livePlan.slice(0, livePlan.getStructureCount());
+        final double homeLat = initialHomeLat;
+        final double homeLon = initialHomeLon;
+        final InspectionMissionPlanner.Parameters parameters = new InspectionMissionPlanner.Parameters(
+                DEFAULT_ALTITUDE, SAFE_DISTANCE, SAFETY_ALTITUDE, DEFAULT_SPEED);
+        final String summary = photoCount + " fotos em " + structureCount + " estruturas";
+        updateStatus("Planejando voo para refazer " + summary + "...");
+
+        missionBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PlannedMission planned = new InspectionMissionPlanner(parameters)
+                        .planPhotos(snapshot, homeLat, homeLon, photos);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (inspectionPlan != livePlan || inspectionPlanRevision != revision) {
+                            return; // Waypoint structure indices would no longer match the plan
+                        }
+                        updateStatus("Voo para refazer " + summary + " planejado");
+                        createCompleteMission(planned);
+                    }
+                });
+            }
+        });
+    }
+
+    private void startPhotoReviewSession() {
+        long now = System.currentTimeMillis();
+        photoReviewPipeline.reset();
+        mediaChangeTracker.clear();
+        pipelinedPhotoThroughput.start(now);
+        sequentialPhotoThroughput.start(now);
+    }
+
+    private void logPhotoThroughput() {
+        PhotoThroughputMeter meter = PIPELINED_PHOTO_REVIEW ? pipelinedPhotoThroughput : sequentialPhotoThroughput;
+        Log.i(TAG, "Photo throughput (" + (PIPELINED_PHOTO_REVIEW ? "pipelined" : "sequential") + " review): " +
+                String.format("%.2f", meter.getPhotosPerMinute()) + " photos/min over " + meter.getCount() + " photos" +
+                (PIPELINED_PHOTO_REVIEW ? ", " + photoReviewPipeline.getFlaggedCount() + " sent to the operator, " +
+                        reshootList.size() + " to re-shoot" : ""));
+        Log.i(TAG, "Photo ready latency: " + photoFetchScheduler.getReadyLatency() +
+                ", attempt latency: " + photoFetchScheduler.getAttemptLatency() +
+                ", total fetch latency: " + photoFetchScheduler.getTotalLatency() +
+                ", next first attempt after " + photoFetchScheduler.getReadyDelayMillis() + " ms");
+        Log.i(TAG, "Originals: " + originalPhotoDownloader.getStoredCount() + " stored (" +
+                originalPhotoDownloader.getStoredBytes() / 1024 + " KB), " + originalPhotoDownloader.getFailedCount() +
+                " failed, " + (originalPhotoDownloader.getQueuedCount() + originalPhotoDownloader.getActiveCount()) +
+                " pending, download latency: " + originalPhotoDownloader.getDownloadLatency());
+    }
+
+    // Queue the photo of a waypoint for background review; the mission keeps flying
+    private void submitPipelinedShot(final int waypointIndex) {
+        if (photoTimeoutRunnable != null) {
+            photoTimeoutHandler.removeCallbacks(photoTimeoutRunnable);
+            photoTimeoutRunnable = null;
+        }
+
+        final long waypointRole = waypointRoles != null ? waypointRoles.get(waypointIndex) : WaypointRoleTable.NONE;
+        final long takenAt = System.currentTimeMillis();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                int structureIndex = WaypointRoleTable.structureIndex(waypointRole);
+                if (structureIndex < 0 || structureIndex >= inspectionPlan.getStructureCount()) {
+                    Log.w(TAG, "No structure for photo at waypoint " + waypointIndex);
+                    return;
+                }
+                // Filed by CSV ID and photo number now, so a plan change during review cannot move it
+                PhotoReviewPipeline.Shot shot = new PhotoReviewPipeline.Shot(inspectionPlan.getStructureId(structureIndex),
+                        WaypointRoleTable.photoIndex(waypointRole) + 1, waypointIndex, takenAt);
+                if (photoReviewPipeline.submit(shot)) {
+                    updateStatus("Foto do waypoint " + waypointIndex + " em revisão (" +
+                            photoReviewPipeline.getPendingCount() + " na fila)");
+                } else {
+                    Log.w(TAG, "Photo review queue full, pausing at waypoint " + waypointIndex);
+                    triggerPhotoReview();
+                }
+                updateAdvancedMissionInfo();
+            }
+        });
+    }
+
+    // Find the photo of a shot in the aircraft's media list and fetch its preview
+    private void fetchPhotoForShot(final PhotoReviewPipeline.Shot shot, final MediaFetchScheduler.CancellationToken token,
+                                   final MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+        if (!validatePhotoFetchSetup()) {
+            callback.onRetry("Setup de busca de foto inválido");
+            return;
+        }
+
+        // Oldest unclaimed photo since the shot, so consecutive shots map to consecutive files.
+        // Allow 1 second of clock difference, as the paused review does.
+        final long notBefore = shot.takenAtMillis - 1000;
+        MediaFile reported = mediaChangeTracker.claim(notBefore);
+        if (reported != null) {
+            fetchShotContent(shot, reported, FetchMediaTaskContent.PREVIEW, token, callback);
+            return;
+        }
+
+        // No new-file event yet; look at the files added since the last one seen
+        mediaManager.refreshFileListOfStorageLocation(storageLocation, new CommonCallbacks.CompletionCallback() {
+            @Override
+            public void onResult(final DJIError djiError) {
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (token.isCancelled()) {
+                            return;
+                        }
+                        if (djiError != null) {
+                            // Try the other storage location on the next attempt
+                            storageLocation = storageLocation == SettingsDefinitions.StorageLocation.INTERNAL_STORAGE ?
+                                    SettingsDefinitions.StorageLocation.SDCARD : SettingsDefinitions.StorageLocation.INTERNAL_STORAGE;
+                            mediaChangeTracker.reset();
+                            callback.onRetry("Falha ao atualizar lista de arquivos: " + djiError.getDescription());
+                            return;
+                        }
+
+                        mediaChangeTracker.ingestSnapshot(storageLocation == SettingsDefinitions.StorageLocation.SDCARD ?
+                                mediaManager.getSDCardFileListSnapshot() : mediaManager.getInternalStorageFileListSnapshot());
+                        MediaFile mediaFile = mediaChangeTracker.claim(notBefore);
+                        if (mediaFile == null) {
+                            callback.onRetry("Foto ainda não disponível");
+                            return;
+                        }
+
+                        fetchShotContent(shot, mediaFile, FetchMediaTaskContent.PREVIEW, token, callback);
+                    }
+                });
+            }
+        });
+    }
+
+    // Preview first, since the checks need more detail than a thumbnail; fall back to the thumbnail
+    private void fetchShotContent(final PhotoReviewPipeline.Shot shot, final MediaFile mediaFile,
+                                  final FetchMediaTaskContent content,
+                                  final MediaFetchScheduler.CancellationToken token,
+                                  final MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+        FetchMediaTask task = new FetchMediaTask(mediaFile, content, new FetchMediaTask.Callback() {
+            @Override
+            public void onUpdate(MediaFile file, FetchMediaTaskContent fetched, DJIError error) {
+                if (token.isCancelled()) {
+                    // Attempt abandoned, e.g. past its deadline; let the next attempt pick the file again
+                    mediaChangeTracker.release(mediaFile);
+                    return;
+                }
+
+                Bitmap photo = null;
+                if (error == null) {
+                    photo = fetched == FetchMediaTaskContent.PREVIEW ? file.getPreview() : file.getThumbnail();
+                }
+
+                if (photo != null) {
+                    shot.setMedia(mediaFile);
+                    callback.onSuccess(photo);
+                } else if (content == FetchMediaTaskContent.PREVIEW) {
+                    fetchShotContent(shot, mediaFile, FetchMediaTaskContent.THUMBNAIL, token, callback);
+                } else {
+                    // Let the next attempt pick the file again
+                    mediaChangeTracker.release(mediaFile);
+                    callback.onRetry("Erro ao carregar foto: " + (error != null ? error.getDescription() : "Desconhecido"));
+                }
+            }
+        });
+
+        scheduler.moveTaskToTail(task);
+    }
+
+    // Stop the aircraft only for shots the automatic checks could not accept
+    private void requestOperatorReview(final PhotoReviewPipeline.Shot shot, final Bitmap photo, final String reason) {
+        Log.w(TAG, "⚠️ Photo for waypoint " + shot.waypointIndex + " needs review: " + reason);
+        updateStatus("Revisão necessária: " + reason);
+
+        if (waypointMissionOperator == null ||
+                waypointMissionOperator.getCurrentState() != WaypointMissionState.EXECUTING) {
+            showPipelinedReviewDialog(shot, photo, reason);
+            return;
+        }
+
+        waypointMissionOperator.pauseMission(new CommonCallbacks.CompletionCallback() {
+            @Override
+            public void onResult(final DJIError djiError) {
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (djiError == null) {
+                            missionPausedForPhotoReview = true;
+                            isMissionPaused = true;
+                            isWaitingForReview = true;
+                            showPausedForReviewControls();
+                        } else {
+                            Log.e(TAG, "❌ Failed to pause mission for review: " + djiError.getDescription());
+                            updateStatus("Falha ao pausar para revisão: " + djiError.getDescription());
+                        }
+                        showPipelinedReviewDialog(shot, photo, reason);
+                    }
+                });
+            }
+        });
+    }
+
+    private void showPipelinedReviewDialog(final PhotoReviewPipeline.Shot shot, final Bitmap photo, String reason) {
+        final String shotLabel = "Estrutura: S" + shot.structureId + " | Posição: P" + shot.photoNumber;
+
+        if (photo == null) {
+            new AlertDialog.Builder(getContext())
+                    .setTitle("Erro ao Carregar Foto")
+                    .setMessage(shotLabel + "\n" + reason)
+                    .setPositiveButton("Tentar Novamente", new android.content.DialogInterface.OnClickListener() {
+                        @Override
+                        public void onClick(android.content.DialogInterface dialog, int which) {
+                            dialog.dismiss();
+                            photoReviewPipeline.retry(shot);
+                            finishPipelinedReview();
+                        }
+                    })
+                    .setNegativeButton("Refazer Depois", new android.content.DialogInterface.OnClickListener() {
+                        @Override
+                        public void onClick(android.content.DialogInterface dialog, int which) {
+                            dialog.dismiss();
+                            markForReshoot(shot);
+                            finishPipelinedReview();
+                        }
+                    })
+                    .setCancelable(false)
+                    .show();
+            return;
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+        int orientation = getResources().getConfiguration().orientation;
+        View dialogView = LayoutInflater.from(getContext()).inflate(orientation == Configuration.ORIENTATION_LANDSCAPE ?
+                R.layout.dialog_photo_confirmation_land : R.layout.dialog_photo_confirmation, null);
+        builder.setView(dialogView);
+
+        ImageView photoImageView = dialogView.findViewById(R.id.popup_image_preview);
+        TextView photoDetailsText = dialogView.findViewById(R.id.text_photo_details);
+        Button retakeButton = dialogView.findViewById(R.id.btn_popup_retake);
+        Button acceptButton = dialogView.findViewById(R.id.btn_popup_accept);
+
+        photoImageView.setImageBitmap(photo);
+        photoDetailsText.setText(shotLabel + "\n" + reason);
+        retakeButton.setText("Refazer Depois");
+
+        final AlertDialog dialog = builder.create();
+        dialog.setCancelable(false);
+
+        retakeButton.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                dialog.dismiss();
+                // The aircraft has moved on; keep the position for a follow-up flight
+                markForReshoot(shot);
+                updateStatus("Foto marcada para refazer: " + shotLabel);
+                finishPipelinedReview();
+            }
+        });
+
+        acceptButton.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                dialog.dismiss();
+                lastPhotoTaken = photo;
+                savePhotoToStorage(photo, (MediaFile) shot.getMedia(), shot.structureId, shot.photoNumber);
+                pipelinedPhotoThroughput.record(System.currentTimeMillis());
+                finishPipelinedReview();
+            }
+        });
+
+        dialog.show();
+    }
+
+    // Resume once the operator has gone through every flagged photo
+    private void finishPipelinedReview() {
+        photoReviewPipeline.reviewCompleted();
+        updateAdvancedMissionInfo();
+
+        if (!photoReviewPipeline.hasPendingReview() && missionPausedForPhotoReview) {
+            isWaitingForReview = false;
+            updateStatus("Revisão concluída. Retomando missão automaticamente...");
+            resumeMissionAutomatically();
+        }
     }
 
     // FORCE PHOTO REVIEW FOR MANUAL BUTTON - ENHANCED
@@ -2643,24 +3670,55 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
         }
     }
 
-    private void savePhotoToStorage(Bitmap photo) {
+    private void savePhotoToStorage(Bitmap photo, MediaFile original) {
+        if (currentInspectionIndex < 0 || currentInspectionIndex >= inspectionPlan.getStructureCount()) {
+            updateStatus("Erro ao salvar foto: nenhuma estrutura em inspeção");
+            return;
+        }
+        // Photos are filed under the structure's CSV ID, not its position in the flight order
+        savePhotoToStorage(photo, original, inspectionPlan.getStructureId(currentInspectionIndex), currentPhotoIndex + 1);
+    }
+
+    // Saves the reviewed copy in the background; the original, when known, replaces it once downloaded
+    private void savePhotoToStorage(Bitmap photo, final MediaFile original, final int structureId, int photoNumber) {
         if (photo != null && photoStorageManager != null) {
-            PhotoStorageManager.PhotoInfo savedPhoto =
-                    photoStorageManager.savePhoto(photo, currentInspectionIndex + 1, currentPhotoIndex + 1);
+            photoStorageManager.savePhotoAsync(photo, structureId, photoNumber, new PhotoStorageManager.SaveCallback() {
+                @Override
+                public void onSaved(final PhotoStorageManager.PhotoInfo savedPhoto) {
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPhotoSaved(savedPhoto, original, structureId);
+                        }
+                    });
+                }
 
-            if (savedPhoto != null) {
-                updateStatus("Foto salva em: " + savedPhoto.getFile().getAbsolutePath());
+                @Override
+                public void onFailed(IOException error) {
+                    updateStatus("Erro ao salvar foto: " + error.getMessage());
+                }
+            });
+        }
+    }
 
-                if (viewFlipper != null && viewFlipper.getDisplayedChild() == 1) {
-                    refreshGallery();
+    private void onPhotoSaved(PhotoStorageManager.PhotoInfo savedPhoto, MediaFile original, int structureId) {
+        updateStatus("Foto salva em: " + savedPhoto.getFile().getAbsolutePath());
+        if (reshootList.remove(structureId, savedPhoto.getPhotoIdAsInt())) {
+            saveReshootList();
+            updateAdvancedMissionInfo();
+        }
 
-                    if (galleryViewFlipper != null && galleryViewFlipper.getDisplayedChild() == 1 &&
-                            currentStructureId == currentInspectionIndex + 1) {
-                        updatePhotosForCurrentStructure();
-                    }
-                }
-            } else {
-                updateStatus("Erro ao salvar foto");
+        // The file is in place now, so the original can be renamed over it
+        if (original != null && !originalPhotoDownloader.enqueue(original, savedPhoto)) {
+            Log.w(TAG, "Original download queue full, keeping preview of " + savedPhoto.getFilename());
+        }
+
+        if (viewFlipper != null && viewFlipper.getDisplayedChild() == 1) {
+            refreshGallery();
+
+            if (galleryViewFlipper != null && galleryViewFlipper.getDisplayedChild() == 1 &&
+                    currentStructureId == structureId) {
+                updatePhotosForCurrentStructure();
             }
         }
     }
@@ -2703,22 +3761,36 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
 
     private void showFullscreenPhotoView(PhotoStorageManager.PhotoInfo photoInfo) {
         if (photoInfo == null) return;
+        if (!photoInfo.getFile().isFile()) {
+            updateStatus("Arquivo de foto não encontrado");
+            return;
+        }
 
-        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+        final Dialog dialog = new Dialog(getContext(), android.R.style.Theme_Black_NoTitleBar_Fullscreen);
         View fullscreenView = LayoutInflater.from(getContext()).inflate(R.layout.fullscreen_photo_view, null);
-        builder.setView(fullscreenView);
+        dialog.setContentView(fullscreenView);
 
-        ImageView fullscreenImage = fullscreenView.findViewById(R.id.image_fullscreen_photo);
+        final SubsamplingScaleImageView fullscreenImage = fullscreenView.findViewById(R.id.image_fullscreen_photo);
         TextView photoInfoText = fullscreenView.findViewById(R.id.text_fullscreen_photo_info);
         Button closeButton = fullscreenView.findViewById(R.id.btn_close_fullscreen);
         Button shareButton = fullscreenView.findViewById(R.id.btn_share_photo);
         Button deleteButton = fullscreenView.findViewById(R.id.btn_delete_fullscreen);
 
-        Bitmap photoBitmap = BitmapFactory.decodeFile(photoInfo.getFile().getAbsolutePath());
-        fullscreenImage.setImageBitmap(photoBitmap);
-        photoInfoText.setText(photoInfo.getStructureId() + " | " + photoInfo.getPhotoId() + " | " + photoInfo.getTimestamp());
+        if (fullscreenTileCache == null) {
+            int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, FULLSCREEN_TILE_CACHE_MAX_BYTES);
+            fullscreenTileCache = new CachingRegionDecoder.TileCache(maxBytes);
+        }
+        final CachingRegionDecoder.TileCache tileCache = fullscreenTileCache;
+        final int hitsBefore = tileCache.getHitCount();
+        final int missesBefore = tileCache.getMissCount();
 
-        final AlertDialog dialog = builder.create();
+        fullscreenImage.setRegionDecoderFactory(new CachingRegionDecoder.Factory(tileCache, Bitmap.Config.RGB_565));
+        fullscreenImage.setOrientation(SubsamplingScaleImageView.ORIENTATION_USE_EXIF);
+        fullscreenImage.setMaxScale(FULLSCREEN_MAX_SCALE);
+        // Double tap goes straight to one photo pixel per screen pixel
+        fullscreenImage.setDoubleTapZoomScale(1.0f);
+        fullscreenImage.setImage(photoImageSource(photoInfo), thumbnailImageSource(photoInfo));
+        photoInfoText.setText(photoInfo.getStructureId() + " | " + photoInfo.getPhotoId() + " | " + photoInfo.getTimestamp());
 
         closeButton.setOnClickListener(v -> dialog.dismiss());
 
@@ -2732,91 +3804,245 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
             onDeleteClick(photoInfo);
         });
 
+        dialog.setOnDismissListener(d -> {
+            fullscreenImage.recycle();
+            Log.d(TAG, "Fullscreen tiles: " + (tileCache.getHitCount() - hitsBefore) + " cached, " +
+                    (tileCache.getMissCount() - missesBefore) + " decoded");
+        });
+
         dialog.show();
     }
 
-    private void sharePhoto(PhotoStorageManager.PhotoInfo photoInfo) {
-        if (photoInfo == null || !photoInfo.getFile().exists()) {
-            updateStatus("Arquivo de foto não encontrado");
-            return;
+    /**
+     * The full photo, with its dimensions when a preview will be shown while the tiles load
+     */
+    private ImageSource photoImageSource(PhotoStorageManager.PhotoInfo photoInfo) {
+        ImageSource source = ImageSource.uri(Uri.fromFile(photoInfo.getFile()));
+        if (!PhotoStorageManager.getThumbnailFile(photoInfo).isFile()) {
+            return source;
+        }
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photoInfo.getFile().getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return source;
         }
+        return source.dimensions(bounds.outWidth, bounds.outHeight);
+    }
 
-        try {
-            Intent shareIntent = new Intent(Intent.ACTION_SEND);
-            shareIntent.setType("image/jpeg");
+    /**
+     * The photo's thumbnail sidecar, shown until the first tiles are decoded
+     */
+    @Nullable
+    private ImageSource thumbnailImageSource(PhotoStorageManager.PhotoInfo photoInfo) {
+        File thumbnail = PhotoStorageManager.getThumbnailFile(photoInfo);
+        return thumbnail.isFile() ? ImageSource.uri(Uri.fromFile(thumbnail)) : null;
+    }
 
-            Uri photoUri;
+    private void showExportOptions() {
+        new AlertDialog.Builder(getContext())
+                .setTitle("Exportar " + exportSelectionLabel())
+                .setItems(new String[]{"Copiar fotos para Downloads", "Pacote ZIP com manifesto"}, (dialog, which) -> {
+                    if (which == 0) {
+                        exportGalleryPhotos();
+                    } else {
+                        packageGalleryPhotos();
+                    }
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
 
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
-                String authority = getContext().getPackageName() + ".fileprovider";
-                photoUri = androidx.core.content.FileProvider.getUriForFile(
-                        getContext(),
-                        authority,
-                        photoInfo.getFile());
+    /**
+     * Whether the gallery shows a single structure, whose photos are exported alone
+     */
+    private boolean isExportingShownStructure() {
+        return currentStructureId > 0 && galleryViewFlipper != null && galleryViewFlipper.getDisplayedChild() == 1;
+    }
 
-                shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-            } else {
-                photoUri = Uri.fromFile(photoInfo.getFile());
-            }
+    private String exportSelectionLabel() {
+        if (isExportingShownStructure()) {
+            return "Estrutura " + currentStructureId;
+        }
+        return inspectionPlan.hasStructures() ? "Missão" : "Galeria";
+    }
 
-            shareIntent.putExtra(Intent.EXTRA_STREAM, photoUri);
-            shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Foto de Inspeção: " +
-                    photoInfo.getStructureId() + " " + photoInfo.getPhotoId());
+    /**
+     * Photos of the structure shown in the gallery, or of every structure of the mission from
+     * the structure list, in structure order
+     */
+    private List<PhotoStorageManager.PhotoInfo> exportSelection() {
+        List<PhotoStorageManager.PhotoInfo> photos = new ArrayList<>();
+        if (isExportingShownStructure()) {
+            photos.addAll(photoStorageManager.getPhotosForStructure(currentStructureId));
+        } else if (inspectionPlan.hasStructures()) {
+            for (int i = 0; i < inspectionPlan.getStructureCount(); i++) {
+                photos.addAll(photoStorageManager.getPhotosForStructure(inspectionPlan.getStructureId(i)));
+            }
+        } else {
+            for (int structureId : photoStorageManager.getStructureIdsWithPhotos()) {
+                photos.addAll(photoStorageManager.getPhotosForStructure(structureId));
+            }
+        }
+        return photos;
+    }
 
-            getContext().startActivity(Intent.createChooser(shareIntent, "Compartilhar via"));
-        } catch (Exception e) {
-            Log.e(TAG, "Erro ao compartilhar foto: " + e.getMessage(), e);
-            updateStatus("Erro ao compartilhar foto: " + e.getMessage());
+    private File exportDirectory(String folder) {
+        File directory = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), folder);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            directory = new File(getContext().getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS), folder);
+        }
+        return directory;
+    }
 
-            File downloadDir = new File(Environment.getExternalStorageDirectory(), "Download");
-            if (!downloadDir.exists()) {
-                downloadDir.mkdirs();
+    private void exportGalleryPhotos() {
+        final String label = exportSelectionLabel();
+        List<PhotoStorageManager.PhotoInfo> photos = exportSelection();
+        if (photos.isEmpty()) {
+            updateStatus("Nenhuma foto para exportar");
+            return;
+        }
+        final File destination = exportDirectory(EXPORT_FOLDER);
+        updateStatus("Exportando " + photos.size() + " fotos (" + label + ")...");
+        currentExport = photoExporter.export(photos, destination, true, new PhotoExporter.Listener() {
+            @Override
+            public void onProgress(int doneFiles, int totalFiles, long doneBytes, long totalBytes) {
+                updateStatus(String.format("Exportando %s: %d/%d fotos, %.1f/%.1f MB",
+                        label, doneFiles, totalFiles, doneBytes / 1048576.0, totalBytes / 1048576.0));
             }
 
-            File destFile = new File(downloadDir, photoInfo.getFilename());
-            boolean success = false;
-
-            try {
-                success = copyFileUsingStream(photoInfo.getFile(), destFile);
-                if (success) {
-                    updateStatus("Foto salva em Downloads: " + destFile.getName());
+            @Override
+            public void onFinished(PhotoExporter.Result result) {
+                currentExport = null;
+                updateExportButton();
+                if (result.cancelled) {
+                    updateStatus("Exportação cancelada: " + (result.exportedFiles + result.skippedFiles) + " fotos em " +
+                            destination.getAbsolutePath());
                 } else {
-                    updateStatus("Não foi possível salvar a foto em Downloads");
+                    updateStatus(String.format(
+                            "%s exportada: %d fotos (%d sem alteração, %d falhas), %.1f MB/s em %s", label,
+                            result.exportedFiles + result.skippedFiles, result.skippedFiles, result.failedFiles,
+                            result.getMegabytesPerSecond(), destination.getAbsolutePath()));
                 }
-            } catch (Exception ex) {
-                Log.e(TAG, "Erro no método alternativo: " + ex.getMessage(), ex);
-                updateStatus("Não foi possível compartilhar ou salvar a foto");
             }
+        });
+        updateExportButton();
+    }
+
+    private void packageGalleryPhotos() {
+        final String label = exportSelectionLabel();
+        List<PhotoStorageManager.PhotoInfo> photos = exportSelection();
+        if (photos.isEmpty()) {
+            updateStatus("Nenhuma foto para exportar");
+            return;
+        }
+        final File destination = exportDirectory(PACKAGE_FOLDER);
+        String scope = isExportingShownStructure() ? "S" + currentStructureId :
+                inspectionPlan.hasStructures() ? "missao" : "galeria";
+        String name = "inspecao_" + scope + "_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+
+        // Photos saved from previews carry no GPS, so the manifest falls back to the structure location
+        SparseArray<double[]> structureLocations = new SparseArray<>();
+        for (int i = 0; i < inspectionPlan.getStructureCount(); i++) {
+            structureLocations.put(inspectionPlan.getStructureId(i),
+                    new double[]{inspectionPlan.getLatitude(i), inspectionPlan.getLongitude(i)});
+        }
+
+        updateStatus("Empacotando " + photos.size() + " fotos (" + label + ")...");
+        currentPackaging = photoArchiver.pack(photos, destination, name, PACKAGE_VOLUME_MAX_BYTES, structureLocations,
+                new PhotoArchiver.Listener() {
+                    @Override
+                    public void onProgress(int doneFiles, int totalFiles, long doneBytes, long totalBytes) {
+                        updateStatus(String.format("Empacotando %s: %d/%d fotos, %.1f/%.1f MB",
+                                label, doneFiles, totalFiles, doneBytes / 1048576.0, totalBytes / 1048576.0));
+                    }
+
+                    @Override
+                    public void onFinished(PhotoArchiver.Result result) {
+                        currentPackaging = null;
+                        updateExportButton();
+                        if (result.error != null) {
+                            updateStatus("Erro ao empacotar fotos: " + result.error);
+                        } else if (result.cancelled) {
+                            updateStatus("Empacotamento cancelado: " + result.volumes.size() + " volumes completos em " +
+                                    destination.getAbsolutePath());
+                        } else {
+                            updateStatus(String.format("%s empacotada: %d fotos em %d volumes (%d falhas), %.1f MB/s em %s",
+                                    label, result.packedFiles, result.volumes.size(), result.failedFiles,
+                                    result.getMegabytesPerSecond(), destination.getAbsolutePath()));
+                        }
+                    }
+                });
+        updateExportButton();
+    }
+
+    private void updateExportButton() {
+        if (btnExportPhotos != null) {
+            btnExportPhotos.setText(currentExport != null || currentPackaging != null ? "Cancelar Exportação" : "Exportar");
         }
     }
 
-    private boolean copyFileUsingStream(File source, File dest) {
-        InputStream is = null;
-        OutputStream os = null;
+    private void sharePhoto(PhotoStorageManager.PhotoInfo photoInfo) {
+        if (photoInfo == null || !photoInfo.getFile().exists()) {
+            updateStatus("Arquivo de foto não encontrado");
+            return;
+        }
+
+        final String subject = "Foto de Inspeção: " + photoInfo.getStructureId() + " " + photoInfo.getPhotoId();
         try {
-            is = new BufferedInputStream(new FileInputStream(source));
-            os = new BufferedOutputStream(new FileOutputStream(dest));
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = is.read(buffer)) > 0) {
-                os.write(buffer, 0, length);
-            }
-            return true;
+            startShareChooser(photoInfo.getFile(), subject);
         } catch (Exception e) {
-            Log.e(TAG, "Erro ao copiar arquivo: " + e.getMessage(), e);
-            return false;
-        } finally {
-            try {
-                if (is != null) is.close();
-            } catch (Exception e) {
-                // Ignorar
-            }
-            try {
-                if (os != null) os.close();
-            } catch (Exception e) {
-                // Ignorar
+            Log.e(TAG, "Erro ao compartilhar foto: " + e.getMessage(), e);
+            updateStatus("Erro ao compartilhar foto: " + e.getMessage() + "; salvando em Downloads...");
+
+            File downloadDir = new File(Environment.getExternalStorageDirectory(), "Download");
+            if (!downloadDir.exists()) {
+                downloadDir.mkdirs();
             }
+
+            // Copied on the export thread; a full-resolution photo is too slow to copy on the UI thread
+            photoExporter.copyFile(photoInfo.getFile(), new File(downloadDir, photoInfo.getFilename()),
+                    new PhotoExporter.CopyListener() {
+                        @Override
+                        public void onCopied(File target, IOException error) {
+                            if (error != null) {
+                                Log.e(TAG, "Erro ao copiar arquivo: " + error.getMessage(), error);
+                                updateStatus("Não foi possível salvar a foto em Downloads");
+                                return;
+                            }
+                            updateStatus("Foto salva em Downloads: " + target.getName());
+                            try {
+                                startShareChooser(target, subject);
+                            } catch (Exception ex) {
+                                Log.w(TAG, "Erro ao compartilhar cópia da foto: " + ex.getMessage(), ex);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private void startShareChooser(File file, String subject) {
+        Intent shareIntent = new Intent(Intent.ACTION_SEND);
+        shareIntent.setType("image/jpeg");
+
+        Uri photoUri;
+
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
+            String authority = getContext().getPackageName() + ".fileprovider";
+            photoUri = androidx.core.content.FileProvider.getUriForFile(
+                    getContext(),
+                    authority,
+                    file);
+
+            shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } else {
+            photoUri = Uri.fromFile(file);
         }
+
+        shareIntent.putExtra(Intent.EXTRA_STREAM, photoUri);
+        shareIntent.putExtra(Intent.EXTRA_SUBJECT, subject);
+
+        getContext().startActivity(Intent.createChooser(shareIntent, "Compartilhar via"));
     }
 
     public void updateStatus(final String message) {
@@ -2826,6 +4052,8 @@ public class StructureInspectionMissionView extends MissionBaseView implements P
                 if (statusText != null) {
                     statusText.setText("Status: " + message);
                 }
+                // Waypoint events already received must not overwrite this message
+                shownWaypointSequence = statusWaypointSequence;
                 Log.d(TAG, message);
             }
         });
@@ -1,8 +1,6 @@
 package com.dji.sdk.sample.demo.missionoperator.adapter;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,7 +14,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.dji.sdk.sample.R;
 import com.dji.sdk.sample.demo.missionoperator.util.PhotoStorageManager;
+import com.dji.sdk.sample.demo.missionoperator.util.ThumbnailLoader;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -25,9 +25,16 @@ import java.util.List;
 public class PhotoGalleryAdapter extends RecyclerView.Adapter<PhotoGalleryAdapter.PhotoViewHolder> {
 
     private static final String TAG = "PhotoGalleryAdapter";
+    private static final String THUMBNAIL_CACHE_DIRECTORY = "thumbnails";
+    private static final int MAX_MEMORY_CACHE_BYTES = 32 * 1024 * 1024;
+    private static final long MAX_DISK_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int THUMBNAIL_HEIGHT_DP = 120; // Height of img_photo_thumbnail
+
     private List<PhotoStorageManager.PhotoInfo> photoList;
     private Context context;
     private OnPhotoClickListener photoClickListener;
+    private final ThumbnailLoader thumbnailLoader;
+    private final int fallbackThumbnailHeight;
 
     public interface OnPhotoClickListener {
         void onPhotoClick(PhotoStorageManager.PhotoInfo photoInfo);
@@ -39,6 +46,12 @@ public class PhotoGalleryAdapter extends RecyclerView.Adapter<PhotoGalleryAdapte
         this.context = context;
         this.photoList = photoList;
         this.photoClickListener = listener;
+
+        // An eighth of the heap, as is usual for image caches, up to a fixed cap
+        int memoryCacheBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_MEMORY_CACHE_BYTES);
+        this.thumbnailLoader = new ThumbnailLoader(new File(context.getCacheDir(), THUMBNAIL_CACHE_DIRECTORY),
+                memoryCacheBytes, MAX_DISK_CACHE_BYTES, R.drawable.rounded_card_bg);
+        this.fallbackThumbnailHeight = Math.round(THUMBNAIL_HEIGHT_DP * context.getResources().getDisplayMetrics().density);
     }
 
     @NonNull
@@ -62,14 +75,10 @@ public class PhotoGalleryAdapter extends RecyclerView.Adapter<PhotoGalleryAdapte
         }
 
         try {
-            // Carregar a miniatura
-            if (photoInfo.getFile().exists()) {
-                Bitmap thumbnail = BitmapFactory.decodeFile(photoInfo.getFile().getAbsolutePath());
-                holder.photoImageView.setImageBitmap(thumbnail);
-            } else {
-                Log.e(TAG, "File doesn't exist: " + photoInfo.getFile().getAbsolutePath());
-                holder.photoImageView.setImageResource(R.drawable.rounded_card_bg); // Imagem de fallback
-            }
+            // Carregar a miniatura em segundo plano; a imagem de fallback fica se a foto não puder ser lida
+            thumbnailLoader.load(photoInfo.getFile(), PhotoStorageManager.getThumbnailFile(photoInfo),
+                    photoInfo.getModifiedMillis(), holder.photoImageView,
+                    fallbackThumbnailHeight * 4 / 3, fallbackThumbnailHeight);
 
             // Configurar as informações da foto
             holder.structureIdText.setText("Estrutura: " + photoInfo.getStructureId());
@@ -109,11 +118,26 @@ public class PhotoGalleryAdapter extends RecyclerView.Adapter<PhotoGalleryAdapte
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull PhotoViewHolder holder) {
+        super.onViewRecycled(holder);
+        thumbnailLoader.cancel(holder.photoImageView);
+    }
+
     @Override
     public int getItemCount() {
         return photoList != null ? photoList.size() : 0;
     }
 
+    /**
+     * Libera as miniaturas mantidas em memória, por exemplo quando a galeria é fechada
+     */
+    public void releaseThumbnailMemory() {
+        Log.d(TAG, "Thumbnail pool: " + thumbnailLoader.getPoolHitCount() + " reused, " +
+                thumbnailLoader.getPoolMissCount() + " allocated");
+        thumbnailLoader.clearMemory();
+    }
+
     /**
      * Atualiza a lista de fotos e notifica o adaptador
      * @param photos A nova lista de fotos
@@ -58,13 +58,11 @@ public class StructureFolderAdapter extends RecyclerView.Adapter<StructureFolder
         final int structureId = structureIds.get(position);
 
         try {
-            List<PhotoStorageManager.PhotoInfo> photos = photoStorageManager.getPhotosForStructure(structureId);
-
             // Definir o título da pasta de estrutura
             holder.titleTextView.setText("Estrutura " + structureId);
 
             // Definir a contagem de fotos
-            int photoCount = photos.size();
+            int photoCount = photoStorageManager.getPhotoCount(structureId);
             holder.countTextView.setText(photoCount + (photoCount == 1 ? " foto" : " fotos"));
 
             // Definir o listener do botão de visualização
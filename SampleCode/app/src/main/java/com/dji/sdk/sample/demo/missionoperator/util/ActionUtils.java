@@ -132,6 +132,23 @@ public class ActionUtils {
                 .build();
     }
 
+    public static WaypointActuator getGimbalAbsolutePitchActuator(float pitch, int gimbalIndex) {
+        Rotation rotation = new Rotation.Builder()
+                .pitch(pitch)
+                .time(1)
+                .mode(RotationMode.ABSOLUTE_ANGLE)
+                .build();
+        return new WaypointActuator.Builder()
+                .setActuatorType(ActionTypes.ActionActuatorType.GIMBAL)
+                .setActuatorIndex(gimbalIndex)
+                .setGimbalActuatorParam(new WaypointGimbalActuatorParam.Builder()
+                        .rotation(rotation)
+                        .operationType(ActionTypes.GimbalOperationType.ROTATE_GIMBAL)
+                        .build()
+                )
+                .build();
+    }
+
     public static WaypointActuator getCameraFocusModeActuator(CameraFocusMode mode, int cameraIndex) {
         return new WaypointActuator.Builder()
                 .setActuatorType(ActionTypes.ActionActuatorType.CAMERA)
@@ -161,6 +178,16 @@ public class ActionUtils {
                 .build();
     }
 
+    public static WaypointActuator getShootPhotoActuator(int cameraIndex) {
+        return new WaypointActuator.Builder()
+                .setActuatorType(ActionTypes.ActionActuatorType.CAMERA)
+                .setActuatorIndex(cameraIndex)
+                .setCameraActuatorParam(new WaypointCameraActuatorParam.Builder()
+                        .setCameraOperationType(ActionTypes.CameraOperationType.SHOOT_SINGLE_PHOTO)
+                        .build())
+                .build();
+    }
+
     public static WaypointActuator getStartPathShootingActuator(int cameraIndex, int gimbalPitch, ActionTypes.GimbalPathCycleMode cycleMode) {
         List<WaypointGimbalPathPointInfo> pointInfos = new ArrayList<>();
         pointInfos.add(new WaypointGimbalPathPointInfo.Builder().stayTime(0).eulerPitch(gimbalPitch).build());
@@ -0,0 +1,95 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte-bounded pool of mutable bitmaps that decodes can reuse through
+ * {@link android.graphics.BitmapFactory.Options#inBitmap}, so scrolling a gallery does not
+ * allocate a new bitmap for every thumbnail.
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+    private long bytes;
+    private int hits;
+    private int misses;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Offer a bitmap that nothing displays or caches any more
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        // Drop the oldest bitmaps to make room
+        while (bytes + size > maxBytes && !bitmaps.isEmpty()) {
+            Bitmap oldest = bitmaps.remove(0);
+            bytes -= oldest.getAllocationByteCount();
+            oldest.recycle();
+        }
+        bitmaps.add(bitmap);
+        bytes += size;
+    }
+
+    /**
+     * Take a bitmap large enough to decode an image of the given size into
+     * @return A pooled bitmap, or null if none fits
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        int best = -1;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            Bitmap candidate = bitmaps.get(i);
+            int size = candidate.getAllocationByteCount();
+            // Smallest that fits, and not wastefully large
+            if (size >= needed && size <= needed * 4 &&
+                    (best < 0 || size < bitmaps.get(best).getAllocationByteCount())) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        Bitmap bitmap = bitmaps.remove(best);
+        bytes -= bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        bytes = 0;
+    }
+
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return config == Bitmap.Config.ALPHA_8 ? 1 : 4;
+    }
+}
@@ -0,0 +1,164 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import com.davemorrissey.labs.subscaleview.decoder.DecoderFactory;
+import com.davemorrissey.labs.subscaleview.decoder.ImageRegionDecoder;
+
+import java.io.File;
+
+/**
+ * Region decoder for {@link com.davemorrissey.labs.subscaleview.SubsamplingScaleImageView} that
+ * keeps recently decoded tiles in a shared, byte-bounded cache.
+ *
+ * The view only keeps the tiles it is showing, so panning back over a photo or zooming out and
+ * in again would decode the same regions of a large JPEG repeatedly. Cached tiles are handed
+ * out as copies because the view recycles the bitmaps it is given.
+ */
+public class CachingRegionDecoder implements ImageRegionDecoder {
+
+    /**
+     * Decoded tiles shared by all decoders made from one factory
+     */
+    public static class TileCache extends LruCache<String, Bitmap> {
+        private int hits;
+        private int misses;
+
+        public TileCache(int maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+            if (oldValue != newValue) {
+                synchronized (this) {
+                    oldValue.recycle(); // Never handed out, only copied
+                }
+            }
+        }
+
+        /**
+         * @return A copy of the cached tile that the caller owns, or null if it is not cached
+         */
+        synchronized Bitmap getCopy(String key) {
+            Bitmap cached = get(key);
+            Bitmap copy = cached != null ? cached.copy(cached.getConfig(), false) : null;
+            if (copy != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return copy;
+        }
+
+        public synchronized int getHitCount() {
+            return hits;
+        }
+
+        public synchronized int getMissCount() {
+            return misses;
+        }
+    }
+
+    /**
+     * Makes decoders that share a tile cache
+     */
+    public static class Factory implements DecoderFactory<CachingRegionDecoder> {
+        private final TileCache cache;
+        private final Bitmap.Config config;
+
+        /**
+         * @param config Bitmap config of decoded tiles; RGB_565 halves the memory of a photo
+         */
+        public Factory(TileCache cache, Bitmap.Config config) {
+            this.cache = cache;
+            this.config = config;
+        }
+
+        @Override
+        public CachingRegionDecoder make() {
+            return new CachingRegionDecoder(cache, config);
+        }
+    }
+
+    private final TileCache cache;
+    private final Bitmap.Config config;
+    private BitmapRegionDecoder decoder;
+    private String keyPrefix;
+
+    public CachingRegionDecoder(TileCache cache, Bitmap.Config config) {
+        this.cache = cache;
+        this.config = config;
+    }
+
+    @NonNull
+    @Override
+    public Point init(Context context, @NonNull Uri uri) throws Exception {
+        String path = uri.getPath();
+        if (path == null) {
+            throw new IllegalArgumentException("Only file URIs are supported: " + uri);
+        }
+        File file = new File(path);
+        decoder = BitmapRegionDecoder.newInstance(file.getAbsolutePath(), false);
+        // The modification time tells an upgraded original apart from the copy it replaced
+        keyPrefix = file.getAbsolutePath() + "|" + file.lastModified() + "|";
+        return new Point(decoder.getWidth(), decoder.getHeight());
+    }
+
+    @NonNull
+    @Override
+    public Bitmap decodeRegion(@NonNull Rect sRect, int sampleSize) {
+        String key = keyPrefix + sRect.left + "," + sRect.top + "," + sRect.right + "," + sRect.bottom + "@" + sampleSize;
+        Bitmap cached = cache.getCopy(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Bitmap tile;
+        synchronized (this) {
+            if (decoder == null || decoder.isRecycled()) {
+                throw new IllegalStateException("Cannot decode region after decoder has been recycled");
+            }
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = config;
+            tile = decoder.decodeRegion(sRect, options);
+        }
+        if (tile == null) {
+            throw new RuntimeException("Region decoder returned null bitmap - image format may not be supported");
+        }
+
+        Bitmap copy = tile.copy(tile.getConfig(), false);
+        if (copy != null) {
+            cache.put(key, copy);
+        }
+        return tile;
+    }
+
+    @Override
+    public synchronized boolean isReady() {
+        return decoder != null && !decoder.isRecycled();
+    }
+
+    @Override
+    public synchronized void recycle() {
+        if (decoder != null) {
+            decoder.recycle();
+            decoder = null;
+        }
+    }
+}
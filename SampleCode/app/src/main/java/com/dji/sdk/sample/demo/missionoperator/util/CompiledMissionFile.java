@@ -0,0 +1,480 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Binary "compiled mission" file: a planned mission together with the inspection plan, home
+ * point and planning parameters it was planned from, ready to fly without parsing CSVs or
+ * planning again.
+ *
+ * Layout, all values little-endian:
+ * <pre>
+ * header (72 bytes)
+ *   int magic "PLVM", int version, int headerSize,
+ *   int structureCount, int photoCount, int waypointCount,
+ *   int payloadLength, int crc32,
+ *   double home latitude, home longitude,
+ *   float base altitude, safe distance, safety altitude, speed,
+ *   int flags (bit 0: alternate orbit direction), 4 reserved bytes
+ * payload, one primitive column after the other
+ *   double structure latitude, longitude          [structureCount]
+ *   double waypoint latitude, longitude           [waypointCount]
+ *   float  structure elevation, height            [structureCount]
+ *   int    structure CSV ID, structure order      [structureCount]
+ *   float  photo offset x, y, z, gimbal pitch     [photoCount]
+ *   float  waypoint altitude, heading, pitch      [waypointCount]
+ *   int    waypoint structure index, photo index  [waypointCount]
+ *   byte   waypoint kind                          [waypointCount]
+ * </pre>
+ * The CRC covers the header from the home latitude on and the whole payload. Wider columns
+ * come first so every column is naturally aligned. The structure order maps each structure of
+ * the (reordered) plan to its index in the source CSV order.
+ *
+ * Both directions stream through one fixed-size buffer, so memory use does not grow with the
+ * mission beyond the columns themselves, which are decoded straight into their arrays.
+ */
+public class CompiledMissionFile {
+
+    public static final String FILE_EXTENSION = ".plvm";
+
+    private static final int MAGIC = 0x4D564C50; // "PLVM" in little-endian byte order
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 72;
+    /** Start of the header fields covered by the CRC */
+    private static final int CHECKED_HEADER_OFFSET = 32;
+    private static final int FLAG_ALTERNATE_DIRECTION = 1;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Contents of a compiled mission file
+     */
+    public static class Contents {
+        /** Structures in flight order and the photo positions */
+        public final InspectionPlan plan;
+        /** For each structure of {@link #plan}, its index in the source CSV order */
+        public final int[] structureOrder;
+        /** Planned waypoints for {@link #plan} */
+        public final PlannedMission mission;
+        /** Home point {@link #mission} starts from */
+        public final double homeLatitude;
+        public final double homeLongitude;
+        /** Parameters {@link #mission} was planned with */
+        public final InspectionMissionPlanner.Parameters parameters;
+        /** Whether the photo orbit direction alternates between structures */
+        public final boolean alternateDirection;
+
+        public Contents(InspectionPlan plan, int[] structureOrder, PlannedMission mission,
+                        double homeLatitude, double homeLongitude,
+                        InspectionMissionPlanner.Parameters parameters, boolean alternateDirection) {
+            this.plan = plan;
+            this.structureOrder = structureOrder;
+            this.mission = mission;
+            this.homeLatitude = homeLatitude;
+            this.homeLongitude = homeLongitude;
+            this.parameters = parameters;
+            this.alternateDirection = alternateDirection;
+        }
+    }
+
+    /**
+     * Write a compiled mission file
+     * @param file Destination, replaced if it exists
+     * @param contents Plan, structure order, planned mission and planning inputs to store
+     */
+    public static void write(File file, Contents contents) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            write(out.getChannel(), contents);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write a compiled mission to a channel; the file is written from its start and truncated
+     */
+    public static void write(FileChannel channel, Contents contents) throws IOException {
+        final InspectionPlan plan = contents.plan;
+        final PlannedMission mission = contents.mission;
+        final int structureCount = plan.getStructureCount();
+        final int photoCount = plan.getPhotoCount();
+        final int waypointCount = mission.size;
+        if (contents.structureOrder.length != structureCount) {
+            throw new IllegalArgumentException("structureOrder has " + contents.structureOrder.length +
+                    " entries for " + structureCount + " structures");
+        }
+
+        final long payloadLength = payloadLength(structureCount, photoCount, waypointCount);
+        if (HEADER_SIZE + payloadLength > Integer.MAX_VALUE) {
+            throw new IOException("Mission too large for a compiled mission file");
+        }
+
+        final InspectionMissionPlanner.Parameters parameters = contents.parameters;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(HEADER_SIZE);
+        header.putInt(structureCount);
+        header.putInt(photoCount);
+        header.putInt(waypointCount);
+        header.putInt((int) payloadLength);
+        header.putInt(0); // CRC, filled in below
+        header.putDouble(contents.homeLatitude);
+        header.putDouble(contents.homeLongitude);
+        header.putFloat(parameters.baseAltitude);
+        header.putFloat(parameters.safeDistance);
+        header.putFloat(parameters.safetyAltitude);
+        header.putFloat(parameters.speed);
+        header.putInt(contents.alternateDirection ? FLAG_ALTERNATE_DIRECTION : 0);
+
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), CHECKED_HEADER_OFFSET, HEADER_SIZE - CHECKED_HEADER_OFFSET);
+
+        channel.position(HEADER_SIZE);
+        ColumnWriter out = new ColumnWriter(channel, crc);
+        for (int i = 0; i < structureCount; i++) {
+            out.putDouble(plan.getLatitude(i));
+        }
+        for (int i = 0; i < structureCount; i++) {
+            out.putDouble(plan.getLongitude(i));
+        }
+        out.putDoubles(mission.latitudes, waypointCount);
+        out.putDoubles(mission.longitudes, waypointCount);
+
+        for (int i = 0; i < structureCount; i++) {
+            out.putFloat(plan.getElevation(i));
+        }
+        for (int i = 0; i < structureCount; i++) {
+            out.putFloat(plan.getHeight(i));
+        }
+        for (int i = 0; i < structureCount; i++) {
+            out.putInt(plan.getStructureId(i));
+        }
+        out.putInts(contents.structureOrder, structureCount);
+
+        for (int j = 0; j < photoCount; j++) {
+            out.putFloat(plan.getOffsetX(j));
+        }
+        for (int j = 0; j < photoCount; j++) {
+            out.putFloat(plan.getOffsetY(j));
+        }
+        for (int j = 0; j < photoCount; j++) {
+            out.putFloat(plan.getOffsetZ(j));
+        }
+        for (int j = 0; j < photoCount; j++) {
+            out.putFloat(plan.getGimbalPitch(j));
+        }
+
+        out.putFloats(mission.altitudes, waypointCount);
+        out.putFloats(mission.headings, waypointCount);
+        out.putFloats(mission.gimbalPitches, waypointCount);
+        out.putInts(mission.structureIndices, waypointCount);
+        out.putInts(mission.photoIndices, waypointCount);
+        out.putBytes(mission.kinds, waypointCount);
+        out.flush();
+
+        // The header goes last, so a file cut short while writing fails the size or CRC check
+        header.putInt(28, (int) crc.getValue());
+        header.position(0);
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.truncate(HEADER_SIZE + payloadLength);
+    }
+
+    /**
+     * Read a compiled mission file
+     * @throws IOException If the file is truncated, from another version or fails the CRC check
+     */
+    public static Contents read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return read(in.getChannel());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read a compiled mission from a channel positioned at the start of the file, e.g. one
+     * opened from a content URI
+     */
+    public static Contents read(FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            throw new IOException("File too short for a compiled mission");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new EOFException("File too short for a compiled mission");
+            }
+        }
+
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled mission file");
+        }
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported compiled mission version " + version);
+        }
+        int headerSize = header.getInt(8);
+        int structureCount = header.getInt(12);
+        int photoCount = header.getInt(16);
+        int waypointCount = header.getInt(20);
+        int payloadLength = header.getInt(24);
+        int expectedCrc = header.getInt(28);
+
+        if (headerSize != HEADER_SIZE || structureCount < 0 || photoCount < 0 || waypointCount < 0 ||
+                payloadLength != payloadLength(structureCount, photoCount, waypointCount)) {
+            throw new IOException("Corrupt compiled mission header");
+        }
+        if ((long) headerSize + payloadLength > fileSize) {
+            throw new IOException("Compiled mission file truncated");
+        }
+
+        final double homeLatitude = header.getDouble(32);
+        final double homeLongitude = header.getDouble(40);
+        final InspectionMissionPlanner.Parameters parameters = new InspectionMissionPlanner.Parameters(
+                header.getFloat(48), header.getFloat(52), header.getFloat(56), header.getFloat(60));
+        final boolean alternateDirection = (header.getInt(64) & FLAG_ALTERNATE_DIRECTION) != 0;
+
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), CHECKED_HEADER_OFFSET, HEADER_SIZE - CHECKED_HEADER_OFFSET);
+
+        ColumnReader in = new ColumnReader(channel, payloadLength, crc);
+        double[] structureLat = in.getDoubles(structureCount);
+        double[] structureLon = in.getDoubles(structureCount);
+        double[] waypointLat = in.getDoubles(waypointCount);
+        double[] waypointLon = in.getDoubles(waypointCount);
+
+        float[] elevations = in.getFloats(structureCount);
+        float[] heights = in.getFloats(structureCount);
+        int[] structureIds = in.getInts(structureCount);
+        int[] structureOrder = in.getInts(structureCount);
+
+        float[] offsetsX = in.getFloats(photoCount);
+        float[] offsetsY = in.getFloats(photoCount);
+        float[] offsetsZ = in.getFloats(photoCount);
+        float[] photoPitches = in.getFloats(photoCount);
+
+        float[] altitudes = in.getFloats(waypointCount);
+        float[] headings = in.getFloats(waypointCount);
+        float[] waypointPitches = in.getFloats(waypointCount);
+        int[] structureIndices = in.getInts(waypointCount);
+        int[] photoIndices = in.getInts(waypointCount);
+        byte[] kinds = in.getBytes(waypointCount);
+
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Compiled mission CRC mismatch");
+        }
+        if (!isPermutation(structureOrder)) {
+            throw new IOException("Corrupt compiled mission structure order");
+        }
+
+        InspectionPlan plan = new InspectionPlan(structureLat, structureLon, elevations, heights, structureIds,
+                structureCount, offsetsX, offsetsY, offsetsZ, photoPitches, photoCount);
+        PlannedMission mission = new PlannedMission(waypointLat, waypointLon, altitudes, headings, waypointPitches,
+                kinds, structureIndices, photoIndices, waypointCount);
+        return new Contents(plan, structureOrder, mission, homeLatitude, homeLongitude,
+                parameters, alternateDirection);
+    }
+
+    // Every source index exactly once, so the CSV order can be restored
+    private static boolean isPermutation(int[] order) {
+        boolean[] seen = new boolean[order.length];
+        for (int index : order) {
+            if (index < 0 || index >= order.length || seen[index]) {
+                return false;
+            }
+            seen[index] = true;
+        }
+        return true;
+    }
+
+    private static long payloadLength(int structureCount, int photoCount, int waypointCount) {
+        return (long) structureCount * (8 + 8 + 4 + 4 + 4 + 4)
+                + (long) photoCount * (4 * 4)
+                + (long) waypointCount * (8 + 8 + 4 + 4 + 4 + 4 + 4 + 1);
+    }
+
+    /**
+     * Appends columns to a channel through a fixed buffer, checksumming what it writes
+     */
+    private static final class ColumnWriter {
+        private final FileChannel channel;
+        private final CRC32 crc;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnWriter(FileChannel channel, CRC32 crc) {
+            this.channel = channel;
+            this.crc = crc;
+        }
+
+        void putDouble(double value) throws IOException {
+            reserve(8);
+            buffer.putDouble(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            reserve(4);
+            buffer.putFloat(value);
+        }
+
+        void putInt(int value) throws IOException {
+            reserve(4);
+            buffer.putInt(value);
+        }
+
+        void putDoubles(double[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                reserve(8);
+                int n = Math.min(count - done, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * 8);
+                done += n;
+            }
+        }
+
+        void putFloats(float[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                reserve(4);
+                int n = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asFloatBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * 4);
+                done += n;
+            }
+        }
+
+        void putInts(int[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                reserve(4);
+                int n = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * 4);
+                done += n;
+            }
+        }
+
+        void putBytes(byte[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                reserve(1);
+                int n = Math.min(count - done, buffer.remaining());
+                buffer.put(values, done, n);
+                done += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Reads columns of a payload of known length through a fixed buffer, checksumming what it
+     * reads
+     */
+    private static final class ColumnReader {
+        private final FileChannel channel;
+        private final CRC32 crc;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long unread;
+
+        ColumnReader(FileChannel channel, long length, CRC32 crc) {
+            this.channel = channel;
+            this.crc = crc;
+            this.unread = length;
+            buffer.limit(0);
+        }
+
+        double[] getDoubles(int count) throws IOException {
+            double[] values = new double[count];
+            for (int done = 0; done < count; ) {
+                require(8);
+                int n = Math.min(count - done, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().get(values, done, n);
+                buffer.position(buffer.position() + n * 8);
+                done += n;
+            }
+            return values;
+        }
+
+        float[] getFloats(int count) throws IOException {
+            float[] values = new float[count];
+            for (int done = 0; done < count; ) {
+                require(4);
+                int n = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asFloatBuffer().get(values, done, n);
+                buffer.position(buffer.position() + n * 4);
+                done += n;
+            }
+            return values;
+        }
+
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            for (int done = 0; done < count; ) {
+                require(4);
+                int n = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(values, done, n);
+                buffer.position(buffer.position() + n * 4);
+                done += n;
+            }
+            return values;
+        }
+
+        byte[] getBytes(int count) throws IOException {
+            byte[] values = new byte[count];
+            for (int done = 0; done < count; ) {
+                require(1);
+                int n = Math.min(count - done, buffer.remaining());
+                buffer.get(values, done, n);
+                done += n;
+            }
+            return values;
+        }
+
+        // Refill until at least the given number of bytes is buffered, never past the payload
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (unread == 0) {
+                    throw new EOFException("Compiled mission file truncated");
+                }
+                int start = buffer.position();
+                buffer.limit((int) Math.min(buffer.capacity(), start + unread));
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("Compiled mission file truncated");
+                }
+                crc.update(buffer.array(), start, read);
+                unread -= read;
+            }
+            buffer.flip();
+        }
+    }
+}
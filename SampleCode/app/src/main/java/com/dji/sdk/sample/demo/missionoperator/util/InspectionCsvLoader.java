@@ -0,0 +1,473 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Streaming loader for the structure and photo-position CSV files.
+ *
+ * Rows are tokenized straight from the byte stream into a reused field buffer, so no
+ * per-line String or String[] is created, and numbers are parsed without boxing.
+ * Loading runs on a single background thread; results are delivered as primitive columns.
+ * Malformed rows are reported individually and skipped instead of aborting the whole load.
+ */
+public class InspectionCsvLoader {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELD_LENGTH = 64;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int PROGRESS_INTERVAL_ROWS = 1000;
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ExecutorService executor;
+
+    /**
+     * Callback for load progress and results. Called on the loader thread.
+     */
+    public interface Listener<T> {
+        void onProgress(int rowsLoaded, long bytesRead, long totalBytes);
+        void onRowError(int lineNumber, String reason);
+        void onLoaded(T result);
+        void onFailed(IOException e);
+    }
+
+    /**
+     * Structure columns in file order: latitude, longitude, elevation difference and height
+     */
+    public static class StructureColumns {
+        public final int count;
+        public final double[] latitudes;
+        public final double[] longitudes;
+        public final float[] elevations;
+        public final float[] heights;
+        public final int rowErrors;
+
+        StructureColumns(int count, double[] latitudes, double[] longitudes,
+                         float[] elevations, float[] heights, int rowErrors) {
+            this.count = count;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.elevations = elevations;
+            this.heights = heights;
+            this.rowErrors = rowErrors;
+        }
+    }
+
+    /**
+     * Photo position columns in file order: offsets east/north/up in meters and gimbal pitch in degrees
+     */
+    public static class PhotoColumns {
+        public final int count;
+        public final float[] offsetsX;
+        public final float[] offsetsY;
+        public final float[] offsetsZ;
+        public final float[] gimbalPitches;
+        public final int rowErrors;
+
+        PhotoColumns(int count, float[] offsetsX, float[] offsetsY,
+                     float[] offsetsZ, float[] gimbalPitches, int rowErrors) {
+            this.count = count;
+            this.offsetsX = offsetsX;
+            this.offsetsY = offsetsY;
+            this.offsetsZ = offsetsZ;
+            this.gimbalPitches = gimbalPitches;
+            this.rowErrors = rowErrors;
+        }
+    }
+
+    public InspectionCsvLoader() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "InspectionCsvLoader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Load a structures CSV (lat,lon,elevation_diff,height) in the background
+     * @param input Stream to read, closed when loading ends
+     * @param totalBytes Size of the stream for progress reporting, or -1 if unknown
+     * @param listener Receives progress, row errors and the result
+     * @return Future that can be used to cancel the load
+     */
+    public Future<?> loadStructures(final InputStream input, final long totalBytes,
+                                    final Listener<StructureColumns> listener) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.onLoaded(readStructures(input, totalBytes, listener));
+                } catch (IOException e) {
+                    listener.onFailed(e);
+                } finally {
+                    closeQuietly(input);
+                }
+            }
+        });
+    }
+
+    /**
+     * Load a photo positions CSV (offset_x,offset_y,offset_z,gimbal_pitch) in the background
+     * @param input Stream to read, closed when loading ends
+     * @param totalBytes Size of the stream for progress reporting, or -1 if unknown
+     * @param listener Receives progress, row errors and the result
+     * @return Future that can be used to cancel the load
+     */
+    public Future<?> loadPhotoPositions(final InputStream input, final long totalBytes,
+                                        final Listener<PhotoColumns> listener) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.onLoaded(readPhotoPositions(input, totalBytes, listener));
+                } catch (IOException e) {
+                    listener.onFailed(e);
+                } finally {
+                    closeQuietly(input);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the loader thread. Pending loads are interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Read a structures CSV on the calling thread
+     */
+    public static StructureColumns readStructures(InputStream input, long totalBytes,
+                                                  Listener<?> listener) throws IOException {
+        final StructureRows rows = new StructureRows();
+        int errors = parse(input, totalBytes, rows, listener);
+        return new StructureColumns(rows.count,
+                Arrays.copyOf(rows.latitudes, rows.count),
+                Arrays.copyOf(rows.longitudes, rows.count),
+                Arrays.copyOf(rows.elevations, rows.count),
+                Arrays.copyOf(rows.heights, rows.count),
+                errors);
+    }
+
+    /**
+     * Read a photo positions CSV on the calling thread
+     */
+    public static PhotoColumns readPhotoPositions(InputStream input, long totalBytes,
+                                                  Listener<?> listener) throws IOException {
+        final PhotoRows rows = new PhotoRows();
+        int errors = parse(input, totalBytes, rows, listener);
+        return new PhotoColumns(rows.count,
+                Arrays.copyOf(rows.offsetsX, rows.count),
+                Arrays.copyOf(rows.offsetsY, rows.count),
+                Arrays.copyOf(rows.offsetsZ, rows.count),
+                Arrays.copyOf(rows.gimbalPitches, rows.count),
+                errors);
+    }
+
+    /**
+     * Receives one parsed row. The values array is reused between rows.
+     */
+    private interface RowSink {
+        void accept(double[] values);
+        int count();
+    }
+
+    private static class StructureRows implements RowSink {
+        int count;
+        double[] latitudes = new double[INITIAL_CAPACITY];
+        double[] longitudes = new double[INITIAL_CAPACITY];
+        float[] elevations = new float[INITIAL_CAPACITY];
+        float[] heights = new float[INITIAL_CAPACITY];
+
+        @Override
+        public void accept(double[] values) {
+            if (count == latitudes.length) {
+                int capacity = count * 2;
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                elevations = Arrays.copyOf(elevations, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+            }
+            latitudes[count] = values[0];
+            longitudes[count] = values[1];
+            elevations[count] = (float) values[2];
+            heights[count] = (float) values[3];
+            count++;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+    }
+
+    private static class PhotoRows implements RowSink {
+        int count;
+        float[] offsetsX = new float[INITIAL_CAPACITY];
+        float[] offsetsY = new float[INITIAL_CAPACITY];
+        float[] offsetsZ = new float[INITIAL_CAPACITY];
+        float[] gimbalPitches = new float[INITIAL_CAPACITY];
+
+        @Override
+        public void accept(double[] values) {
+            if (count == offsetsX.length) {
+                int capacity = count * 2;
+                offsetsX = Arrays.copyOf(offsetsX, capacity);
+                offsetsY = Arrays.copyOf(offsetsY, capacity);
+                offsetsZ = Arrays.copyOf(offsetsZ, capacity);
+                gimbalPitches = Arrays.copyOf(gimbalPitches, capacity);
+            }
+            offsetsX[count] = (float) values[0];
+            offsetsY[count] = (float) values[1];
+            offsetsZ[count] = (float) values[2];
+            gimbalPitches[count] = (float) values[3];
+            count++;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+    }
+
+    /**
+     * Tokenize the stream into rows of four numeric fields. The first line is a header and is skipped.
+     * @return Number of rows that were rejected
+     */
+    private static int parse(InputStream input, long totalBytes, RowSink sink, Listener<?> listener) throws IOException {
+        final int fieldCount = 4;
+        final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        final char[] field = new char[MAX_FIELD_LENGTH];
+        final double[] values = new double[fieldCount];
+
+        int fieldLength = 0;
+        int fieldIndex = 0;
+        boolean fieldOverflow = false;
+        boolean rowHasContent = false;
+        boolean rowInvalid = false;
+        int lineNumber = 1;
+        int errors = 0;
+        long bytesRead = 0;
+        boolean inHeader = true;
+
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("CSV load cancelled");
+            }
+            bytesRead += read;
+
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer[i];
+
+                if (inHeader) {
+                    if (b == '\n') {
+                        inHeader = false;
+                        lineNumber++;
+                    }
+                    continue;
+                }
+
+                if (b == ',' || b == '\n') {
+                    if (!rowInvalid && fieldIndex < fieldCount) {
+                        if (fieldOverflow) {
+                            rowInvalid = true;
+                            listener.onRowError(lineNumber, "Campo " + (fieldIndex + 1) + " muito longo");
+                        } else if (fieldLength == 0) {
+                            if (b == ',' || rowHasContent) {
+                                rowInvalid = true;
+                                listener.onRowError(lineNumber, "Campo " + (fieldIndex + 1) + " vazio");
+                            }
+                        } else {
+                            double value = parseNumber(field, fieldLength);
+                            if (Double.isNaN(value)) {
+                                rowInvalid = true;
+                                listener.onRowError(lineNumber, "Valor não numérico no campo " + (fieldIndex + 1) +
+                                        ": " + new String(field, 0, fieldLength));
+                            } else {
+                                values[fieldIndex] = value;
+                            }
+                        }
+                    }
+                    if (fieldLength > 0 || b == ',') {
+                        rowHasContent = true;
+                        fieldIndex++;
+                    }
+                    fieldLength = 0;
+                    fieldOverflow = false;
+
+                    if (b == '\n') {
+                        if (rowHasContent && !rowInvalid) {
+                            if (fieldIndex < fieldCount) {
+                                listener.onRowError(lineNumber, "Esperados " + fieldCount + " campos, encontrados " + fieldIndex);
+                                rowInvalid = true;
+                            } else {
+                                sink.accept(values);
+                                if (sink.count() % PROGRESS_INTERVAL_ROWS == 0) {
+                                    listener.onProgress(sink.count(), bytesRead, totalBytes);
+                                }
+                            }
+                        }
+                        if (rowInvalid) {
+                            errors++;
+                        }
+                        fieldIndex = 0;
+                        rowHasContent = false;
+                        rowInvalid = false;
+                        lineNumber++;
+                    }
+                } else if (b == ' ' || b == '\t' || b == '\r' || b == '"') {
+                    // Whitespace and quotes around numeric fields are ignored
+                } else if (fieldLength < MAX_FIELD_LENGTH) {
+                    field[fieldLength++] = (char) (b & 0xFF);
+                } else {
+                    fieldOverflow = true;
+                }
+            }
+        }
+
+        // Last line without a trailing newline
+        if (!inHeader && (fieldLength > 0 || rowHasContent)) {
+            if (!rowInvalid && fieldIndex < fieldCount && fieldLength > 0) {
+                double value = fieldOverflow ? Double.NaN : parseNumber(field, fieldLength);
+                if (Double.isNaN(value)) {
+                    rowInvalid = true;
+                    listener.onRowError(lineNumber, "Valor não numérico no campo " + (fieldIndex + 1));
+                } else {
+                    values[fieldIndex] = value;
+                }
+                fieldIndex++;
+            }
+            if (!rowInvalid) {
+                if (fieldIndex < fieldCount) {
+                    listener.onRowError(lineNumber, "Esperados " + fieldCount + " campos, encontrados " + fieldIndex);
+                    rowInvalid = true;
+                } else {
+                    sink.accept(values);
+                }
+            }
+            if (rowInvalid) {
+                errors++;
+            }
+        }
+
+        listener.onProgress(sink.count(), bytesRead, totalBytes);
+        return errors;
+    }
+
+    /**
+     * Parse a decimal number from a character buffer without allocating.
+     * Falls back to Double.parseDouble for values the fast path cannot round exactly
+     * (more than 15 significant digits or exponents beyond 1e22).
+     * @return The parsed value, or NaN if the text is not a number
+     */
+    static double parseNumber(char[] chars, int length) {
+        int pos = 0;
+        boolean negative = false;
+
+        if (chars[0] == '-' || chars[0] == '+') {
+            negative = chars[0] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenDot = false;
+        int exponent = 0;
+
+        for (; pos < length; pos++) {
+            char c = chars[pos];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (digits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (seenDot) {
+                        fractionDigits++;
+                    }
+                } else {
+                    return parseSlow(chars, length);
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else if ((c == 'e' || c == 'E') && seenDigit) {
+                pos++;
+                boolean negativeExponent = false;
+                if (pos < length && (chars[pos] == '-' || chars[pos] == '+')) {
+                    negativeExponent = chars[pos] == '-';
+                    pos++;
+                }
+                if (pos >= length) {
+                    return Double.NaN;
+                }
+                for (; pos < length; pos++) {
+                    char e = chars[pos];
+                    if (e < '0' || e > '9' || exponent > 1000) {
+                        return e < '0' || e > '9' ? Double.NaN : parseSlow(chars, length);
+                    }
+                    exponent = exponent * 10 + (e - '0');
+                }
+                if (negativeExponent) {
+                    exponent = -exponent;
+                }
+                break;
+            } else {
+                return Double.NaN;
+            }
+        }
+
+        if (!seenDigit) {
+            return Double.NaN;
+        }
+
+        int scale = exponent - fractionDigits;
+        double value;
+        if (scale == 0) {
+            value = mantissa;
+        } else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        } else if (scale > 0 && scale < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[scale];
+        } else {
+            return parseSlow(chars, length);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(char[] chars, int length) {
+        try {
+            return Double.parseDouble(new String(chars, 0, length));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static void closeQuietly(InputStream input) {
+        try {
+            if (input != null) {
+                input.close();
+            }
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
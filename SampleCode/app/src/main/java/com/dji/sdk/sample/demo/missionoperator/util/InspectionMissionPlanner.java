@@ -0,0 +1,454 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Builds the waypoint list of a structure inspection mission without touching the DJI SDK.
+ *
+ * The route climbs to safety altitude above home, flies to the first structure, and then for
+ * each structure descends to the approach point above it, visits every photo position, climbs
+ * back to safety altitude and transits to the next structure. The result is a
+ * {@link PlannedMission} that {@link WaypointMissionAdapter} turns into an SDK mission.
+ *
+ * Photo offsets are converted to coordinates through a {@link LocalEnuFrame} built once per
+ * structure. Headings and pitches only depend on the photo position, so they are computed
+ * once per plan.
+ *
+ * Every structure gets a block of the same length (approach, photos, safety climb and the
+ * transit to the next structure), so the waypoint index of any block is known up front. This
+ * lets {@link #replan} rewrite only the blocks of changed structures.
+ */
+public class InspectionMissionPlanner {
+
+    /**
+     * Planning parameters. Altitudes and distances in meters, speed in m/s.
+     */
+    public static class Parameters {
+        public final float baseAltitude;
+        public final float safeDistance;
+        public final float safetyAltitude;
+        public final float speed;
+
+        public Parameters(float baseAltitude, float safeDistance, float safetyAltitude, float speed) {
+            this.baseAltitude = baseAltitude;
+            this.safeDistance = safeDistance;
+            this.safetyAltitude = safetyAltitude;
+            this.speed = speed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Parameters)) {
+                return false;
+            }
+            Parameters other = (Parameters) o;
+            return Float.compare(baseAltitude, other.baseAltitude) == 0
+                    && Float.compare(safeDistance, other.safeDistance) == 0
+                    && Float.compare(safetyAltitude, other.safetyAltitude) == 0
+                    && Float.compare(speed, other.speed) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(baseAltitude);
+            result = 31 * result + Float.floatToIntBits(safeDistance);
+            result = 31 * result + Float.floatToIntBits(safetyAltitude);
+            return 31 * result + Float.floatToIntBits(speed);
+        }
+    }
+
+    private final Parameters parameters;
+
+    public InspectionMissionPlanner(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return Number of waypoints {@link #plan} produces for the given counts
+     */
+    public static int waypointCount(int structureCount, int photoCount) {
+        if (structureCount == 0) {
+            return 0;
+        }
+        return 2 + structureCount * (1 + photoCount) + (structureCount - 1) * 2;
+    }
+
+    /**
+     * Plan the complete mission, visiting photo positions in file order
+     * @param plan Structures and photo positions, visited in plan order
+     * @param homeLatitude Latitude of the take-off point
+     * @param homeLongitude Longitude of the take-off point
+     * @return The planned waypoints, or an empty mission if the plan has no structures
+     */
+    public PlannedMission plan(InspectionPlan plan, double homeLatitude, double homeLongitude) {
+        return plan(plan, homeLatitude, homeLongitude, null, false);
+    }
+
+    /**
+     * Plan the complete mission with a custom photo orbit
+     * @param plan Structures and photo positions, visited in plan order
+     * @param homeLatitude Latitude of the take-off point
+     * @param homeLongitude Longitude of the take-off point
+     * @param photoOrder Photo position indices in visiting order, or null for file order
+     * @param alternateDirection Fly the orbit backwards on every other structure
+     * @return The planned waypoints, or an empty mission if the plan has no structures
+     */
+    public PlannedMission plan(InspectionPlan plan, double homeLatitude, double homeLongitude,
+                               int[] photoOrder, boolean alternateDirection) {
+        final int structureCount = plan.getStructureCount();
+        final int photoCount = plan.getPhotoCount();
+        PhotoOrbit orbit = new PhotoOrbit(plan, photoOrder);
+        PlannedMission mission = new PlannedMission(waypointCount(structureCount, photoCount));
+        if (structureCount == 0) {
+            return mission;
+        }
+
+        mission.size = mission.latitudes.length;
+        mission.photoWaypointIndices = new int[structureCount * photoCount];
+        writeStart(mission, plan, homeLatitude, homeLongitude);
+        for (int i = 0; i < structureCount; i++) {
+            writeBlock(mission, plan, i, orbit, alternateDirection);
+        }
+        writePhotoWaypointIndices(mission, 0, structureCount, photoCount);
+        return mission;
+    }
+
+    /**
+     * Re-plan after the structures changed, regenerating only the waypoints that depend on the
+     * changed structures. Structures that match the start or the end of the previous plan keep
+     * their waypoint blocks; the block before the first change is regenerated too, since its
+     * safety climb and transit lead into the changed range. Falls back to {@link #plan} when the
+     * photo positions, the photo order or the home point changed.
+     * @param previous Mission planned by a planner with the same parameters
+     * @param previousPlan The plan {@code previous} was planned from
+     * @param plan The new plan
+     * @return The new mission; {@code previous} is not modified
+     */
+    public PlannedMission replan(PlannedMission previous, InspectionPlan previousPlan, InspectionPlan plan,
+                                 double homeLatitude, double homeLongitude,
+                                 int[] photoOrder, boolean alternateDirection) {
+        final int oldCount = previousPlan.getStructureCount();
+        final int newCount = plan.getStructureCount();
+        final int photoCount = plan.getPhotoCount();
+        if (oldCount == 0 || newCount == 0 || previous.size != waypointCount(oldCount, previousPlan.getPhotoCount())
+                || !samePhotoPositions(previousPlan, plan)
+                || !sameOrbit(previous, photoOrder, photoCount)
+                || previous.latitudes[0] != homeLatitude || previous.longitudes[0] != homeLongitude) {
+            return plan(plan, homeLatitude, homeLongitude, photoOrder, alternateDirection);
+        }
+
+        // Unchanged structures at the start and at the end
+        final int limit = Math.min(oldCount, newCount);
+        int prefix = 0;
+        while (prefix < limit && sameStructure(previousPlan, prefix, plan, prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix &&
+                sameStructure(previousPlan, oldCount - 1 - suffix, plan, newCount - 1 - suffix)) {
+            suffix++;
+        }
+        final int shift = newCount - oldCount;
+        if (alternateDirection && (shift & 1) != 0) {
+            // The orbit direction of every shifted structure flips
+            suffix = 0;
+        }
+        if (prefix == oldCount && prefix == newCount) {
+            return previous;
+        }
+
+        final int regenerateFrom = Math.max(0, prefix - 1);
+        final int regenerateTo = newCount - suffix;
+        PlannedMission mission = new PlannedMission(waypointCount(newCount, photoCount));
+        mission.size = mission.latitudes.length;
+        mission.photoWaypointIndices = new int[newCount * photoCount];
+
+        if (regenerateFrom == 0) {
+            writeStart(mission, plan, homeLatitude, homeLongitude);
+        } else {
+            copy(previous, 0, mission, 0, blockStart(regenerateFrom, photoCount), 0);
+        }
+
+        PhotoOrbit orbit = new PhotoOrbit(plan, photoOrder);
+        for (int i = regenerateFrom; i < regenerateTo; i++) {
+            writeBlock(mission, plan, i, orbit, alternateDirection);
+        }
+
+        if (suffix > 0) {
+            int from = blockStart(oldCount - suffix, photoCount);
+            copy(previous, from, mission, blockStart(regenerateTo, photoCount), previous.size - from, shift);
+        }
+
+        System.arraycopy(previous.photoWaypointIndices, 0, mission.photoWaypointIndices, 0,
+                Math.min(regenerateFrom * photoCount, previous.photoWaypointCount));
+        writePhotoWaypointIndices(mission, regenerateFrom, newCount, photoCount);
+        return mission;
+    }
+
+    /**
+     * Move the start of a mission to another home point, e.g. for a mission read from a compiled
+     * mission file. Only the climb above home depends on the home point; every other waypoint is
+     * copied.
+     * @param previous Mission planned by {@link #plan}, {@link #replan} or {@link #planPhotos}
+     * @return {@code previous} if it already starts at the home point, otherwise a new mission
+     */
+    public static PlannedMission rehome(PlannedMission previous, double homeLatitude, double homeLongitude) {
+        if (previous.size == 0 || (previous.latitudes[0] == homeLatitude && previous.longitudes[0] == homeLongitude)) {
+            return previous;
+        }
+        if (previous.kinds[0] != PlannedMission.KIND_HOME_CLIMB) {
+            throw new IllegalArgumentException("Mission does not start with a climb above home");
+        }
+
+        PlannedMission mission = new PlannedMission(previous.size);
+        mission.size = previous.size;
+        copy(previous, 0, mission, 0, previous.size, 0);
+        mission.photoWaypointIndices = previous.photoWaypointIndices.clone();
+        mission.photoWaypointCount = previous.photoWaypointCount;
+        mission.set(0, PlannedMission.KIND_HOME_CLIMB, homeLatitude, homeLongitude,
+                previous.altitudes[0], previous.headings[0], Float.NaN, -1, -1);
+        return mission;
+    }
+
+    /**
+     * Plan a follow-up flight over some photo positions only, e.g. photos rejected during
+     * review. Structures without photos to take are skipped; the others are visited in plan
+     * order with the same approach, photo and safety climb waypoints as in {@link #plan}.
+     * Waypoint structure indices refer to {@code plan}.
+     * @param photos For each structure of the plan, the photo position indices to take in
+     *               visiting order, or null or empty to skip the structure
+     * @return The planned waypoints, or an empty mission if there are no photos to take
+     */
+    public PlannedMission planPhotos(InspectionPlan plan, double homeLatitude, double homeLongitude, int[][] photos) {
+        final int structureCount = plan.getStructureCount();
+        if (photos.length != structureCount) {
+            throw new IllegalArgumentException("photos has " + photos.length + " entries for " + structureCount + " structures");
+        }
+        int visited = 0;
+        int photoWaypoints = 0;
+        for (int[] structurePhotos : photos) {
+            if (structurePhotos != null && structurePhotos.length > 0) {
+                visited++;
+                photoWaypoints += structurePhotos.length;
+            }
+        }
+        PlannedMission mission = new PlannedMission(visited == 0 ? 0 : 2 + visited + photoWaypoints + (visited - 1) * 2);
+        if (visited == 0) {
+            return mission;
+        }
+
+        PhotoOrbit orbit = new PhotoOrbit(plan, null);
+        int previous = -1;
+        for (int i = 0; i < structureCount; i++) {
+            int[] structurePhotos = photos[i];
+            if (structurePhotos == null || structurePhotos.length == 0) {
+                continue;
+            }
+            final double structureLat = plan.getLatitude(i);
+            final double structureLon = plan.getLongitude(i);
+            if (previous < 0) {
+                mission.add(PlannedMission.KIND_HOME_CLIMB, homeLatitude, homeLongitude,
+                        parameters.safetyAltitude, 0, Float.NaN, -1, -1);
+                mission.add(PlannedMission.KIND_TRANSIT, structureLat, structureLon,
+                        parameters.safetyAltitude, 0, Float.NaN, i, -1);
+            } else {
+                mission.add(PlannedMission.KIND_SAFETY_CLIMB, mission.latitudes[mission.size - 1],
+                        mission.longitudes[mission.size - 1], parameters.safetyAltitude + plan.getElevation(previous),
+                        0, Float.NaN, previous, -1);
+                mission.add(PlannedMission.KIND_TRANSIT, structureLat, structureLon,
+                        parameters.safetyAltitude + plan.getElevation(i), 0, Float.NaN, i, -1);
+            }
+
+            final float topAltitude = parameters.baseAltitude + plan.getTopElevation(i);
+            mission.add(PlannedMission.KIND_APPROACH, structureLat, structureLon,
+                    topAltitude + parameters.safeDistance, 0, Float.NaN, i, -1);
+
+            new LocalEnuFrame(structureLat, structureLon)
+                    .toGeodetic(orbit.east, orbit.north, 0, orbit.count, orbit.latitudes, orbit.longitudes, 0);
+            for (int j : structurePhotos) {
+                if (j < 0 || j >= orbit.count) {
+                    throw new IllegalArgumentException("photo " + j + " of " + orbit.count + " for structure " + i);
+                }
+                mission.add(PlannedMission.KIND_PHOTO, orbit.latitudes[j], orbit.longitudes[j],
+                        topAltitude + orbit.up[j], orbit.headings[j], orbit.pitches[j], i, j);
+            }
+            previous = i;
+        }
+        return mission;
+    }
+
+    /**
+     * @return Index of the approach waypoint of a structure
+     */
+    static int blockStart(int structure, int photoCount) {
+        return 2 + structure * (photoCount + 3);
+    }
+
+    private void writeStart(PlannedMission mission, InspectionPlan plan, double homeLatitude, double homeLongitude) {
+        mission.set(0, PlannedMission.KIND_HOME_CLIMB, homeLatitude, homeLongitude,
+                parameters.safetyAltitude, 0, Float.NaN, -1, -1);
+        mission.set(1, PlannedMission.KIND_TRANSIT, plan.getLatitude(0), plan.getLongitude(0),
+                parameters.safetyAltitude, 0, Float.NaN, 0, -1);
+    }
+
+    /**
+     * Write the approach, photo, safety climb and outgoing transit waypoints of one structure
+     */
+    private void writeBlock(PlannedMission mission, InspectionPlan plan, int i, PhotoOrbit orbit,
+                            boolean alternateDirection) {
+        final int photoCount = orbit.count;
+        final double structureLat = plan.getLatitude(i);
+        final double structureLon = plan.getLongitude(i);
+        final float topAltitude = parameters.baseAltitude + plan.getTopElevation(i);
+        int index = blockStart(i, photoCount);
+
+        mission.set(index++, PlannedMission.KIND_APPROACH, structureLat, structureLon,
+                topAltitude + parameters.safeDistance, 0, Float.NaN, i, -1);
+
+        new LocalEnuFrame(structureLat, structureLon)
+                .toGeodetic(orbit.east, orbit.north, 0, photoCount, orbit.latitudes, orbit.longitudes, 0);
+
+        double lastPhotoLat = structureLat;
+        double lastPhotoLon = structureLon;
+
+        final boolean reversed = alternateDirection && (i & 1) == 1;
+        for (int k = 0; k < photoCount; k++) {
+            final int position = reversed ? photoCount - 1 - k : k;
+            lastPhotoLat = orbit.latitudes[position];
+            lastPhotoLon = orbit.longitudes[position];
+
+            mission.set(index++, PlannedMission.KIND_PHOTO, lastPhotoLat, lastPhotoLon,
+                    topAltitude + orbit.up[position], orbit.headings[position], orbit.pitches[position],
+                    i, orbit.photoIndices[position]);
+        }
+
+        if (i < plan.getStructureCount() - 1) {
+            mission.set(index++, PlannedMission.KIND_SAFETY_CLIMB, lastPhotoLat, lastPhotoLon,
+                    parameters.safetyAltitude + plan.getElevation(i), 0, Float.NaN, i, -1);
+            mission.set(index, PlannedMission.KIND_TRANSIT, plan.getLatitude(i + 1), plan.getLongitude(i + 1),
+                    parameters.safetyAltitude + plan.getElevation(i + 1), 0, Float.NaN, i + 1, -1);
+        }
+    }
+
+    // Photo waypoints of structures [from, to); the block layout fixes their indices
+    private static void writePhotoWaypointIndices(PlannedMission mission, int from, int to, int photoCount) {
+        for (int i = from; i < to; i++) {
+            int first = blockStart(i, photoCount) + 1;
+            for (int k = 0; k < photoCount; k++) {
+                mission.photoWaypointIndices[i * photoCount + k] = first + k;
+            }
+        }
+        mission.photoWaypointCount = to * photoCount;
+    }
+
+    // Copy waypoints between missions, shifting their structure indices
+    private static void copy(PlannedMission source, int from, PlannedMission target, int to, int count,
+                             int structureShift) {
+        System.arraycopy(source.latitudes, from, target.latitudes, to, count);
+        System.arraycopy(source.longitudes, from, target.longitudes, to, count);
+        System.arraycopy(source.altitudes, from, target.altitudes, to, count);
+        System.arraycopy(source.headings, from, target.headings, to, count);
+        System.arraycopy(source.gimbalPitches, from, target.gimbalPitches, to, count);
+        System.arraycopy(source.kinds, from, target.kinds, to, count);
+        System.arraycopy(source.photoIndices, from, target.photoIndices, to, count);
+        System.arraycopy(source.structureIndices, from, target.structureIndices, to, count);
+        if (structureShift != 0) {
+            for (int i = to; i < to + count; i++) {
+                if (target.structureIndices[i] >= 0) {
+                    target.structureIndices[i] += structureShift;
+                }
+            }
+        }
+    }
+
+    private static boolean sameStructure(InspectionPlan a, int i, InspectionPlan b, int j) {
+        return a.getLatitude(i) == b.getLatitude(j) && a.getLongitude(i) == b.getLongitude(j)
+                && a.getElevation(i) == b.getElevation(j) && a.getHeight(i) == b.getHeight(j);
+    }
+
+    private static boolean samePhotoPositions(InspectionPlan a, InspectionPlan b) {
+        if (a.getPhotoCount() != b.getPhotoCount()) {
+            return false;
+        }
+        for (int j = 0; j < a.getPhotoCount(); j++) {
+            if (a.getOffsetX(j) != b.getOffsetX(j) || a.getOffsetY(j) != b.getOffsetY(j)
+                    || a.getOffsetZ(j) != b.getOffsetZ(j) || a.getGimbalPitch(j) != b.getGimbalPitch(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The first structure is never reversed, so its photo indices give the orbit used
+    private static boolean sameOrbit(PlannedMission previous, int[] photoOrder, int photoCount) {
+        for (int k = 0; k < photoCount; k++) {
+            int expected = photoOrder != null ? photoOrder[k] : k;
+            if (previous.photoIndices[blockStart(0, photoCount) + 1 + k] != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Photo columns in visiting order, shared by every structure of a plan
+     */
+    private static class PhotoOrbit {
+        final int count;
+        final float[] east;
+        final float[] north;
+        final float[] up;
+        final float[] headings;
+        final float[] pitches;
+        final int[] photoIndices;
+        // Scratch output of the per-structure frame conversion
+        final double[] latitudes;
+        final double[] longitudes;
+
+        PhotoOrbit(InspectionPlan plan, int[] photoOrder) {
+            count = plan.getPhotoCount();
+            if (photoOrder != null && photoOrder.length != count) {
+                throw new IllegalArgumentException("photoOrder has " + photoOrder.length + " entries for " + count + " photos");
+            }
+            east = new float[count];
+            north = new float[count];
+            up = new float[count];
+            headings = new float[count];
+            pitches = new float[count];
+            photoIndices = new int[count];
+            for (int k = 0; k < count; k++) {
+                int j = photoOrder != null ? photoOrder[k] : k;
+                east[k] = plan.getOffsetX(j);
+                north[k] = plan.getOffsetY(j);
+                up[k] = plan.getOffsetZ(j);
+                headings[k] = headingToStructure(east[k], north[k]);
+                pitches[k] = plan.getGimbalPitch(j);
+                photoIndices[k] = j;
+            }
+            latitudes = new double[count];
+            longitudes = new double[count];
+        }
+    }
+
+    /**
+     * Heading that points the aircraft from a photo position back at the structure center
+     * @param offsetX Meters east of the structure
+     * @param offsetY Meters north of the structure
+     * @return Heading in degrees, clockwise from north, in [0, 360)
+     */
+    public static float headingToStructure(float offsetX, float offsetY) {
+        double angleRadians = Math.atan2(-offsetX, -offsetY);
+        float angleDegrees = (float) Math.toDegrees(angleRadians);
+        float headingDegrees = 90 - angleDegrees;
+
+        while (headingDegrees < 0) headingDegrees += 360;
+        while (headingDegrees >= 360) headingDegrees -= 360;
+
+        return headingDegrees;
+    }
+}
@@ -0,0 +1,344 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays model of an inspection: the structures to visit and the photo
+ * positions flown around each one.
+ *
+ * Structures are stored as parallel primitive columns (latitude, longitude, elevation
+ * difference, height and the 1-based ID of the structure in the source CSV). Photo
+ * positions are stored the same way (offsets east/north/up and gimbal pitch) and are
+ * shared by every structure. The class has no Android dependencies so it can be used
+ * by the planner and in plain JVM code.
+ *
+ * {@link #slice(int, int)} returns a read-only view over a range of structures that
+ * shares the underlying arrays with this plan. A view reflects the columns as they
+ * were when it was created; structures appended later to the parent are not visible.
+ */
+public class InspectionPlan {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Structure columns
+    private double[] latitudes;
+    private double[] longitudes;
+    private float[] elevations;
+    private float[] heights;
+    private int[] structureIds;
+    private final int structureOffset;
+    private int structureCount;
+    private int nextStructureId = 1;
+
+    // Photo position columns
+    private float[] offsetsX;
+    private float[] offsetsY;
+    private float[] offsetsZ;
+    private float[] gimbalPitches;
+    private int photoCount;
+
+    private final boolean readOnly;
+
+    public InspectionPlan() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public InspectionPlan(int structureCapacity) {
+        int capacity = Math.max(1, structureCapacity);
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        elevations = new float[capacity];
+        heights = new float[capacity];
+        structureIds = new int[capacity];
+        structureOffset = 0;
+
+        offsetsX = new float[0];
+        offsetsY = new float[0];
+        offsetsZ = new float[0];
+        gimbalPitches = new float[0];
+
+        readOnly = false;
+    }
+
+    /**
+     * Adopt existing columns without copying them, e.g. when reading a compiled mission file
+     */
+    InspectionPlan(double[] lat, double[] lon, float[] elevation, float[] height, int[] ids, int count,
+                   float[] x, float[] y, float[] z, float[] pitch, int photos) {
+        latitudes = lat;
+        longitudes = lon;
+        elevations = elevation;
+        heights = height;
+        structureIds = ids;
+        structureOffset = 0;
+        structureCount = count;
+        int maxId = 0;
+        for (int i = 0; i < count; i++) {
+            maxId = Math.max(maxId, ids[i]);
+        }
+        nextStructureId = maxId + 1;
+
+        offsetsX = x;
+        offsetsY = y;
+        offsetsZ = z;
+        gimbalPitches = pitch;
+        photoCount = photos;
+
+        readOnly = false;
+    }
+
+    private InspectionPlan(InspectionPlan source, int from, int to) {
+        latitudes = source.latitudes;
+        longitudes = source.longitudes;
+        elevations = source.elevations;
+        heights = source.heights;
+        structureIds = source.structureIds;
+        structureOffset = source.structureOffset + from;
+        structureCount = to - from;
+
+        offsetsX = source.offsetsX;
+        offsetsY = source.offsetsY;
+        offsetsZ = source.offsetsZ;
+        gimbalPitches = source.gimbalPitches;
+        photoCount = source.photoCount;
+
+        readOnly = true;
+    }
+
+    /**
+     * Append a single structure. Its ID is the next sequential CSV ID.
+     */
+    public void appendStructure(double latitude, double longitude, float elevation, float height) {
+        checkWritable();
+        ensureStructureCapacity(structureCount + 1);
+        latitudes[structureCount] = latitude;
+        longitudes[structureCount] = longitude;
+        elevations[structureCount] = elevation;
+        heights[structureCount] = height;
+        structureIds[structureCount] = nextStructureId++;
+        structureCount++;
+    }
+
+    /**
+     * Append a range of structures from parallel arrays. IDs are assigned sequentially.
+     * @param from First index to copy from the source arrays
+     * @param count Number of structures to copy
+     */
+    public void appendStructures(double[] lat, double[] lon, float[] elevation, float[] height, int from, int count) {
+        checkWritable();
+        ensureStructureCapacity(structureCount + count);
+        System.arraycopy(lat, from, latitudes, structureCount, count);
+        System.arraycopy(lon, from, longitudes, structureCount, count);
+        System.arraycopy(elevation, from, elevations, structureCount, count);
+        System.arraycopy(height, from, heights, structureCount, count);
+        for (int i = 0; i < count; i++) {
+            structureIds[structureCount + i] = nextStructureId++;
+        }
+        structureCount += count;
+    }
+
+    /**
+     * Append all structures parsed from a structures CSV
+     */
+    public void appendStructures(InspectionCsvLoader.StructureColumns columns) {
+        appendStructures(columns.latitudes, columns.longitudes, columns.elevations, columns.heights, 0, columns.count);
+    }
+
+    /**
+     * Replace the photo positions with a range of parallel arrays
+     */
+    public void setPhotoPositions(float[] x, float[] y, float[] z, float[] pitch, int from, int count) {
+        checkWritable();
+        offsetsX = Arrays.copyOfRange(x, from, from + count);
+        offsetsY = Arrays.copyOfRange(y, from, from + count);
+        offsetsZ = Arrays.copyOfRange(z, from, from + count);
+        gimbalPitches = Arrays.copyOfRange(pitch, from, from + count);
+        photoCount = count;
+    }
+
+    /**
+     * Replace the photo positions with the ones parsed from a photo positions CSV
+     */
+    public void setPhotoPositions(InspectionCsvLoader.PhotoColumns columns) {
+        setPhotoPositions(columns.offsetsX, columns.offsetsY, columns.offsetsZ, columns.gimbalPitches, 0, columns.count);
+    }
+
+    /**
+     * Remove all structures. Previously created views are not affected.
+     */
+    public void clearStructures() {
+        checkWritable();
+        latitudes = new double[latitudes.length];
+        longitudes = new double[longitudes.length];
+        elevations = new float[elevations.length];
+        heights = new float[heights.length];
+        structureIds = new int[structureIds.length];
+        structureCount = 0;
+        nextStructureId = 1;
+    }
+
+    /**
+     * Remove all photo positions
+     */
+    public void clearPhotoPositions() {
+        checkWritable();
+        offsetsX = new float[0];
+        offsetsY = new float[0];
+        offsetsZ = new float[0];
+        gimbalPitches = new float[0];
+        photoCount = 0;
+    }
+
+    /**
+     * Create a read-only view over structures [from, to) without copying the columns
+     */
+    public InspectionPlan slice(int from, int to) {
+        if (from < 0 || to > structureCount || from > to) {
+            throw new IndexOutOfBoundsException("slice [" + from + ", " + to + ") of " + structureCount);
+        }
+        return new InspectionPlan(this, from, to);
+    }
+
+    /**
+     * Create a writable copy with the structures in a new order. Each structure keeps its
+     * CSV ID, so photos are still filed under the structure number of the source file.
+     * @param order Indices of this plan's structures, in the new visiting order
+     */
+    public InspectionPlan reorder(int[] order) {
+        if (order.length != structureCount) {
+            throw new IllegalArgumentException("order has " + order.length + " entries for " + structureCount + " structures");
+        }
+
+        InspectionPlan copy = new InspectionPlan(structureCount);
+        int maxId = 0;
+        boolean[] seen = new boolean[structureCount];
+        for (int i = 0; i < structureCount; i++) {
+            int source = structureIndex(order[i]);
+            if (seen[order[i]]) {
+                throw new IllegalArgumentException("structure " + order[i] + " appears twice in order");
+            }
+            seen[order[i]] = true;
+            copy.latitudes[i] = latitudes[source];
+            copy.longitudes[i] = longitudes[source];
+            copy.elevations[i] = elevations[source];
+            copy.heights[i] = heights[source];
+            copy.structureIds[i] = structureIds[source];
+            maxId = Math.max(maxId, structureIds[source]);
+        }
+        copy.structureCount = structureCount;
+        copy.nextStructureId = maxId + 1;
+
+        copy.offsetsX = offsetsX;
+        copy.offsetsY = offsetsY;
+        copy.offsetsZ = offsetsZ;
+        copy.gimbalPitches = gimbalPitches;
+        copy.photoCount = photoCount;
+        return copy;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getStructureCount() {
+        return structureCount;
+    }
+
+    public int getPhotoCount() {
+        return photoCount;
+    }
+
+    public boolean hasStructures() {
+        return structureCount > 0;
+    }
+
+    public boolean hasPhotoPositions() {
+        return photoCount > 0;
+    }
+
+    /**
+     * @return Number of photos taken when every structure is inspected at every position
+     */
+    public int getTotalPhotoCount() {
+        return structureCount * photoCount;
+    }
+
+    public double getLatitude(int structure) {
+        return latitudes[structureIndex(structure)];
+    }
+
+    public double getLongitude(int structure) {
+        return longitudes[structureIndex(structure)];
+    }
+
+    public float getElevation(int structure) {
+        return elevations[structureIndex(structure)];
+    }
+
+    public float getHeight(int structure) {
+        return heights[structureIndex(structure)];
+    }
+
+    /**
+     * @return Elevation difference plus structure height
+     */
+    public float getTopElevation(int structure) {
+        int index = structureIndex(structure);
+        return elevations[index] + heights[index];
+    }
+
+    /**
+     * @return 1-based ID of the structure in the source CSV
+     */
+    public int getStructureId(int structure) {
+        return structureIds[structureIndex(structure)];
+    }
+
+    public float getOffsetX(int photo) {
+        return offsetsX[photoIndex(photo)];
+    }
+
+    public float getOffsetY(int photo) {
+        return offsetsY[photoIndex(photo)];
+    }
+
+    public float getOffsetZ(int photo) {
+        return offsetsZ[photoIndex(photo)];
+    }
+
+    public float getGimbalPitch(int photo) {
+        return gimbalPitches[photoIndex(photo)];
+    }
+
+    private int structureIndex(int structure) {
+        if (structure < 0 || structure >= structureCount) {
+            throw new IndexOutOfBoundsException("structure " + structure + " of " + structureCount);
+        }
+        return structureOffset + structure;
+    }
+
+    private int photoIndex(int photo) {
+        if (photo < 0 || photo >= photoCount) {
+            throw new IndexOutOfBoundsException("photo " + photo + " of " + photoCount);
+        }
+        return photo;
+    }
+
+    private void ensureStructureCapacity(int required) {
+        if (required <= latitudes.length) {
+            return;
+        }
+        int capacity = Math.max(required, latitudes.length * 2);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        elevations = Arrays.copyOf(elevations, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        structureIds = Arrays.copyOf(structureIds, capacity);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("InspectionPlan view is read-only");
+        }
+    }
+}
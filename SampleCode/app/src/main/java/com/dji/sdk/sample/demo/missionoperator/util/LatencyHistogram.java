@@ -0,0 +1,75 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Histogram of latencies in milliseconds with power-of-two buckets.
+ *
+ * Bucket {@code i} counts values in {@code [2^i, 2^(i+1))} ms (bucket 0 also takes 0 ms), so
+ * percentiles are accurate to within a factor of two, which is enough for choosing delays.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 24; // Up to about 2.3 hours
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    public synchronized void record(long millis) {
+        if (millis < 0) {
+            millis = 0;
+        }
+        int bucket = millis == 0 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(millis));
+        counts[bucket]++;
+        count++;
+        sum += millis;
+        max = Math.max(max, millis);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMean() {
+        return count > 0 ? sum / count : 0;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @param fraction Percentile as a fraction, e.g. 0.9
+     * @return Upper bound in ms of the bucket holding the percentile, capped at the maximum seen;
+     * 0 if nothing was recorded
+     */
+    public synchronized long getPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (1L << (i + 1)) - 1);
+            }
+        }
+        return max;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "n=" + count + " mean=" + getMean() + "ms p50=" + getPercentile(0.5) + "ms p90=" +
+                getPercentile(0.9) + "ms max=" + max + "ms";
+    }
+}
@@ -0,0 +1,133 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Local East-North-Up frame tangent to the WGS84 ellipsoid at an origin point.
+ *
+ * The meters-per-degree scale factors for latitude and longitude are computed once from the
+ * ellipsoid radii of curvature at the origin, so converting offsets afterwards is a multiply
+ * and an add per axis with no trigonometry. Within the few hundred meters around a structure
+ * the error of this linearisation is far below GPS accuracy.
+ */
+public class LocalEnuFrame {
+
+    /** WGS84 semi-major axis in meters */
+    private static final double WGS84_A = 6378137.0;
+    /** WGS84 first eccentricity squared */
+    private static final double WGS84_E2 = 6.69437999014e-3;
+
+    private final double originLatitude;
+    private final double originLongitude;
+    private final double metersPerDegreeLatitude;
+    private final double metersPerDegreeLongitude;
+
+    /**
+     * @param originLatitude Latitude of the frame origin in degrees
+     * @param originLongitude Longitude of the frame origin in degrees
+     */
+    public LocalEnuFrame(double originLatitude, double originLongitude) {
+        this.originLatitude = originLatitude;
+        this.originLongitude = originLongitude;
+
+        double latRadians = Math.toRadians(originLatitude);
+        double sinLat = Math.sin(latRadians);
+        double w = 1 - WGS84_E2 * sinLat * sinLat;
+        double sqrtW = Math.sqrt(w);
+        // Meridional and prime vertical radii of curvature
+        double meridionalRadius = WGS84_A * (1 - WGS84_E2) / (w * sqrtW);
+        double primeVerticalRadius = WGS84_A / sqrtW;
+
+        metersPerDegreeLatitude = Math.toRadians(meridionalRadius);
+        metersPerDegreeLongitude = Math.toRadians(primeVerticalRadius * Math.cos(latRadians));
+    }
+
+    public double getOriginLatitude() {
+        return originLatitude;
+    }
+
+    public double getOriginLongitude() {
+        return originLongitude;
+    }
+
+    public double getMetersPerDegreeLatitude() {
+        return metersPerDegreeLatitude;
+    }
+
+    public double getMetersPerDegreeLongitude() {
+        return metersPerDegreeLongitude;
+    }
+
+    /**
+     * @param north Meters north of the origin
+     * @return Latitude in degrees
+     */
+    public double toLatitude(double north) {
+        return originLatitude + north / metersPerDegreeLatitude;
+    }
+
+    /**
+     * @param east Meters east of the origin
+     * @return Longitude in degrees
+     */
+    public double toLongitude(double east) {
+        return originLongitude + east / metersPerDegreeLongitude;
+    }
+
+    /**
+     * @return Meters east of the origin
+     */
+    public double toEast(double longitude) {
+        return (longitude - originLongitude) * metersPerDegreeLongitude;
+    }
+
+    /**
+     * @return Meters north of the origin
+     */
+    public double toNorth(double latitude) {
+        return (latitude - originLatitude) * metersPerDegreeLatitude;
+    }
+
+    /**
+     * @return Horizontal distance from the origin in meters
+     */
+    public double horizontalDistance(double latitude, double longitude) {
+        double east = toEast(longitude);
+        double north = toNorth(latitude);
+        return Math.sqrt(east * east + north * north);
+    }
+
+    /**
+     * Convert a range of east/north offsets to coordinates
+     * @param east Meters east of the origin
+     * @param north Meters north of the origin
+     * @param from First offset to convert
+     * @param count Number of offsets to convert
+     * @param latitudes Output latitudes, written from index {@code outFrom}
+     * @param longitudes Output longitudes, written from index {@code outFrom}
+     */
+    public void toGeodetic(float[] east, float[] north, int from, int count,
+                           double[] latitudes, double[] longitudes, int outFrom) {
+        final double latitudeScale = 1 / metersPerDegreeLatitude;
+        final double longitudeScale = 1 / metersPerDegreeLongitude;
+        for (int i = 0; i < count; i++) {
+            latitudes[outFrom + i] = originLatitude + north[from + i] * latitudeScale;
+            longitudes[outFrom + i] = originLongitude + east[from + i] * longitudeScale;
+        }
+    }
+
+    /**
+     * Convert a range of coordinates to east/north offsets, e.g. for aircraft telemetry
+     * @param latitudes Latitudes in degrees
+     * @param longitudes Longitudes in degrees
+     * @param from First coordinate to convert
+     * @param count Number of coordinates to convert
+     * @param east Output meters east of the origin, written from index {@code outFrom}
+     * @param north Output meters north of the origin, written from index {@code outFrom}
+     */
+    public void toEnu(double[] latitudes, double[] longitudes, int from, int count,
+                      double[] east, double[] north, int outFrom) {
+        for (int i = 0; i < count; i++) {
+            east[outFrom + i] = (longitudes[from + i] - originLongitude) * metersPerDegreeLongitude;
+            north[outFrom + i] = (latitudes[from + i] - originLatitude) * metersPerDegreeLatitude;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+import dji.sdk.media.MediaFile;
+
+/**
+ * Keeps track of the photos the camera has produced since the last one we saw, so finding the
+ * photo of a shot does not depend on how many files are on the card.
+ *
+ * New files are normally reported by the camera's new-file callback ({@link #onNewFile}).
+ * When a callback was missed, {@link #ingestSnapshot} walks a refreshed file list from its
+ * newest end and stops at the last file index already seen or after a bounded number of
+ * entries. Unclaimed photos are kept in a small bounded queue; callers take them with
+ * {@link #claim} or {@link #peekLatest}.
+ */
+public class MediaChangeTracker {
+
+    private final int maxRecentFiles;
+    private final int maxScannedFiles;
+    private final ArrayDeque<MediaFile> recent = new ArrayDeque<>();
+    private int lastSeenIndex = -1;
+    private long lastSeenTime;
+
+    /**
+     * @param maxRecentFiles Unclaimed photos kept; the oldest are dropped first
+     * @param maxScannedFiles Largest number of file list entries examined per snapshot
+     */
+    public MediaChangeTracker(int maxRecentFiles, int maxScannedFiles) {
+        this.maxRecentFiles = maxRecentFiles;
+        this.maxScannedFiles = maxScannedFiles;
+    }
+
+    /**
+     * Record a file reported by the camera; safe to call from the SDK callback thread
+     */
+    public synchronized void onNewFile(MediaFile file) {
+        // Anything at or below the last seen index was already reported or ingested
+        if (file == null || !isPhoto(file) || file.getIndex() <= lastSeenIndex) {
+            return;
+        }
+        add(file);
+    }
+
+    /**
+     * Pick up files added since the last one seen from a refreshed file list
+     * @param snapshot File list snapshot from the media manager, in either index order
+     * @return Number of new photos found
+     */
+    public synchronized int ingestSnapshot(List<MediaFile> snapshot) {
+        if (snapshot == null || snapshot.isEmpty()) {
+            return 0;
+        }
+
+        final int size = snapshot.size();
+        // Walk from the newest end, whichever end of the list that is
+        boolean ascending = snapshot.get(0).getIndex() <= snapshot.get(size - 1).getIndex();
+        int limit = Math.min(size, maxScannedFiles);
+        MediaFile[] found = new MediaFile[Math.min(limit, maxRecentFiles)];
+        int count = 0;
+        for (int n = 0; n < limit && count < found.length; n++) {
+            MediaFile file = snapshot.get(ascending ? size - 1 - n : n);
+            if (file.getIndex() <= lastSeenIndex) {
+                break;
+            }
+            if (isPhoto(file)) {
+                found[count++] = file;
+            }
+        }
+
+        // Add oldest first so the queue stays in shooting order
+        for (int i = count - 1; i >= 0; i--) {
+            add(found[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Take the oldest unclaimed photo created at or after a time
+     * @return The photo, or null if none has been seen yet
+     */
+    public synchronized MediaFile claim(long notBeforeMillis) {
+        Iterator<MediaFile> iterator = recent.iterator();
+        while (iterator.hasNext()) {
+            MediaFile file = iterator.next();
+            if (file.getTimeCreated() >= notBeforeMillis) {
+                iterator.remove();
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return a claimed photo, e.g. after its download failed, so it can be claimed again
+     */
+    public synchronized void release(MediaFile file) {
+        if (!contains(file)) {
+            recent.addFirst(file);
+        }
+    }
+
+    /**
+     * @return The newest unclaimed photo created at or after a time, without claiming it, or null
+     */
+    public synchronized MediaFile peekLatest(long notBeforeMillis) {
+        MediaFile latest = recent.peekLast();
+        return latest != null && latest.getTimeCreated() >= notBeforeMillis ? latest : null;
+    }
+
+    /**
+     * Forget unclaimed photos; the last seen index is kept so older files are not picked up again
+     */
+    public synchronized void clear() {
+        recent.clear();
+    }
+
+    /**
+     * Forget everything, e.g. after switching to a storage location with its own file indices
+     */
+    public synchronized void reset() {
+        recent.clear();
+        lastSeenIndex = -1;
+        lastSeenTime = 0;
+    }
+
+    public synchronized int getLastSeenIndex() {
+        return lastSeenIndex;
+    }
+
+    public synchronized long getLastSeenTime() {
+        return lastSeenTime;
+    }
+
+    private void add(MediaFile file) {
+        if (recent.size() >= maxRecentFiles) {
+            recent.pollFirst();
+        }
+        recent.addLast(file);
+        if (file.getIndex() > lastSeenIndex) {
+            lastSeenIndex = file.getIndex();
+            lastSeenTime = file.getTimeCreated();
+        }
+    }
+
+    private boolean contains(MediaFile file) {
+        for (MediaFile recentFile : recent) {
+            if (recentFile.getIndex() == file.getIndex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // JPEG only: with JPEG+RAW shooting each shot also produces a DNG, which has no usable preview
+    private static boolean isPhoto(MediaFile file) {
+        return file.getMediaType() == MediaFile.MediaType.JPEG;
+    }
+}
@@ -0,0 +1,274 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Random;
+
+/**
+ * Runs media fetch attempts with exponential backoff, per-attempt deadlines and cancellation.
+ *
+ * A fetch is scheduled relative to the moment the photo was triggered. The first attempt
+ * starts when the photo is likely to be ready, based on an estimate learned from earlier
+ * fetches, instead of after a fixed wait. Failed attempts are retried after an exponentially
+ * growing delay with jitter; an attempt that does not report back before its deadline counts
+ * as failed. Latencies are kept in histograms for logging.
+ *
+ * Attempts run on the main thread and listener callbacks arrive there.
+ */
+public class MediaFetchScheduler {
+
+    /** Weight of the newest sample in the ready time estimate */
+    private static final double READY_SMOOTHING = 0.25;
+    /** A first attempt that succeeds suggests polling this much earlier next time */
+    private static final double READY_PROBE_FACTOR = 0.8;
+
+    /**
+     * Cancels a scheduled fetch, or a single attempt of it
+     */
+    public static class CancellationToken {
+        private final CancellationToken parent;
+        private volatile boolean cancelled;
+
+        public CancellationToken() {
+            this(null);
+        }
+
+        CancellationToken(CancellationToken parent) {
+            this.parent = parent;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled || parent != null && parent.isCancelled();
+        }
+    }
+
+    /**
+     * One fetch attempt
+     */
+    public interface Attempt<T> {
+        /**
+         * @param attempt Attempt number, starting at 1
+         * @param token Cancelled when the fetch is cancelled or this attempt's deadline passes;
+         *              the attempt should then release what it holds and stop
+         * @param callback Report the outcome exactly once, from any thread
+         */
+        void run(int attempt, CancellationToken token, AttemptCallback<T> callback);
+    }
+
+    public interface AttemptCallback<T> {
+        void onSuccess(T result);
+
+        /**
+         * The attempt failed but a later one may succeed
+         */
+        void onRetry(String reason);
+
+        /**
+         * The fetch cannot succeed; stop without further attempts
+         */
+        void onFailure(String reason);
+    }
+
+    /**
+     * Outcome of a scheduled fetch; not called once the fetch is cancelled
+     */
+    public interface Listener<T> {
+        void onSucceeded(T result, int attempts);
+
+        void onGaveUp(String reason, int attempts);
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long attemptTimeoutMillis;
+    private final long minReadyMillis;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+
+    private final LatencyHistogram readyLatency = new LatencyHistogram();
+    private final LatencyHistogram attemptLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private double readyEstimateMillis;
+
+    /**
+     * @param maxAttempts Attempts before giving up
+     * @param baseDelayMillis Delay before the first retry; doubled for every further retry
+     * @param maxDelayMillis Upper bound for retry delays and the learned ready time
+     * @param attemptTimeoutMillis Deadline for a single attempt
+     * @param initialReadyMillis Expected time from trigger to photo ready before anything is learned
+     * @param minReadyMillis Lower bound for the learned ready time
+     */
+    public MediaFetchScheduler(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long attemptTimeoutMillis,
+                               long initialReadyMillis, long minReadyMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+        this.minReadyMillis = minReadyMillis;
+        this.readyEstimateMillis = initialReadyMillis;
+    }
+
+    /**
+     * Schedule a fetch; must be called on the main thread
+     * @param triggeredAtMillis When the photo was triggered, in {@code System.currentTimeMillis()} time
+     * @return Token that cancels the fetch
+     */
+    public <T> CancellationToken schedule(long triggeredAtMillis, Attempt<T> attempt, Listener<T> listener) {
+        Job<T> job = new Job<>(triggeredAtMillis, attempt, listener);
+        long delay = Math.max(0, triggeredAtMillis + getReadyDelayMillis() - System.currentTimeMillis());
+        job.runAfter(delay);
+        return job.token;
+    }
+
+    /**
+     * @return Current estimate of the time from trigger to photo ready
+     */
+    public synchronized long getReadyDelayMillis() {
+        return Math.round(readyEstimateMillis);
+    }
+
+    /**
+     * @param retry Retry number, starting at 1
+     * @return Backoff delay with equal jitter: half the exponential delay plus up to as much again
+     */
+    public long getRetryDelayMillis(int retry) {
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(retry - 1, 20));
+        long half = delay / 2;
+        synchronized (random) {
+            return half + (long) (random.nextDouble() * (delay - half));
+        }
+    }
+
+    /** Time from trigger to the start of the attempt that succeeded */
+    public LatencyHistogram getReadyLatency() {
+        return readyLatency;
+    }
+
+    /** Duration of single attempts, successful or not */
+    public LatencyHistogram getAttemptLatency() {
+        return attemptLatency;
+    }
+
+    /** Time from trigger to a successful result */
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
+    private synchronized void learnReadyTime(long readyMillis, boolean firstAttempt) {
+        double sample = firstAttempt ? readyMillis * READY_PROBE_FACTOR : readyMillis;
+        readyEstimateMillis += READY_SMOOTHING * (sample - readyEstimateMillis);
+        readyEstimateMillis = Math.max(minReadyMillis, Math.min(maxDelayMillis, readyEstimateMillis));
+    }
+
+    private class Job<T> {
+        final long triggeredAtMillis;
+        final Attempt<T> attempt;
+        final Listener<T> listener;
+        final CancellationToken token = new CancellationToken();
+        int attempts;
+        String lastReason;
+
+        Job(long triggeredAtMillis, Attempt<T> attempt, Listener<T> listener) {
+            this.triggeredAtMillis = triggeredAtMillis;
+            this.attempt = attempt;
+            this.listener = listener;
+        }
+
+        void runAfter(long delayMillis) {
+            mainHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    runAttempt();
+                }
+            }, delayMillis);
+        }
+
+        void runAttempt() {
+            if (token.isCancelled()) {
+                return;
+            }
+            attempts++;
+            final int number = attempts;
+            final long startMillis = System.currentTimeMillis();
+            final CancellationToken attemptToken = new CancellationToken(token);
+
+            final Runnable deadline = new Runnable() {
+                @Override
+                public void run() {
+                    if (!attemptToken.isCancelled()) {
+                        attemptToken.cancel();
+                        finishAttempt(startMillis, "Tempo esgotado após " + attemptTimeoutMillis + " ms", true);
+                    }
+                }
+            };
+            mainHandler.postDelayed(deadline, attemptTimeoutMillis);
+
+            attempt.run(number, attemptToken, new AttemptCallback<T>() {
+                @Override
+                public void onSuccess(final T result) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (attemptToken.isCancelled()) {
+                                return;
+                            }
+                            attemptToken.cancel();
+                            mainHandler.removeCallbacks(deadline);
+
+                            long now = System.currentTimeMillis();
+                            attemptLatency.record(now - startMillis);
+                            readyLatency.record(startMillis - triggeredAtMillis);
+                            totalLatency.record(now - triggeredAtMillis);
+                            learnReadyTime(startMillis - triggeredAtMillis, number == 1);
+                            listener.onSucceeded(result, number);
+                        }
+                    });
+                }
+
+                @Override
+                public void onRetry(final String reason) {
+                    report(reason, true);
+                }
+
+                @Override
+                public void onFailure(final String reason) {
+                    report(reason, false);
+                }
+
+                private void report(final String reason, final boolean retry) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (attemptToken.isCancelled()) {
+                                return;
+                            }
+                            attemptToken.cancel();
+                            mainHandler.removeCallbacks(deadline);
+                            finishAttempt(startMillis, reason, retry);
+                        }
+                    });
+                }
+            });
+        }
+
+        void finishAttempt(long startMillis, String reason, boolean retry) {
+            attemptLatency.record(System.currentTimeMillis() - startMillis);
+            lastReason = reason;
+            if (token.isCancelled()) {
+                return;
+            }
+            if (retry && attempts < maxAttempts) {
+                runAfter(getRetryDelayMillis(attempts));
+            } else {
+                token.cancel();
+                listener.onGaveUp(lastReason, attempts);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of planned missions keyed by a content hash of the planning inputs.
+ *
+ * The key covers the structure and photo columns, the planning parameters, the home point
+ * (rounded to about one meter, so GPS jitter between sessions still hits) and the planning
+ * options. An entry holds the reordered plan, the structure visiting order chosen by the route
+ * optimizer and the planned waypoints, so a hit skips both. Recent entries are kept in memory;
+ * all entries are also written to a cache directory as {@link CompiledMissionFile}s so they
+ * survive an app restart.
+ */
+public class MissionPlanCache {
+
+    private static final int KEY_VERSION = 1;
+    private static final double HOME_QUANTUM = 1e-5; // About one meter of latitude
+
+    private final File directory;
+    private final int maxDiskEntries;
+    private final Map<String, CompiledMissionFile.Contents> memory;
+
+    /**
+     * @param directory Directory for the on-disk entries, or null to cache in memory only
+     * @param maxMemoryEntries Entries kept in memory
+     * @param maxDiskEntries Entries kept on disk; the least recently used are removed first
+     */
+    public MissionPlanCache(File directory, final int maxMemoryEntries, int maxDiskEntries) {
+        this.directory = directory;
+        this.maxDiskEntries = maxDiskEntries;
+        this.memory = new LinkedHashMap<String, CompiledMissionFile.Contents>(maxMemoryEntries + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledMissionFile.Contents> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Hash the planning inputs into a cache key
+     * @param plan Structures and photo positions before any reordering
+     * @param parameters Planning parameters
+     * @param homeLatitude Latitude of the take-off point
+     * @param homeLongitude Longitude of the take-off point
+     * @param options Anything else that changes the result, e.g. which optimizations run
+     * @return Hex encoded SHA-256 of the inputs
+     */
+    public static String computeKey(InspectionPlan plan, InspectionMissionPlanner.Parameters parameters,
+                                    double homeLatitude, double homeLongitude, String options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        buffer.putInt(KEY_VERSION);
+        buffer.putFloat(parameters.baseAltitude);
+        buffer.putFloat(parameters.safeDistance);
+        buffer.putFloat(parameters.safetyAltitude);
+        buffer.putFloat(parameters.speed);
+        buffer.putLong(Math.round(homeLatitude / HOME_QUANTUM));
+        buffer.putLong(Math.round(homeLongitude / HOME_QUANTUM));
+
+        final int structureCount = plan.getStructureCount();
+        buffer.putInt(structureCount);
+        for (int i = 0; i < structureCount; i++) {
+            if (buffer.remaining() < 28) {
+                flush(digest, buffer);
+            }
+            buffer.putDouble(plan.getLatitude(i));
+            buffer.putDouble(plan.getLongitude(i));
+            buffer.putFloat(plan.getElevation(i));
+            buffer.putFloat(plan.getHeight(i));
+            buffer.putInt(plan.getStructureId(i));
+        }
+
+        final int photoCount = plan.getPhotoCount();
+        if (buffer.remaining() < 4) {
+            flush(digest, buffer);
+        }
+        buffer.putInt(photoCount);
+        for (int j = 0; j < photoCount; j++) {
+            if (buffer.remaining() < 16) {
+                flush(digest, buffer);
+            }
+            buffer.putFloat(plan.getOffsetX(j));
+            buffer.putFloat(plan.getOffsetY(j));
+            buffer.putFloat(plan.getOffsetZ(j));
+            buffer.putFloat(plan.getGimbalPitch(j));
+        }
+        flush(digest, buffer);
+        if (options != null) {
+            try {
+                digest.update(options.getBytes("UTF-8"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        byte[] hash = digest.digest();
+        StringBuilder key = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16));
+            key.append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    private static void flush(MessageDigest digest, ByteBuffer buffer) {
+        digest.update(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    /**
+     * Look up an entry in memory, then on disk
+     * @return The cached entry, or null on a miss or unreadable file
+     */
+    public synchronized CompiledMissionFile.Contents get(String key) {
+        CompiledMissionFile.Contents entry = memory.get(key);
+        if (entry != null || directory == null) {
+            return entry;
+        }
+
+        File file = new File(directory, key + CompiledMissionFile.FILE_EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            entry = CompiledMissionFile.read(file);
+        } catch (IOException e) {
+            // Corrupt or from an older version; plan again and overwrite it
+            file.delete();
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        memory.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Store an entry in memory and on disk
+     * @throws IOException If the disk copy could not be written; the memory copy is kept
+     */
+    public synchronized void put(String key, CompiledMissionFile.Contents entry) throws IOException {
+        memory.put(key, entry);
+        if (directory == null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        File file = new File(directory, key + CompiledMissionFile.FILE_EXTENSION);
+        File temp = new File(directory, key + CompiledMissionFile.FILE_EXTENSION + ".tmp");
+        CompiledMissionFile.write(temp, entry);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp + " to " + file);
+        }
+        trimDisk();
+    }
+
+    /**
+     * Drop every cached entry
+     */
+    public synchronized void clear() {
+        memory.clear();
+        File[] files = directory != null ? directory.listFiles() : null;
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= maxDiskEntries) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length - maxDiskEntries; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a {@link PlannedMission} into segments that fit the per-upload waypoint limit.
+ *
+ * Segments end on a transit waypoint, where the aircraft is above the next structure at
+ * safety altitude, so the hand-off between uploads never happens next to a structure.
+ * Consecutive segments share that waypoint: the next segment starts where the previous one
+ * stopped. Only when a single structure needs more waypoints than the limit is a segment
+ * cut elsewhere; such segments are flagged as not ending on a safe boundary.
+ */
+public class MissionSegmenter {
+
+    /** Waypoint limit of a WaypointMission (v1) upload */
+    public static final int MAX_WAYPOINTS_PER_MISSION = 99;
+
+    /** DJI missions need at least two waypoints */
+    private static final int MIN_WAYPOINTS_PER_MISSION = 2;
+
+    /**
+     * Waypoint range [from, to) of the planned mission flown as one upload
+     */
+    public static class Segment {
+        public final int index;
+        public final int from;
+        public final int to;
+        public final boolean safeBoundary;
+
+        Segment(int index, int from, int to, boolean safeBoundary) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.safeBoundary = safeBoundary;
+        }
+
+        public int size() {
+            return to - from;
+        }
+
+        public boolean contains(int waypoint) {
+            return waypoint >= from && waypoint < to;
+        }
+    }
+
+    /**
+     * Split the mission into segments of at most maxWaypoints waypoints
+     * @param mission The planned mission
+     * @param maxWaypoints Waypoint limit per upload
+     * @return Segments in flight order; empty if the mission has no waypoints
+     */
+    public static List<Segment> segment(PlannedMission mission, int maxWaypoints) {
+        if (maxWaypoints < MIN_WAYPOINTS_PER_MISSION) {
+            throw new IllegalArgumentException("maxWaypoints must be at least " + MIN_WAYPOINTS_PER_MISSION);
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        final int size = mission.size();
+        if (size == 0) {
+            return segments;
+        }
+
+        int from = 0;
+        while (true) {
+            if (size - from <= maxWaypoints) {
+                segments.add(new Segment(segments.size(), from, size, true));
+                return segments;
+            }
+
+            // Furthest transit waypoint that still fits; the segment ends on it (inclusive)
+            int limit = from + maxWaypoints - 1;
+            int boundary = -1;
+            for (int i = limit; i > from; i--) {
+                if (mission.getKind(i) == PlannedMission.KIND_TRANSIT) {
+                    boundary = i;
+                    break;
+                }
+            }
+
+            boolean safe = boundary > 0;
+            if (!safe) {
+                boundary = limit;
+            }
+
+            segments.add(new Segment(segments.size(), from, boundary + 1, safe));
+            from = boundary;
+        }
+    }
+
+    /**
+     * @return Index of the segment containing the waypoint, preferring the later segment for
+     * the waypoint shared by two segments, or -1 if no segment contains it
+     */
+    public static int findSegment(List<Segment> segments, int waypoint) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (segments.get(i).contains(waypoint)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,193 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Obstacle sector state from the vision system, kept in preallocated primitive arrays.
+ *
+ * The vision callback fills {@link #getInputDistances()} and {@link #getInputWarningLevels()}
+ * and calls {@link #publish}, which records the closest obstacle and a smoothed closing rate
+ * per sector without allocating. Text is only produced when the UI asks for it through
+ * {@link #appendDescription}. Warning levels are passed as enum ordinals so the SDK types stay
+ * out of this class.
+ */
+public class ObstacleSectorProcessor {
+
+    public static final int TREND_NONE = 0;
+    public static final int TREND_APPROACHING = 1;
+    public static final int TREND_RECEDING = 2;
+
+    /** Closing rate, in m/s, below which a sector is considered steady */
+    private static final float TREND_THRESHOLD = 0.2f;
+    /** Weight of the newest sample in the smoothed closing rate */
+    private static final float TREND_SMOOTHING = 0.3f;
+    /** Sectors closer than this are listed in the description */
+    private static final float REPORT_DISTANCE = 10.0f;
+
+    private final float[] inputDistances;
+    private final int[] inputWarningLevels;
+
+    private final float[] distances;
+    private final int[] warningLevels;
+    private final float[] closingRates;
+    private final int[] trends;
+    private int sectorCount;
+    private int systemWarning = -1;
+    private int closestSector = -1;
+    private long lastUpdateNanos;
+
+    /**
+     * @param maxSectors Largest number of sectors a vision update may report
+     */
+    public ObstacleSectorProcessor(int maxSectors) {
+        inputDistances = new float[maxSectors];
+        inputWarningLevels = new int[maxSectors];
+        distances = new float[maxSectors];
+        warningLevels = new int[maxSectors];
+        closingRates = new float[maxSectors];
+        trends = new int[maxSectors];
+    }
+
+    public int getMaxSectors() {
+        return distances.length;
+    }
+
+    /**
+     * @return Scratch array the producer fills with sector distances in meters before
+     * {@link #publish}; a value of zero or less means nothing detected
+     */
+    public float[] getInputDistances() {
+        return inputDistances;
+    }
+
+    /**
+     * @return Scratch array the producer fills with warning level ordinals before {@link #publish}
+     */
+    public int[] getInputWarningLevels() {
+        return inputWarningLevels;
+    }
+
+    /**
+     * Take over the input arrays as the current state; called from the vision callback thread
+     * @param count Sectors filled in the input arrays
+     * @param systemWarningLevel Ordinal of the overall system warning, or -1 if unknown
+     * @param timestampNanos Time of the update, e.g. {@code System.nanoTime()}
+     */
+    public synchronized void publish(int count, int systemWarningLevel, long timestampNanos) {
+        count = Math.min(count, distances.length);
+        float seconds = lastUpdateNanos != 0 ? (timestampNanos - lastUpdateNanos) / 1e9f : 0f;
+        lastUpdateNanos = timestampNanos;
+
+        int closest = -1;
+        float closestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            float distance = inputDistances[i];
+            float previous = i < sectorCount ? distances[i] : 0f;
+
+            if (distance > 0 && previous > 0 && seconds > 0) {
+                float rate = (previous - distance) / seconds;
+                closingRates[i] += TREND_SMOOTHING * (rate - closingRates[i]);
+            } else {
+                closingRates[i] = 0f;
+            }
+            if (closingRates[i] > TREND_THRESHOLD) {
+                trends[i] = TREND_APPROACHING;
+            } else if (closingRates[i] < -TREND_THRESHOLD) {
+                trends[i] = TREND_RECEDING;
+            } else {
+                trends[i] = TREND_NONE;
+            }
+
+            distances[i] = distance;
+            warningLevels[i] = inputWarningLevels[i];
+            if (distance > 0 && distance < closestDistance) {
+                closestDistance = distance;
+                closest = i;
+            }
+        }
+        sectorCount = count;
+        systemWarning = systemWarningLevel;
+        closestSector = closest;
+    }
+
+    public synchronized int getSectorCount() {
+        return sectorCount;
+    }
+
+    /**
+     * @return Distance to the closest detected obstacle in meters, or
+     * {@link Float#POSITIVE_INFINITY} if none is detected
+     */
+    public synchronized float getClosestDistance() {
+        return closestSector >= 0 ? distances[closestSector] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return Sector of the closest detected obstacle, or -1 if none is detected
+     */
+    public synchronized int getClosestSector() {
+        return closestSector;
+    }
+
+    public synchronized float getDistance(int sector) {
+        return distances[sector];
+    }
+
+    public synchronized int getWarningLevel(int sector) {
+        return warningLevels[sector];
+    }
+
+    /**
+     * @return Smoothed closing rate in m/s; positive while the obstacle gets closer
+     */
+    public synchronized float getClosingRate(int sector) {
+        return closingRates[sector];
+    }
+
+    /**
+     * @return One of the {@code TREND_*} constants
+     */
+    public synchronized int getTrend(int sector) {
+        return trends[sector];
+    }
+
+    /**
+     * Describe the nearby sectors and the system warning, one line each
+     * @param out Destination
+     * @param warningNames Labels indexed by warning level ordinal, e.g. the SDK enum values
+     * @param systemWarningNames Labels indexed by system warning ordinal
+     */
+    public synchronized void appendDescription(StringBuilder out, Object[] warningNames, Object[] systemWarningNames) {
+        for (int i = 0; i < sectorCount; i++) {
+            float distance = distances[i];
+            if (distance <= 0 || distance >= REPORT_DISTANCE) {
+                continue;
+            }
+            out.append("Setor ").append(i + 1).append(": ");
+            appendFixed2(out, distance);
+            out.append("m (Perigo: ").append(label(warningNames, warningLevels[i])).append(')');
+            if (trends[i] == TREND_APPROACHING) {
+                out.append(" aproximando");
+            } else if (trends[i] == TREND_RECEDING) {
+                out.append(" afastando");
+            }
+            out.append('\n');
+        }
+        out.append("Alerta do sistema: ").append(label(systemWarningNames, systemWarning));
+    }
+
+    /**
+     * Append a non-negative value with two decimals, as {@code String.format("%.2f")} would
+     */
+    public static void appendFixed2(StringBuilder out, float value) {
+        long hundredths = Math.round(value * 100.0);
+        out.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static Object label(Object[] names, int ordinal) {
+        return names != null && ordinal >= 0 && ordinal < names.length ? names[ordinal] : "N/A";
+    }
+}
@@ -0,0 +1,265 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import dji.common.error.DJIError;
+import dji.sdk.media.DownloadListener;
+import dji.sdk.media.MediaFile;
+
+/**
+ * Downloads the full-resolution originals of saved photos in the background and upgrades the
+ * saved files in place.
+ *
+ * Photos are first saved from the thumbnail or preview so review never waits for a full
+ * download. Each saved photo can then be queued here with its media file; originals are
+ * fetched with {@link MediaFile#fetchFileData} into a hidden file next to the saved photo, at
+ * most a few at a time, and renamed over it once complete. Failed downloads are retried at
+ * the back of the queue.
+ *
+ * All methods must be called on the main thread, and listener callbacks arrive there.
+ */
+public class OriginalPhotoDownloader {
+    private static final String TAG = "OriginalPhotoDownloader";
+
+    /** Prefix of partial downloads; the storage scan does not list these */
+    private static final String STAGING_PREFIX = ".original_";
+
+    public interface Listener {
+        /**
+         * The saved photo now holds the full-resolution original
+         */
+        void onOriginalStored(PhotoStorageManager.PhotoInfo photo, long bytes, long millis);
+
+        /**
+         * The original could not be stored; the saved photo keeps its lower resolution copy
+         */
+        void onOriginalFailed(PhotoStorageManager.PhotoInfo photo, String reason);
+    }
+
+    private static class Job {
+        final MediaFile mediaFile;
+        final PhotoStorageManager.PhotoInfo photo;
+        int attempts;
+        boolean cancelled;
+
+        Job(MediaFile mediaFile, PhotoStorageManager.PhotoInfo photo) {
+            this.mediaFile = mediaFile;
+            this.photo = photo;
+        }
+    }
+
+    private final PhotoStorageManager storage;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxAttempts;
+    private final Listener listener;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    private final List<Job> active = new ArrayList<>();
+    private final LatencyHistogram downloadLatency = new LatencyHistogram();
+    private long storedBytes;
+    private int storedCount;
+    private int failedCount;
+
+    /**
+     * @param storage Storage holding the saved photos
+     * @param maxConcurrent Downloads running at the same time
+     * @param maxQueued Downloads waiting beyond which {@link #enqueue} refuses more
+     * @param maxAttempts Attempts per original before giving up
+     * @param listener Receives the outcome of each original; may be null
+     */
+    public OriginalPhotoDownloader(PhotoStorageManager storage, int maxConcurrent, int maxQueued, int maxAttempts,
+                                   Listener listener) {
+        this.storage = storage;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxAttempts = maxAttempts;
+        this.listener = listener;
+    }
+
+    /**
+     * Queue the original of a saved photo
+     * @return False if the queue is full; the saved photo keeps its current copy
+     */
+    public boolean enqueue(MediaFile mediaFile, PhotoStorageManager.PhotoInfo photo) {
+        if (mediaFile == null || photo == null || queue.size() >= maxQueued) {
+            return false;
+        }
+        queue.add(new Job(mediaFile, photo));
+        startNext();
+        return true;
+    }
+
+    /**
+     * Drop queued downloads and stop running ones; saved photos keep their current copies
+     */
+    public void cancelAll() {
+        queue.clear();
+        for (Job job : active) {
+            job.cancelled = true;
+            job.mediaFile.stopFetchingFileData(null);
+            deleteStaged(job);
+        }
+        active.clear();
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public int getStoredCount() {
+        return storedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /** Time from starting a download to the original being in place */
+    public LatencyHistogram getDownloadLatency() {
+        return downloadLatency;
+    }
+
+    private void startNext() {
+        while (active.size() < maxConcurrent && !queue.isEmpty()) {
+            download(queue.poll());
+        }
+    }
+
+    private void download(final Job job) {
+        active.add(job);
+        job.attempts++;
+        final long startMillis = System.currentTimeMillis();
+        final File folder = job.photo.getFile().getParentFile();
+
+        job.mediaFile.fetchFileData(folder, stagingName(job), new DownloadListener<String>() {
+            @Override
+            public void onStart() {
+            }
+
+            @Override
+            public void onRateUpdate(long total, long current, long persize) {
+            }
+
+            @Override
+            public void onRealtimeDataUpdate(byte[] bytes, long position, boolean isLastPack) {
+            }
+
+            @Override
+            public void onProgress(long total, long current) {
+            }
+
+            @Override
+            public void onSuccess(final String path) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!job.cancelled) {
+                            finish(job, stagedFile(job, path), startMillis);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final DJIError error) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!job.cancelled) {
+                            fail(job, error != null ? error.getDescription() : "Desconhecido");
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void finish(Job job, File staged, long startMillis) {
+        active.remove(job);
+        long bytes = staged.length();
+        if (bytes > 0 && storage.replacePhotoFile(job.photo, staged)) {
+            long millis = System.currentTimeMillis() - startMillis;
+            downloadLatency.record(millis);
+            storedBytes += bytes;
+            storedCount++;
+            if (listener != null) {
+                listener.onOriginalStored(job.photo, bytes, millis);
+            }
+        } else {
+            staged.delete();
+            retryOrGiveUp(job, "Falha ao substituir foto salva");
+        }
+        startNext();
+    }
+
+    private void fail(Job job, String reason) {
+        active.remove(job);
+        deleteStaged(job);
+        retryOrGiveUp(job, reason);
+        startNext();
+    }
+
+    private void retryOrGiveUp(Job job, String reason) {
+        if (job.attempts < maxAttempts) {
+            Log.w(TAG, "Original of " + job.photo.getFilename() + " failed, retrying: " + reason);
+            queue.add(job);
+            return;
+        }
+
+        Log.e(TAG, "Giving up on original of " + job.photo.getFilename() + ": " + reason);
+        failedCount++;
+        if (listener != null) {
+            listener.onOriginalFailed(job.photo, reason);
+        }
+    }
+
+    /**
+     * @return True for a partial download, including one left behind when the app died
+     */
+    public static boolean isStagingFile(String name) {
+        return name.startsWith(STAGING_PREFIX);
+    }
+
+    private static String stagingName(Job job) {
+        String name = job.photo.getFilename();
+        int dot = name.lastIndexOf('.');
+        return STAGING_PREFIX + (dot > 0 ? name.substring(0, dot) : name);
+    }
+
+    // The SDK adds the camera's extension to the name it was given and may report either the
+    // file or its folder
+    private static File stagedFile(Job job, String path) {
+        File reported = path != null ? new File(path) : null;
+        if (reported != null && reported.isFile()) {
+            return reported;
+        }
+        String cameraName = job.mediaFile.getFileName();
+        int dot = cameraName != null ? cameraName.lastIndexOf('.') : -1;
+        String extension = dot >= 0 ? cameraName.substring(dot) : "";
+        return new File(job.photo.getFile().getParentFile(), stagingName(job) + extension);
+    }
+
+    private static void deleteStaged(Job job) {
+        File staged = stagedFile(job, null);
+        if (staged.exists()) {
+            staged.delete();
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.media.ExifInterface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Packages saved photos into ZIP volumes for hand-over, with a manifest of every photo.
+ *
+ * Photos keep their S&lt;n&gt; structure folders inside the archive and are stored without
+ * recompression, streamed one at a time by {@link StoredZipWriter}, so packaging is bound by
+ * storage speed and memory use does not grow with the photo size. A new volume is started
+ * whenever the next photo would take the current one past the size limit; each volume is a
+ * complete ZIP with a manifest of its own photos, and a manifest of the whole package is
+ * written next to the volumes.
+ *
+ * Manifest rows hold the structure, photo position, file, size, CRC32 as stored in the
+ * archive, timestamp and GPS position. The position comes from the photo's EXIF when the
+ * full-resolution original carries it, otherwise from the structure location if known.
+ *
+ * Packages are built one at a time on a background thread. Listener callbacks arrive on the
+ * main thread.
+ */
+public class PhotoArchiver {
+    private static final String TAG = "PhotoArchiver";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String MANIFEST_ENTRY = "manifest.csv";
+    private static final String MANIFEST_HEADER =
+            "volume,structure,photo,file,bytes,crc32,timestamp,latitude,longitude,gps_source\n";
+    private static final String BLANK_CRC = "--------"; // Same width as the hex CRC32 that replaces it
+    private static final String VOLUME_EXTENSION = ".zip";
+    /** Prefix of volumes being written; renamed once complete */
+    private static final String PARTIAL_PREFIX = ".packing_";
+    private static final long PROGRESS_INTERVAL_MILLIS = 200;
+
+    public interface Listener {
+        void onProgress(int doneFiles, int totalFiles, long doneBytes, long totalBytes);
+
+        void onFinished(Result result);
+    }
+
+    /**
+     * Outcome of packaging
+     */
+    public static class Result {
+        public final List<File> volumes;
+        public final File manifest;
+        public final int packedFiles;
+        public final int failedFiles;
+        public final long packedBytes;
+        public final long millis;
+        public final boolean cancelled;
+        public final String error;
+
+        Result(List<File> volumes, File manifest, int packedFiles, int failedFiles, long packedBytes, long millis,
+               boolean cancelled, String error) {
+            this.volumes = volumes;
+            this.manifest = manifest;
+            this.packedFiles = packedFiles;
+            this.failedFiles = failedFiles;
+            this.packedBytes = packedBytes;
+            this.millis = millis;
+            this.cancelled = cancelled;
+            this.error = error;
+        }
+
+        public double getMegabytesPerSecond() {
+            return millis > 0 ? packedBytes / 1048576.0 / (millis / 1000.0) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d packed in %d volumes, %d failed%s%s, %.1f MB in %d ms (%.1f MB/s)",
+                    packedFiles, volumes.size(), failedFiles, cancelled ? ", cancelled" : "",
+                    error != null ? ", error: " + error : "", packedBytes / 1048576.0, millis, getMegabytesPerSecond());
+        }
+    }
+
+    /**
+     * A started package
+     */
+    public static class Packaging {
+        private volatile boolean cancelled;
+
+        /**
+         * Stop after the current photo; unfinished volumes are removed
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final File sourceRoot;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * @param sourceRoot Folder of the photo library; photo paths below it are kept in the archive
+     */
+    public PhotoArchiver(File sourceRoot) {
+        this.sourceRoot = sourceRoot;
+    }
+
+    /**
+     * Package photos into ZIP volumes
+     * @param photos Photos in the order to package them
+     * @param destination Folder for the volumes and manifest; created if needed
+     * @param name Base name of the volumes, e.g. name_001.zip, and of name_manifest.csv
+     * @param maxVolumeBytes Size limit of a volume; at most 4 GB. A single larger photo gets a
+     *                       volume of its own.
+     * @param structureLocations Latitude and longitude by structure ID, for photos without EXIF
+     *                           GPS; may be null
+     * @param listener Receives progress and the result; may be null
+     * @return Handle to cancel packaging
+     */
+    public Packaging pack(List<PhotoStorageManager.PhotoInfo> photos, final File destination, final String name,
+                          long maxVolumeBytes, SparseArray<double[]> structureLocations, final Listener listener) {
+        final List<PhotoStorageManager.PhotoInfo> toPack = new ArrayList<>(photos);
+        final long volumeLimit = Math.min(maxVolumeBytes, StoredZipWriter.MAX_BYTES);
+        final SparseArray<double[]> locations = structureLocations != null ? structureLocations.clone() : null;
+        final Packaging packaging = new Packaging();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Result result = new Job(toPack, destination, name, volumeLimit, locations, packaging,
+                        listener).run();
+                Log.i(TAG, "Package " + name + ": " + result);
+                if (listener != null) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onFinished(result);
+                        }
+                    });
+                }
+            }
+        });
+        return packaging;
+    }
+
+    /**
+     * Stop accepting packages; the one running finishes unless cancelled
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * State of one package while it is built on the packaging thread
+     */
+    private class Job {
+        private final List<PhotoStorageManager.PhotoInfo> photos;
+        private final File destination;
+        private final String name;
+        private final long volumeLimit;
+        private final SparseArray<double[]> structureLocations;
+        private final Packaging packaging;
+        private final Listener listener;
+        private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        private final float[] latLong = new float[2];
+
+        private final List<File> volumes = new ArrayList<>();
+        private StoredZipWriter volume;
+        private File volumePartial;
+        private File volumeManifest;
+        private Writer volumeManifestWriter;
+        private long volumeManifestBytes;
+        private Writer manifestWriter;
+
+        Job(List<PhotoStorageManager.PhotoInfo> photos, File destination, String name, long volumeLimit,
+            SparseArray<double[]> structureLocations, Packaging packaging, Listener listener) {
+            this.photos = photos;
+            this.destination = destination;
+            this.name = name;
+            this.volumeLimit = volumeLimit;
+            this.structureLocations = structureLocations;
+            this.packaging = packaging;
+            this.listener = listener;
+            timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        Result run() {
+            long start = SystemClock.elapsedRealtime();
+            long totalBytes = 0;
+            for (PhotoStorageManager.PhotoInfo photo : photos) {
+                totalBytes += photo.getFile().length();
+            }
+
+            File manifest = new File(destination, name + "_manifest.csv");
+            int packed = 0;
+            int failed = 0;
+            long packedBytes = 0;
+            long doneBytes = 0;
+            long lastProgress = 0;
+            String error = null;
+            try {
+                if (!destination.isDirectory() && !destination.mkdirs()) {
+                    throw new IOException("Cannot create " + destination);
+                }
+                manifestWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifest), UTF8));
+                manifestWriter.write(MANIFEST_HEADER);
+
+                for (int i = 0; i < photos.size() && !packaging.isCancelled(); i++) {
+                    PhotoStorageManager.PhotoInfo photo = photos.get(i);
+                    long length = photo.getFile().length();
+                    if (pack(photo)) {
+                        packed++;
+                        packedBytes += length;
+                    } else {
+                        failed++;
+                    }
+                    doneBytes += length;
+
+                    long now = SystemClock.elapsedRealtime();
+                    if (listener != null && (now - lastProgress >= PROGRESS_INTERVAL_MILLIS || i == photos.size() - 1)) {
+                        lastProgress = now;
+                        postProgress(i + 1, photos.size(), doneBytes, totalBytes);
+                    }
+                }
+
+                if (!packaging.isCancelled()) {
+                    finishVolume();
+                    manifestWriter.close();
+                    manifestWriter = null;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Packaging failed: " + e.getMessage(), e);
+                error = e.getMessage();
+            }
+
+            boolean complete = error == null && !packaging.isCancelled();
+            if (!complete) {
+                // Finished volumes stay usable; the manifest and the volume in progress do not
+                abortVolume();
+                closeQuietly(manifestWriter);
+                manifest.delete();
+            }
+            return new Result(volumes, complete ? manifest : null, packed, failed, packedBytes,
+                    SystemClock.elapsedRealtime() - start, packaging.isCancelled(), error);
+        }
+
+        /**
+         * @return False if the photo could not be read; other failures end packaging
+         */
+        private boolean pack(PhotoStorageManager.PhotoInfo photo) throws IOException {
+            File file = photo.getFile();
+            if (!file.isFile()) {
+                Log.e(TAG, "Skipping missing photo " + file.getName());
+                return false;
+            }
+            String entryName = relativePath(file);
+            String details = manifestDetails(photo, entryName);
+            String row = volumeName(volumes.size() + 1) + "," + details;
+
+            // Room for the photo, its central directory record and manifest row, and the
+            // manifest entry that closes the volume
+            long needed = StoredZipWriter.entryBytes(entryName, file.length()) + row.getBytes(UTF8).length;
+            if (volume != null && (projectedBytes() + needed > volumeLimit ||
+                    volume.getEntryCount() + 2 > StoredZipWriter.MAX_ENTRIES)) {
+                finishVolume();
+                row = volumeName(volumes.size() + 1) + "," + details;
+            }
+            if (volume == null) {
+                startVolume();
+            }
+
+            long crc;
+            InputStream in;
+            try {
+                in = new FileInputStream(file);
+            } catch (IOException e) {
+                Log.e(TAG, "Skipping unreadable photo " + file.getName() + ": " + e.getMessage());
+                return false;
+            }
+            try {
+                crc = volume.add(entryName, file.lastModified(), in);
+            } finally {
+                in.close();
+            }
+
+            row = row.replace(BLANK_CRC, String.format(Locale.US, "%08x", crc));
+            volumeManifestWriter.write(row);
+            volumeManifestBytes += row.getBytes(UTF8).length;
+            manifestWriter.write(row);
+            return true;
+        }
+
+        private long projectedBytes() {
+            return volume.getFinishedBytes() +
+                    StoredZipWriter.entryBytes(MANIFEST_ENTRY, MANIFEST_HEADER.length() + volumeManifestBytes);
+        }
+
+        private void startVolume() throws IOException {
+            String volumeName = volumeName(volumes.size() + 1);
+            volumePartial = new File(destination, PARTIAL_PREFIX + volumeName);
+            volume = new StoredZipWriter(volumePartial);
+            volumeManifest = new File(destination, PARTIAL_PREFIX + volumeName + ".csv");
+            volumeManifestWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(volumeManifest), UTF8));
+            volumeManifestWriter.write(MANIFEST_HEADER);
+            volumeManifestBytes = 0;
+        }
+
+        private void finishVolume() throws IOException {
+            if (volume == null) {
+                return;
+            }
+            volumeManifestWriter.close();
+            volumeManifestWriter = null;
+            InputStream in = new FileInputStream(volumeManifest);
+            try {
+                volume.add(MANIFEST_ENTRY, System.currentTimeMillis(), in);
+            } finally {
+                in.close();
+            }
+            volume.close();
+            volumeManifest.delete();
+
+            File target = new File(destination, volumeName(volumes.size() + 1));
+            if (!volumePartial.renameTo(target)) {
+                throw new IOException("Cannot create " + target.getName());
+            }
+            volumes.add(target);
+            volume = null;
+        }
+
+        private void abortVolume() {
+            if (volume != null) {
+                volume.abort();
+                volume = null;
+                closeQuietly(volumeManifestWriter);
+                volumePartial.delete();
+                volumeManifest.delete();
+            }
+        }
+
+        private String volumeName(int number) {
+            return String.format(Locale.US, "%s_%03d%s", name, number, VOLUME_EXTENSION);
+        }
+
+        /**
+         * Manifest row after the volume column, with a blank checksum
+         */
+        private String manifestDetails(PhotoStorageManager.PhotoInfo photo, String entryName) {
+            File file = photo.getFile();
+            String latitude = "";
+            String longitude = "";
+            String gpsSource = "";
+            if (readExifLocation(file)) {
+                latitude = String.valueOf(latLong[0]);
+                longitude = String.valueOf(latLong[1]);
+                gpsSource = "exif";
+            } else if (structureLocations != null && structureLocations.get(photo.getStructureIdAsInt()) != null) {
+                double[] location = structureLocations.get(photo.getStructureIdAsInt());
+                latitude = String.valueOf(location[0]);
+                longitude = String.valueOf(location[1]);
+                gpsSource = "structure";
+            }
+            return photo.getStructureId() + "," + photo.getPhotoId() + "," +
+                    entryName + "," + file.length() + "," + BLANK_CRC + "," +
+                    timestampFormat.format(new Date(photo.getModifiedMillis())) + "," + latitude + "," + longitude +
+                    "," + gpsSource + "\n";
+        }
+
+        private boolean readExifLocation(File file) {
+            try {
+                return new ExifInterface(file.getAbsolutePath()).getLatLong(latLong);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private void postProgress(final int doneFiles, final int totalFiles, final long doneBytes,
+                                  final long totalBytes) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onProgress(doneFiles, totalFiles, doneBytes, totalBytes);
+                }
+            });
+        }
+    }
+
+    private String relativePath(File file) {
+        String base = sourceRoot.getPath() + File.separator;
+        String path = file.getPath();
+        return (path.startsWith(base) ? path.substring(base.length()) : file.getName()).replace(File.separatorChar, '/');
+    }
+
+    private static void closeQuietly(Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent list of saved photos, so the photo library can be loaded without listing and
+ * parsing every file on storage.
+ *
+ * The catalog is an append-only text log with one record per line: {@code A} records add or
+ * update a photo, {@code D} records remove one. Loading replays the log in a single sequential
+ * read; a damaged trailing line from an interrupted write is skipped. Once superseded records
+ * make up most of the log, it is rewritten with only the live entries.
+ */
+public class PhotoCatalog {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final char ADD = 'A';
+    private static final char DELETE = 'D';
+    private static final char SEPARATOR = '\t';
+    private static final int MIN_RECORDS_TO_COMPACT = 1000;
+
+    /**
+     * A saved photo; the path is relative to the catalog's folder
+     */
+    public static class Entry {
+        public final String path;
+        public final String structureId;
+        public final String photoId;
+        public final long modifiedMillis;
+
+        public Entry(String path, String structureId, String photoId, long modifiedMillis) {
+            this.path = path;
+            this.structureId = structureId;
+            this.photoId = photoId;
+            this.modifiedMillis = modifiedMillis;
+        }
+    }
+
+    private final File logFile;
+    private Writer writer;
+    private int recordCount;
+
+    public PhotoCatalog(File logFile) {
+        this.logFile = logFile;
+    }
+
+    public boolean exists() {
+        return logFile.isFile();
+    }
+
+    /**
+     * Replay the log
+     * @return Live entries in the order they were first added
+     */
+    public synchronized List<Entry> load() throws IOException {
+        LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+        recordCount = 0;
+        if (logFile.isFile()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), UTF8), 64 * 1024);
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (apply(line, entries)) {
+                        recordCount++;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Record a new photo, or new details of an existing one
+     */
+    public synchronized void put(Entry entry) throws IOException {
+        append(ADD + "" + SEPARATOR + entry.modifiedMillis + SEPARATOR + entry.structureId + SEPARATOR +
+                entry.photoId + SEPARATOR + entry.path);
+    }
+
+    /**
+     * Record that a photo is gone
+     */
+    public synchronized void remove(String path) throws IOException {
+        append(DELETE + "" + SEPARATOR + path);
+    }
+
+    /**
+     * Replace the log with exactly these entries
+     */
+    public synchronized void rewrite(Collection<Entry> entries) throws IOException {
+        closeWriter();
+        File temp = new File(logFile.getParentFile(), logFile.getName() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temp);
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(stream, UTF8), 64 * 1024);
+            for (Entry entry : entries) {
+                out.write(ADD + "" + SEPARATOR + entry.modifiedMillis + SEPARATOR + entry.structureId + SEPARATOR +
+                        entry.photoId + SEPARATOR + entry.path + "\n");
+            }
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+        if (!temp.renameTo(logFile)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + logFile.getName());
+        }
+        recordCount = entries.size();
+    }
+
+    /**
+     * @param liveEntries Entries currently in the catalog
+     * @return True once superseded records outweigh the live entries
+     */
+    public synchronized boolean needsCompaction(int liveEntries) {
+        return recordCount >= MIN_RECORDS_TO_COMPACT && recordCount > 2 * liveEntries;
+    }
+
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private void append(String record) throws IOException {
+        if (writer == null) {
+            boolean damagedTail = endsMidRecord();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), UTF8));
+            if (damagedTail) {
+                // Keep the interrupted record from swallowing the next one
+                writer.write('\n');
+            }
+        }
+        writer.write(record);
+        writer.write('\n');
+        // Flushed per record so a crash loses at most the record being written
+        writer.flush();
+        recordCount++;
+    }
+
+    private boolean endsMidRecord() throws IOException {
+        if (!logFile.isFile() || logFile.length() == 0) {
+            return false;
+        }
+        RandomAccessFile file = new RandomAccessFile(logFile, "r");
+        try {
+            file.seek(file.length() - 1);
+            return file.read() != '\n';
+        } finally {
+            file.close();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+            writer = null;
+        }
+    }
+
+    private static boolean apply(String line, Map<String, Entry> entries) {
+        if (line.length() < 3 || line.charAt(1) != SEPARATOR) {
+            return false;
+        }
+        if (line.charAt(0) == DELETE) {
+            entries.remove(line.substring(2));
+            return true;
+        }
+        if (line.charAt(0) != ADD) {
+            return false;
+        }
+
+        String[] fields = line.substring(2).split(String.valueOf(SEPARATOR), 4);
+        if (fields.length < 4) {
+            return false;
+        }
+        try {
+            Entry entry = new Entry(fields[3], fields[1], fields[2], Long.parseLong(fields[0]));
+            // Updates keep the photo's original position
+            entries.put(entry.path, entry);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
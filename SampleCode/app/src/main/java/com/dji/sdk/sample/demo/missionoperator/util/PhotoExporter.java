@@ -0,0 +1,327 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Copies saved photos out of the photo library, e.g. a structure folder or a whole mission
+ * for hand-over, on a background thread.
+ *
+ * Files are hard-linked when the destination is on the same file system and linking is
+ * allowed; otherwise they are copied with {@link FileChannel#transferTo}, which lets the
+ * kernel move the data without passing it through a Java buffer. Each copy goes to a hidden
+ * file that is renamed once complete, and photos already exported with the same size and
+ * modification time are skipped, so an interrupted export can simply be run again.
+ *
+ * Exports run one at a time in the order they were started. Listener callbacks arrive on
+ * the main thread.
+ */
+public class PhotoExporter {
+    private static final String TAG = "PhotoExporter";
+
+    /** Prefix of partial copies; renamed away once complete */
+    private static final String PARTIAL_PREFIX = ".exporting_";
+    /** Bytes per transfer call, so cancellation and progress do not wait for a whole file */
+    private static final long TRANSFER_CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_MILLIS = 200;
+
+    public interface Listener {
+        void onProgress(int doneFiles, int totalFiles, long doneBytes, long totalBytes);
+
+        void onFinished(Result result);
+    }
+
+    /**
+     * Receives the outcome of {@link #copyFile(File, File, CopyListener)} on the main thread
+     */
+    public interface CopyListener {
+        /**
+         * @param error Why the copy failed, or null if it succeeded
+         */
+        void onCopied(File target, IOException error);
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static class Result {
+        public final int exportedFiles;
+        public final int linkedFiles;
+        public final int skippedFiles;
+        public final int failedFiles;
+        public final long copiedBytes;
+        public final long millis;
+        public final boolean cancelled;
+
+        Result(int exportedFiles, int linkedFiles, int skippedFiles, int failedFiles, long copiedBytes, long millis,
+               boolean cancelled) {
+            this.exportedFiles = exportedFiles;
+            this.linkedFiles = linkedFiles;
+            this.skippedFiles = skippedFiles;
+            this.failedFiles = failedFiles;
+            this.copiedBytes = copiedBytes;
+            this.millis = millis;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * @return Copy throughput in MB/s; linked and skipped files move no data
+         */
+        public double getMegabytesPerSecond() {
+            return millis > 0 ? copiedBytes / 1048576.0 / (millis / 1000.0) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d exported (%d linked), %d unchanged, %d failed%s, " +
+                            "%.1f MB in %d ms (%.1f MB/s)", exportedFiles, linkedFiles, skippedFiles, failedFiles,
+                    cancelled ? ", cancelled" : "", copiedBytes / 1048576.0, millis, getMegabytesPerSecond());
+        }
+    }
+
+    /**
+     * A started export
+     */
+    public static class Export {
+        private volatile boolean cancelled;
+
+        /**
+         * Stop after the current chunk; the partial copy is removed and finished files are kept
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final File sourceRoot;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * @param sourceRoot Folder of the photo library; photo paths below it are kept in the export
+     */
+    public PhotoExporter(File sourceRoot) {
+        this.sourceRoot = sourceRoot;
+    }
+
+    /**
+     * Export photos into a folder, keeping their structure folders
+     * @param photos Photos to export
+     * @param destination Folder to export into; created if needed
+     * @param linkWhenPossible Hard-link instead of copying where the file system allows it
+     * @param listener Receives progress and the result; may be null
+     * @return Handle to cancel the export
+     */
+    public Export export(List<PhotoStorageManager.PhotoInfo> photos, final File destination,
+                         final boolean linkWhenPossible, final Listener listener) {
+        final List<PhotoStorageManager.PhotoInfo> toExport = new ArrayList<>(photos);
+        final Export export = new Export();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Result result = runExport(toExport, destination, linkWhenPossible, export, listener);
+                Log.i(TAG, "Export to " + destination + ": " + result);
+                if (listener != null) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onFinished(result);
+                        }
+                    });
+                }
+            }
+        });
+        return export;
+    }
+
+    /**
+     * Copy one file on the export thread, after any export already started
+     * @param listener Receives the outcome on the main thread
+     */
+    public void copyFile(final File source, final File target, final CopyListener listener) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                IOException error = null;
+                try {
+                    copy(source, target, null);
+                } catch (IOException e) {
+                    error = e;
+                }
+                final IOException result = error;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onCopied(target, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stop accepting exports; the one running finishes unless cancelled
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private Result runExport(List<PhotoStorageManager.PhotoInfo> photos, File destination, boolean linkWhenPossible,
+                             Export export, Listener listener) {
+        long start = SystemClock.elapsedRealtime();
+        long totalBytes = 0;
+        for (PhotoStorageManager.PhotoInfo photo : photos) {
+            totalBytes += photo.getFile().length();
+        }
+
+        int exported = 0;
+        int linked = 0;
+        int skipped = 0;
+        int failed = 0;
+        long copiedBytes = 0;
+        long doneBytes = 0;
+        long lastProgress = 0;
+        boolean tryLink = linkWhenPossible;
+
+        for (int i = 0; i < photos.size() && !export.isCancelled(); i++) {
+            File source = photos.get(i).getFile();
+            File target = new File(destination, relativePath(source));
+            long length = source.length();
+            try {
+                if (!source.isFile()) {
+                    throw new IOException("Photo no longer exists");
+                }
+                if (target.length() == length && target.lastModified() == source.lastModified()) {
+                    skipped++;
+                } else {
+                    File folder = target.getParentFile();
+                    if (!folder.isDirectory() && !folder.mkdirs()) {
+                        throw new IOException("Cannot create " + folder);
+                    }
+                    if (tryLink && link(source, target)) {
+                        linked++;
+                    } else {
+                        // One refusal means the destination does not support links, e.g. another volume
+                        tryLink = false;
+                        copiedBytes += copy(source, target, export);
+                    }
+                    exported++;
+                }
+            } catch (IOException e) {
+                if (export.isCancelled()) {
+                    break;
+                }
+                Log.e(TAG, "Cannot export " + source.getName() + ": " + e.getMessage());
+                failed++;
+            }
+            doneBytes += length;
+
+            long now = SystemClock.elapsedRealtime();
+            if (listener != null && (now - lastProgress >= PROGRESS_INTERVAL_MILLIS || i == photos.size() - 1)) {
+                lastProgress = now;
+                postProgress(listener, i + 1, photos.size(), doneBytes, totalBytes);
+            }
+        }
+
+        return new Result(exported, linked, skipped, failed, copiedBytes, SystemClock.elapsedRealtime() - start,
+                export.isCancelled());
+    }
+
+    private void postProgress(final Listener listener, final int doneFiles, final int totalFiles, final long doneBytes,
+                              final long totalBytes) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onProgress(doneFiles, totalFiles, doneBytes, totalBytes);
+            }
+        });
+    }
+
+    private String relativePath(File file) {
+        String base = sourceRoot.getPath() + File.separator;
+        String path = file.getPath();
+        return path.startsWith(base) ? path.substring(base.length()) : file.getName();
+    }
+
+    /**
+     * @return False if the file system refused the link
+     */
+    private static boolean link(File source, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot replace " + target.getName());
+        }
+        try {
+            Os.link(source.getAbsolutePath(), target.getAbsolutePath());
+            return true;
+        } catch (ErrnoException e) {
+            Log.d(TAG, "Hard link refused, copying instead: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Copy a file through a hidden partial file that replaces the target once complete
+     * @return Bytes copied
+     */
+    private static long copy(File source, File target, Export export) throws IOException {
+        File partial = new File(target.getParentFile(), PARTIAL_PREFIX + target.getName());
+        boolean complete = false;
+        long position = 0;
+        FileInputStream in = new FileInputStream(source);
+        try {
+            FileOutputStream out = new FileOutputStream(partial);
+            try {
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+                long size = inChannel.size();
+                while (position < size) {
+                    if (export != null && export.isCancelled()) {
+                        throw new IOException("Export cancelled");
+                    }
+                    long moved = inChannel.transferTo(position, Math.min(TRANSFER_CHUNK_BYTES, size - position),
+                            outChannel);
+                    if (moved <= 0) {
+                        throw new IOException("Copy of " + source.getName() + " stalled at " + position + " bytes");
+                    }
+                    position += moved;
+                }
+                out.getFD().sync();
+                complete = true;
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+            if (!complete) {
+                partial.delete();
+            }
+        }
+
+        if (!partial.renameTo(target)) {
+            partial.delete();
+            throw new IOException("Cannot replace " + target.getName());
+        }
+        // Lets a later export recognise the file as unchanged
+        target.setLastModified(source.lastModified());
+        return position;
+    }
+}
@@ -0,0 +1,224 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Orders the photo positions flown around each structure.
+ *
+ * Photo positions are shared by every structure, so the order is computed once per plan.
+ * The cost of moving between two positions is the estimated time to fly between them plus
+ * the time to turn the aircraft and to move the gimbal to the next pitch. The orbit starts at
+ * the approach point above the structure and may end at any position. A nearest-neighbour
+ * orbit is improved with 2-opt and single-position moves; photo sets are small, so the full
+ * cost matrix is used.
+ */
+public class PhotoOrbitOrderer {
+
+    /** Typical aircraft yaw rate while flying a waypoint mission, in degrees per second */
+    public static final float DEFAULT_YAW_RATE = 60f;
+    /** Typical gimbal pitch rate, in degrees per second */
+    public static final float DEFAULT_GIMBAL_PITCH_RATE = 90f;
+
+    private static final double EPSILON = 1e-9;
+
+    private final float speed;
+    private final float yawRate;
+    private final float gimbalPitchRate;
+
+    /**
+     * @param speed Flight speed in m/s
+     * @param yawRate Aircraft yaw rate in degrees per second
+     * @param gimbalPitchRate Gimbal pitch rate in degrees per second
+     */
+    public PhotoOrbitOrderer(float speed, float yawRate, float gimbalPitchRate) {
+        if (speed <= 0 || yawRate <= 0 || gimbalPitchRate <= 0) {
+            throw new IllegalArgumentException("speed and rates must be positive");
+        }
+        this.speed = speed;
+        this.yawRate = yawRate;
+        this.gimbalPitchRate = gimbalPitchRate;
+    }
+
+    public PhotoOrbitOrderer(float speed) {
+        this(speed, DEFAULT_YAW_RATE, DEFAULT_GIMBAL_PITCH_RATE);
+    }
+
+    /**
+     * Order the photo positions of a plan
+     * @param plan Plan holding the photo positions
+     * @param approachHeight Height of the approach point above the structure top, in meters
+     * @return Photo position indices in visiting order
+     */
+    public int[] order(InspectionPlan plan, float approachHeight) {
+        final int count = plan.getPhotoCount();
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        if (count < 3) {
+            return order;
+        }
+
+        // Node 0 is the approach point, node k + 1 is photo position k
+        final int nodes = count + 1;
+        float[] x = new float[nodes];
+        float[] y = new float[nodes];
+        float[] z = new float[nodes];
+        float[] heading = new float[nodes];
+        float[] pitch = new float[nodes];
+        z[0] = approachHeight;
+        heading[0] = Float.NaN;
+        pitch[0] = Float.NaN;
+        for (int k = 0; k < count; k++) {
+            x[k + 1] = plan.getOffsetX(k);
+            y[k + 1] = plan.getOffsetY(k);
+            z[k + 1] = plan.getOffsetZ(k);
+            heading[k + 1] = InspectionMissionPlanner.headingToStructure(x[k + 1], y[k + 1]);
+            pitch[k + 1] = plan.getGimbalPitch(k);
+        }
+
+        double[][] cost = new double[nodes][nodes];
+        for (int a = 0; a < nodes; a++) {
+            for (int b = a + 1; b < nodes; b++) {
+                double dx = x[a] - x[b];
+                double dy = y[a] - y[b];
+                double dz = z[a] - z[b];
+                double seconds = Math.sqrt(dx * dx + dy * dy + dz * dz) / speed;
+                if (a > 0) {
+                    // The approach point has no heading or gimbal action
+                    seconds += headingChange(heading[a], heading[b]) / yawRate;
+                    seconds += Math.abs(pitch[a] - pitch[b]) / gimbalPitchRate;
+                }
+                cost[a][b] = seconds;
+                cost[b][a] = seconds;
+            }
+        }
+
+        int[] path = nearestNeighbourPath(cost, nodes);
+        boolean improved = true;
+        while (improved) {
+            improved = twoOpt(path, cost);
+            improved |= relocate(path, cost);
+        }
+
+        for (int i = 0; i < count; i++) {
+            order[i] = path[i + 1] - 1;
+        }
+        return order;
+    }
+
+    /**
+     * @return Estimated seconds to fly the orbit from the approach point in the given order
+     */
+    public double orbitCost(InspectionPlan plan, float approachHeight, int[] order) {
+        double seconds = 0;
+        float px = 0, py = 0, pz = approachHeight, pHeading = Float.NaN, pPitch = Float.NaN;
+        for (int k : order) {
+            float x = plan.getOffsetX(k);
+            float y = plan.getOffsetY(k);
+            float z = plan.getOffsetZ(k);
+            float heading = InspectionMissionPlanner.headingToStructure(x, y);
+            float pitch = plan.getGimbalPitch(k);
+            double dx = x - px, dy = y - py, dz = z - pz;
+            seconds += Math.sqrt(dx * dx + dy * dy + dz * dz) / speed;
+            if (!Float.isNaN(pHeading)) {
+                seconds += headingChange(pHeading, heading) / yawRate;
+                seconds += Math.abs(pPitch - pitch) / gimbalPitchRate;
+            }
+            px = x;
+            py = y;
+            pz = z;
+            pHeading = heading;
+            pPitch = pitch;
+        }
+        return seconds;
+    }
+
+    /**
+     * @return Smallest rotation between two headings, in degrees [0, 180]
+     */
+    static float headingChange(float from, float to) {
+        float delta = Math.abs(from - to) % 360;
+        return delta > 180 ? 360 - delta : delta;
+    }
+
+    private static int[] nearestNeighbourPath(double[][] cost, int nodes) {
+        int[] path = new int[nodes];
+        boolean[] used = new boolean[nodes];
+        used[0] = true;
+        for (int p = 1; p < nodes; p++) {
+            int previous = path[p - 1];
+            int best = -1;
+            for (int candidate = 1; candidate < nodes; candidate++) {
+                if (!used[candidate] && (best < 0 || cost[previous][candidate] < cost[previous][best])) {
+                    best = candidate;
+                }
+            }
+            used[best] = true;
+            path[p] = best;
+        }
+        return path;
+    }
+
+    // Edge cost after position p of the open path; the end of the orbit costs nothing
+    private static double after(int[] path, double[][] cost, int p) {
+        return p + 1 < path.length ? cost[path[p]][path[p + 1]] : 0;
+    }
+
+    private static boolean twoOpt(int[] path, double[][] cost) {
+        boolean improved = false;
+        final int n = path.length;
+        for (int i = 0; i < n - 2; i++) {
+            for (int j = i + 2; j < n; j++) {
+                double removed = cost[path[i]][path[i + 1]] + after(path, cost, j);
+                double added = cost[path[i]][path[j]] + (j + 1 < n ? cost[path[i + 1]][path[j + 1]] : 0);
+                if (added < removed - EPSILON) {
+                    for (int a = i + 1, b = j; a < b; a++, b--) {
+                        int tmp = path[a];
+                        path[a] = path[b];
+                        path[b] = tmp;
+                    }
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private static boolean relocate(int[] path, double[][] cost) {
+        boolean improved = false;
+        final int n = path.length;
+        for (int s = 1; s < n; s++) {
+            final int node = path[s];
+            double gain = cost[path[s - 1]][node] + after(path, cost, s)
+                    - (s + 1 < n ? cost[path[s - 1]][path[s + 1]] : 0);
+
+            int bestTarget = -1;
+            double bestGain = EPSILON;
+            for (int k = 0; k < n; k++) {
+                if (k == s || k == s - 1) {
+                    continue;
+                }
+                // Insert the node between path[k] and path[k + 1]
+                double insertCost = cost[path[k]][node];
+                if (k + 1 < n) {
+                    insertCost += cost[node][path[k + 1]] - cost[path[k]][path[k + 1]];
+                }
+                if (gain - insertCost > bestGain) {
+                    bestGain = gain - insertCost;
+                    bestTarget = k;
+                }
+            }
+
+            if (bestTarget >= 0) {
+                if (bestTarget > s) {
+                    System.arraycopy(path, s + 1, path, s, bestTarget - s);
+                    path[bestTarget] = node;
+                } else {
+                    System.arraycopy(path, bestTarget + 1, path, bestTarget + 2, s - bestTarget - 1);
+                    path[bestTarget + 1] = node;
+                }
+                improved = true;
+            }
+        }
+        return improved;
+    }
+}
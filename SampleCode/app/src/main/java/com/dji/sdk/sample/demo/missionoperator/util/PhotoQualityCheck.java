@@ -0,0 +1,109 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Automatic acceptance checks for inspection photos: sharpness and exposure.
+ *
+ * Works on ARGB pixels of a downscaled preview. Sharpness is the variance of the Laplacian of
+ * the luminance, which drops sharply for motion blur and missed focus. Exposure is judged from
+ * the mean luminance and the fraction of clipped (near black or near white) pixels.
+ */
+public class PhotoQualityCheck {
+
+    private static final int CLIP_LOW = 5;
+    private static final int CLIP_HIGH = 250;
+
+    /**
+     * Outcome of a check
+     */
+    public static class Result {
+        public final boolean passed;
+        /** Variance of the Laplacian of the luminance */
+        public final float sharpness;
+        /** Mean luminance, 0 to 255 */
+        public final float meanLuminance;
+        /** Fraction of near black or near white pixels */
+        public final float clippedFraction;
+        /** Reason for a failure, null when passed */
+        public final String reason;
+
+        Result(boolean passed, float sharpness, float meanLuminance, float clippedFraction, String reason) {
+            this.passed = passed;
+            this.sharpness = sharpness;
+            this.meanLuminance = meanLuminance;
+            this.clippedFraction = clippedFraction;
+            this.reason = reason;
+        }
+    }
+
+    private final float minSharpness;
+    private final float minLuminance;
+    private final float maxLuminance;
+    private final float maxClippedFraction;
+
+    /**
+     * @param minSharpness Minimum Laplacian variance
+     * @param minLuminance Minimum mean luminance, 0 to 255
+     * @param maxLuminance Maximum mean luminance, 0 to 255
+     * @param maxClippedFraction Maximum fraction of clipped pixels
+     */
+    public PhotoQualityCheck(float minSharpness, float minLuminance, float maxLuminance, float maxClippedFraction) {
+        this.minSharpness = minSharpness;
+        this.minLuminance = minLuminance;
+        this.maxLuminance = maxLuminance;
+        this.maxClippedFraction = maxClippedFraction;
+    }
+
+    /**
+     * @param argb Pixels in {@code Bitmap.getPixels} layout, row by row
+     * @param width Image width
+     * @param height Image height
+     */
+    public Result check(int[] argb, int width, int height) {
+        if (width < 3 || height < 3) {
+            return new Result(false, 0f, 0f, 0f, "Imagem muito pequena");
+        }
+
+        int[] luma = new int[width * height];
+        long lumaSum = 0;
+        int clipped = 0;
+        for (int i = 0; i < luma.length; i++) {
+            int pixel = argb[i];
+            // Integer BT.601 luma
+            int y = (77 * ((pixel >> 16) & 0xFF) + 150 * ((pixel >> 8) & 0xFF) + 29 * (pixel & 0xFF)) >> 8;
+            luma[i] = y;
+            lumaSum += y;
+            if (y <= CLIP_LOW || y >= CLIP_HIGH) {
+                clipped++;
+            }
+        }
+
+        double sum = 0;
+        double sumSquares = 0;
+        for (int row = 1; row < height - 1; row++) {
+            int offset = row * width;
+            for (int column = 1; column < width - 1; column++) {
+                int i = offset + column;
+                int laplacian = luma[i - 1] + luma[i + 1] + luma[i - width] + luma[i + width] - 4 * luma[i];
+                sum += laplacian;
+                sumSquares += (double) laplacian * laplacian;
+            }
+        }
+        int samples = (width - 2) * (height - 2);
+        double mean = sum / samples;
+        float sharpness = (float) (sumSquares / samples - mean * mean);
+        float meanLuminance = (float) lumaSum / luma.length;
+        float clippedFraction = (float) clipped / luma.length;
+
+        String reason = null;
+        if (sharpness < minSharpness) {
+            reason = String.format("Foto desfocada (nitidez %.0f < %.0f)", sharpness, minSharpness);
+        } else if (meanLuminance < minLuminance) {
+            reason = String.format("Foto escura (brilho %.0f)", meanLuminance);
+        } else if (meanLuminance > maxLuminance) {
+            reason = String.format("Foto superexposta (brilho %.0f)", meanLuminance);
+        } else if (clippedFraction > maxClippedFraction) {
+            reason = String.format("Muitos pixels saturados (%.0f%%)", clippedFraction * 100);
+        }
+        return new Result(reason == null, sharpness, meanLuminance, clippedFraction, reason);
+    }
+}
@@ -0,0 +1,326 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reviews inspection photos in the background while the mission keeps flying.
+ *
+ * Each photo waypoint is submitted as a {@link Shot}. Shots are fetched from the aircraft one
+ * at a time through a {@link PhotoSource}, retried by a {@link MediaFetchScheduler}, and scored by a
+ * {@link PhotoQualityCheck} on a worker thread. Photos that pass are handed to the listener as
+ * accepted; photos that fail the checks or cannot be fetched are queued for the operator and
+ * presented one at a time, so the caller only needs to stop the aircraft for those.
+ *
+ * All methods must be called on the main thread, and listener callbacks arrive there.
+ */
+public class PhotoReviewPipeline {
+    private static final String TAG = "PhotoReviewPipeline";
+
+    /** Longest side of the downscaled copy the checks run on */
+    private static final int SCORING_SIZE = 320;
+
+    /**
+     * A photo taken at a photo waypoint. The position is recorded when the shot is taken, so
+     * it still names the right photo if the plan changes before the review ends.
+     */
+    public static class Shot {
+        /** ID of the structure in the source CSV */
+        public final int structureId;
+        /** 1-based photo position number, as in the photo file names */
+        public final int photoNumber;
+        public final int waypointIndex;
+        public final long takenAtMillis;
+        private int attempts;
+        private long fetchLatencyMillis;
+        private Object media;
+
+        public Shot(int structureId, int photoNumber, int waypointIndex, long takenAtMillis) {
+            this.structureId = structureId;
+            this.photoNumber = photoNumber;
+            this.waypointIndex = waypointIndex;
+            this.takenAtMillis = takenAtMillis;
+        }
+
+        /**
+         * @return Fetch attempts used for this shot
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return Time from the shot to its photo being fetched, or 0 if not fetched
+         */
+        public long getFetchLatencyMillis() {
+            return fetchLatencyMillis;
+        }
+
+        /**
+         * @return Media file the photo source fetched this shot from, or null
+         */
+        public Object getMedia() {
+            return media;
+        }
+
+        /**
+         * Remember where the photo came from, e.g. to download its original later
+         */
+        public void setMedia(Object media) {
+            this.media = media;
+        }
+    }
+
+    /**
+     * Fetches the photo of a shot from the aircraft
+     */
+    public interface PhotoSource {
+        /**
+         * Make one attempt at fetching the photo of a shot
+         * @param token Cancelled when the attempt is abandoned; release anything claimed for it
+         * @param callback Outcome of the attempt; may be called from any thread
+         */
+        void fetch(Shot shot, MediaFetchScheduler.CancellationToken token,
+                   MediaFetchScheduler.AttemptCallback<Bitmap> callback);
+    }
+
+    public interface Listener {
+        /**
+         * The photo passed the automatic checks
+         */
+        void onAccepted(Shot shot, Bitmap photo, PhotoQualityCheck.Result result);
+
+        /**
+         * The operator must decide on this shot; call {@link #reviewCompleted()} when done
+         * @param photo The fetched photo, or null if it could not be fetched
+         * @param reason Why the shot was not accepted automatically
+         */
+        void onReviewRequired(Shot shot, Bitmap photo, String reason);
+    }
+
+    private static class Review {
+        final Shot shot;
+        final Bitmap photo;
+        final String reason;
+
+        Review(Shot shot, Bitmap photo, String reason) {
+            this.shot = shot;
+            this.photo = photo;
+            this.reason = reason;
+        }
+    }
+
+    private final PhotoSource source;
+    private final PhotoQualityCheck qualityCheck;
+    private final Listener listener;
+    private final MediaFetchScheduler fetchScheduler;
+    private final int maxQueuedShots;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService scoringExecutor = Executors.newSingleThreadExecutor();
+    private final ArrayDeque<Shot> fetchQueue = new ArrayDeque<>();
+    private final ArrayDeque<Review> reviewQueue = new ArrayDeque<>();
+    private Shot fetching;
+    private MediaFetchScheduler.CancellationToken fetchToken;
+    private int scoring;
+    private boolean reviewInProgress;
+    private int generation; // Incremented by reset() so late callbacks are ignored
+    private int acceptedCount;
+    private int flaggedCount;
+
+    /**
+     * @param source Fetches photos from the aircraft
+     * @param qualityCheck Automatic acceptance checks
+     * @param listener Receives accepted photos and review requests
+     * @param fetchScheduler Times fetch attempts and retries; a shot the scheduler gives up on
+     *                       goes to the operator
+     * @param maxQueuedShots Shots waiting for a fetch beyond which {@link #submit} refuses more
+     */
+    public PhotoReviewPipeline(PhotoSource source, PhotoQualityCheck qualityCheck, Listener listener,
+                               MediaFetchScheduler fetchScheduler, int maxQueuedShots) {
+        this.source = source;
+        this.qualityCheck = qualityCheck;
+        this.listener = listener;
+        this.fetchScheduler = fetchScheduler;
+        this.maxQueuedShots = maxQueuedShots;
+    }
+
+    /**
+     * Queue a shot for fetching and scoring
+     * @return False if the queue is full; the caller should review this shot the slow way
+     */
+    public boolean submit(Shot shot) {
+        if (fetchQueue.size() >= maxQueuedShots) {
+            return false;
+        }
+        fetchQueue.add(shot);
+        fetchNext();
+        return true;
+    }
+
+    /**
+     * Fetch a shot again, e.g. when the operator asks to retry after a failed fetch
+     */
+    public void retry(Shot shot) {
+        fetchQueue.addFirst(shot);
+        fetchNext();
+    }
+
+    /**
+     * The operator finished with the shot passed to {@link Listener#onReviewRequired}
+     */
+    public void reviewCompleted() {
+        reviewInProgress = false;
+        showNextReview();
+    }
+
+    /**
+     * Drop all queued shots and reviews, e.g. when a new mission starts
+     */
+    public void reset() {
+        generation++;
+        if (fetchToken != null) {
+            fetchToken.cancel();
+            fetchToken = null;
+        }
+        fetchQueue.clear();
+        reviewQueue.clear();
+        fetching = null;
+        scoring = 0;
+        reviewInProgress = false;
+        acceptedCount = 0;
+        flaggedCount = 0;
+    }
+
+    public void shutdown() {
+        reset();
+        scoringExecutor.shutdownNow();
+    }
+
+    /**
+     * @return Shots not yet accepted or handed to the operator
+     */
+    public int getPendingCount() {
+        return fetchQueue.size() + (fetching != null ? 1 : 0) + scoring;
+    }
+
+    public boolean hasPendingReview() {
+        return reviewInProgress || !reviewQueue.isEmpty();
+    }
+
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public int getFlaggedCount() {
+        return flaggedCount;
+    }
+
+    private void fetchNext() {
+        if (fetching != null || fetchQueue.isEmpty()) {
+            return;
+        }
+        final Shot shot = fetchQueue.poll();
+        fetching = shot;
+
+        // Shots are fetched in order, so each one claims the next photo the camera produced
+        fetchToken = fetchScheduler.schedule(shot.takenAtMillis, new MediaFetchScheduler.Attempt<Bitmap>() {
+            @Override
+            public void run(int attempt, MediaFetchScheduler.CancellationToken token,
+                            MediaFetchScheduler.AttemptCallback<Bitmap> callback) {
+                source.fetch(shot, token, callback);
+            }
+        }, new MediaFetchScheduler.Listener<Bitmap>() {
+            @Override
+            public void onSucceeded(Bitmap photo, int attempts) {
+                shot.attempts = attempts;
+                shot.fetchLatencyMillis = System.currentTimeMillis() - shot.takenAtMillis;
+                fetching = null;
+                fetchToken = null;
+                score(shot, photo);
+                fetchNext();
+            }
+
+            @Override
+            public void onGaveUp(String reason, int attempts) {
+                Log.w(TAG, "Gave up fetching waypoint " + shot.waypointIndex + " after " + attempts + " attempts: " + reason);
+                shot.attempts = attempts;
+                fetching = null;
+                fetchToken = null;
+                flag(shot, null, reason);
+                fetchNext();
+            }
+        });
+    }
+
+    private void score(final Shot shot, final Bitmap photo) {
+        if (photo == null) {
+            flag(shot, null, "Foto vazia");
+            return;
+        }
+
+        final int scoreGeneration = generation;
+        scoring++;
+        scoringExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PhotoQualityCheck.Result result = check(photo);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (scoreGeneration != generation) {
+                            return;
+                        }
+                        scoring--;
+                        if (result.passed) {
+                            acceptedCount++;
+                            listener.onAccepted(shot, photo, result);
+                        } else {
+                            flag(shot, photo, result.reason);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private PhotoQualityCheck.Result check(Bitmap photo) {
+        int width = photo.getWidth();
+        int height = photo.getHeight();
+        float scale = Math.min(1f, (float) SCORING_SIZE / Math.max(width, height));
+        Bitmap scaled = photo;
+        if (scale < 1f) {
+            width = Math.max(1, Math.round(width * scale));
+            height = Math.max(1, Math.round(height * scale));
+            scaled = Bitmap.createScaledBitmap(photo, width, height, true);
+        }
+
+        int[] pixels = new int[width * height];
+        scaled.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (scaled != photo) {
+            scaled.recycle();
+        }
+        return qualityCheck.check(pixels, width, height);
+    }
+
+    private void flag(Shot shot, Bitmap photo, String reason) {
+        flaggedCount++;
+        reviewQueue.add(new Review(shot, photo, reason));
+        showNextReview();
+    }
+
+    private void showNextReview() {
+        if (reviewInProgress || reviewQueue.isEmpty()) {
+            return;
+        }
+        Review review = reviewQueue.poll();
+        reviewInProgress = true;
+        listener.onReviewRequired(review.shot, review.photo, review.reason);
+    }
+}
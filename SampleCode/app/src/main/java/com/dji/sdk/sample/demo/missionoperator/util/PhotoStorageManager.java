@@ -2,19 +2,29 @@ package com.dji.sdk.sample.demo.missionoperator.util;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.SparseArray;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Utility class to manage storage of inspection photos organized by structure
@@ -25,29 +35,80 @@ public class PhotoStorageManager {
     private static final String STRUCTURE_FOLDER_PREFIX = "S";
     private static final String PHOTO_PREFIX = "inspection_";
     private static final String PHOTO_EXTENSION = ".jpg";
+    private static final int JPEG_QUALITY = 90;
+    private static final int WRITE_QUEUE_CAPACITY = 16;
+    private static final int WRITE_BATCH_SIZE = 8;
+    private static final String CATALOG_FILE = ".catalog";
+    private static final String THUMBNAIL_FOLDER = ".thumbs"; // Inside each structure folder
+    private static final int THUMBNAIL_SIZE = 512; // Longest side, enough for the gallery grid
+    private static final int THUMBNAIL_QUALITY = 80;
+    private static final long RECONCILE_MIN_INTERVAL_MILLIS = 30000;
+    // Partial files untouched for this long were left behind by an app that died mid-write
+    private static final long STALE_PARTIAL_FILE_MILLIS = 10 * 60 * 1000;
 
     private File baseDirectory;
-    private List<PhotoInfo> photoCache = new ArrayList<>();
+    // Path -> photo, oldest first so saving a photo appends to the end
+    private final LinkedHashMap<String, PhotoInfo> photoCache = new LinkedHashMap<>();
+    // Structure ID -> its photos sorted by photo ID; keys iterate in ascending order
+    private final SparseArray<List<PhotoInfo>> photosByStructure = new SparseArray<>();
     private Context context;
+    private final PhotoWriter photoWriter = new PhotoWriter(WRITE_QUEUE_CAPACITY, WRITE_BATCH_SIZE);
+    private PhotoCatalog catalog;
+    private boolean reconcileRunning;
+    private boolean reconcileRequested;
+    private long lastReconcileMillis;
+    private boolean loaded;
+
+    /**
+     * Notified on the main thread once the saved photos have been loaded
+     */
+    public interface LoadListener {
+        void onPhotosLoaded(int photoCount);
+    }
+
+    /**
+     * Outcome of a background save; called on the writer thread
+     */
+    public interface SaveCallback {
+        void onSaved(PhotoInfo photoInfo);
+
+        void onFailed(IOException error);
+    }
 
     public static class PhotoInfo {
         private File file;
-        private String timestamp;
+        private long modifiedMillis;
+        private String timestamp; // Formatted on first use
         private String structureId;
         private String photoId;
+        private final int structureIdAsInt;
+        private final int photoIdAsInt;
 
         public PhotoInfo(File file, String structureId, String photoId) {
+            this(file, structureId, photoId, file.lastModified());
+        }
+
+        public PhotoInfo(File file, String structureId, String photoId, long modifiedMillis) {
             this.file = file;
-            this.timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date(file.lastModified()));
+            this.modifiedMillis = modifiedMillis;
             this.structureId = structureId;
             this.photoId = photoId;
+            this.structureIdAsInt = parseId(structureId, "S");
+            this.photoIdAsInt = parseId(photoId, "P");
         }
 
         public File getFile() {
             return file;
         }
 
+        public long getModifiedMillis() {
+            return modifiedMillis;
+        }
+
         public String getTimestamp() {
+            if (timestamp == null) {
+                timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date(modifiedMillis));
+            }
             return timestamp;
         }
 
@@ -64,16 +125,16 @@ public class PhotoStorageManager {
         }
 
         public int getStructureIdAsInt() {
-            try {
-                return Integer.parseInt(structureId.replace("S", "").trim());
-            } catch (NumberFormatException e) {
-                return 0;
-            }
+            return structureIdAsInt;
         }
 
         public int getPhotoIdAsInt() {
+            return photoIdAsInt;
+        }
+
+        private static int parseId(String id, String prefix) {
             try {
-                return Integer.parseInt(photoId.replace("P", "").trim());
+                return Integer.parseInt(id.replace(prefix, "").trim());
             } catch (NumberFormatException e) {
                 return 0;
             }
@@ -81,6 +142,14 @@ public class PhotoStorageManager {
     }
 
     public PhotoStorageManager(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * @param loadListener Notified once the saved photos are listed; until then the photo
+     *                     lists hold only photos saved since. May be null.
+     */
+    public PhotoStorageManager(Context context, LoadListener loadListener) {
         this.context = context;
 
         // Create base directory if it doesn't exist
@@ -99,8 +168,86 @@ public class PhotoStorageManager {
 
         Log.d(TAG, "Storage initialized at: " + baseDirectory.getAbsolutePath());
 
-        // Load existing photos
-        refresh();
+        // Load existing photos off the calling thread; replaying a large catalog takes seconds
+        catalog = new PhotoCatalog(new File(baseDirectory, CATALOG_FILE));
+        startLoading(loadListener);
+    }
+
+    private void startLoading(final LoadListener loadListener) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final int photoCount = loadCatalog();
+                if (loadListener != null) {
+                    new Handler(Looper.getMainLooper()).post(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadListener.onPhotosLoaded(photoCount);
+                        }
+                    });
+                }
+            }
+        }, "PhotoCatalogLoad").start();
+    }
+
+    /**
+     * Load the photo list from the catalog, then check it against storage in the background.
+     * Without a catalog, e.g. on first use, storage is scanned once to build it.
+     * @return Number of photos loaded
+     */
+    private int loadCatalog() {
+        List<PhotoInfo> photos = null;
+        if (catalog.exists()) {
+            try {
+                List<PhotoCatalog.Entry> entries = catalog.load();
+                photos = new ArrayList<>(entries.size());
+                for (PhotoCatalog.Entry entry : entries) {
+                    photos.add(new PhotoInfo(new File(baseDirectory, entry.path), entry.structureId, entry.photoId,
+                            entry.modifiedMillis));
+                }
+                sortOldestFirst(photos);
+                Log.d(TAG, "Loaded " + photos.size() + " photos from catalog");
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading photo catalog, rebuilding: " + e.getMessage(), e);
+                photos = null;
+            }
+        }
+        boolean scanned = photos == null;
+        if (scanned) {
+            photos = scanStorage();
+        }
+
+        int photoCount;
+        synchronized (this) {
+            // Photos saved while loading are newer than any loaded one
+            List<PhotoInfo> savedMeanwhile = new ArrayList<>(photoCache.values());
+            photoCache.clear();
+            for (PhotoInfo photo : photos) {
+                photoCache.put(photo.getFile().getPath(), photo);
+            }
+            for (PhotoInfo photo : savedMeanwhile) {
+                photoCache.remove(photo.getFile().getPath());
+                photoCache.put(photo.getFile().getPath(), photo);
+            }
+            rebuildIndex();
+            loaded = true;
+            if (scanned) {
+                lastReconcileMillis = System.currentTimeMillis();
+                writeCatalog();
+            }
+            photoCount = photoCache.size();
+        }
+        if (!scanned) {
+            refresh();
+        }
+        return photoCount;
+    }
+
+    /**
+     * @return True once the saved photos have been loaded
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
     }
 
     /**
@@ -120,7 +267,7 @@ public class PhotoStorageManager {
     }
 
     /**
-     * Save a photo to storage in the appropriate structure folder
+     * Save a photo to storage in the appropriate structure folder, waiting for the write
      * @param photo Bitmap to save
      * @param structureId ID of the structure
      * @param photoId ID of the photo position
@@ -133,33 +280,205 @@ public class PhotoStorageManager {
         }
 
         try {
-            // Get structure-specific folder
-            File structureFolder = getStructureFolder(structureId);
+            return savePhotoAsync(photo, structureId, photoId, null).get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error saving photo: " + e.getCause().getMessage(), e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
 
-            // Generate a unique filename
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            String filename = PHOTO_PREFIX + "s" + structureId + "_p" + photoId + "_" + timestamp + PHOTO_EXTENSION;
-            File outputFile = new File(structureFolder, filename);
+    /**
+     * Encode and save a photo on the writer thread
+     * @param photo Bitmap to save; must not be recycled before the save completes
+     * @param structureId ID of the structure
+     * @param photoId ID of the photo position
+     * @param callback Notified on the writer thread when the photo is saved; may be null
+     * @return Future holding the saved photo
+     */
+    public Future<PhotoInfo> savePhotoAsync(final Bitmap photo, int structureId, int photoId, SaveCallback callback) {
+        return write(new PhotoWriter.Payload() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                if (!photo.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                    throw new IOException("JPEG encoding failed");
+                }
+            }
+        }, photo, structureId, photoId, callback);
+    }
 
-            // Save the bitmap to a file
-            FileOutputStream fos = new FileOutputStream(outputFile);
-            photo.compress(Bitmap.CompressFormat.JPEG, 90, fos);
-            fos.flush();
-            fos.close();
+    /**
+     * Save a photo that is already JPEG encoded, e.g. as delivered by the camera, without
+     * decoding or re-encoding it
+     * @param jpeg Encoded photo; must not be modified before the save completes
+     * @param structureId ID of the structure
+     * @param photoId ID of the photo position
+     * @param callback Notified on the writer thread when the photo is saved; may be null
+     * @return Future holding the saved photo
+     */
+    public Future<PhotoInfo> savePhotoAsync(final byte[] jpeg, int structureId, int photoId, SaveCallback callback) {
+        return write(new PhotoWriter.Payload() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(jpeg);
+            }
+        }, null, structureId, photoId, callback);
+    }
 
-            // Create a new PhotoInfo object
-            PhotoInfo newPhoto = new PhotoInfo(outputFile, "S" + structureId, "P" + photoId);
+    /**
+     * @param thumbnailSource Decoded photo to make the thumbnail from, or null to decode the saved file
+     */
+    private Future<PhotoInfo> write(PhotoWriter.Payload payload, final Bitmap thumbnailSource, final int structureId,
+                                    final int photoId, final SaveCallback callback) {
+        // Get structure-specific folder
+        File structureFolder = getStructureFolder(structureId);
 
-            // Add to the list of saved photos
-            photoCache.add(newPhoto);
+        // Generate a unique filename
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        String filename = PHOTO_PREFIX + "s" + structureId + "_p" + photoId + "_" + timestamp + PHOTO_EXTENSION;
+        File outputFile = new File(structureFolder, filename);
 
-            Log.d(TAG, "Photo saved: " + outputFile.getAbsolutePath());
-            return newPhoto;
+        return photoWriter.write(outputFile, payload, new PhotoWriter.Completion<PhotoInfo>() {
+            @Override
+            public PhotoInfo onWritten(File file) {
+                PhotoInfo newPhoto = new PhotoInfo(file, "S" + structureId, "P" + photoId);
+                addToCache(newPhoto);
+                writeThumbnail(newPhoto, thumbnailSource);
+
+                Log.d(TAG, "Photo saved: " + file.getAbsolutePath());
+                if (callback != null) {
+                    callback.onSaved(newPhoto);
+                }
+                return newPhoto;
+            }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error saving photo: " + e.getMessage(), e);
+            @Override
+            public void onFailed(File file, IOException error) {
+                Log.e(TAG, "Error saving photo " + file.getName() + ": " + error.getMessage(), error);
+                if (callback != null) {
+                    callback.onFailed(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the small pre-scaled copy of a photo written when it was saved
+     * @param photoInfo PhotoInfo object of the photo
+     * @return The thumbnail file; it may not exist for photos saved by older versions
+     */
+    public static File getThumbnailFile(PhotoInfo photoInfo) {
+        return new File(new File(photoInfo.getFile().getParentFile(), THUMBNAIL_FOLDER), photoInfo.getFilename());
+    }
+
+    /**
+     * Queue the thumbnail of a saved photo on the writer thread
+     * @param source Decoded photo, or null to decode the saved file at a reduced size
+     */
+    private void writeThumbnail(PhotoInfo photoInfo, final Bitmap source) {
+        final File photoFile = photoInfo.getFile();
+        File thumbnail = getThumbnailFile(photoInfo);
+        File folder = thumbnail.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            Log.e(TAG, "Failed to create thumbnail folder: " + folder.getAbsolutePath());
+            return;
+        }
+
+        photoWriter.write(thumbnail, new PhotoWriter.Payload() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Bitmap full = source != null ? source : decodeForThumbnail(photoFile);
+                if (full == null) {
+                    throw new IOException("Cannot decode " + photoFile.getName());
+                }
+                float scale = Math.min(1f, (float) THUMBNAIL_SIZE / Math.max(full.getWidth(), full.getHeight()));
+                Bitmap scaled = scale < 1f ? Bitmap.createScaledBitmap(full,
+                        Math.max(1, Math.round(full.getWidth() * scale)),
+                        Math.max(1, Math.round(full.getHeight() * scale)), true) : full;
+                try {
+                    if (!scaled.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out)) {
+                        throw new IOException("JPEG encoding failed");
+                    }
+                } finally {
+                    if (scaled != full) {
+                        scaled.recycle();
+                    }
+                    if (full != source) {
+                        full.recycle();
+                    }
+                }
+            }
+        }, new PhotoWriter.Completion<File>() {
+            @Override
+            public File onWritten(File file) {
+                return file;
+            }
+
+            @Override
+            public void onFailed(File file, IOException error) {
+                // The gallery falls back to decoding the photo itself
+                Log.w(TAG, "Error writing thumbnail " + file.getName() + ": " + error.getMessage());
+            }
+        });
+    }
+
+    private static Bitmap decodeForThumbnail(File photoFile) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photoFile.getAbsolutePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
             return null;
         }
+        int sample = 1;
+        while (Math.max(options.outWidth, options.outHeight) / (sample * 2) >= THUMBNAIL_SIZE) {
+            sample *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sample;
+        return BitmapFactory.decodeFile(photoFile.getAbsolutePath(), options);
+    }
+
+    private synchronized void addToCache(PhotoInfo photoInfo) {
+        PhotoInfo previous = photoCache.remove(photoInfo.getFile().getPath());
+        if (previous != null) {
+            unindexPhoto(previous);
+        }
+        photoCache.put(photoInfo.getFile().getPath(), photoInfo);
+        indexPhoto(photoInfo);
+        putInCatalog(photoInfo);
+    }
+
+    /**
+     * Replace the file of a saved photo with a better copy, e.g. the full-resolution original.
+     * The photo keeps its path, so anything referring to it stays valid.
+     * @param photoInfo PhotoInfo object of the photo to upgrade
+     * @param replacement File in the same folder that takes the photo's place
+     * @return true if the photo now holds the replacement
+     */
+    public synchronized boolean replacePhotoFile(PhotoInfo photoInfo, File replacement) {
+        if (photoInfo == null || photoInfo.getFile() == null || replacement == null || !replacement.isFile()) {
+            return false;
+        }
+
+        // A rename within the folder swaps the file at once; readers never see a partial photo
+        if (!replacement.renameTo(photoInfo.getFile())) {
+            Log.e(TAG, "Failed to replace photo: " + photoInfo.getFile().getAbsolutePath());
+            return false;
+        }
+
+        photoInfo.modifiedMillis = photoInfo.getFile().lastModified();
+        photoInfo.timestamp = null;
+        putInCatalog(photoInfo);
+
+        // The thumbnail made from the preview shows the same shot; only photos without one need it
+        if (!getThumbnailFile(photoInfo).isFile()) {
+            writeThumbnail(photoInfo, null);
+        }
+
+        Log.d(TAG, "Photo upgraded: " + photoInfo.getFile().getAbsolutePath());
+        return true;
     }
 
     /**
@@ -167,14 +486,20 @@ public class PhotoStorageManager {
      * @param photoInfo PhotoInfo object of the photo to delete
      * @return true if deletion was successful
      */
-    public boolean deletePhoto(PhotoInfo photoInfo) {
+    public synchronized boolean deletePhoto(PhotoInfo photoInfo) {
         if (photoInfo == null || photoInfo.getFile() == null || !photoInfo.getFile().exists()) {
             return false;
         }
 
         boolean deleted = photoInfo.getFile().delete();
         if (deleted) {
-            photoCache.remove(photoInfo);
+            File thumbnail = getThumbnailFile(photoInfo);
+            if (thumbnail.delete()) {
+                thumbnail.getParentFile().delete(); // Only succeeds once the folder is empty
+            }
+            photoCache.remove(photoInfo.getFile().getPath());
+            unindexPhoto(photoInfo);
+            removeFromCatalog(photoInfo);
 
             // If this was the last photo in the structure folder, consider deleting the empty folder
             File parentFolder = photoInfo.getFile().getParentFile();
@@ -189,18 +514,103 @@ public class PhotoStorageManager {
     }
 
     /**
-     * Refresh the cache of saved photos by scanning the storage
+     * Check the cache of saved photos against the files on storage in the background, picking
+     * up photos added or removed outside the app. The cache stays usable meanwhile, and
+     * checks closer together than {@link #RECONCILE_MIN_INTERVAL_MILLIS} are skipped.
      */
-    public void refresh() {
-        photoCache.clear();
+    public synchronized void refresh() {
+        if (!loaded) {
+            return; // Loading checks storage itself
+        }
+        if (System.currentTimeMillis() - lastReconcileMillis < RECONCILE_MIN_INTERVAL_MILLIS) {
+            return;
+        }
+        if (reconcileRunning) {
+            reconcileRequested = true;
+            return;
+        }
+        reconcileRunning = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reconcile();
+            }
+        }, "PhotoCatalogReconcile").start();
+    }
+
+    private void reconcile() {
+        while (true) {
+            // The slow listing runs without the lock, so saves and reads are not held up
+            List<PhotoInfo> onDisk = scanStorage();
+
+            synchronized (this) {
+                reconcileWith(onDisk);
+                lastReconcileMillis = System.currentTimeMillis();
+                if (!reconcileRequested) {
+                    reconcileRunning = false;
+                    return;
+                }
+                reconcileRequested = false;
+            }
+        }
+    }
+
+    private void reconcileWith(List<PhotoInfo> onDisk) {
+        int added = 0;
+        Set<String> seen = new HashSet<>();
+        for (PhotoInfo photo : onDisk) {
+            String path = photo.getFile().getPath();
+            seen.add(path);
+            if (!photoCache.containsKey(path)) {
+                photoCache.put(path, photo);
+                indexPhoto(photo);
+                putInCatalog(photo);
+                added++;
+            }
+        }
+
+        int removed = 0;
+        Iterator<PhotoInfo> cached = photoCache.values().iterator();
+        while (cached.hasNext()) {
+            PhotoInfo photo = cached.next();
+            // A photo saved after the listing was taken is not missing
+            if (!seen.contains(photo.getFile().getPath()) && !photo.getFile().exists()) {
+                cached.remove();
+                unindexPhoto(photo);
+                removeFromCatalog(photo);
+                removed++;
+            }
+        }
+
+        if (added > 0) {
+            // Photos copied in from outside may be older than ones already listed
+            List<PhotoInfo> photos = new ArrayList<>(photoCache.values());
+            sortOldestFirst(photos);
+            photoCache.clear();
+            for (PhotoInfo photo : photos) {
+                photoCache.put(photo.getFile().getPath(), photo);
+            }
+        }
+        if (catalog.needsCompaction(photoCache.size())) {
+            writeCatalog();
+        }
+        Log.d(TAG, "Reconciled photo catalog: " + added + " added, " + removed + " removed, " +
+                photoCache.size() + " photos");
+    }
+
+    /**
+     * List every photo on storage
+     */
+    private List<PhotoInfo> scanStorage() {
+        List<PhotoInfo> photos = new ArrayList<>();
 
         if (baseDirectory == null || !baseDirectory.exists()) {
-            return;
+            return photos;
         }
 
         try {
             // First scan the base directory for old-style photos
-            scanDirectoryForPhotos(baseDirectory, "");
+            scanDirectoryForPhotos(baseDirectory, "", photos);
 
             // Then scan each structure folder
             File[] structureFolders = baseDirectory.listFiles(new java.io.FileFilter() {
@@ -216,38 +626,39 @@ public class PhotoStorageManager {
                     String folderName = structureFolder.getName();
                     String structurePrefix = folderName.startsWith(STRUCTURE_FOLDER_PREFIX) ? "" : STRUCTURE_FOLDER_PREFIX;
 
-                    scanDirectoryForPhotos(structureFolder, structurePrefix);
+                    scanDirectoryForPhotos(structureFolder, structurePrefix, photos);
                 }
             }
 
-            // Sort photos by date (newest first)
-            Collections.sort(photoCache, new Comparator<PhotoInfo>() {
-                @Override
-                public int compare(PhotoInfo p1, PhotoInfo p2) {
-                    return Long.compare(p2.getFile().lastModified(), p1.getFile().lastModified());
-                }
-            });
-
-            Log.d(TAG, "Refreshed photo cache with " + photoCache.size() + " photos");
+            sortOldestFirst(photos);
+            Log.d(TAG, "Scanned storage: " + photos.size() + " photos");
 
         } catch (Exception e) {
-            Log.e(TAG, "Error refreshing photo cache: " + e.getMessage(), e);
+            Log.e(TAG, "Error scanning photo storage: " + e.getMessage(), e);
         }
+        return photos;
     }
 
     /**
-     * Scan a directory for photos and add them to the cache
+     * Scan a directory for photos and add them to a list
      * @param directory Directory to scan
      * @param structurePrefixOverride Override for structure ID prefix
+     * @param photos List receiving the photos found
      */
-    private void scanDirectoryForPhotos(File directory, String structurePrefixOverride) {
+    private void scanDirectoryForPhotos(File directory, String structurePrefixOverride, List<PhotoInfo> photos) {
+        final long staleBefore = System.currentTimeMillis() - STALE_PARTIAL_FILE_MILLIS;
         File[] files = directory.listFiles(new java.io.FileFilter() {
             @Override
             public boolean accept(File file) {
+                if (isPartialFile(file.getName())) {
+                    deleteIfStale(file, staleBefore);
+                    return false;
+                }
                 return file.isFile() && file.getName().startsWith(PHOTO_PREFIX) &&
                         file.getName().endsWith(PHOTO_EXTENSION);
             }
         });
+        deleteStalePartialFiles(new File(directory, THUMBNAIL_FOLDER), staleBefore);
 
         if (files == null) {
             return;
@@ -272,7 +683,7 @@ public class PhotoStorageManager {
                     String finalStructurePrefix = structurePrefixOverride.isEmpty() ? "S" : structurePrefixOverride;
 
                     PhotoInfo photoInfo = new PhotoInfo(file, finalStructurePrefix + structureId, "P" + photoId);
-                    photoCache.add(photoInfo);
+                    photos.add(photoInfo);
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Error parsing filename: " + filename, e);
@@ -281,54 +692,164 @@ public class PhotoStorageManager {
     }
 
     /**
-     * Get all saved photos
-     * @return List of PhotoInfo objects
+     * @return True for files that are only complete once renamed, e.g. photos being written or
+     * originals being downloaded
      */
-    public List<PhotoInfo> getSavedPhotos() {
-        return new ArrayList<>(photoCache);
+    private static boolean isPartialFile(String name) {
+        return PhotoWriter.isTempFile(name) || OriginalPhotoDownloader.isStagingFile(name);
     }
 
-    /**
-     * Get photos for a specific structure
-     * @param structureId ID of the structure
-     * @return List of PhotoInfo objects for the given structure
-     */
-    public List<PhotoInfo> getPhotosForStructure(int structureId) {
-        String structurePrefix = "S" + structureId;
-        List<PhotoInfo> result = new ArrayList<>();
-
-        for (PhotoInfo photo : photoCache) {
-            if (photo.getStructureId().equals(structurePrefix)) {
-                result.add(photo);
+    private static void deleteStalePartialFiles(File directory, final long staleBefore) {
+        directory.listFiles(new java.io.FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                if (isPartialFile(file.getName())) {
+                    deleteIfStale(file, staleBefore);
+                }
+                return false;
             }
+        });
+    }
+
+    private static void deleteIfStale(File file, long staleBefore) {
+        // Recent ones may still be being written
+        if (file.isFile() && file.lastModified() < staleBefore && file.delete()) {
+            Log.d(TAG, "Deleted leftover partial file " + file.getPath());
         }
+    }
 
-        // Sort by photo ID
-        Collections.sort(result, new Comparator<PhotoInfo>() {
+    private static void sortOldestFirst(List<PhotoInfo> photos) {
+        Collections.sort(photos, new Comparator<PhotoInfo>() {
             @Override
             public int compare(PhotoInfo p1, PhotoInfo p2) {
-                return p1.getPhotoIdAsInt() - p2.getPhotoIdAsInt();
+                return Long.compare(p1.getModifiedMillis(), p2.getModifiedMillis());
             }
         });
+    }
+
+    private void rebuildIndex() {
+        photosByStructure.clear();
+        // Oldest first, so photos sharing an ID end up newest first
+        for (PhotoInfo photo : photoCache.values()) {
+            indexPhoto(photo);
+        }
+    }
+
+    private void indexPhoto(PhotoInfo photo) {
+        int structureId = photo.getStructureIdAsInt();
+        List<PhotoInfo> photos = photosByStructure.get(structureId);
+        if (photos == null) {
+            photos = new ArrayList<>();
+            photosByStructure.put(structureId, photos);
+        }
 
-        return result;
+        // Insert before any photo with the same ID, keeping the list sorted by photo ID
+        int low = 0;
+        int high = photos.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (photos.get(mid).getPhotoIdAsInt() < photo.getPhotoIdAsInt()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        photos.add(low, photo);
+    }
+
+    private void unindexPhoto(PhotoInfo photo) {
+        int structureId = photo.getStructureIdAsInt();
+        List<PhotoInfo> photos = photosByStructure.get(structureId);
+        if (photos != null && photos.remove(photo) && photos.isEmpty()) {
+            photosByStructure.remove(structureId);
+        }
+    }
+
+    private void putInCatalog(PhotoInfo photo) {
+        try {
+            catalog.put(toCatalogEntry(photo));
+        } catch (IOException e) {
+            // The next reconcile adds the photo again
+            Log.e(TAG, "Error updating photo catalog: " + e.getMessage(), e);
+        }
+    }
+
+    private void removeFromCatalog(PhotoInfo photo) {
+        try {
+            catalog.remove(relativePath(photo.getFile()));
+        } catch (IOException e) {
+            Log.e(TAG, "Error updating photo catalog: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeCatalog() {
+        List<PhotoCatalog.Entry> entries = new ArrayList<>(photoCache.size());
+        // Oldest first, the order the log would have been written in
+        for (PhotoInfo photo : photoCache.values()) {
+            entries.add(toCatalogEntry(photo));
+        }
+        try {
+            catalog.rewrite(entries);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing photo catalog: " + e.getMessage(), e);
+        }
+    }
+
+    private PhotoCatalog.Entry toCatalogEntry(PhotoInfo photo) {
+        return new PhotoCatalog.Entry(relativePath(photo.getFile()), photo.getStructureId(), photo.getPhotoId(),
+                photo.getModifiedMillis());
+    }
+
+    private String relativePath(File file) {
+        String base = baseDirectory.getPath() + File.separator;
+        String path = file.getPath();
+        return path.startsWith(base) ? path.substring(base.length()) : path;
+    }
+
+    /**
+     * Get all saved photos
+     * @return List of PhotoInfo objects
+     */
+    public synchronized List<PhotoInfo> getSavedPhotos() {
+        List<PhotoInfo> photos = new ArrayList<>(photoCache.values());
+        Collections.reverse(photos); // Newest first
+        return photos;
+    }
+
+    /**
+     * Get photos for a specific structure
+     * @param structureId ID of the structure
+     * @return List of PhotoInfo objects for the given structure, sorted by photo ID
+     */
+    public synchronized List<PhotoInfo> getPhotosForStructure(int structureId) {
+        List<PhotoInfo> photos = photosByStructure.get(structureId);
+        return photos != null ? new ArrayList<>(photos) : new ArrayList<PhotoInfo>();
+    }
+
+    /**
+     * Get the number of photos of a structure without copying them
+     * @param structureId ID of the structure
+     * @return Number of saved photos
+     */
+    public synchronized int getPhotoCount(int structureId) {
+        List<PhotoInfo> photos = photosByStructure.get(structureId);
+        return photos != null ? photos.size() : 0;
     }
 
     /**
      * Get a list of all structure IDs that have photos
-     * @return List of structure IDs
+     * @return List of structure IDs in ascending order
      */
-    public List<Integer> getStructureIdsWithPhotos() {
-        List<Integer> structureIds = new ArrayList<>();
+    public synchronized List<Integer> getStructureIdsWithPhotos() {
+        List<Integer> structureIds = new ArrayList<>(photosByStructure.size());
 
-        for (PhotoInfo photo : photoCache) {
-            int structureId = photo.getStructureIdAsInt();
-            if (structureId > 0 && !structureIds.contains(structureId)) {
+        for (int i = 0; i < photosByStructure.size(); i++) {
+            int structureId = photosByStructure.keyAt(i);
+            if (structureId > 0) {
                 structureIds.add(structureId);
             }
         }
 
-        Collections.sort(structureIds);
         return structureIds;
     }
 
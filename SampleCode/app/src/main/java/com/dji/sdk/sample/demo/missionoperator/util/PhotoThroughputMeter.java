@@ -0,0 +1,40 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Photos completed per minute of mission time, for comparing photo review modes
+ */
+public class PhotoThroughputMeter {
+
+    private long startMillis;
+    private long lastMillis;
+    private int count;
+
+    /**
+     * Start measuring, discarding earlier photos
+     */
+    public synchronized void start(long nowMillis) {
+        startMillis = nowMillis;
+        lastMillis = nowMillis;
+        count = 0;
+    }
+
+    public synchronized void record(long nowMillis) {
+        if (startMillis == 0) {
+            start(nowMillis);
+        }
+        count++;
+        lastMillis = nowMillis;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return Photos per minute from the start to the last photo, or 0 before any photo
+     */
+    public synchronized float getPhotosPerMinute() {
+        long elapsed = lastMillis - startMillis;
+        return count > 0 && elapsed > 0 ? count * 60000f / elapsed : 0f;
+    }
+}
@@ -0,0 +1,307 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes photo files on a dedicated I/O thread.
+ *
+ * Each file is written through a buffer to a hidden temporary file in the target folder and
+ * renamed into place once its data is on disk, so a crash never leaves a truncated photo
+ * behind. Temporary names carry a sequence number, so two writes of the same photo never share
+ * one. Writes that queue up while the disk is busy are handled as a batch: all are written
+ * before the first sync, so the device can flush their data while the syncs run in turn.
+ *
+ * The queue is bounded; when it is full the caller writes the file itself, which slows the
+ * producer down instead of holding an unbounded number of photos in memory. The I/O thread is
+ * started on demand and ends after a short idle period.
+ */
+public class PhotoWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_PREFIX = ".writing_";
+    private static final long IDLE_MILLIS = 2000;
+
+    /** Makes temporary names unique when the I/O thread and a caller write the same target */
+    private static final AtomicLong TEMP_SEQUENCE = new AtomicLong();
+
+    /**
+     * Produces the bytes of a file
+     */
+    public interface Payload {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Outcome of a write; called on the thread that wrote the file
+     */
+    public interface Completion<T> {
+        /**
+         * The file is complete at its final path
+         * @return Result handed to the write's future
+         */
+        T onWritten(File file);
+
+        void onFailed(File file, IOException error);
+    }
+
+    private final ArrayBlockingQueue<Job<?>> queue;
+    private final int maxBatch;
+    private boolean threadRunning;
+    private volatile boolean closed;
+    private int batchCount;
+    private int writtenCount;
+
+    /**
+     * @param maxQueued Writes waiting for the I/O thread beyond which callers write themselves
+     * @param maxBatch Largest number of files written before their syncs
+     */
+    public PhotoWriter(int maxQueued, int maxBatch) {
+        this.queue = new ArrayBlockingQueue<>(maxQueued);
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Write a file in the background, replacing any file at the target path
+     * @return Future holding the completion's result, or failing with the write error
+     */
+    public <T> Future<T> write(File target, Payload payload, Completion<T> completion) {
+        Job<T> job = new Job<>(target, payload, completion);
+        if (!closed && queue.offer(job)) {
+            startThread();
+        } else {
+            List<Job<?>> batch = new ArrayList<>(1);
+            batch.add(job);
+            writeBatch(batch);
+        }
+        return job;
+    }
+
+    /**
+     * @return True for the temporary file of a write in progress, or of one interrupted when
+     * the app died
+     */
+    public static boolean isTempFile(String name) {
+        return name.startsWith(TEMP_PREFIX);
+    }
+
+    /**
+     * Let the I/O thread finish the queued writes and stop; later writes run on the caller
+     */
+    public void shutdown() {
+        closed = true;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized int getWrittenCount() {
+        return writtenCount;
+    }
+
+    private synchronized void startThread() {
+        if (threadRunning) {
+            return;
+        }
+        threadRunning = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "PhotoWriter").start();
+    }
+
+    private void writeLoop() {
+        List<Job<?>> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            Job<?> first;
+            try {
+                first = queue.poll(closed ? 0 : IDLE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+            }
+            if (first == null) {
+                // A write queued after this check starts a new thread
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        threadRunning = false;
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Job<?>> batch) {
+        // Write every file of the batch before syncing any; the syncs still run one after another
+        for (Job<?> job : batch) {
+            job.writeTemp();
+        }
+        for (Job<?> job : batch) {
+            job.syncAndRename();
+        }
+        int written = 0;
+        for (Job<?> job : batch) {
+            if (job.complete()) {
+                written++;
+            }
+        }
+        synchronized (this) {
+            batchCount++;
+            writtenCount += written;
+        }
+    }
+
+    private static class Job<T> implements Future<T> {
+        final File target;
+        final Payload payload;
+        final Completion<T> completion;
+        File temp;
+        FileOutputStream stream;
+        IOException error;
+        private boolean done;
+        private T result;
+        private Throwable failure;
+
+        Job(File target, Payload payload, Completion<T> completion) {
+            this.target = target;
+            this.payload = payload;
+            this.completion = completion;
+        }
+
+        void writeTemp() {
+            temp = new File(target.getParentFile(),
+                    TEMP_PREFIX + TEMP_SEQUENCE.incrementAndGet() + "_" + target.getName());
+            try {
+                stream = new FileOutputStream(temp);
+                OutputStream out = new BufferedOutputStream(stream, BUFFER_SIZE);
+                payload.writeTo(out);
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(new IOException("Photo encoding failed", e));
+            }
+        }
+
+        void syncAndRename() {
+            if (error != null) {
+                return;
+            }
+            try {
+                stream.getFD().sync();
+                stream.close();
+                stream = null;
+                if (!temp.renameTo(target)) {
+                    throw new IOException("Cannot rename " + temp.getName() + " to " + target.getName());
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * @return True if the file was written
+         */
+        boolean complete() {
+            if (error != null) {
+                completion.onFailed(target, error);
+                finish(null, error);
+                return false;
+            }
+            try {
+                finish(completion.onWritten(target), null);
+                return true;
+            } catch (RuntimeException e) {
+                finish(null, e);
+                return false;
+            }
+        }
+
+        private void fail(IOException e) {
+            error = e;
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+                stream = null;
+            }
+            temp.delete();
+        }
+
+        private synchronized void finish(T value, Throwable cause) {
+            result = value;
+            failure = cause;
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false; // A write that started is always finished
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public synchronized T get() throws InterruptedException, ExecutionException {
+            while (!done) {
+                wait();
+            }
+            return report();
+        }
+
+        @Override
+        public synchronized T get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!done) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return report();
+        }
+
+        private T report() throws ExecutionException {
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.Arrays;
+
+/**
+ * SDK-agnostic waypoint list produced by {@link InspectionMissionPlanner}.
+ *
+ * Waypoints are stored as parallel primitive columns. Each waypoint has a kind that tells
+ * what it is for, the index of the structure it belongs to (in plan order, -1 for the
+ * climb above home) and, for photo waypoints, the index of the photo position.
+ * Photo waypoints carry a gimbal pitch and a take-photo action; all others have a NaN pitch.
+ */
+public class PlannedMission {
+
+    /** Climb to safety altitude above the home point */
+    public static final byte KIND_HOME_CLIMB = 0;
+    /** Arrival over a structure at safety altitude */
+    public static final byte KIND_TRANSIT = 1;
+    /** Top of the structure plus the safe distance */
+    public static final byte KIND_APPROACH = 2;
+    /** Photo position around the structure */
+    public static final byte KIND_PHOTO = 3;
+    /** Climb back to safety altitude after the last photo of a structure */
+    public static final byte KIND_SAFETY_CLIMB = 4;
+
+    final double[] latitudes;
+    final double[] longitudes;
+    final float[] altitudes;
+    final float[] headings;
+    final float[] gimbalPitches;
+    final byte[] kinds;
+    final int[] structureIndices;
+    final int[] photoIndices;
+    int size;
+
+    int[] photoWaypointIndices;
+    int photoWaypointCount;
+
+    PlannedMission(int capacity) {
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        altitudes = new float[capacity];
+        headings = new float[capacity];
+        gimbalPitches = new float[capacity];
+        kinds = new byte[capacity];
+        structureIndices = new int[capacity];
+        photoIndices = new int[capacity];
+        photoWaypointIndices = new int[16];
+    }
+
+    /**
+     * Adopt existing columns without copying them, e.g. when reading a compiled mission file
+     */
+    PlannedMission(double[] latitudes, double[] longitudes, float[] altitudes, float[] headings,
+                   float[] gimbalPitches, byte[] kinds, int[] structureIndices, int[] photoIndices, int size) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.altitudes = altitudes;
+        this.headings = headings;
+        this.gimbalPitches = gimbalPitches;
+        this.kinds = kinds;
+        this.structureIndices = structureIndices;
+        this.photoIndices = photoIndices;
+        this.size = size;
+
+        photoWaypointIndices = new int[16];
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == KIND_PHOTO) {
+                if (photoWaypointCount == photoWaypointIndices.length) {
+                    photoWaypointIndices = Arrays.copyOf(photoWaypointIndices, photoWaypointCount * 2);
+                }
+                photoWaypointIndices[photoWaypointCount++] = i;
+            }
+        }
+    }
+
+    /**
+     * Overwrite a waypoint; used by the planner to write blocks at fixed indices. The caller
+     * maintains the photo waypoint indices.
+     */
+    void set(int index, byte kind, double latitude, double longitude, float altitude, float heading,
+             float gimbalPitch, int structureIndex, int photoIndex) {
+        latitudes[index] = latitude;
+        longitudes[index] = longitude;
+        altitudes[index] = altitude;
+        headings[index] = heading;
+        gimbalPitches[index] = gimbalPitch;
+        kinds[index] = kind;
+        structureIndices[index] = structureIndex;
+        photoIndices[index] = photoIndex;
+    }
+
+    int add(byte kind, double latitude, double longitude, float altitude, float heading,
+            float gimbalPitch, int structureIndex, int photoIndex) {
+        int index = size++;
+        latitudes[index] = latitude;
+        longitudes[index] = longitude;
+        altitudes[index] = altitude;
+        headings[index] = heading;
+        gimbalPitches[index] = gimbalPitch;
+        kinds[index] = kind;
+        structureIndices[index] = structureIndex;
+        photoIndices[index] = photoIndex;
+
+        if (kind == KIND_PHOTO) {
+            if (photoWaypointCount == photoWaypointIndices.length) {
+                photoWaypointIndices = Arrays.copyOf(photoWaypointIndices, photoWaypointCount * 2);
+            }
+            photoWaypointIndices[photoWaypointCount++] = index;
+        }
+        return index;
+    }
+
+    /**
+     * @return Total number of waypoints
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int waypoint) {
+        return latitudes[checkIndex(waypoint)];
+    }
+
+    public double getLongitude(int waypoint) {
+        return longitudes[checkIndex(waypoint)];
+    }
+
+    public float getAltitude(int waypoint) {
+        return altitudes[checkIndex(waypoint)];
+    }
+
+    /**
+     * @return Heading in degrees, clockwise from north, in [0, 360)
+     */
+    public float getHeading(int waypoint) {
+        return headings[checkIndex(waypoint)];
+    }
+
+    /**
+     * @return Gimbal pitch in degrees, or NaN when the waypoint has no gimbal action
+     */
+    public float getGimbalPitch(int waypoint) {
+        return gimbalPitches[checkIndex(waypoint)];
+    }
+
+    public byte getKind(int waypoint) {
+        return kinds[checkIndex(waypoint)];
+    }
+
+    public boolean isPhoto(int waypoint) {
+        return kinds[checkIndex(waypoint)] == KIND_PHOTO;
+    }
+
+    /**
+     * @return Index of the structure in plan order, or -1 for the climb above home
+     */
+    public int getStructureIndex(int waypoint) {
+        return structureIndices[checkIndex(waypoint)];
+    }
+
+    /**
+     * @return Index of the photo position, or -1 for waypoints that take no photo
+     */
+    public int getPhotoIndex(int waypoint) {
+        return photoIndices[checkIndex(waypoint)];
+    }
+
+    public int getPhotoWaypointCount() {
+        return photoWaypointCount;
+    }
+
+    /**
+     * @param photo Position of the photo in flight order
+     * @return Waypoint index at which that photo is taken
+     */
+    public int getPhotoWaypointIndex(int photo) {
+        if (photo < 0 || photo >= photoWaypointCount) {
+            throw new IndexOutOfBoundsException("photo " + photo + " of " + photoWaypointCount);
+        }
+        return photoWaypointIndices[photo];
+    }
+
+    /**
+     * @return Copy of the waypoint indices of all photo waypoints, in flight order
+     */
+    public int[] getPhotoWaypointIndices() {
+        return Arrays.copyOf(photoWaypointIndices, photoWaypointCount);
+    }
+
+    private int checkIndex(int waypoint) {
+        if (waypoint < 0 || waypoint >= size) {
+            throw new IndexOutOfBoundsException("waypoint " + waypoint + " of " + size);
+        }
+        return waypoint;
+    }
+}
@@ -0,0 +1,140 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Photo positions marked to be flown again, by structure CSV ID and photo number (1-based, as
+ * in the photo file names), so the list still applies after the plan is reordered or
+ * reloaded. Positions are kept sorted for display.
+ *
+ * The list converts to and from strings like "12:3", e.g. for a SharedPreferences string set.
+ * Not thread-safe.
+ */
+public class ReshootList {
+
+    private final TreeMap<Integer, TreeSet<Integer>> positions = new TreeMap<>();
+    private int size;
+
+    /**
+     * @return False if the position was already listed
+     */
+    public boolean add(int structureId, int photoNumber) {
+        TreeSet<Integer> photos = positions.get(structureId);
+        if (photos == null) {
+            photos = new TreeSet<>();
+            positions.put(structureId, photos);
+        }
+        if (!photos.add(photoNumber)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * @return False if the position was not listed
+     */
+    public boolean remove(int structureId, int photoNumber) {
+        TreeSet<Integer> photos = positions.get(structureId);
+        if (photos == null || !photos.remove(photoNumber)) {
+            return false;
+        }
+        if (photos.isEmpty()) {
+            positions.remove(structureId);
+        }
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        positions.clear();
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getStructureCount() {
+        return positions.size();
+    }
+
+    /**
+     * @return Listed photo numbers of a structure in ascending order; empty if none
+     */
+    public int[] getPhotoNumbers(int structureId) {
+        TreeSet<Integer> photos = positions.get(structureId);
+        if (photos == null) {
+            return new int[0];
+        }
+        int[] numbers = new int[photos.size()];
+        int i = 0;
+        for (int photoNumber : photos) {
+            numbers[i++] = photoNumber;
+        }
+        return numbers;
+    }
+
+    /**
+     * @param maxStructures Structures to name before summarizing the rest
+     * @return E.g. "S12: P3, P5 | S14: P1 | +2 estruturas"
+     */
+    public String describe(int maxStructures) {
+        StringBuilder text = new StringBuilder();
+        int shown = 0;
+        for (Map.Entry<Integer, TreeSet<Integer>> entry : positions.entrySet()) {
+            if (shown == maxStructures) {
+                text.append(" | +").append(positions.size() - shown).append(" estruturas");
+                break;
+            }
+            if (shown > 0) {
+                text.append(" | ");
+            }
+            text.append('S').append(entry.getKey()).append(':');
+            boolean first = true;
+            for (int photoNumber : entry.getValue()) {
+                text.append(first ? " P" : ", P").append(photoNumber);
+                first = false;
+            }
+            shown++;
+        }
+        return text.toString();
+    }
+
+    public Set<String> toStrings() {
+        Set<String> strings = new HashSet<>();
+        for (Map.Entry<Integer, TreeSet<Integer>> entry : positions.entrySet()) {
+            for (int photoNumber : entry.getValue()) {
+                strings.add(entry.getKey() + ":" + photoNumber);
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Read a list written by {@link #toStrings()}; malformed entries are skipped
+     */
+    public static ReshootList fromStrings(Collection<String> strings) {
+        ReshootList list = new ReshootList();
+        for (String string : strings) {
+            int separator = string.indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                list.add(Integer.parseInt(string.substring(0, separator)), Integer.parseInt(string.substring(separator + 1)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,613 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Orders the structures of an {@link InspectionPlan} to shorten the transit route.
+ *
+ * The route is an open path that starts at the home point and may end at any structure.
+ * A nearest-neighbour tour seeds the search, which is then improved with 2-opt and Or-opt
+ * moves restricted to each structure's nearest neighbours, until no move helps or the time
+ * budget runs out. Distances are measured in a {@link LocalEnuFrame} at the home point, which
+ * is accurate enough to compare routes along a line corridor.
+ */
+public class RouteOptimizer {
+
+    private static final int NEIGHBOUR_COUNT = 8;
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+    private static final double EPSILON = 1e-7;
+
+    /**
+     * Result of an optimization run
+     */
+    public static class Result {
+        /** Structure indices of the input plan in the new visiting order */
+        public final int[] order;
+        /** Route length from home in input order, in meters */
+        public final double originalDistance;
+        /** Route length from home in the new order, in meters */
+        public final double optimizedDistance;
+        /** True if the search stopped because the time budget ran out */
+        public final boolean timedOut;
+
+        Result(int[] order, double originalDistance, double optimizedDistance, boolean timedOut) {
+            this.order = order;
+            this.originalDistance = originalDistance;
+            this.optimizedDistance = optimizedDistance;
+            this.timedOut = timedOut;
+        }
+
+        public double getDistanceSaved() {
+            return originalDistance - optimizedDistance;
+        }
+    }
+
+    private final long timeBudgetNanos;
+
+    // Node 0 is home, node k is structure k - 1
+    private double[] x;
+    private double[] y;
+    private int nodeCount;
+    private int[] tour;
+    private int[] position;
+    private int[][] neighbours;
+    private long deadline;
+
+    /**
+     * @param timeBudgetMillis Maximum time spent improving the route
+     */
+    public RouteOptimizer(long timeBudgetMillis) {
+        this.timeBudgetNanos = timeBudgetMillis * 1000000L;
+    }
+
+    /**
+     * Compute a shorter visiting order for the structures of the plan
+     * @param plan Structures in their current order
+     * @param homeLatitude Latitude of the fixed start point
+     * @param homeLongitude Longitude of the fixed start point
+     * @return The new order and the route lengths before and after
+     */
+    public Result optimize(InspectionPlan plan, double homeLatitude, double homeLongitude) {
+        final int structureCount = plan.getStructureCount();
+        deadline = System.nanoTime() + timeBudgetNanos;
+
+        project(plan, homeLatitude, homeLongitude);
+        double originalDistance = 0;
+        for (int k = 0; k < structureCount; k++) {
+            originalDistance += distance(k, k + 1);
+        }
+
+        if (structureCount < 3) {
+            int[] identity = new int[structureCount];
+            for (int i = 0; i < structureCount; i++) {
+                identity[i] = i;
+            }
+            return new Result(identity, originalDistance, originalDistance, false);
+        }
+
+        SpatialGrid grid = new SpatialGrid(x, y, nodeCount);
+        buildNearestNeighbourTour(grid);
+        buildNeighbourLists(grid);
+
+        boolean timedOut = false;
+        boolean improved = true;
+        while (improved) {
+            if (System.nanoTime() > deadline) {
+                timedOut = true;
+                break;
+            }
+            improved = twoOptPass();
+            if (System.nanoTime() > deadline) {
+                timedOut = true;
+                break;
+            }
+            improved |= orOptPass();
+        }
+
+        double optimizedDistance = tourLength();
+        if (optimizedDistance >= originalDistance) {
+            int[] identity = new int[structureCount];
+            for (int i = 0; i < structureCount; i++) {
+                identity[i] = i;
+            }
+            return new Result(identity, originalDistance, originalDistance, timedOut);
+        }
+
+        int[] order = new int[structureCount];
+        for (int p = 1; p < nodeCount; p++) {
+            order[p - 1] = tour[p] - 1;
+        }
+        return new Result(order, originalDistance, optimizedDistance, timedOut);
+    }
+
+    /**
+     * Carry a visiting order over to an edited plan instead of optimizing from scratch.
+     * Structures are matched by CSV ID and location, or by location alone when rows above them
+     * were added or removed. Structures that are gone are dropped from the order; new and moved
+     * structures are spliced in one at a time where they lengthen the route the least.
+     * @param previousPlan Plan the previous order refers to, in CSV order
+     * @param previousOrder Indices of {@code previousPlan}'s structures in visiting order
+     * @param plan The edited plan, in CSV order
+     * @return Indices of {@code plan}'s structures in visiting order, or null if no structure
+     * of the previous plan is left
+     */
+    public static int[] updateOrder(InspectionPlan previousPlan, int[] previousOrder, InspectionPlan plan,
+                                    double homeLatitude, double homeLongitude) {
+        final int oldCount = previousPlan.getStructureCount();
+        final int newCount = plan.getStructureCount();
+        int[] matchOfOld = new int[oldCount];
+        Arrays.fill(matchOfOld, -1);
+        boolean[] matched = new boolean[newCount];
+
+        Map<Integer, Integer> oldById = new HashMap<>();
+        for (int i = 0; i < oldCount; i++) {
+            oldById.put(previousPlan.getStructureId(i), i);
+        }
+        for (int i = 0; i < newCount; i++) {
+            Integer old = oldById.get(plan.getStructureId(i));
+            if (old != null && matchOfOld[old] < 0 && sameLocation(previousPlan, old, plan, i)) {
+                matchOfOld[old] = i;
+                matched[i] = true;
+            }
+        }
+
+        // Rows inserted or deleted above a structure shift its ID but not its location
+        Map<Location, ArrayDeque<Integer>> oldByLocation = new HashMap<>();
+        for (int i = 0; i < oldCount; i++) {
+            if (matchOfOld[i] < 0) {
+                Location location = new Location(previousPlan.getLatitude(i), previousPlan.getLongitude(i));
+                ArrayDeque<Integer> indices = oldByLocation.get(location);
+                if (indices == null) {
+                    indices = new ArrayDeque<>();
+                    oldByLocation.put(location, indices);
+                }
+                indices.add(i);
+            }
+        }
+        for (int i = 0; i < newCount && !oldByLocation.isEmpty(); i++) {
+            if (!matched[i]) {
+                ArrayDeque<Integer> indices = oldByLocation.get(new Location(plan.getLatitude(i), plan.getLongitude(i)));
+                if (indices != null && !indices.isEmpty()) {
+                    matchOfOld[indices.poll()] = i;
+                    matched[i] = true;
+                }
+            }
+        }
+
+        int[] order = new int[newCount];
+        int length = 0;
+        for (int old : previousOrder) {
+            if (matchOfOld[old] >= 0) {
+                order[length++] = matchOfOld[old];
+            }
+        }
+        if (length == 0) {
+            return null;
+        }
+
+        // Cheapest insertion on the open route from home; node k is structure k - 1
+        RouteOptimizer route = new RouteOptimizer(0);
+        route.project(plan, homeLatitude, homeLongitude);
+        for (int i = 0; i < newCount; i++) {
+            if (matched[i]) {
+                continue;
+            }
+            final int node = i + 1;
+            int bestPosition = length;
+            double bestCost = route.distance(order[length - 1] + 1, node);
+            for (int p = 0; p < length; p++) {
+                int before = p == 0 ? 0 : order[p - 1] + 1;
+                int after = order[p] + 1;
+                double cost = route.distance(before, node) + route.distance(node, after) - route.distance(before, after);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestPosition = p;
+                }
+            }
+            System.arraycopy(order, bestPosition, order, bestPosition + 1, length - bestPosition);
+            order[bestPosition] = i;
+            length++;
+        }
+        return order;
+    }
+
+    private static boolean sameLocation(InspectionPlan a, int i, InspectionPlan b, int j) {
+        return a.getLatitude(i) == b.getLatitude(j) && a.getLongitude(i) == b.getLongitude(j);
+    }
+
+    private void project(InspectionPlan plan, double homeLatitude, double homeLongitude) {
+        nodeCount = plan.getStructureCount() + 1;
+        x = new double[nodeCount];
+        y = new double[nodeCount];
+
+        LocalEnuFrame frame = new LocalEnuFrame(homeLatitude, homeLongitude);
+        for (int k = 1; k < nodeCount; k++) {
+            x[k] = frame.toEast(plan.getLongitude(k - 1));
+            y[k] = frame.toNorth(plan.getLatitude(k - 1));
+        }
+    }
+
+    private double distance(int a, int b) {
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Distance from the node at a tour position to the next one; the open end costs nothing
+    private double edgeAfter(int pos) {
+        return pos + 1 < nodeCount ? distance(tour[pos], tour[pos + 1]) : 0;
+    }
+
+    private double tourLength() {
+        double length = 0;
+        for (int p = 0; p + 1 < nodeCount; p++) {
+            length += distance(tour[p], tour[p + 1]);
+        }
+        return length;
+    }
+
+    private void buildNearestNeighbourTour(SpatialGrid grid) {
+        tour = new int[nodeCount];
+        position = new int[nodeCount];
+        boolean[] visited = new boolean[nodeCount];
+
+        int current = 0;
+        visited[0] = true;
+        grid.remove(0);
+        for (int p = 1; p < nodeCount; p++) {
+            int next = grid.nearest(current);
+            visited[next] = true;
+            grid.remove(next);
+            tour[p] = next;
+            current = next;
+        }
+        for (int p = 0; p < nodeCount; p++) {
+            position[tour[p]] = p;
+        }
+    }
+
+    private void buildNeighbourLists(SpatialGrid grid) {
+        grid.reset();
+        int k = Math.min(NEIGHBOUR_COUNT, nodeCount - 1);
+        neighbours = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            neighbours[node] = grid.nearest(node, k);
+        }
+    }
+
+    /**
+     * One pass of 2-opt over every node and its neighbours
+     * @return True if the route was improved
+     */
+    private boolean twoOptPass() {
+        boolean improved = false;
+        for (int p = 0; p < nodeCount; p++) {
+            final int a = tour[p];
+            for (int c : neighbours[a]) {
+                final int i = position[a];
+                final int j = position[c];
+                if (j > i + 1) {
+                    // Replace (t[i],t[i+1]) and (t[j],t[j+1]) with (a,c) and (t[i+1],t[j+1])
+                    double removed = distance(a, tour[i + 1]) + edgeAfter(j);
+                    double added = distance(a, c) + (j + 1 < nodeCount ? distance(tour[i + 1], tour[j + 1]) : 0);
+                    if (added < removed - EPSILON) {
+                        reverse(i + 1, j);
+                        improved = true;
+                    }
+                } else if (j >= 1 && j < i - 1) {
+                    // Replace (t[j-1],t[j]) and (t[i-1],t[i]) with (t[j-1],t[i-1]) and (c,a)
+                    double removed = distance(tour[j - 1], c) + distance(tour[i - 1], a);
+                    double added = distance(tour[j - 1], tour[i - 1]) + distance(c, a);
+                    if (added < removed - EPSILON) {
+                        reverse(j, i - 1);
+                        improved = true;
+                    }
+                }
+            }
+            if ((p & 255) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * One pass of Or-opt: move segments of up to three structures next to a neighbour
+     * @return True if the route was improved
+     */
+    private boolean orOptPass() {
+        boolean improved = false;
+        for (int length = 1; length <= MAX_OR_OPT_SEGMENT; length++) {
+            for (int s = 1; s + length - 1 < nodeCount; s++) {
+                final int e = s + length - 1;
+                final int first = tour[s];
+                final int last = tour[e];
+                final double removeGain = distance(tour[s - 1], first) + edgeAfter(e)
+                        - (e + 1 < nodeCount ? distance(tour[s - 1], tour[e + 1]) : 0);
+
+                boolean moved = false;
+                for (int endpoint = 0; endpoint < 2 && !moved; endpoint++) {
+                    int anchor = endpoint == 0 ? first : last;
+                    for (int c : neighbours[anchor]) {
+                        int k = position[c];
+                        if (k >= s - 1 && k <= e) {
+                            continue;
+                        }
+                        // Insert between t[k] and t[k+1], in either orientation
+                        double base = k + 1 < nodeCount ? distance(c, tour[k + 1]) : 0;
+                        double forward = distance(c, first) + (k + 1 < nodeCount ? distance(last, tour[k + 1]) : 0);
+                        double reversed = distance(c, last) + (k + 1 < nodeCount ? distance(first, tour[k + 1]) : 0);
+                        double best = Math.min(forward, reversed);
+                        if (best - base < removeGain - EPSILON) {
+                            moveSegment(s, e, k, reversed < forward);
+                            moved = true;
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+                if ((s & 255) == 0 && System.nanoTime() > deadline) {
+                    return improved;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            int tmp = tour[from];
+            tour[from] = tour[to];
+            tour[to] = tmp;
+            position[tour[from]] = from;
+            position[tour[to]] = to;
+            from++;
+            to--;
+        }
+    }
+
+    // Move tour[s..e] to sit right after position k (k outside [s-1, e])
+    private void moveSegment(int s, int e, int k, boolean reversed) {
+        int length = e - s + 1;
+        int[] segment = Arrays.copyOfRange(tour, s, e + 1);
+        if (reversed) {
+            for (int i = 0; i < length / 2; i++) {
+                int tmp = segment[i];
+                segment[i] = segment[length - 1 - i];
+                segment[length - 1 - i] = tmp;
+            }
+        }
+
+        int insertAt;
+        if (k > e) {
+            System.arraycopy(tour, e + 1, tour, s, k - e);
+            insertAt = k - length + 1;
+        } else {
+            System.arraycopy(tour, k + 1, tour, k + 1 + length, s - k - 1);
+            insertAt = k + 1;
+        }
+        System.arraycopy(segment, 0, tour, insertAt, length);
+
+        int lo = Math.min(s, insertAt);
+        int hi = Math.max(e, k);
+        for (int p = lo; p <= hi; p++) {
+            position[tour[p]] = p;
+        }
+    }
+
+    /**
+     * Structure coordinates as a hash key
+     */
+    private static final class Location {
+        final double latitude;
+        final double longitude;
+
+        Location(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Location)) {
+                return false;
+            }
+            Location other = (Location) o;
+            return Double.doubleToLongBits(latitude) == Double.doubleToLongBits(other.latitude)
+                    && Double.doubleToLongBits(longitude) == Double.doubleToLongBits(other.longitude);
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(latitude) * 31 + Double.doubleToLongBits(longitude);
+            return (int) (bits ^ (bits >>> 32));
+        }
+    }
+
+    /**
+     * Uniform grid over the projected points for nearest-neighbour queries
+     */
+    private static class SpatialGrid {
+        private final double[] x;
+        private final double[] y;
+        private final int count;
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int columns;
+        private final int rows;
+        private final int[] cellStart;
+        private final int[] cellNodes;
+        private final boolean[] removed;
+
+        SpatialGrid(double[] x, double[] y, int count) {
+            this.x = x;
+            this.y = y;
+            this.count = count;
+
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            this.minX = minX;
+            this.minY = minY;
+
+            double width = Math.max(maxX - minX, 1);
+            double height = Math.max(maxY - minY, 1);
+            // About two points per cell
+            double size = Math.sqrt(width * height * 2 / count);
+            size = Math.max(size, Math.max(width, height) / 2048);
+            this.cellSize = Math.max(size, 1e-3);
+            this.columns = (int) (width / cellSize) + 1;
+            this.rows = (int) (height / cellSize) + 1;
+
+            int cells = columns * rows;
+            cellStart = new int[cells + 1];
+            for (int i = 0; i < count; i++) {
+                cellStart[cellOf(i) + 1]++;
+            }
+            for (int c = 0; c < cells; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            cellNodes = new int[count];
+            int[] fill = Arrays.copyOf(cellStart, cells);
+            for (int i = 0; i < count; i++) {
+                cellNodes[fill[cellOf(i)]++] = i;
+            }
+            removed = new boolean[count];
+        }
+
+        private int column(double px) {
+            return Math.min(columns - 1, (int) ((px - minX) / cellSize));
+        }
+
+        private int row(double py) {
+            return Math.min(rows - 1, (int) ((py - minY) / cellSize));
+        }
+
+        private int cellOf(int node) {
+            return row(y[node]) * columns + column(x[node]);
+        }
+
+        void remove(int node) {
+            removed[node] = true;
+        }
+
+        void reset() {
+            Arrays.fill(removed, false);
+        }
+
+        /**
+         * @return Nearest node that has not been removed, searching rings of cells outwards
+         */
+        int nearest(int node) {
+            final double px = x[node];
+            final double py = y[node];
+            final int cx = column(px);
+            final int cy = row(py);
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            int maxRing = Math.max(columns, rows);
+
+            for (int ring = 0; ring <= maxRing; ring++) {
+                if (best >= 0) {
+                    double ringDistance = (ring - 1) * cellSize;
+                    if (ringDistance * ringDistance > bestDistance) {
+                        break;
+                    }
+                }
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                    if (gy < 0 || gy >= rows) {
+                        continue;
+                    }
+                    boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int gx = cx - ring; gx <= cx + ring; gx += Math.max(step, 1)) {
+                        if (gx < 0 || gx >= columns) {
+                            continue;
+                        }
+                        int cell = gy * columns + gx;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                            int candidate = cellNodes[i];
+                            if (removed[candidate] || candidate == node) {
+                                continue;
+                            }
+                            double dx = x[candidate] - px;
+                            double dy = y[candidate] - py;
+                            double d = dx * dx + dy * dy;
+                            if (d < bestDistance) {
+                                bestDistance = d;
+                                best = candidate;
+                            }
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * @return The k nearest other nodes, closest first
+         */
+        int[] nearest(int node, int k) {
+            final double px = x[node];
+            final double py = y[node];
+            final int cx = column(px);
+            final int cy = row(py);
+            int[] result = new int[k];
+            double[] resultDistance = new double[k];
+            Arrays.fill(resultDistance, Double.MAX_VALUE);
+            int found = 0;
+            int maxRing = Math.max(columns, rows);
+
+            for (int ring = 0; ring <= maxRing; ring++) {
+                if (found == k) {
+                    double ringDistance = (ring - 1) * cellSize;
+                    if (ringDistance * ringDistance > resultDistance[k - 1]) {
+                        break;
+                    }
+                }
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                    if (gy < 0 || gy >= rows) {
+                        continue;
+                    }
+                    boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int gx = cx - ring; gx <= cx + ring; gx += Math.max(step, 1)) {
+                        if (gx < 0 || gx >= columns) {
+                            continue;
+                        }
+                        int cell = gy * columns + gx;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                            int candidate = cellNodes[i];
+                            if (candidate == node) {
+                                continue;
+                            }
+                            double dx = x[candidate] - px;
+                            double dy = y[candidate] - py;
+                            double d = dx * dx + dy * dy;
+                            if (found < k || d < resultDistance[k - 1]) {
+                                int slot = found < k ? found++ : k - 1;
+                                while (slot > 0 && resultDistance[slot - 1] > d) {
+                                    result[slot] = result[slot - 1];
+                                    resultDistance[slot] = resultDistance[slot - 1];
+                                    slot--;
+                                }
+                                result[slot] = candidate;
+                                resultDistance[slot] = d;
+                            }
+                        }
+                    }
+                }
+            }
+            return found == k ? result : Arrays.copyOf(result, found);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a ZIP file whose entries are all stored uncompressed, streaming each entry in one
+ * pass with a fixed-size buffer.
+ *
+ * {@link java.util.zip.ZipOutputStream} needs the CRC of a stored entry before writing it,
+ * which means reading every file twice. This writer instead writes the local header with a
+ * blank CRC, computes the CRC while copying the data, and patches the header afterwards.
+ * The result is a plain ZIP without data descriptors that any reader can open. Only the
+ * central directory records of the entries are kept in memory.
+ *
+ * Volumes are limited to the classic ZIP format: under 4 GB and 65535 entries.
+ */
+public class StoredZipWriter {
+
+    /** Largest size and offset the classic ZIP format can record */
+    public static final long MAX_BYTES = 0xFFFFFFFFL;
+    public static final int MAX_ENTRIES = 0xFFFF;
+    /** End of central directory record, without a comment */
+    public static final int END_RECORD_BYTES = 22;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int LOCAL_HEADER_BYTES = 30;
+    private static final int CENTRAL_HEADER_BYTES = 46;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_RECORD_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 10; // 1.0: stored entries only
+    private static final int FLAG_UTF8_NAMES = 1 << 11;
+    private static final int CRC_OFFSET = 14; // In the local header
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static class Entry {
+        final byte[] name;
+        final int dosTime;
+        final long offset;
+        long crc;
+        long size;
+
+        Entry(byte[] name, int dosTime, long offset) {
+            this.name = name;
+            this.dosTime = dosTime;
+            this.offset = offset;
+        }
+    }
+
+    private final FileOutputStream stream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Entry> entries = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private long written;
+    private long centralDirectoryBytes;
+    private boolean closed;
+
+    public StoredZipWriter(File file) throws IOException {
+        stream = new FileOutputStream(file);
+        channel = stream.getChannel();
+    }
+
+    /**
+     * Bytes an entry with this name and size adds to the finished file
+     */
+    public static long entryBytes(String name, long size) {
+        int nameBytes = name.getBytes(UTF8).length;
+        return LOCAL_HEADER_BYTES + CENTRAL_HEADER_BYTES + 2L * nameBytes + size;
+    }
+
+    /**
+     * @return Size of the file once closed, without further entries
+     */
+    public long getFinishedBytes() {
+        return written + centralDirectoryBytes + END_RECORD_BYTES;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Add a file as a stored entry
+     * @return CRC32 of the data
+     */
+    public long addFile(String name, File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return add(name, file.lastModified(), in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Add data read to the end of a stream as a stored entry
+     * @return CRC32 of the data
+     */
+    public long add(String name, long modifiedMillis, InputStream in) throws IOException {
+        if (closed) {
+            throw new IOException("Archive already closed");
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            throw new IOException("Too many entries for a ZIP volume");
+        }
+        Entry entry = new Entry(name.getBytes(UTF8), dosTime(modifiedMillis), written);
+        writeLocalHeader(entry);
+
+        crc.reset();
+        long size = 0;
+        buffer.clear();
+        int read;
+        while ((read = in.read(buffer.array(), 0, buffer.capacity())) >= 0) {
+            crc.update(buffer.array(), 0, read);
+            buffer.limit(read);
+            writeFully(buffer);
+            buffer.clear();
+            size += read;
+        }
+        if (entry.offset + LOCAL_HEADER_BYTES + entry.name.length + size > MAX_BYTES) {
+            throw new IOException("ZIP volume would exceed 4 GB");
+        }
+        entry.crc = crc.getValue();
+        entry.size = size;
+
+        // Fill in the CRC and sizes left blank in the local header
+        buffer.clear();
+        buffer.putInt((int) entry.crc).putInt((int) size).putInt((int) size);
+        buffer.flip();
+        long position = entry.offset + CRC_OFFSET;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        entries.add(entry);
+        centralDirectoryBytes += CENTRAL_HEADER_BYTES + entry.name.length;
+        return entry.crc;
+    }
+
+    /**
+     * Write the central directory and close the file
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long directoryOffset = written;
+            for (Entry entry : entries) {
+                buffer.clear();
+                buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+                buffer.putShort((short) VERSION); // Made by
+                buffer.putShort((short) VERSION); // Needed to extract
+                buffer.putShort((short) FLAG_UTF8_NAMES);
+                buffer.putShort((short) 0); // Stored
+                buffer.putInt(entry.dosTime);
+                buffer.putInt((int) entry.crc);
+                buffer.putInt((int) entry.size);
+                buffer.putInt((int) entry.size);
+                buffer.putShort((short) entry.name.length);
+                buffer.putShort((short) 0); // Extra field
+                buffer.putShort((short) 0); // Comment
+                buffer.putShort((short) 0); // Disk number
+                buffer.putShort((short) 0); // Internal attributes
+                buffer.putInt(0); // External attributes
+                buffer.putInt((int) entry.offset);
+                buffer.put(entry.name);
+                buffer.flip();
+                writeFully(buffer);
+            }
+            long directorySize = written - directoryOffset;
+
+            buffer.clear();
+            buffer.putInt(END_RECORD_SIGNATURE);
+            buffer.putShort((short) 0); // This disk
+            buffer.putShort((short) 0); // Disk with the directory
+            buffer.putShort((short) entries.size());
+            buffer.putShort((short) entries.size());
+            buffer.putInt((int) directorySize);
+            buffer.putInt((int) directoryOffset);
+            buffer.putShort((short) 0); // Comment
+            buffer.flip();
+            writeFully(buffer);
+
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Close the file without finishing it, e.g. when packaging is cancelled
+     */
+    public void abort() {
+        closed = true;
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        buffer.clear();
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) FLAG_UTF8_NAMES);
+        buffer.putShort((short) 0); // Stored
+        buffer.putInt(entry.dosTime);
+        buffer.putInt(0); // CRC, patched once the data is written
+        buffer.putInt(0); // Compressed size
+        buffer.putInt(0); // Size
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) 0); // Extra field
+        buffer.put(entry.name);
+        buffer.flip();
+        writeFully(buffer);
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            written += channel.write(data);
+        }
+    }
+
+    private static int dosTime(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16); // 1980-01-01, the earliest DOS date
+        }
+        return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 |
+                calendar.get(Calendar.DAY_OF_MONTH) << 16 | calendar.get(Calendar.HOUR_OF_DAY) << 11 |
+                calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+    }
+}
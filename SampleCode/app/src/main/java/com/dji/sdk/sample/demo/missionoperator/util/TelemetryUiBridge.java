@@ -0,0 +1,166 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces telemetry updates from SDK callback threads into at most one UI render per frame,
+ * capped at a configurable rate.
+ *
+ * Producers store the latest values wherever the UI reads them (e.g. volatile fields) and then
+ * call {@link #markDirty(int)} with the bits of the fields they changed. Dirty bits are merged
+ * with a compare-and-set loop, and a single Choreographer frame callback hands the merged mask
+ * to the {@link Renderer} on the main thread. Updates that arrive before the previous value of
+ * the same field was drawn are counted as merged; updates that arrive while the bridge is
+ * stopped are counted as dropped.
+ */
+public class TelemetryUiBridge {
+
+    /**
+     * Draws the fields whose bits are set; called on the main thread
+     */
+    public interface Renderer {
+        void render(int dirtyMask);
+    }
+
+    private final Renderer renderer;
+    private final long minFrameIntervalNanos;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger dirtyMask = new AtomicInteger();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private volatile boolean running;
+    private Choreographer choreographer;
+    private long lastRenderNanos;
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong mergedUpdates = new AtomicLong();
+    private final AtomicLong droppedUpdates = new AtomicLong();
+    private final AtomicLong renderedFrames = new AtomicLong();
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                frameScheduled.set(false);
+                return;
+            }
+            if (frameTimeNanos - lastRenderNanos < minFrameIntervalNanos) {
+                // Over the rate cap; wait for a later frame
+                choreographer.postFrameCallback(this);
+                return;
+            }
+
+            // Clear the flag first so an update racing with this frame schedules the next one
+            frameScheduled.set(false);
+            int mask = dirtyMask.getAndSet(0);
+            if (mask != 0) {
+                lastRenderNanos = frameTimeNanos;
+                renderedFrames.incrementAndGet();
+                renderer.render(mask);
+            }
+        }
+    };
+
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (running) {
+                choreographer.postFrameCallback(frameCallback);
+            } else {
+                frameScheduled.set(false);
+            }
+        }
+    };
+
+    /**
+     * @param renderer Draws dirty fields on the main thread
+     * @param maxRendersPerSecond Render rate cap; the display refresh rate is the upper bound
+     */
+    public TelemetryUiBridge(Renderer renderer, int maxRendersPerSecond) {
+        if (maxRendersPerSecond <= 0) {
+            throw new IllegalArgumentException("maxRendersPerSecond must be positive");
+        }
+        this.renderer = renderer;
+        this.minFrameIntervalNanos = 1000000000L / maxRendersPerSecond;
+    }
+
+    /**
+     * Start rendering; must be called on the main thread
+     */
+    public void start() {
+        if (choreographer == null) {
+            choreographer = Choreographer.getInstance();
+        }
+        running = true;
+        if (dirtyMask.get() != 0 && frameScheduled.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Stop rendering; pending dirty bits are kept for the next {@link #start()}. Must be called
+     * on the main thread.
+     */
+    public void stop() {
+        running = false;
+        mainHandler.removeCallbacks(scheduleFrame);
+        if (choreographer != null) {
+            choreographer.removeFrameCallback(frameCallback);
+        }
+        frameScheduled.set(false);
+    }
+
+    /**
+     * Flag fields as changed; safe to call from any thread and allocation free
+     * @param mask Bits of the changed fields
+     */
+    public void markDirty(int mask) {
+        updates.incrementAndGet();
+        if (!running) {
+            droppedUpdates.incrementAndGet();
+        }
+
+        int current;
+        do {
+            current = dirtyMask.get();
+        } while (!dirtyMask.compareAndSet(current, current | mask));
+        if ((current & mask) != 0) {
+            mergedUpdates.incrementAndGet();
+        }
+
+        if (running && frameScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                choreographer.postFrameCallback(frameCallback);
+            } else {
+                mainHandler.post(scheduleFrame);
+            }
+        }
+    }
+
+    public long getUpdateCount() {
+        return updates.get();
+    }
+
+    /**
+     * @return Updates superseded by a newer update before they were drawn
+     */
+    public long getMergedUpdateCount() {
+        return mergedUpdates.get();
+    }
+
+    /**
+     * @return Updates received while the bridge was stopped
+     */
+    public long getDroppedUpdateCount() {
+        return droppedUpdates.get();
+    }
+
+    public long getRenderedFrameCount() {
+        return renderedFrames.get();
+    }
+}
@@ -0,0 +1,372 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads photo thumbnails into image views without decoding full-size photos on the UI thread.
+ *
+ * A pre-scaled thumbnail written next to the photo at save time is used when there is one.
+ * Otherwise the photo is decoded on a worker thread with an {@code inSampleSize} chosen from the
+ * size of the target view, then scaled to just cover it. Thumbnails are kept in a byte-bounded memory cache
+ * and as small JPEGs in a disk cache, so scrolling back or reopening the gallery does not decode
+ * the photos again. Loading into a view cancels the load previously started for it, which is
+ * what happens when a list recycles the view. Bitmaps that are neither cached nor displayed go
+ * to a {@link BitmapPool} and are decoded into again.
+ *
+ * {@link #load} and {@link #cancel} must be called on the main thread.
+ */
+public class ThumbnailLoader {
+    private static final String TAG = "ThumbnailLoader";
+
+    private static final int DECODE_THREADS = 2;
+    private static final int DISK_CACHE_QUALITY = 85;
+    private static final int DISK_TRIM_INTERVAL = 32; // Writes between disk cache size checks
+
+    private final File diskCacheDirectory;
+    private final long maxDiskCacheBytes;
+    private final int placeholderResId;
+    private final BitmapPool pool;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+    private final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // Main thread only
+    private final Map<ImageView, Request> requests = new HashMap<>();
+    private final Map<ImageView, Bitmap> boundBitmaps = new HashMap<>();
+    private final Map<Bitmap, Integer> displayCounts = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> cachedBitmaps = new IdentityHashMap<>();
+
+    private int diskWrites;
+
+    /**
+     * @param diskCacheDirectory Folder for cached thumbnails
+     * @param memoryCacheBytes Bytes of thumbnails kept in memory
+     * @param maxDiskCacheBytes Bytes of thumbnails kept on disk; the least recently written go first
+     * @param placeholderResId Drawable shown while a thumbnail loads or when a photo cannot be read
+     */
+    public ThumbnailLoader(File diskCacheDirectory, int memoryCacheBytes, long maxDiskCacheBytes, int placeholderResId) {
+        this.diskCacheDirectory = diskCacheDirectory;
+        this.maxDiskCacheBytes = maxDiskCacheBytes;
+        this.placeholderResId = placeholderResId;
+        this.pool = new BitmapPool(memoryCacheBytes / 4);
+        this.memoryCache = new LruCache<String, Bitmap>(memoryCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    cachedBitmaps.remove(oldValue);
+                    recycleIfUnused(oldValue);
+                }
+            }
+        };
+        this.executor = new ThreadPoolExecutor(DECODE_THREADS, DECODE_THREADS, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+
+        if (!diskCacheDirectory.exists() && !diskCacheDirectory.mkdirs()) {
+            Log.e(TAG, "Failed to create thumbnail cache: " + diskCacheDirectory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Show the thumbnail of a photo in a view, replacing whatever the view was loading
+     * @param thumbnail Pre-scaled copy of the photo, read instead of the photo if it exists; may be null
+     * @param modifiedMillis Modification time of the photo; a new time loads a new thumbnail
+     * @param fallbackWidth Width to decode for when the view has not been laid out yet
+     * @param fallbackHeight Height to decode for when the view has not been laid out yet
+     */
+    public void load(File photo, File thumbnail, long modifiedMillis, ImageView view, int fallbackWidth,
+                     int fallbackHeight) {
+        cancel(view);
+
+        int width = view.getWidth() > 0 ? view.getWidth() : fallbackWidth;
+        int height = view.getHeight() > 0 ? view.getHeight() : fallbackHeight;
+        String key = photo.getAbsolutePath() + "|" + modifiedMillis + "|" + width + "x" + height;
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            bind(view, cached);
+            return;
+        }
+
+        view.setImageResource(placeholderResId);
+        Request request = new Request(photo, thumbnail, key, width, height, view);
+        requests.put(view, request);
+        request.future = executor.submit(request);
+    }
+
+    /**
+     * Stop loading into a view and let go of the thumbnail it shows
+     */
+    public void cancel(ImageView view) {
+        Request request = requests.remove(view);
+        if (request != null) {
+            request.cancelled = true;
+            request.future.cancel(false);
+        }
+        unbind(view);
+    }
+
+    /**
+     * Drop the thumbnails kept in memory, e.g. when the gallery is closed
+     */
+    public void clearMemory() {
+        memoryCache.evictAll();
+        pool.clear();
+    }
+
+    public int getPoolHitCount() {
+        return pool.getHitCount();
+    }
+
+    public int getPoolMissCount() {
+        return pool.getMissCount();
+    }
+
+    private void bind(ImageView view, Bitmap bitmap) {
+        unbind(view);
+        boundBitmaps.put(view, bitmap);
+        Integer count = displayCounts.get(bitmap);
+        displayCounts.put(bitmap, count == null ? 1 : count + 1);
+        view.setImageBitmap(bitmap);
+    }
+
+    private void unbind(ImageView view) {
+        Bitmap bitmap = boundBitmaps.remove(view);
+        if (bitmap == null) {
+            return;
+        }
+        // The view must not draw the bitmap once it may be decoded into again
+        view.setImageDrawable(null);
+        Integer count = displayCounts.get(bitmap);
+        if (count == null || count <= 1) {
+            displayCounts.remove(bitmap);
+            recycleIfUnused(bitmap);
+        } else {
+            displayCounts.put(bitmap, count - 1);
+        }
+    }
+
+    private void recycleIfUnused(Bitmap bitmap) {
+        if (!displayCounts.containsKey(bitmap) && !cachedBitmaps.containsKey(bitmap)) {
+            pool.put(bitmap);
+        }
+    }
+
+    private void deliver(Request request, Bitmap bitmap) {
+        if (!request.cancelled && requests.get(request.view) == request) {
+            requests.remove(request.view);
+            if (bitmap != null) {
+                bind(request.view, bitmap);
+            }
+        }
+        // Cached even if the view moved on, so scrolling back finds it; bound first so the
+        // cache cannot hand it to the pool while it is about to be shown
+        if (bitmap != null) {
+            cachedBitmaps.put(bitmap, Boolean.TRUE);
+            memoryCache.put(request.key, bitmap);
+        }
+    }
+
+    private class Request implements Runnable {
+        final File photo;
+        final File thumbnail;
+        final String key;
+        final int width;
+        final int height;
+        final ImageView view;
+        volatile boolean cancelled;
+        Future<?> future;
+
+        Request(File photo, File thumbnail, String key, int width, int height, ImageView view) {
+            this.photo = photo;
+            this.thumbnail = thumbnail;
+            this.key = key;
+            this.width = width;
+            this.height = height;
+            this.view = view;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            // A saved thumbnail is as small as a cached one, so it needs no cache entry of its own
+            Bitmap bitmap = thumbnail != null && thumbnail.isFile() ? decodeThumbnail(thumbnail, width, height) : null;
+
+            File cacheFile = new File(diskCacheDirectory, Integer.toHexString(key.hashCode()) + "_" + width + "x" + height + ".jpg");
+            if (bitmap == null && cacheFile.isFile()) {
+                bitmap = decode(cacheFile, 1);
+            }
+            if (bitmap == null && !cancelled) {
+                bitmap = decodeThumbnail(photo, width, height);
+                if (bitmap != null) {
+                    writeDiskCache(cacheFile, bitmap);
+                }
+            }
+
+            final Bitmap result = bitmap;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(Request.this, result);
+                }
+            });
+        }
+    }
+
+    private Bitmap decodeThumbnail(File photo, int width, int height) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photo.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            Log.e(TAG, "Cannot read photo: " + photo.getAbsolutePath());
+            return null;
+        }
+
+        Bitmap sampled = decode(photo, sampleSize(bounds.outWidth, bounds.outHeight, width, height));
+        if (sampled == null) {
+            return null;
+        }
+
+        // The sample size only halves; scale the rest of the way to just cover the view
+        float scale = Math.max((float) width / sampled.getWidth(), (float) height / sampled.getHeight());
+        if (scale >= 0.75f) {
+            return sampled;
+        }
+        int scaledWidth = Math.max(1, Math.round(sampled.getWidth() * scale));
+        int scaledHeight = Math.max(1, Math.round(sampled.getHeight() * scale));
+        Bitmap scaled = obtain(scaledWidth, scaledHeight);
+        new Canvas(scaled).drawBitmap(sampled, null, new Rect(0, 0, scaledWidth, scaledHeight), scalePaint);
+        pool.put(sampled);
+        return scaled;
+    }
+
+    // Largest power of two that keeps both sides at least as large as the view
+    private static int sampleSize(int photoWidth, int photoHeight, int width, int height) {
+        int sample = 1;
+        while (photoWidth / (sample * 2) >= width && photoHeight / (sample * 2) >= height) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private Bitmap decode(File file, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inBitmap = pool.get((options.outWidth + sampleSize - 1) / sampleSize,
+                (options.outHeight + sampleSize - 1) / sampleSize, Bitmap.Config.ARGB_8888);
+        try {
+            return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this image
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        }
+    }
+
+    private Bitmap obtain(int width, int height) {
+        Bitmap bitmap = pool.get(width, height, Bitmap.Config.ARGB_8888);
+        if (bitmap != null) {
+            try {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                return bitmap;
+            } catch (IllegalArgumentException e) {
+                pool.put(bitmap);
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private void writeDiskCache(File cacheFile, Bitmap bitmap) {
+        File temp = new File(diskCacheDirectory, cacheFile.getName() + ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, DISK_CACHE_QUALITY, out);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(cacheFile)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache thumbnail: " + e.getMessage());
+            temp.delete();
+        }
+
+        boolean trim;
+        synchronized (this) {
+            trim = ++diskWrites % DISK_TRIM_INTERVAL == 0;
+        }
+        if (trim) {
+            trimDiskCache();
+        }
+    }
+
+    private void trimDiskCache() {
+        File[] files = diskCacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+            total += files[i].length();
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(modified[a], modified[b]);
+            }
+        });
+        for (int i = 0; i < order.length && total > maxDiskCacheBytes; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+}
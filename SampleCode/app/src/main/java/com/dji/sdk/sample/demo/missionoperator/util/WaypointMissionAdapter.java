@@ -0,0 +1,126 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dji.common.mission.waypoint.Waypoint;
+import dji.common.mission.waypoint.WaypointAction;
+import dji.common.mission.waypoint.WaypointActionType;
+import dji.common.mission.waypoint.WaypointMission;
+import dji.common.mission.waypoint.WaypointMissionFinishedAction;
+import dji.common.mission.waypoint.WaypointMissionFlightPathMode;
+import dji.common.mission.waypoint.WaypointMissionHeadingMode;
+import dji.common.mission.waypointv2.Action.WaypointV2Action;
+import dji.common.mission.waypointv2.WaypointV2;
+import dji.common.mission.waypointv2.WaypointV2Mission;
+import dji.common.mission.waypointv2.WaypointV2MissionTypes;
+import dji.common.model.LocationCoordinate2D;
+
+/**
+ * Translates a {@link PlannedMission} into DJI waypoint missions.
+ *
+ * Every method works on a waypoint range [from, to) so a large plan can be uploaded in parts.
+ * Waypoint indices in the resulting mission are relative to {@code from}.
+ */
+public class WaypointMissionAdapter {
+
+    /**
+     * Build a WaypointMission (v1) for a range of the plan
+     * @param mission The planned waypoints
+     * @param from First waypoint, inclusive
+     * @param to Last waypoint, exclusive
+     * @param speed Auto flight speed in m/s
+     * @param finishedAction What the aircraft does after the last waypoint of the range
+     * @return The built mission
+     */
+    public static WaypointMission toWaypointMission(PlannedMission mission, int from, int to, float speed,
+                                                    WaypointMissionFinishedAction finishedAction) {
+        WaypointMission.Builder builder = new WaypointMission.Builder();
+
+        builder.autoFlightSpeed(speed);
+        builder.maxFlightSpeed(speed * 2);
+        builder.setExitMissionOnRCSignalLostEnabled(false);
+        builder.finishedAction(finishedAction);
+        builder.flightPathMode(WaypointMissionFlightPathMode.NORMAL);
+        builder.headingMode(WaypointMissionHeadingMode.USING_WAYPOINT_HEADING);
+        builder.setGimbalPitchRotationEnabled(true);
+
+        for (int i = from; i < to; i++) {
+            Waypoint waypoint = new Waypoint(mission.getLatitude(i), mission.getLongitude(i), mission.getAltitude(i));
+            waypoint.heading = toSignedHeading(mission.getHeading(i));
+
+            if (mission.isPhoto(i)) {
+                int gimbalPitchValue = Math.round(mission.getGimbalPitch(i));
+                waypoint.addAction(new WaypointAction(WaypointActionType.GIMBAL_PITCH, gimbalPitchValue));
+                waypoint.addAction(new WaypointAction(WaypointActionType.START_TAKE_PHOTO, 0));
+            }
+
+            builder.addWaypoint(waypoint);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Build a WaypointV2Mission for a range of the plan. Photo actions are built separately
+     * with {@link #toWaypointV2Actions} and uploaded after the mission.
+     */
+    public static WaypointV2Mission toWaypointV2Mission(PlannedMission mission, int from, int to, float speed,
+                                                        WaypointV2MissionTypes.MissionFinishedAction finishedAction,
+                                                        int missionId) {
+        List<WaypointV2> waypoints = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            waypoints.add(new WaypointV2.Builder()
+                    .setCoordinate(new LocationCoordinate2D(mission.getLatitude(i), mission.getLongitude(i)))
+                    .setAltitude(mission.getAltitude(i))
+                    .setFlightPathMode(WaypointV2MissionTypes.WaypointV2FlightPathMode.GOTO_POINT_STRAIGHT_LINE_AND_STOP)
+                    .setHeadingMode(WaypointV2MissionTypes.WaypointV2HeadingMode.WAYPOINT_CUSTOM)
+                    .setHeading(toSignedHeading(mission.getHeading(i)))
+                    .build());
+        }
+
+        return new WaypointV2Mission.Builder()
+                .setMissionID(missionId)
+                .setMaxFlightSpeed(speed * 2)
+                .setAutoFlightSpeed(speed)
+                .setFinishedAction(finishedAction)
+                .setGotoFirstWaypointMode(WaypointV2MissionTypes.MissionGotoWaypointMode.SAFELY)
+                .setExitMissionOnRCSignalLostEnabled(false)
+                .setRepeatTimes(1)
+                .addwaypoints(waypoints)
+                .build();
+    }
+
+    /**
+     * Build the WaypointV2 actions for the photo waypoints of a range: stop, rotate the gimbal,
+     * take a photo and continue
+     */
+    public static List<WaypointV2Action> toWaypointV2Actions(PlannedMission mission, int from, int to) {
+        List<WaypointV2Action> actions = new ArrayList<>();
+        int actionId = 0;
+
+        for (int i = from; i < to; i++) {
+            if (!mission.isPhoto(i)) {
+                continue;
+            }
+            int localIndex = i - from;
+            actions.add(WaypointV2Factory.getStopFlyAction(localIndex, ++actionId));
+            actions.add(WaypointV2Factory.getSerialAction(actionId, ++actionId,
+                    ActionUtils.getGimbalAbsolutePitchActuator(mission.getGimbalPitch(i), 0)));
+            actions.add(WaypointV2Factory.getSerialDelayAction(actionId, ++actionId, 0.5f,
+                    ActionUtils.getShootPhotoActuator(0)));
+            actions.add(WaypointV2Factory.getSerialDelayAction(actionId, ++actionId, 1f,
+                    ActionUtils.getStayStartActuator()));
+        }
+
+        return actions;
+    }
+
+    /**
+     * DJI waypoint headings are in [-180, 180]
+     */
+    private static int toSignedHeading(float heading) {
+        int value = Math.round(heading);
+        return value > 180 ? value - 360 : value;
+    }
+}
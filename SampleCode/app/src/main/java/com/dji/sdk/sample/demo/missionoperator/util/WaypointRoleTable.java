@@ -0,0 +1,136 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.util.List;
+
+/**
+ * Precomputed role of every waypoint of a planned mission, for constant-time lookups from
+ * mission execution events.
+ *
+ * Each waypoint is packed into one long: the waypoint kind, the segment (upload chunk) that
+ * flies it, the structure index and the photo position index. The photo ordinal, the number
+ * of photo waypoints flown before this one, is kept in a parallel int column. Decoding is
+ * done with static methods on the packed value so the event path allocates nothing.
+ */
+public class WaypointRoleTable {
+
+    /** Entry returned for indices outside the mission */
+    public static final long NONE = -1L;
+
+    private static final int KIND_BITS = 8;
+    private static final int SEGMENT_BITS = 16;
+    private static final int STRUCTURE_BITS = 24;
+    private static final int PHOTO_BITS = 16;
+
+    private static final int SEGMENT_SHIFT = KIND_BITS;
+    private static final int STRUCTURE_SHIFT = SEGMENT_SHIFT + SEGMENT_BITS;
+    private static final int PHOTO_SHIFT = STRUCTURE_SHIFT + STRUCTURE_BITS;
+
+    private static final long KIND_MASK = (1L << KIND_BITS) - 1;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private static final long STRUCTURE_MASK = (1L << STRUCTURE_BITS) - 1;
+    private static final long PHOTO_MASK = (1L << PHOTO_BITS) - 1;
+
+    private final long[] entries;
+    private final int[] photoOrdinals;
+    private final int photoWaypointCount;
+
+    /**
+     * @param mission The planned mission
+     * @param segments Upload segments of the mission; a waypoint shared by two segments is
+     *                 attributed to the later one, where it is flown as the start point
+     */
+    public WaypointRoleTable(PlannedMission mission, List<MissionSegmenter.Segment> segments) {
+        final int size = mission.size();
+        entries = new long[size];
+        photoOrdinals = new int[size];
+
+        if (segments.size() > SEGMENT_MASK) {
+            throw new IllegalArgumentException("Too many segments: " + segments.size());
+        }
+
+        int segment = 0;
+        int photoOrdinal = 0;
+        for (int i = 0; i < size; i++) {
+            while (segment + 1 < segments.size() && segments.get(segment + 1).from <= i) {
+                segment++;
+            }
+
+            int structureIndex = mission.structureIndices[i];
+            int photoIndex = mission.photoIndices[i];
+            if (structureIndex + 1 > STRUCTURE_MASK || photoIndex + 1 > PHOTO_MASK) {
+                throw new IllegalArgumentException("Waypoint " + i + " does not fit the role table");
+            }
+
+            entries[i] = (mission.kinds[i] & KIND_MASK)
+                    | ((long) segment << SEGMENT_SHIFT)
+                    | ((long) (structureIndex + 1) << STRUCTURE_SHIFT)
+                    | ((long) (photoIndex + 1) << PHOTO_SHIFT);
+
+            if (mission.kinds[i] == PlannedMission.KIND_PHOTO) {
+                photoOrdinals[i] = photoOrdinal++;
+            } else {
+                photoOrdinals[i] = -1;
+            }
+        }
+        photoWaypointCount = photoOrdinal;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public int getPhotoWaypointCount() {
+        return photoWaypointCount;
+    }
+
+    /**
+     * @return Packed entry of a waypoint, or {@link #NONE} if the index is out of range
+     */
+    public long get(int waypoint) {
+        return waypoint >= 0 && waypoint < entries.length ? entries[waypoint] : NONE;
+    }
+
+    /**
+     * @return Number of photo waypoints before this one in flight order, or -1 if the
+     * waypoint takes no photo or is out of range
+     */
+    public int getPhotoOrdinal(int waypoint) {
+        return waypoint >= 0 && waypoint < photoOrdinals.length ? photoOrdinals[waypoint] : -1;
+    }
+
+    public boolean isPhoto(int waypoint) {
+        return isPhoto(get(waypoint));
+    }
+
+    /**
+     * @return One of the {@code PlannedMission.KIND_*} constants, or -1 for {@link #NONE}
+     */
+    public static int kind(long entry) {
+        return entry == NONE ? -1 : (int) (entry & KIND_MASK);
+    }
+
+    public static boolean isPhoto(long entry) {
+        return kind(entry) == PlannedMission.KIND_PHOTO;
+    }
+
+    /**
+     * @return Segment that flies the waypoint, or -1 for {@link #NONE}
+     */
+    public static int segment(long entry) {
+        return entry == NONE ? -1 : (int) ((entry >>> SEGMENT_SHIFT) & SEGMENT_MASK);
+    }
+
+    /**
+     * @return Structure index in plan order, or -1 for the climb above home and {@link #NONE}
+     */
+    public static int structureIndex(long entry) {
+        return entry == NONE ? -1 : (int) ((entry >>> STRUCTURE_SHIFT) & STRUCTURE_MASK) - 1;
+    }
+
+    /**
+     * @return Photo position index, or -1 for waypoints that take no photo and {@link #NONE}
+     */
+    public static int photoIndex(long entry) {
+        return entry == NONE ? -1 : (int) ((entry >>> PHOTO_SHIFT) & PHOTO_MASK) - 1;
+    }
+}
@@ -414,15 +414,16 @@ public class MainActivity extends AppCompatActivity implements StructureInspecti
     @Override
     public void openFilePicker(int requestCode) {
         Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
-        intent.setType("text/*");
+        intent.setType("*/*");
         intent.addCategory(Intent.CATEGORY_OPENABLE);
 
         try {
-            // Adicionar filtro para mostrar apenas arquivos CSV
-            String[] mimeTypes = {"text/csv", "text/comma-separated-values", "application/csv"};
+            // Adicionar filtro para mostrar arquivos CSV e missões compiladas (.plvm, binário)
+            String[] mimeTypes = {"text/csv", "text/comma-separated-values", "application/csv",
+                    "application/octet-stream"};
             intent.putExtra(Intent.EXTRA_MIME_TYPES, mimeTypes);
 
-            startActivityForResult(Intent.createChooser(intent, "Selecionar arquivo CSV"), requestCode);
+            startActivityForResult(Intent.createChooser(intent, "Selecionar arquivo CSV ou missão compilada"), requestCode);
         } catch (Exception e) {
             Toast.makeText(this, "Por favor, instale um gerenciador de arquivos", Toast.LENGTH_SHORT).show();
         }
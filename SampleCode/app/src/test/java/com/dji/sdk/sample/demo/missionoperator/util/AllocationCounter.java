@@ -0,0 +1,27 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Bytes allocated by the calling thread, from the HotSpot thread MXBean. Tests that use it are
+ * skipped on JVMs without allocation accounting.
+ */
+final class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long threadId = Thread.currentThread().getId();
+
+    AllocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(threadId);
+    }
+}
@@ -0,0 +1,72 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Load time of a compiled mission against planning the same mission from its plan, for a
+ * large inspection. Prints the median of several runs after a warm-up; asserts only that the
+ * loaded mission is complete, since timings depend on the machine.
+ */
+public class CompiledMissionFileBenchmark {
+
+    private static final int STRUCTURES = 2000;
+    private static final int PHOTOS = 24;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 15;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("benchmark", CompiledMissionFile.FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void loadVersusPlan() throws IOException {
+        final CompiledMissionFile.Contents contents = CompiledMissionFileTest.compile(STRUCTURES, PHOTOS, false);
+        final InspectionMissionPlanner planner = new InspectionMissionPlanner(TestPlans.PARAMETERS);
+
+        long[] writeNanos = new long[MEASURED_RUNS];
+        long[] readNanos = new long[MEASURED_RUNS];
+        long[] planNanos = new long[MEASURED_RUNS];
+        int waypoints = 0;
+        for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+            long start = System.nanoTime();
+            CompiledMissionFile.write(file, contents);
+            long written = System.nanoTime();
+            waypoints = CompiledMissionFile.read(file).mission.size();
+            long read = System.nanoTime();
+            planner.plan(contents.plan, TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, null, false);
+            long planned = System.nanoTime();
+            if (run >= 0) {
+                writeNanos[run] = written - start;
+                readNanos[run] = read - written;
+                planNanos[run] = planned - read;
+            }
+        }
+        assertEquals(contents.mission.size(), waypoints);
+
+        System.out.println(String.format("CompiledMissionFile %d structures, %d waypoints, %d KiB: " +
+                        "write %.2f ms, read %.2f ms, plan %.2f ms (median of %d)",
+                STRUCTURES, waypoints, file.length() / 1024, median(writeNanos) / 1e6,
+                median(readNanos) / 1e6, median(planNanos) / 1e6, MEASURED_RUNS));
+    }
+
+    static long median(long[] values) {
+        long[] sorted = values.clone();
+        java.util.Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
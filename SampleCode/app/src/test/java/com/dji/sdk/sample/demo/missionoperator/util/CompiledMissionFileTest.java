@@ -0,0 +1,201 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompiledMissionFileTest {
+
+    private static final int HEADER_SIZE = 72;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("mission", CompiledMissionFile.FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void roundTripKeepsEveryColumn() throws IOException {
+        // Enough waypoints that the columns span several I/O buffers
+        CompiledMissionFile.Contents written = compile(600, 16, true);
+        CompiledMissionFile.write(file, written);
+        CompiledMissionFile.Contents read = CompiledMissionFile.read(file);
+
+        InspectionPlan a = written.plan;
+        InspectionPlan b = read.plan;
+        assertEquals(a.getStructureCount(), b.getStructureCount());
+        assertEquals(a.getPhotoCount(), b.getPhotoCount());
+        for (int i = 0; i < a.getStructureCount(); i++) {
+            assertEquals(a.getLatitude(i), b.getLatitude(i), 0);
+            assertEquals(a.getLongitude(i), b.getLongitude(i), 0);
+            assertEquals(a.getElevation(i), b.getElevation(i), 0);
+            assertEquals(a.getHeight(i), b.getHeight(i), 0);
+            assertEquals(a.getStructureId(i), b.getStructureId(i));
+        }
+        for (int j = 0; j < a.getPhotoCount(); j++) {
+            assertEquals(a.getOffsetX(j), b.getOffsetX(j), 0);
+            assertEquals(a.getOffsetY(j), b.getOffsetY(j), 0);
+            assertEquals(a.getOffsetZ(j), b.getOffsetZ(j), 0);
+            assertEquals(a.getGimbalPitch(j), b.getGimbalPitch(j), 0);
+        }
+        assertArrayEquals(written.structureOrder, read.structureOrder);
+
+        PlannedMission m = written.mission;
+        PlannedMission n = read.mission;
+        assertEquals(m.size(), n.size());
+        assertArrayEquals(m.latitudes, n.latitudes, 0);
+        assertArrayEquals(m.longitudes, n.longitudes, 0);
+        assertArrayEquals(m.altitudes, n.altitudes, 0);
+        assertArrayEquals(m.headings, n.headings, 0);
+        assertArrayEquals(m.gimbalPitches, n.gimbalPitches, 0);
+        assertArrayEquals(m.kinds, n.kinds);
+        assertArrayEquals(m.structureIndices, n.structureIndices);
+        assertArrayEquals(m.photoIndices, n.photoIndices);
+        assertArrayEquals(m.getPhotoWaypointIndices(), n.getPhotoWaypointIndices());
+
+        assertEquals(written.homeLatitude, read.homeLatitude, 0);
+        assertEquals(written.homeLongitude, read.homeLongitude, 0);
+        assertEquals(written.parameters, read.parameters);
+        assertTrue(read.alternateDirection);
+    }
+
+    @Test
+    public void rewriteTruncatesLongerFile() throws IOException {
+        CompiledMissionFile.write(file, compile(40, 8, false));
+        CompiledMissionFile.Contents smaller = compile(3, 4, false);
+        CompiledMissionFile.write(file, smaller);
+
+        assertEquals(smaller.mission.size(), CompiledMissionFile.read(file).mission.size());
+    }
+
+    @Test
+    public void rejectsPayloadCorruption() throws IOException {
+        CompiledMissionFile.write(file, compile(20, 8, false));
+        flipByte(file.length() - 1);
+        expectRejected("CRC");
+    }
+
+    @Test
+    public void rejectsHomeCorruption() throws IOException {
+        CompiledMissionFile.write(file, compile(20, 8, false));
+        // Home latitude; the CRC covers the planning fields of the header too
+        flipByte(33);
+        expectRejected("CRC");
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        CompiledMissionFile.write(file, compile(20, 8, false));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 5);
+        } finally {
+            raf.close();
+        }
+        expectRejected("truncated");
+    }
+
+    @Test
+    public void rejectsShortFile() throws IOException {
+        CompiledMissionFile.write(file, compile(20, 8, false));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(HEADER_SIZE - 1);
+        } finally {
+            raf.close();
+        }
+        expectRejected("too short");
+    }
+
+    @Test
+    public void rejectsOtherVersion() throws IOException {
+        CompiledMissionFile.write(file, compile(5, 4, false));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(4);
+            raf.write(new byte[]{1, 0, 0, 0});
+        } finally {
+            raf.close();
+        }
+        expectRejected("version");
+    }
+
+    @Test
+    public void rehomeMovesOnlyTheHomeClimb() throws IOException {
+        CompiledMissionFile.Contents written = compile(10, 6, false);
+        PlannedMission original = written.mission;
+        double lat = TestPlans.HOME_LATITUDE + 0.001;
+        double lon = TestPlans.HOME_LONGITUDE - 0.001;
+
+        assertSame(original, InspectionMissionPlanner.rehome(original,
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE));
+        PlannedMission moved = InspectionMissionPlanner.rehome(original, lat, lon);
+        assertEquals(PlannedMission.KIND_HOME_CLIMB, moved.getKind(0));
+        assertEquals(lat, moved.getLatitude(0), 0);
+        assertEquals(lon, moved.getLongitude(0), 0);
+        assertEquals(original.getAltitude(0), moved.getAltitude(0), 0);
+        assertEquals(TestPlans.HOME_LATITUDE, original.getLatitude(0), 0);
+        for (int i = 1; i < original.size(); i++) {
+            assertEquals(original.getLatitude(i), moved.getLatitude(i), 0);
+            assertEquals(original.getLongitude(i), moved.getLongitude(i), 0);
+            assertEquals(original.getAltitude(i), moved.getAltitude(i), 0);
+            assertEquals(original.getKind(i), moved.getKind(i));
+        }
+        assertArrayEquals(original.getPhotoWaypointIndices(), moved.getPhotoWaypointIndices());
+        assertFalse(moved == original);
+    }
+
+    static CompiledMissionFile.Contents compile(int structureCount, int photoCount, boolean alternate) {
+        InspectionPlan plan = TestPlans.grid(structureCount, photoCount);
+        int[] order = TestPlans.identityOrder(structureCount);
+        // Reverse the order so the stored permutation is not the identity
+        for (int i = 0; i < structureCount / 2; i++) {
+            int swap = order[i];
+            order[i] = order[structureCount - 1 - i];
+            order[structureCount - 1 - i] = swap;
+        }
+        InspectionPlan ordered = plan.reorder(order);
+        PlannedMission mission = new InspectionMissionPlanner(TestPlans.PARAMETERS).plan(ordered,
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, null, alternate);
+        return new CompiledMissionFile.Contents(ordered, order, mission,
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, TestPlans.PARAMETERS, alternate);
+    }
+
+    private void flipByte(long position) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0x01);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void expectRejected(String reason) {
+        try {
+            CompiledMissionFile.read(file);
+            fail("Expected the file to be rejected (" + reason + ")");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+}
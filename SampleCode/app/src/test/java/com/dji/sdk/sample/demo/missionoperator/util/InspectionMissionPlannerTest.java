@@ -0,0 +1,225 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InspectionMissionPlannerTest {
+
+    private static final String STRUCTURES_CSV =
+            "latitude,longitude,elevation,height\n" +
+            "-23.550000,-46.630000,0.0,12.0\n" +
+            "-23.550500,-46.630000,3.5,10.0\n" +
+            "-23.551000,-46.629500,-1.0,15.5\n";
+
+    private static final String PHOTOS_CSV =
+            "x,y,z,pitch\n" +
+            "5.0,0.0,0.0,-30\n" +
+            "0.0,5.0,-2.0,-45\n" +
+            "-5.0,0.0,-4.0,-60\n" +
+            "0.0,-5.0,-6.0,-90\n";
+
+    private static final double HOME_LAT = -23.549500;
+    private static final double HOME_LON = -46.630500;
+
+    private static final InspectionMissionPlanner.Parameters PARAMETERS =
+            new InspectionMissionPlanner.Parameters(1.0f, 2.5f, 25.0f, 5.0f);
+
+    private InspectionCsvLoader.PhotoColumns photos;
+    private InspectionPlan plan;
+    private InspectionMissionPlanner planner;
+
+    @Before
+    public void setUp() throws IOException {
+        plan = new InspectionPlan();
+        plan.appendStructures(InspectionCsvLoader.readStructures(csv(STRUCTURES_CSV), STRUCTURES_CSV.length(), FAIL_ON_ERROR));
+        photos = InspectionCsvLoader.readPhotoPositions(csv(PHOTOS_CSV), PHOTOS_CSV.length(), FAIL_ON_ERROR);
+        plan.setPhotoPositions(photos);
+        planner = new InspectionMissionPlanner(PARAMETERS);
+    }
+
+    @Test
+    public void csvLoadsIntoPlan() {
+        assertEquals(3, plan.getStructureCount());
+        assertEquals(4, plan.getPhotoCount());
+        assertEquals(12, plan.getTotalPhotoCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, plan.getStructureId(i));
+        }
+        assertEquals(-23.5505, plan.getLatitude(1), 1e-12);
+        assertEquals(13.5f, plan.getTopElevation(1), 0);
+        assertEquals(-45f, plan.getGimbalPitch(1), 0);
+    }
+
+    @Test
+    public void waypointCountFollowsBlockLayout() {
+        PlannedMission mission = planner.plan(plan, HOME_LAT, HOME_LON);
+
+        // Home climb and first transit, then approach and photos per structure, then a safety
+        // climb and transit between consecutive structures
+        assertEquals(2 + 3 * (1 + 4) + 2 * 2, mission.size());
+        assertEquals(InspectionMissionPlanner.waypointCount(3, 4), mission.size());
+        assertEquals(0, InspectionMissionPlanner.waypointCount(0, 4));
+        assertEquals(0, planner.plan(new InspectionPlan(), HOME_LAT, HOME_LON).size());
+    }
+
+    @Test
+    public void missionStartsWithHomeClimb() {
+        PlannedMission mission = planner.plan(plan, HOME_LAT, HOME_LON);
+
+        assertEquals(PlannedMission.KIND_HOME_CLIMB, mission.getKind(0));
+        assertEquals(HOME_LAT, mission.getLatitude(0), 0);
+        assertEquals(HOME_LON, mission.getLongitude(0), 0);
+        assertEquals(PARAMETERS.safetyAltitude, mission.getAltitude(0), 0);
+        assertEquals(-1, mission.getStructureIndex(0));
+        assertTrue(Float.isNaN(mission.getGimbalPitch(0)));
+
+        assertEquals(PlannedMission.KIND_TRANSIT, mission.getKind(1));
+        assertEquals(plan.getLatitude(0), mission.getLatitude(1), 0);
+        assertEquals(plan.getLongitude(0), mission.getLongitude(1), 0);
+        assertEquals(PARAMETERS.safetyAltitude, mission.getAltitude(1), 0);
+    }
+
+    @Test
+    public void structuresAreJoinedAtSafetyAltitude() {
+        PlannedMission mission = planner.plan(plan, HOME_LAT, HOME_LON);
+        final byte photo = PlannedMission.KIND_PHOTO;
+        byte[] expectedKinds = {
+                PlannedMission.KIND_HOME_CLIMB, PlannedMission.KIND_TRANSIT,
+                PlannedMission.KIND_APPROACH, photo, photo, photo, photo, PlannedMission.KIND_SAFETY_CLIMB, PlannedMission.KIND_TRANSIT,
+                PlannedMission.KIND_APPROACH, photo, photo, photo, photo, PlannedMission.KIND_SAFETY_CLIMB, PlannedMission.KIND_TRANSIT,
+                PlannedMission.KIND_APPROACH, photo, photo, photo, photo};
+        byte[] kinds = new byte[mission.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = mission.getKind(i);
+        }
+        assertArrayEquals(expectedKinds, kinds);
+
+        for (int s = 0; s < 3; s++) {
+            int approach = InspectionMissionPlanner.blockStart(s, 4);
+            assertEquals(s, mission.getStructureIndex(approach));
+            assertEquals(PARAMETERS.baseAltitude + plan.getTopElevation(s) + PARAMETERS.safeDistance,
+                    mission.getAltitude(approach), 1e-4f);
+            if (s == 2) {
+                continue;
+            }
+            int climb = approach + 5;
+            int transit = climb + 1;
+            // Straight up from the last photo to safety altitude over the structure's ground
+            assertEquals(mission.getLatitude(climb - 1), mission.getLatitude(climb), 0);
+            assertEquals(mission.getLongitude(climb - 1), mission.getLongitude(climb), 0);
+            assertEquals(PARAMETERS.safetyAltitude + plan.getElevation(s), mission.getAltitude(climb), 1e-4f);
+            // Then across to the next structure at safety altitude over its ground
+            assertEquals(plan.getLatitude(s + 1), mission.getLatitude(transit), 0);
+            assertEquals(plan.getLongitude(s + 1), mission.getLongitude(transit), 0);
+            assertEquals(PARAMETERS.safetyAltitude + plan.getElevation(s + 1), mission.getAltitude(transit), 1e-4f);
+            assertEquals(s + 1, mission.getStructureIndex(transit));
+        }
+    }
+
+    @Test
+    public void photosFollowFileOrder() {
+        PlannedMission mission = planner.plan(plan, HOME_LAT, HOME_LON);
+
+        assertEquals(12, mission.getPhotoWaypointCount());
+        for (int ordinal = 0; ordinal < 12; ordinal++) {
+            int waypoint = mission.getPhotoWaypointIndex(ordinal);
+            int structure = ordinal / 4;
+            int photo = ordinal % 4;
+            assertEquals(InspectionMissionPlanner.blockStart(structure, 4) + 1 + photo, waypoint);
+            assertEquals(structure, mission.getStructureIndex(waypoint));
+            assertEquals(photo, mission.getPhotoIndex(waypoint));
+            assertEquals(plan.getGimbalPitch(photo), mission.getGimbalPitch(waypoint), 0);
+            assertEquals(PARAMETERS.baseAltitude + plan.getTopElevation(structure) + plan.getOffsetZ(photo),
+                    mission.getAltitude(waypoint), 1e-4f);
+            assertEquals(InspectionMissionPlanner.headingToStructure(plan.getOffsetX(photo), plan.getOffsetY(photo)),
+                    mission.getHeading(waypoint), 0);
+        }
+    }
+
+    @Test
+    public void photoOrderAndAlternateDirection() {
+        int[] photoOrder = {2, 0, 3, 1};
+        PlannedMission mission = planner.plan(plan, HOME_LAT, HOME_LON, photoOrder, true);
+
+        for (int structure = 0; structure < 3; structure++) {
+            for (int k = 0; k < 4; k++) {
+                int waypoint = mission.getPhotoWaypointIndex(structure * 4 + k);
+                // Every other structure flies the orbit backwards
+                int expected = structure % 2 == 0 ? photoOrder[k] : photoOrder[3 - k];
+                assertEquals(expected, mission.getPhotoIndex(waypoint));
+            }
+        }
+    }
+
+    @Test
+    public void replanMatchesFullPlan() {
+        PlannedMission previous = planner.plan(plan, HOME_LAT, HOME_LON);
+        assertSame(previous, planner.replan(previous, plan, plan, HOME_LAT, HOME_LON, null, false));
+
+        // Insert a structure between the first and the second
+        InspectionPlan edited = new InspectionPlan();
+        edited.appendStructure(plan.getLatitude(0), plan.getLongitude(0), plan.getElevation(0), plan.getHeight(0));
+        edited.appendStructure(-23.55025, -46.63025, 2.0f, 8.0f);
+        for (int i = 1; i < 3; i++) {
+            edited.appendStructure(plan.getLatitude(i), plan.getLongitude(i), plan.getElevation(i), plan.getHeight(i));
+        }
+        edited.setPhotoPositions(photos);
+
+        PlannedMission replanned = planner.replan(previous, plan, edited, HOME_LAT, HOME_LON, null, false);
+        PlannedMission full = planner.plan(edited, HOME_LAT, HOME_LON);
+        assertMissionsEqual(full, replanned);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void plannedMissionChecksIndices() {
+        planner.plan(plan, HOME_LAT, HOME_LON).getKind(21);
+    }
+
+    private static void assertMissionsEqual(PlannedMission expected, PlannedMission actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("kind " + i, expected.getKind(i), actual.getKind(i));
+            assertEquals("latitude " + i, expected.getLatitude(i), actual.getLatitude(i), 0);
+            assertEquals("longitude " + i, expected.getLongitude(i), actual.getLongitude(i), 0);
+            assertEquals("altitude " + i, expected.getAltitude(i), actual.getAltitude(i), 0);
+            assertEquals("heading " + i, expected.getHeading(i), actual.getHeading(i), 0);
+            assertEquals("structure " + i, expected.getStructureIndex(i), actual.getStructureIndex(i));
+            assertEquals("photo " + i, expected.getPhotoIndex(i), actual.getPhotoIndex(i));
+        }
+        assertArrayEquals(expected.getPhotoWaypointIndices(), actual.getPhotoWaypointIndices());
+    }
+
+    private static ByteArrayInputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final InspectionCsvLoader.Listener<Object> FAIL_ON_ERROR = new InspectionCsvLoader.Listener<Object>() {
+        @Override
+        public void onProgress(int rowsLoaded, long bytesRead, long totalBytes) {
+        }
+
+        @Override
+        public void onRowError(int lineNumber, String reason) {
+            fail("Line " + lineNumber + ": " + reason);
+        }
+
+        @Override
+        public void onLoaded(Object result) {
+        }
+
+        @Override
+        public void onFailed(IOException e) {
+            fail(e.toString());
+        }
+    };
+}
@@ -0,0 +1,91 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Cost of the plan cache against the work a hit saves, for a large inspection: computing the
+ * key, a memory hit, a disk hit after a restart, and optimizing plus planning from scratch.
+ * Each case runs a warm-up, then a fixed number of measured iterations, and prints the median;
+ * nothing is asserted about the timings, which depend on the machine.
+ */
+public class MissionPlanCacheBenchmark {
+
+    private static final int STRUCTURES = 2000;
+    private static final int PHOTOS = 24;
+    private static final long ROUTE_BUDGET_MS = 5000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 9;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("plan-cache-benchmark", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void hitVersusPlan() throws IOException {
+        final InspectionPlan plan = TestPlans.grid(STRUCTURES, PHOTOS);
+        final InspectionMissionPlanner planner = new InspectionMissionPlanner(TestPlans.PARAMETERS);
+
+        long[] keyNanos = new long[MEASURED_RUNS];
+        long[] memoryNanos = new long[MEASURED_RUNS];
+        long[] diskNanos = new long[MEASURED_RUNS];
+        long[] planNanos = new long[MEASURED_RUNS];
+        for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+            long t0 = System.nanoTime();
+            String key = MissionPlanCache.computeKey(plan, TestPlans.PARAMETERS,
+                    TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, "route=true");
+
+            long t1 = System.nanoTime();
+            int[] order = new RouteOptimizer(ROUTE_BUDGET_MS).optimize(plan,
+                    TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE).order;
+            InspectionPlan ordered = plan.reorder(order);
+            PlannedMission mission = planner.plan(ordered, TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE);
+            long t2 = System.nanoTime();
+
+            MissionPlanCache cache = new MissionPlanCache(directory, 4, 4);
+            cache.put(key, new CompiledMissionFile.Contents(ordered, order, mission,
+                    TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, TestPlans.PARAMETERS, false));
+            long t3 = System.nanoTime();
+            assertNotNull(cache.get(key));
+            long t4 = System.nanoTime();
+            // A new instance has an empty memory cache, as after an app restart
+            assertNotNull(new MissionPlanCache(directory, 4, 4).get(key));
+            long t5 = System.nanoTime();
+
+            if (run >= 0) {
+                keyNanos[run] = t1 - t0;
+                planNanos[run] = t2 - t1;
+                memoryNanos[run] = t4 - t3;
+                diskNanos[run] = t5 - t4;
+            }
+        }
+
+        System.out.println(String.format("MissionPlanCache %d structures x %d photos: key %.2f ms, " +
+                        "memory hit %.4f ms, disk hit %.2f ms, optimize and plan %.2f ms (median of %d)",
+                STRUCTURES, PHOTOS, CompiledMissionFileBenchmark.median(keyNanos) / 1e6,
+                CompiledMissionFileBenchmark.median(memoryNanos) / 1e6,
+                CompiledMissionFileBenchmark.median(diskNanos) / 1e6,
+                CompiledMissionFileBenchmark.median(planNanos) / 1e6, MEASURED_RUNS));
+    }
+}
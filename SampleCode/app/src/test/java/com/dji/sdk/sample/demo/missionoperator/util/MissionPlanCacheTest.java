@@ -0,0 +1,184 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MissionPlanCacheTest {
+
+    private static final String OPTIONS = "route=true;alternate=false";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("plan-cache", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static String key(InspectionPlan plan) {
+        return key(plan, TestPlans.PARAMETERS, TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, OPTIONS);
+    }
+
+    private static String key(InspectionPlan plan, InspectionMissionPlanner.Parameters parameters,
+                              double homeLatitude, double homeLongitude, String options) {
+        return MissionPlanCache.computeKey(plan, parameters, homeLatitude, homeLongitude, options);
+    }
+
+    @Test
+    public void keyIsStableHexSha256() {
+        String key = key(TestPlans.grid(30, 8));
+
+        assertEquals(64, key.length());
+        assertTrue(key.matches("[0-9a-f]{64}"));
+        assertEquals(key, key(TestPlans.grid(30, 8)));
+    }
+
+    @Test
+    public void keyIgnoresHomeJitterBelowQuantum() {
+        InspectionPlan plan = TestPlans.grid(30, 8);
+
+        assertEquals(key(plan), key(plan, TestPlans.PARAMETERS,
+                TestPlans.HOME_LATITUDE + 1e-7, TestPlans.HOME_LONGITUDE - 1e-7, OPTIONS));
+        assertNotEquals(key(plan), key(plan, TestPlans.PARAMETERS,
+                TestPlans.HOME_LATITUDE + 1e-4, TestPlans.HOME_LONGITUDE, OPTIONS));
+    }
+
+    @Test
+    public void keyChangesWithEveryInput() {
+        InspectionPlan plan = TestPlans.grid(30, 8);
+        String key = key(plan);
+
+        InspectionPlan added = TestPlans.grid(30, 8);
+        added.appendStructure(TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, 0, 10);
+        assertNotEquals(key, key(added));
+
+        InspectionPlan taller = new InspectionPlan();
+        for (int i = 0; i < 30; i++) {
+            taller.appendStructure(plan.getLatitude(i), plan.getLongitude(i), plan.getElevation(i),
+                    plan.getHeight(i) + (i == 7 ? 1 : 0));
+        }
+        taller.setPhotoPositions(photoColumn(plan, 0), photoColumn(plan, 1), photoColumn(plan, 2),
+                photoColumn(plan, 3), 0, plan.getPhotoCount());
+        assertNotEquals(key, key(taller));
+
+        InspectionPlan photos = TestPlans.grid(30, 8);
+        photos.setPhotoPositions(new float[]{1}, new float[]{2}, new float[]{3}, new float[]{-45}, 0, 1);
+        assertNotEquals(key, key(photos));
+
+        assertNotEquals(key, key(TestPlans.grid(30, 9)));
+        assertNotEquals(key, key(plan, new InspectionMissionPlanner.Parameters(0.0f, 3.0f, 25.0f, 5.0f),
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, OPTIONS));
+        assertNotEquals(key, key(plan, new InspectionMissionPlanner.Parameters(0.0f, 2.5f, 30.0f, 5.0f),
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, OPTIONS));
+        assertNotEquals(key, key(plan, TestPlans.PARAMETERS, TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE,
+                "route=false;alternate=false"));
+
+        // Reordering changes the key: callers hash the plan in CSV order
+        int[] reversed = new int[30];
+        for (int i = 0; i < 30; i++) {
+            reversed[i] = 29 - i;
+        }
+        assertNotEquals(key, key(plan.reorder(reversed)));
+    }
+
+    private static float[] photoColumn(InspectionPlan plan, int column) {
+        float[] values = new float[plan.getPhotoCount()];
+        for (int j = 0; j < values.length; j++) {
+            values[j] = column == 0 ? plan.getOffsetX(j) : column == 1 ? plan.getOffsetY(j)
+                    : column == 2 ? plan.getOffsetZ(j) : plan.getGimbalPitch(j);
+        }
+        return values;
+    }
+
+    @Test
+    public void memoryHitMissAndClear() throws IOException {
+        MissionPlanCache cache = new MissionPlanCache(null, 4, 4);
+        CompiledMissionFile.Contents entry = CompiledMissionFileTest.compile(10, 4, false);
+        String key = key(entry.plan);
+
+        assertNull(cache.get(key));
+        cache.put(key, entry);
+        assertSame(entry, cache.get(key));
+        assertNull(cache.get(key(TestPlans.grid(11, 4))));
+
+        cache.clear();
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void diskEntrySurvivesRestart() throws IOException {
+        CompiledMissionFile.Contents entry = CompiledMissionFileTest.compile(10, 4, false);
+        String key = key(entry.plan);
+        new MissionPlanCache(directory, 4, 4).put(key, entry);
+
+        CompiledMissionFile.Contents read = new MissionPlanCache(directory, 4, 4).get(key);
+        assertNotNull(read);
+        assertEquals(entry.mission.size(), read.mission.size());
+        assertEquals(entry.plan.getStructureCount(), read.plan.getStructureCount());
+    }
+
+    @Test
+    public void evictedFromMemoryIsServedFromDisk() throws IOException {
+        MissionPlanCache cache = new MissionPlanCache(directory, 1, 4);
+        CompiledMissionFile.Contents first = CompiledMissionFileTest.compile(10, 4, false);
+        CompiledMissionFile.Contents second = CompiledMissionFileTest.compile(12, 4, false);
+        cache.put("a", first);
+        cache.put("b", second);
+
+        CompiledMissionFile.Contents read = cache.get("a");
+        assertNotNull(read);
+        assertEquals(first.mission.size(), read.mission.size());
+    }
+
+    @Test
+    public void corruptDiskEntryIsAMissAndRemoved() throws IOException {
+        new MissionPlanCache(directory, 4, 4).put("a", CompiledMissionFileTest.compile(10, 4, false));
+        File file = new File(directory, "a" + CompiledMissionFile.FILE_EXTENSION);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(100);
+            int value = raf.read();
+            raf.seek(100);
+            raf.write(value ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        assertNull(new MissionPlanCache(directory, 4, 4).get("a"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void diskIsTrimmedToLimit() throws IOException {
+        MissionPlanCache cache = new MissionPlanCache(directory, 1, 2);
+        for (int i = 0; i < 5; i++) {
+            cache.put("k" + i, CompiledMissionFileTest.compile(3 + i, 2, false));
+        }
+
+        assertEquals(2, directory.listFiles().length);
+    }
+}
@@ -0,0 +1,81 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MissionSegmenterTest {
+
+    private static PlannedMission plan(int structureCount, int photoCount) {
+        return new InspectionMissionPlanner(TestPlans.PARAMETERS).plan(TestPlans.grid(structureCount, photoCount),
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE);
+    }
+
+    @Test
+    public void smallMissionIsOneSegment() {
+        PlannedMission mission = plan(3, 8);
+        List<MissionSegmenter.Segment> segments = MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+
+        assertEquals(1, segments.size());
+        assertEquals(0, segments.get(0).from);
+        assertEquals(mission.size(), segments.get(0).to);
+        assertTrue(segments.get(0).safeBoundary);
+    }
+
+    @Test
+    public void segmentsFitTheLimitAndHandOffAtTransits() {
+        PlannedMission mission = plan(60, 12);
+        List<MissionSegmenter.Segment> segments = MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+
+        assertTrue(segments.size() > 1);
+        assertEquals(0, segments.get(0).from);
+        assertEquals(mission.size(), segments.get(segments.size() - 1).to);
+        for (int s = 0; s < segments.size(); s++) {
+            MissionSegmenter.Segment segment = segments.get(s);
+            assertEquals(s, segment.index);
+            assertTrue(segment.size() >= 2);
+            assertTrue(segment.size() <= MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+            assertTrue(segment.safeBoundary);
+            if (s + 1 < segments.size()) {
+                // The next upload starts on the transit waypoint this one ends on
+                assertEquals(segment.to - 1, segments.get(s + 1).from);
+                assertEquals(PlannedMission.KIND_TRANSIT, mission.getKind(segment.to - 1));
+            }
+        }
+    }
+
+    @Test
+    public void oversizedStructureIsCutUnsafely() {
+        // One structure with more photos than fit in one upload
+        PlannedMission mission = plan(2, 150);
+        List<MissionSegmenter.Segment> segments = MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+
+        boolean cut = false;
+        for (MissionSegmenter.Segment segment : segments) {
+            assertTrue(segment.size() <= MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+            cut |= !segment.safeBoundary;
+        }
+        assertTrue(cut);
+        assertEquals(mission.size(), segments.get(segments.size() - 1).to);
+    }
+
+    @Test
+    public void findSegmentPrefersLaterSegmentForSharedWaypoint() {
+        PlannedMission mission = plan(60, 12);
+        List<MissionSegmenter.Segment> segments = MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+        int shared = segments.get(1).from;
+
+        assertEquals(1, MissionSegmenter.findSegment(segments, shared));
+        assertEquals(0, MissionSegmenter.findSegment(segments, shared - 1));
+        assertEquals(-1, MissionSegmenter.findSegment(segments, mission.size()));
+        assertEquals(-1, MissionSegmenter.findSegment(segments, -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLimitBelowTwo() {
+        MissionSegmenter.segment(plan(1, 1), 1);
+    }
+}
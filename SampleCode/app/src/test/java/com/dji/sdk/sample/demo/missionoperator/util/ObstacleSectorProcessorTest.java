@@ -0,0 +1,92 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ObstacleSectorProcessorTest {
+
+    private static final Object[] WARNING_NAMES = {"INVALID", "LEVEL_1", "LEVEL_2", "LEVEL_3"};
+    private static final Object[] SYSTEM_WARNING_NAMES = {"SAFE", "DANGEROUS", "UNKNOWN"};
+    private static final int SECTORS = 4;
+    /** Slack for the measurement itself, independent of the number of updates */
+    private static final long ALLOCATION_SLACK_BYTES = 1024;
+
+    @Test
+    public void publishTracksClosestSectorAndTrend() {
+        ObstacleSectorProcessor processor = new ObstacleSectorProcessor(SECTORS);
+        fill(processor, 5.0f);
+        processor.publish(SECTORS, 0, 1000000000L);
+        fill(processor, 4.0f);
+        processor.getInputDistances()[2] = 2.0f;
+        processor.publish(SECTORS, 1, 2000000000L);
+
+        assertEquals(2, processor.getClosestSector());
+        assertEquals(2.0f, processor.getClosestDistance(), 1e-6f);
+        assertEquals(ObstacleSectorProcessor.TREND_APPROACHING, processor.getTrend(2));
+
+        StringBuilder text = new StringBuilder();
+        processor.appendDescription(text, WARNING_NAMES, SYSTEM_WARNING_NAMES);
+        assertTrue(text.toString(), text.indexOf("Setor 3: 2.00m (Perigo: LEVEL_1) aproximando") >= 0);
+        assertTrue(text.toString(), text.toString().endsWith("Alerta do sistema: DANGEROUS"));
+    }
+
+    @Test
+    public void appendFixed2MatchesFormat() {
+        float[] values = {0f, 0.004f, 0.05f, 1.5f, 9.999f, 12.345f};
+        for (float value : values) {
+            StringBuilder text = new StringBuilder();
+            ObstacleSectorProcessor.appendFixed2(text, value);
+            assertEquals(String.format(java.util.Locale.US, "%.2f", value), text.toString());
+        }
+    }
+
+    @Test
+    public void updatesDoNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        ObstacleSectorProcessor processor = new ObstacleSectorProcessor(SECTORS);
+        StringBuilder text = new StringBuilder(512);
+
+        // Warm up so class loading and JIT compilation are out of the measured runs
+        drive(processor, text, 20000);
+        long small = measure(counter, processor, text, 1000);
+        long large = measure(counter, processor, text, 100000);
+
+        assertTrue("1000 updates allocated " + small + " bytes, 100000 allocated " + large,
+                large <= small + ALLOCATION_SLACK_BYTES);
+    }
+
+    private static long measure(AllocationCounter counter, ObstacleSectorProcessor processor, StringBuilder text, int updates) {
+        long before = counter.allocatedBytes();
+        drive(processor, text, updates);
+        return counter.allocatedBytes() - before;
+    }
+
+    private static void drive(ObstacleSectorProcessor processor, StringBuilder text, int updates) {
+        long now = 0;
+        for (int i = 0; i < updates; i++) {
+            float[] distances = processor.getInputDistances();
+            int[] levels = processor.getInputWarningLevels();
+            for (int s = 0; s < SECTORS; s++) {
+                distances[s] = 1.0f + ((i + s) % 50) * 0.1f;
+                levels[s] = (i + s) % WARNING_NAMES.length;
+            }
+            now += 100000000L;
+            processor.publish(SECTORS, i % SYSTEM_WARNING_NAMES.length, now);
+
+            // The UI reuses one builder per render
+            text.setLength(0);
+            processor.appendDescription(text, WARNING_NAMES, SYSTEM_WARNING_NAMES);
+        }
+    }
+
+    private static void fill(ObstacleSectorProcessor processor, float distance) {
+        float[] distances = processor.getInputDistances();
+        int[] levels = processor.getInputWarningLevels();
+        for (int s = 0; s < SECTORS; s++) {
+            distances[s] = distance;
+            levels[s] = 1;
+        }
+    }
+}
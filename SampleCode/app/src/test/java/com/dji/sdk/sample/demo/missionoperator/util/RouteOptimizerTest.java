@@ -0,0 +1,96 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RouteOptimizerTest {
+
+    private static final double HOME_LAT = TestPlans.HOME_LATITUDE;
+    private static final double HOME_LON = TestPlans.HOME_LONGITUDE;
+    /** About 100 m of latitude */
+    private static final double STEP = 0.0009;
+
+    @Test
+    public void unchangedPlanKeepsOrder() {
+        InspectionPlan plan = line(0, 1, 2, 3);
+        int[] previousOrder = {2, 0, 3, 1};
+
+        assertArrayEquals(previousOrder, RouteOptimizer.updateOrder(plan, previousOrder, line(0, 1, 2, 3),
+                HOME_LAT, HOME_LON));
+    }
+
+    @Test
+    public void removedStructureIsDropped() {
+        int[] order = RouteOptimizer.updateOrder(line(0, 1, 2, 3), new int[]{0, 1, 2, 3}, line(0, 1, 3),
+                HOME_LAT, HOME_LON);
+
+        // Rows after the removed one moved up, so the last structure is matched by location
+        assertArrayEquals(new int[]{0, 1, 2}, order);
+    }
+
+    @Test
+    public void insertedRowIsSplicedWhereItIsCheapest() {
+        // Route 0, 1, 3, 4 along a line; the new row sits between 1 and 3
+        int[] order = RouteOptimizer.updateOrder(line(0, 1, 3, 4), new int[]{0, 1, 2, 3}, line(0, 1, 2, 3, 4),
+                HOME_LAT, HOME_LON);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, order);
+    }
+
+    @Test
+    public void appendedRowBeyondTheEndGoesLast() {
+        int[] order = RouteOptimizer.updateOrder(line(0, 1, 2), new int[]{0, 1, 2}, line(0, 1, 2, 6),
+                HOME_LAT, HOME_LON);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3}, order);
+    }
+
+    @Test
+    public void movedStructureIsReinserted() {
+        // Structure 2 (CSV row 3) moves from the far end to the near end of the line
+        int[] order = RouteOptimizer.updateOrder(line(1, 2, 5), new int[]{0, 1, 2}, line(1, 2, 0),
+                HOME_LAT, HOME_LON);
+
+        assertArrayEquals(new int[]{2, 0, 1}, order);
+    }
+
+    @Test
+    public void unrelatedPlanReturnsNull() {
+        assertNull(RouteOptimizer.updateOrder(line(0, 1), new int[]{0, 1}, line(7, 8, 9), HOME_LAT, HOME_LON));
+    }
+
+    @Test
+    public void everyStructureAppearsOnce() {
+        InspectionPlan before = TestPlans.grid(200, 4);
+        int[] previousOrder = new RouteOptimizer(1000).optimize(before, HOME_LAT, HOME_LON).order;
+        InspectionPlan after = new InspectionPlan();
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 != 3) {
+                after.appendStructure(before.getLatitude(i), before.getLongitude(i), 0, 10);
+            }
+            if (i % 25 == 0) {
+                after.appendStructure(before.getLatitude(i) + STEP / 3, before.getLongitude(i), 0, 10);
+            }
+        }
+
+        int[] order = RouteOptimizer.updateOrder(before, previousOrder, after, HOME_LAT, HOME_LON);
+        assertEquals(after.getStructureCount(), order.length);
+        boolean[] seen = new boolean[order.length];
+        for (int index : order) {
+            assertEquals(false, seen[index]);
+            seen[index] = true;
+        }
+    }
+
+    // Structures north of home, at the given multiples of STEP, in CSV order
+    private static InspectionPlan line(int... steps) {
+        InspectionPlan plan = new InspectionPlan();
+        for (int step : steps) {
+            plan.appendStructure(HOME_LAT + STEP * step, HOME_LON, 0, 10);
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,68 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Producer side of the bridge only; JVM tests have no Choreographer, so the bridge stays stopped
+ * and every update takes the merge path an SDK callback thread takes while a frame is pending.
+ */
+public class TelemetryUiBridgeTest {
+
+    /** Slack for the measurement itself, independent of the number of updates */
+    private static final long ALLOCATION_SLACK_BYTES = 1024;
+
+    private static final TelemetryUiBridge.Renderer NO_RENDER = new TelemetryUiBridge.Renderer() {
+        @Override
+        public void render(int dirtyMask) {
+        }
+    };
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveRate() {
+        new TelemetryUiBridge(NO_RENDER, 0);
+    }
+
+    @Test
+    public void countsMergedAndDroppedUpdates() {
+        TelemetryUiBridge bridge = new TelemetryUiBridge(NO_RENDER, 30);
+        bridge.markDirty(1);
+        bridge.markDirty(2);
+        bridge.markDirty(1);
+        bridge.markDirty(1 | 4);
+
+        assertEquals(4, bridge.getUpdateCount());
+        assertEquals(2, bridge.getMergedUpdateCount());
+        assertEquals(4, bridge.getDroppedUpdateCount());
+        assertEquals(0, bridge.getRenderedFrameCount());
+    }
+
+    @Test
+    public void markDirtyDoesNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        TelemetryUiBridge bridge = new TelemetryUiBridge(NO_RENDER, 30);
+
+        // Warm up so class loading and JIT compilation are out of the measured runs
+        drive(bridge, 20000);
+        long small = measure(counter, bridge, 1000);
+        long large = measure(counter, bridge, 100000);
+
+        assertTrue("1000 updates allocated " + small + " bytes, 100000 allocated " + large,
+                large <= small + ALLOCATION_SLACK_BYTES);
+        assertEquals(121000, bridge.getUpdateCount());
+    }
+
+    private static long measure(AllocationCounter counter, TelemetryUiBridge bridge, int updates) {
+        long before = counter.allocatedBytes();
+        drive(bridge, updates);
+        return counter.allocatedBytes() - before;
+    }
+
+    private static void drive(TelemetryUiBridge bridge, int updates) {
+        for (int i = 0; i < updates; i++) {
+            bridge.markDirty(1 << (i & 7));
+        }
+    }
+}
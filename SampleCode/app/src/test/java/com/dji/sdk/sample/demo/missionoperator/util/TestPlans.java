@@ -0,0 +1,50 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+/**
+ * Synthetic plans for the JVM tests
+ */
+final class TestPlans {
+
+    static final double HOME_LATITUDE = -23.5500;
+    static final double HOME_LONGITUDE = -46.6300;
+
+    static final InspectionMissionPlanner.Parameters PARAMETERS =
+            new InspectionMissionPlanner.Parameters(0.0f, 2.5f, 25.0f, 5.0f);
+
+    private TestPlans() {
+    }
+
+    /**
+     * Structures on a grid about 50 m apart with varying elevations and heights, and photo
+     * positions on a ring around each structure
+     */
+    static InspectionPlan grid(int structureCount, int photoCount) {
+        InspectionPlan plan = new InspectionPlan(structureCount);
+        int columns = Math.max(1, (int) Math.sqrt(structureCount));
+        for (int i = 0; i < structureCount; i++) {
+            plan.appendStructure(HOME_LATITUDE + 0.0005 * (i / columns), HOME_LONGITUDE + 0.0005 * (i % columns),
+                    (i * 7) % 13, 10 + (i * 3) % 11);
+        }
+        float[] x = new float[photoCount];
+        float[] y = new float[photoCount];
+        float[] z = new float[photoCount];
+        float[] pitch = new float[photoCount];
+        for (int j = 0; j < photoCount; j++) {
+            double angle = 2 * Math.PI * j / photoCount;
+            x[j] = (float) (6 * Math.cos(angle));
+            y[j] = (float) (6 * Math.sin(angle));
+            z[j] = -2 * (j % 3);
+            pitch[j] = -30 - 10 * (j % 3);
+        }
+        plan.setPhotoPositions(x, y, z, pitch, 0, photoCount);
+        return plan;
+    }
+
+    static int[] identityOrder(int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,87 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cost per execution event of classifying the target waypoint with the role table, against
+ * the boxed photo waypoint list it replaced. 30k events is ten minutes of 50 Hz updates; the
+ * mission has about 20k waypoints. Prints the median of several runs after a warm-up.
+ */
+public class WaypointRoleTableBenchmark {
+
+    private static final int STRUCTURES = 1300;
+    private static final int PHOTOS = 12;
+    private static final int EVENTS = 30000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 11;
+
+    @Test
+    public void classifyEvents() {
+        PlannedMission mission = new InspectionMissionPlanner(TestPlans.PARAMETERS).plan(
+                TestPlans.grid(STRUCTURES, PHOTOS), TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE);
+
+        long start = System.nanoTime();
+        List<MissionSegmenter.Segment> segments = MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+        long segmented = System.nanoTime();
+        WaypointRoleTable table = new WaypointRoleTable(mission, segments);
+        long built = System.nanoTime();
+
+        List<Integer> photoWaypoints = new ArrayList<>();
+        for (int index : mission.getPhotoWaypointIndices()) {
+            photoWaypoints.add(index);
+        }
+
+        long[] tableNanos = new long[MEASURED_RUNS];
+        long[] listNanos = new long[MEASURED_RUNS];
+        long tablePhotos = 0;
+        long listPhotos = 0;
+        for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+            long t0 = System.nanoTime();
+            tablePhotos = classify(table, EVENTS);
+            long t1 = System.nanoTime();
+            listPhotos = classify(photoWaypoints, mission.size(), EVENTS);
+            long t2 = System.nanoTime();
+            if (run >= 0) {
+                tableNanos[run] = t1 - t0;
+                listNanos[run] = t2 - t1;
+            }
+        }
+        assertEquals(listPhotos, tablePhotos);
+
+        System.out.println(String.format("WaypointRoleTable %d waypoints in %d segments: segment %.2f ms, " +
+                        "build %.2f ms; per event: table %.4f us, boxed list %.4f us (median of %d)",
+                mission.size(), segments.size(), (segmented - start) / 1e6, (built - segmented) / 1e6,
+                CompiledMissionFileBenchmark.median(tableNanos) / 1e3 / EVENTS,
+                CompiledMissionFileBenchmark.median(listNanos) / 1e3 / EVENTS, MEASURED_RUNS));
+    }
+
+    // Events walk the mission like a flight does, one target waypoint after the other
+    static long classify(WaypointRoleTable table, int events) {
+        long checksum = 0;
+        final int size = table.size();
+        for (int e = 0; e < events; e++) {
+            long entry = table.get(e % size);
+            if (WaypointRoleTable.isPhoto(entry)) {
+                checksum += table.getPhotoOrdinal(e % size) + WaypointRoleTable.structureIndex(entry);
+            }
+        }
+        return checksum;
+    }
+
+    private static long classify(List<Integer> photoWaypoints, int size, int events) {
+        long checksum = 0;
+        for (int e = 0; e < events; e++) {
+            int waypoint = e % size;
+            if (photoWaypoints.contains(waypoint)) {
+                // Photo waypoints of structure i follow its approach at 2 + i * (PHOTOS + 3)
+                checksum += photoWaypoints.indexOf(waypoint) + (waypoint - 2) / (PHOTOS + 3);
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dji.sdk.sample.demo.missionoperator.util;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WaypointRoleTableTest {
+
+    /** Slack for the measurement itself, independent of the number of lookups */
+    private static final long ALLOCATION_SLACK_BYTES = 1024;
+
+    @Test
+    public void entriesMatchTheMission() {
+        PlannedMission mission = new InspectionMissionPlanner(TestPlans.PARAMETERS).plan(TestPlans.grid(40, 12),
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE, null, true);
+        List<MissionSegmenter.Segment> segments = MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION);
+        WaypointRoleTable table = new WaypointRoleTable(mission, segments);
+
+        assertEquals(mission.size(), table.size());
+        assertEquals(mission.getPhotoWaypointCount(), table.getPhotoWaypointCount());
+        int photoOrdinal = 0;
+        for (int i = 0; i < mission.size(); i++) {
+            long entry = table.get(i);
+            assertEquals(mission.getKind(i), WaypointRoleTable.kind(entry));
+            assertEquals(mission.getStructureIndex(i), WaypointRoleTable.structureIndex(entry));
+            assertEquals(mission.getPhotoIndex(i), WaypointRoleTable.photoIndex(entry));
+            assertEquals(MissionSegmenter.findSegment(segments, i), WaypointRoleTable.segment(entry));
+            if (mission.isPhoto(i)) {
+                assertTrue(table.isPhoto(i));
+                assertEquals(i, mission.getPhotoWaypointIndex(photoOrdinal));
+                assertEquals(photoOrdinal++, table.getPhotoOrdinal(i));
+            } else {
+                assertFalse(table.isPhoto(i));
+                assertEquals(-1, table.getPhotoOrdinal(i));
+            }
+        }
+    }
+
+    @Test
+    public void outOfRangeIsNone() {
+        PlannedMission mission = new InspectionMissionPlanner(TestPlans.PARAMETERS).plan(TestPlans.grid(2, 3),
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE);
+        WaypointRoleTable table = new WaypointRoleTable(mission,
+                MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION));
+
+        assertEquals(WaypointRoleTable.NONE, table.get(-1));
+        assertEquals(WaypointRoleTable.NONE, table.get(mission.size()));
+        assertEquals(-1, WaypointRoleTable.kind(WaypointRoleTable.NONE));
+        assertEquals(-1, WaypointRoleTable.segment(WaypointRoleTable.NONE));
+        assertEquals(-1, WaypointRoleTable.structureIndex(WaypointRoleTable.NONE));
+        assertEquals(-1, WaypointRoleTable.photoIndex(WaypointRoleTable.NONE));
+        assertEquals(-1, table.getPhotoOrdinal(mission.size()));
+        // The climb above home belongs to no structure
+        assertEquals(-1, WaypointRoleTable.structureIndex(table.get(0)));
+    }
+
+    @Test
+    public void lookupsDoNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        PlannedMission mission = new InspectionMissionPlanner(TestPlans.PARAMETERS).plan(TestPlans.grid(500, 12),
+                TestPlans.HOME_LATITUDE, TestPlans.HOME_LONGITUDE);
+        WaypointRoleTable table = new WaypointRoleTable(mission,
+                MissionSegmenter.segment(mission, MissionSegmenter.MAX_WAYPOINTS_PER_MISSION));
+
+        // Warm up so class loading and JIT compilation are out of the measured runs
+        WaypointRoleTableBenchmark.classify(table, 20000);
+        long before = counter.allocatedBytes();
+        WaypointRoleTableBenchmark.classify(table, 1000);
+        long small = counter.allocatedBytes() - before;
+        before = counter.allocatedBytes();
+        WaypointRoleTableBenchmark.classify(table, 100000);
+        long large = counter.allocatedBytes() - before;
+
+        assertTrue("1000 lookups allocated " + small + " bytes, 100000 allocated " + large,
+                large <= small + ALLOCATION_SLACK_BYTES);
+    }
+}